@@ -89,6 +89,7 @@ public interface Changes {
     private String query;
     private int limit;
     private int start;
+    private String cursor;
     private boolean isNoLimit;
     private boolean allowIncompleteResults;
     private Set<ListChangesOption> options = EnumSet.noneOf(ListChangesOption.class);
@@ -116,6 +117,12 @@ public interface Changes {
       return this;
     }
 
+    /** Continue after the change that the {@code _cursor} of a previous result points to. */
+    public QueryRequest withCursor(String cursor) {
+      this.cursor = cursor;
+      return this;
+    }
+
     @UsedAt(UsedAt.Project.GOOGLE)
     public QueryRequest withAllowIncompleteResults(boolean allow) {
       this.allowIncompleteResults = allow;
@@ -168,6 +175,10 @@ public interface Changes {
       return start;
     }
 
+    public String getCursor() {
+      return cursor;
+    }
+
     @UsedAt(UsedAt.Project.GOOGLE)
     public boolean getAllowIncompleteResults() {
       return allowIncompleteResults;
@@ -190,6 +201,9 @@ public interface Changes {
       if (start != 0) {
         sb.append(", start=").append(start);
       }
+      if (cursor != null) {
+        sb.append(", cursor=").append(cursor);
+      }
       if (!options.isEmpty()) {
         sb.append("options=").append(options);
       }
@@ -62,6 +62,8 @@ public interface FileApi {
     private Boolean intraline;
     private Whitespace whitespace;
     private OptionalInt parent = OptionalInt.empty();
+    private OptionalInt maxHunks = OptionalInt.empty();
+    private String continuation;
 
     public abstract DiffInfo get() throws RestApiException;
 
@@ -85,6 +87,21 @@ public interface FileApi {
       return this;
     }
 
+    /**
+     * Computes the diff in streaming mode, which returns at most {@code maxHunks} hunks and works
+     * for files that are too large for the regular diff.
+     */
+    public DiffRequest withMaxHunks(int maxHunks) {
+      this.maxHunks = OptionalInt.of(maxHunks);
+      return this;
+    }
+
+    /** Continues a diff in streaming mode at {@link DiffInfo#continuation}. */
+    public DiffRequest withContinuation(String continuation) {
+      this.continuation = continuation;
+      return this;
+    }
+
     public String getBase() {
       return base;
     }
@@ -100,6 +117,14 @@ public interface FileApi {
     public OptionalInt getParent() {
       return parent;
     }
+
+    public OptionalInt getMaxHunks() {
+      return maxHunks;
+    }
+
+    public String getContinuation() {
+      return continuation;
+    }
   }
 
   abstract class BlameRequest {
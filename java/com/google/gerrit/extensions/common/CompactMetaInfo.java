@@ -0,0 +1,27 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.extensions.common;
+
+/** Result of compacting the history of a change meta ref. */
+public class CompactMetaInfo {
+  /** Number of commits of the meta ref before the compaction. */
+  public Integer commitsBefore;
+
+  /** Number of commits of the meta ref after the compaction. */
+  public Integer commitsAfter;
+
+  /** Whether the meta ref was left unchanged because the compaction was a dry run. */
+  public Boolean dryRun;
+}
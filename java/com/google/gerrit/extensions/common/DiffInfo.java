@@ -36,6 +36,8 @@ public class DiffInfo {
   public List<WebLinkInfo> editWebLinks;
   // Binary file
   public Boolean binary;
+  // Token to continue a diff in streaming mode, only set if more hunks may follow
+  public String continuation;
 
   public enum IntraLineStatus {
     OK,
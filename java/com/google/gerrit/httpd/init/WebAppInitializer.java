@@ -93,7 +93,10 @@ import com.google.gerrit.server.mail.SignedTokenEmailTokenVerifier.SignedTokenEm
 import com.google.gerrit.server.mail.receive.MailReceiver.MailReceiverModule;
 import com.google.gerrit.server.mail.send.SmtpEmailSender.SmtpEmailSenderModule;
 import com.google.gerrit.server.mime.MimeUtil2Module;
+import com.google.gerrit.server.notedb.DraftCommentIndex;
+import com.google.gerrit.server.notedb.StarredChangesIndex;
 import com.google.gerrit.server.patch.DiffExecutorModule;
+import com.google.gerrit.server.patch.DiffPrecomputer;
 import com.google.gerrit.server.permissions.DefaultPermissionBackendModule;
 import com.google.gerrit.server.plugins.PluginGuiceEnvironment;
 import com.google.gerrit.server.plugins.PluginModule;
@@ -310,6 +313,7 @@ public class WebAppInitializer extends GuiceServletContextListener implements Fi
     modules.add(new StreamEventsApiListenerModule(config));
     modules.add(new SysExecutorModule());
     modules.add(new DiffExecutorModule());
+    modules.add(new DiffPrecomputer.DiffPrecomputerModule(config));
     modules.add(new MimeUtil2Module());
 
     modules.add(cfgInjector.getInstance(AccountCacheImpl.AccountCacheModule.class));
@@ -371,6 +375,8 @@ public class WebAppInitializer extends GuiceServletContextListener implements Fi
     modules.add(new AttentionSetOwnerAdderModule());
     modules.add(new ChangeCleanupRunnerModule());
     modules.add(new DraftCommentsCleanupRunner.Module());
+    modules.add(new DraftCommentIndex.ReconcilerModule());
+    modules.add(new StarredChangesIndex.LoaderModule());
     modules.add(new AccountDeactivatorModule());
     modules.add(new DefaultLockManagerModule());
     modules.add(new ExternalIdCaseSensitivityMigrator.ExternalIdCaseSensitivityMigratorModule());
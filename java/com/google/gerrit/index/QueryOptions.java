@@ -110,10 +110,11 @@ public abstract class QueryOptions {
         Math.min(
             Math.min(Ints.saturatedCast((long) pageSize() + start()), config().maxPageSize()),
             backendLimit);
+    // Keep a search-after position provided by the caller; it is only ever set when start is 0.
     return create(
         config(),
         0,
-        null,
+        searchAfter(),
         pageSize,
         pageSizeMultiplier(),
         limit,
@@ -18,6 +18,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.PaginationType;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -86,6 +87,22 @@ public class AndSource<T> extends AndPredicate<T> implements DataSource<T> {
     return buffer;
   }
 
+  /**
+   * Returns the objects of a partition read from the selected source that match all predicates of
+   * this source, in their original order.
+   *
+   * @param partition objects read from the selected source
+   */
+  protected List<T> filter(List<T> partition) {
+    List<T> r = new ArrayList<>(partition.size());
+    for (T data : partition) {
+      if (match(data)) {
+        r.add(data);
+      }
+    }
+    return r;
+  }
+
   @Override
   public int getCardinality() {
     return cardinality;
@@ -114,6 +131,11 @@ public class AndSource<T> extends AndPredicate<T> implements DataSource<T> {
     protected boolean isMatchable() {
       return AndSource.this.isMatchable();
     }
+
+    @Override
+    protected List<T> filter(List<T> partition) {
+      return AndSource.this.filter(partition);
+    }
   }
 
   private class DatasourceWithPagination extends PaginatingSource<T> {
@@ -131,5 +153,10 @@ public class AndSource<T> extends AndPredicate<T> implements DataSource<T> {
     protected boolean isMatchable() {
       return AndSource.this.isMatchable();
     }
+
+    @Override
+    protected List<T> filter(List<T> partition) {
+      return AndSource.this.filter(partition);
+    }
   }
 }
@@ -54,12 +54,10 @@ public class FilteredSource<T> implements DataSource<T> {
           List<T> r = new ArrayList<>();
           T last = null;
           int pageResultSize = 0;
-          for (T data : buffer(resultSet)) {
-            if (!isMatchable() || match(data)) {
-              r.add(data);
-            }
-            last = data;
-            pageResultSize++;
+          for (List<T> partition : partitions(resultSet)) {
+            r.addAll(filter(partition));
+            last = Iterables.getLast(partition);
+            pageResultSize += partition.size();
           }
 
           if (last != null && source instanceof Paginated) {
@@ -72,11 +70,9 @@ public class FilteredSource<T> implements DataSource<T> {
             while (pageResultSize == limit && r.size() < limit) {
               ResultSet<T> next = p.restart(nextStart);
               pageResultSize = 0;
-              for (T data : buffer(next)) {
-                if (match(data)) {
-                  r.add(data);
-                }
-                pageResultSize++;
+              for (List<T> partition : partitions(next)) {
+                r.addAll(filter(partition));
+                pageResultSize += partition.size();
               }
               nextStart += pageResultSize;
             }
@@ -97,8 +93,32 @@ public class FilteredSource<T> implements DataSource<T> {
   }
 
   protected Iterable<T> buffer(ResultSet<T> scanner) {
-    return FluentIterable.from(Iterables.partition(scanner, PARTITION_SIZE))
-        .transformAndConcat(this::transformBuffer);
+    return FluentIterable.from(partitions(scanner)).transformAndConcat(list -> list);
+  }
+
+  protected Iterable<List<T>> partitions(ResultSet<T> scanner) {
+    return Iterables.transform(Iterables.partition(scanner, PARTITION_SIZE), this::transformBuffer);
+  }
+
+  /**
+   * Returns the objects of a partition that match this data source, in their original order.
+   *
+   * <p>Subclasses may override this to evaluate the matches of all objects in the partition at
+   * once, e.g. concurrently.
+   *
+   * @param partition objects read from the source
+   */
+  protected List<T> filter(List<T> partition) {
+    if (!isMatchable()) {
+      return partition;
+    }
+    List<T> r = new ArrayList<>(partition.size());
+    for (T data : partition) {
+      if (match(data)) {
+        r.add(data);
+      }
+    }
+    return r;
   }
 
   protected List<T> transformBuffer(List<T> buffer) {
@@ -15,6 +15,7 @@
 package com.google.gerrit.index.query;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.index.IndexConfig;
@@ -43,12 +44,10 @@ public class PaginatingSource<T> extends FilteredSource<T> {
           List<T> r = new ArrayList<>();
           T last = null;
           int pageResultSize = 0;
-          for (T data : buffer(resultSet)) {
-            if (!isMatchable() || match(data)) {
-              r.add(data);
-            }
-            last = data;
-            pageResultSize++;
+          for (List<T> partition : partitions(resultSet)) {
+            r.addAll(filter(partition));
+            last = Iterables.getLast(partition);
+            pageResultSize += partition.size();
           }
 
           if (last != null && source instanceof Paginated) {
@@ -61,19 +60,22 @@ public class PaginatingSource<T> extends FilteredSource<T> {
             int pageSize = opts.pageSize();
             int pageSizeMultiplier = opts.pageSizeMultiplier();
             Object searchAfter = resultSet.searchAfter();
+            // A query that was started at a search-after position can only be continued by
+            // search-after, as offsets would be relative to that position.
+            boolean useSearchAfter =
+                indexConfig.paginationType().equals(PaginationType.SEARCH_AFTER)
+                    || opts.searchAfter() != null;
             int nextStart = pageResultSize;
             while (pageResultSize == pageSize && r.size() <= limit) { // get 1 more than the limit
               pageSize = getNextPageSize(pageSize, pageSizeMultiplier);
               ResultSet<T> next =
-                  indexConfig.paginationType().equals(PaginationType.SEARCH_AFTER)
+                  useSearchAfter
                       ? p.restart(searchAfter, pageSize)
                       : p.restart(nextStart, pageSize);
               pageResultSize = 0;
-              for (T data : buffer(next)) {
-                if (match(data)) {
-                  r.add(data);
-                }
-                pageResultSize++;
+              for (List<T> partition : partitions(next)) {
+                r.addAll(filter(partition));
+                pageResultSize += partition.size();
                 if (r.size() > limit) {
                   break;
                 }
@@ -87,6 +87,7 @@ public abstract class QueryProcessor<T> {
   private final AtomicBoolean used;
 
   protected int start;
+  @Nullable protected Object searchAfter;
 
   private boolean enforceVisibility = true;
   private int userProvidedLimit;
@@ -118,6 +119,23 @@ public abstract class QueryProcessor<T> {
     return this;
   }
 
+  /**
+   * Resume the query directly after the given position instead of skipping a number of results.
+   *
+   * <p>The position is opaque to the query processor and is passed as-is to the index backend,
+   * which must know how to interpret it. It cannot be combined with a non-zero {@link
+   * #setStart(int) start}, and can only be used for a single query, since it belongs to the query
+   * it was issued for.
+   *
+   * @param searchAfter index-specific search-after position, or null to start from the beginning.
+   * @return this.
+   */
+  @CanIgnoreReturnValue
+  public QueryProcessor<T> setSearchAfter(@Nullable Object searchAfter) {
+    this.searchAfter = searchAfter;
+    return this;
+  }
+
   /**
    * Specify whether to enforce visibility by filtering out results that are not visible to the
    * user.
@@ -138,6 +156,11 @@ public abstract class QueryProcessor<T> {
     return this;
   }
 
+  /** Returns whether {@link #enforceVisibility(boolean) visibility is enforced}. */
+  protected boolean isVisibilityEnforced() {
+    return enforceVisibility;
+  }
+
   /** Convenience method for API backward compatibility. */
   @CanIgnoreReturnValue
   public QueryProcessor<T> setUserProvidedLimit(int n) {
@@ -206,8 +229,23 @@ public abstract class QueryProcessor<T> {
    *     input.
    */
   public List<QueryResult<T>> query(List<Predicate<T>> queries) throws QueryParseException {
+    return queryByStrings(null, queries);
+  }
+
+  /**
+   * Perform multiple queries that were parsed from query strings in parallel.
+   *
+   * @see #query(List)
+   * @param queryStrings the query strings as provided by the user, one per query.
+   * @param queries list of queries, parsed from {@code queryStrings}.
+   * @return results of the queries, one QueryResult per input query, in the same order as the
+   *     input.
+   */
+  public List<QueryResult<T>> queryByStrings(
+      @Nullable List<String> queryStrings, List<Predicate<T>> queries)
+      throws QueryParseException {
     try {
-      return query(null, queries);
+      return query(queryStrings, queries);
     } catch (StorageException e) {
       if (e.getCause() != null) {
         Throwables.throwIfInstanceOf(e.getCause(), QueryParseException.class);
@@ -231,6 +269,12 @@ public abstract class QueryProcessor<T> {
     if (isDisabled()) {
       return disabledResults(queryStrings, queries);
     }
+    if (searchAfter != null && start > 0) {
+      throw new QueryParseException("Cannot combine a start offset with a search-after position");
+    }
+    if (searchAfter != null && cnt > 1) {
+      throw new QueryParseException("A search-after position can only be used with a single query");
+    }
 
     logger.atFine().log("Executing %d %s index queries", cnt, schemaDef.getName());
     List<QueryResult<T>> out;
@@ -286,6 +330,9 @@ public abstract class QueryProcessor<T> {
                 limit == getBackendSupportedLimit() ? limit : Ints.saturatedCast((long) limit + 1),
                 allowIncompleteResults,
                 getRequestedFields());
+        if (searchAfter != null) {
+          opts = opts.withSearchAfter(searchAfter);
+        }
         logger.atFine().log("Query options: %s", opts);
         // Apply index-specific rewrite first
         Predicate<T> pred = rewriter.rewrite(q, opts);
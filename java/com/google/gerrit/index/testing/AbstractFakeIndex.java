@@ -18,6 +18,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.gerrit.server.index.change.ChangeField.CHANGENUM_SPEC;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
@@ -52,6 +53,7 @@ import com.google.gerrit.server.index.change.ChangeIndex;
 import com.google.gerrit.server.index.group.GroupIndex;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.gerrit.server.query.change.ChangePredicates;
+import com.google.gerrit.server.query.change.ChangeQueryCursor;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.time.Instant;
@@ -157,12 +159,7 @@ public abstract class AbstractFakeIndex<K, V, D> implements Index<K, V> {
               .sorted(sortingComparator());
       if (opts.searchAfter() != null) {
         ImmutableList<V> valueList = valueStream.collect(toImmutableList());
-        int fromIndex =
-            IntStream.range(0, valueList.size())
-                    .filter(i -> keyFor(valueList.get(i)).equals(opts.searchAfter()))
-                    .findFirst()
-                    .orElse(-1)
-                + 1;
+        int fromIndex = searchAfterIndex(valueList, opts.searchAfter());
         int toIndex = Math.min(fromIndex + opts.getLimitBasedOnPaginationType(), valueList.size());
         results = valueList.subList(fromIndex, toIndex);
       } else {
@@ -229,6 +226,18 @@ public abstract class AbstractFakeIndex<K, V, D> implements Index<K, V> {
     IndexUtils.setReady(sitePaths, indexName, schema.getVersion(), ready);
   }
 
+  /**
+   * Returns the index of the first value in {@code values} that comes after the given search-after
+   * position.
+   */
+  protected int searchAfterIndex(List<V> values, Object searchAfter) {
+    return IntStream.range(0, values.size())
+            .filter(i -> keyFor(values.get(i)).equals(searchAfter))
+            .findFirst()
+            .orElse(-1)
+        + 1;
+  }
+
   /** Method to get a key from a document. */
   protected abstract K keyFor(V doc);
 
@@ -274,6 +283,29 @@ public abstract class AbstractFakeIndex<K, V, D> implements Index<K, V> {
       return value.virtualId();
     }
 
+    @Override
+    protected int searchAfterIndex(List<ChangeData> values, Object searchAfter) {
+      if (!(searchAfter instanceof ChangeQueryCursor)) {
+        return super.searchAfterIndex(values, searchAfter);
+      }
+      ChangeQueryCursor cursor = (ChangeQueryCursor) searchAfter;
+      for (int i = 0; i < values.size(); i++) {
+        ChangeData cd = values.get(i);
+        int c =
+            ComparisonChain.start()
+                .compare(cursor.lastUpdatedMillis(), cd.change().getLastUpdatedOn().toEpochMilli())
+                .compare(
+                    cursor.mergedOnMillis(),
+                    cd.getMergedOn().orElse(Instant.EPOCH).toEpochMilli())
+                .compare(cursor.id(), cd.virtualId().get())
+                .result();
+        if (c > 0) {
+          return i;
+        }
+      }
+      return values.size();
+    }
+
     @Override
     protected Comparator<ChangeData> sortingComparator() {
       Comparator<ChangeData> lastUpdated =
@@ -346,6 +346,16 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
     return writer;
   }
 
+  /** Loads the files of the current searcher into memory, see {@link LuceneIndexWarmer}. */
+  void warmUp() throws IOException {
+    IndexSearcher searcher = acquire();
+    try {
+      LuceneIndexWarmer.preload(dir, searcher);
+    } finally {
+      release(searcher);
+    }
+  }
+
   IndexSearcher acquire() throws IOException {
     return searcherManager.acquire();
   }
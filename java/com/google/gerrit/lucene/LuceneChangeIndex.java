@@ -61,6 +61,7 @@ import com.google.gerrit.server.index.change.ChangeIndexRewriter;
 import com.google.gerrit.server.index.options.AutoFlush;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.gerrit.server.query.change.ChangeDataSource;
+import com.google.gerrit.server.query.change.ChangeQueryCursor;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.protobuf.MessageLite;
@@ -82,6 +83,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -206,6 +208,11 @@ public class LuceneChangeIndex implements ChangeIndex {
     }
   }
 
+  void warmUp() throws IOException {
+    openIndex.warmUp();
+    closedIndex.warmUp();
+  }
+
   @Override
   public Schema<ChangeData> getSchema() {
     return schema;
@@ -335,8 +342,11 @@ public class LuceneChangeIndex implements ChangeIndex {
       this.opts = opts;
       this.sort = sort;
       this.rawDocumentMapper = rawDocumentMapper;
+      // A query started from a cursor can only be continued using search-after, regardless of the
+      // configured pagination type.
       this.isSearchAfterPagination =
-          opts.config().paginationType().equals(PaginationType.SEARCH_AFTER);
+          opts.config().paginationType().equals(PaginationType.SEARCH_AFTER)
+              || opts.searchAfter() != null;
     }
 
     @Override
@@ -433,7 +443,7 @@ public class LuceneChangeIndex implements ChangeIndex {
           ChangeSubIndex subIndex = indexes.get(i);
           searchers[i] = subIndex.acquire();
           if (isSearchAfterPagination) {
-            ScoreDoc searchAfter = getSearchAfter(subIndex);
+            ScoreDoc searchAfter = getSearchAfter(subIndex, searchers[i]);
             int maxRemainingHits = queryLimit - searchAfterHitsCount;
             if (maxRemainingHits > 0) {
               TopFieldDocs subIndexHits =
@@ -498,14 +508,22 @@ public class LuceneChangeIndex implements ChangeIndex {
      * PaginationType#SEARCH_AFTER search-after}, otherwise returns the last doc from previous
      * search on the given change sub-index.
      *
+     * <p>If the query was started from a {@link ChangeQueryCursor}, the cursor is converted into a
+     * {@link FieldDoc} carrying the sort values it was created from. The same position is valid for
+     * all sub-indexes since they share the sort order.
+     *
      * @param subIndex change sub-index
      * @return the score doc that can be used to page result sets
      */
     @Nullable
-    private ScoreDoc getSearchAfter(ChangeSubIndex subIndex) {
-      if (isSearchAfterPagination
-          && opts.searchAfter() != null
-          && opts.searchAfter() instanceof Map
+    private ScoreDoc getSearchAfter(ChangeSubIndex subIndex, IndexSearcher searcher) {
+      if (!isSearchAfterPagination || opts.searchAfter() == null) {
+        return null;
+      }
+      if (opts.searchAfter() instanceof ChangeQueryCursor) {
+        return toFieldDoc((ChangeQueryCursor) opts.searchAfter(), searcher);
+      }
+      if (opts.searchAfter() instanceof Map
           && ((Map<?, ?>) opts.searchAfter()).get(subIndex) instanceof ScoreDoc) {
         return (ScoreDoc) ((Map<?, ?>) opts.searchAfter()).get(subIndex);
       }
@@ -513,6 +531,24 @@ public class LuceneChangeIndex implements ChangeIndex {
     }
   }
 
+  /**
+   * Converts a cursor into a search-after doc matching {@link #getSort()} for the given searcher.
+   *
+   * <p>Lucene only accepts search-after docs with a doc ID below {@code maxDoc} of the searched
+   * index, and uses the doc ID as tie-breaker between hits with equal sort values: such hits are
+   * only returned if their doc ID is larger. Since the change number is part of the sort, the only
+   * hit with equal sort values is the change the cursor was created from, which must not be
+   * returned again; using the largest doc ID of the searched index excludes it.
+   */
+  private static FieldDoc toFieldDoc(ChangeQueryCursor cursor, IndexSearcher searcher) {
+    return new FieldDoc(
+        Math.max(0, searcher.getIndexReader().maxDoc() - 1),
+        Float.NaN,
+        new Object[] {
+          cursor.lastUpdatedMillis(), cursor.mergedOnMillis(), Long.valueOf(cursor.id())
+        });
+  }
+
   private static class Results {
     List<Document> docs;
     Map<ChangeSubIndex, ScoreDoc> searchAfterBySubIndex;
@@ -0,0 +1,275 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lucene;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.index.Index;
+import com.google.gerrit.index.IndexDefinition;
+import com.google.gerrit.index.query.QueryParseException;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.query.change.ChangeQueryBuilder;
+import com.google.gerrit.server.query.change.ChangeQueryLog;
+import com.google.gerrit.server.query.change.ChangeQueryProcessor;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.OneOffRequestContext;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.eclipse.jgit.lib.Config;
+
+/**
+ * Warms up the Lucene indexes on startup.
+ *
+ * <p>Right after a restart the index files are not in the page cache yet, so that the first queries
+ * are much slower than usual. If {@code index.warmup.preload} is set, the files of all indexes are
+ * advised to be read ahead and the doc values and postings of all fields are read once. If {@code
+ * index.warmup.queries} is set, the recent user queries recorded by {@link ChangeQueryLog} are
+ * replayed against the change index, which also loads the analyzers and the changes that are
+ * commonly looked at.
+ *
+ * <p>The warm-up runs while the server starts, so that the server does not accept any requests
+ * until it is warm. It is aborted after {@code index.warmup.timeout}.
+ */
+@Singleton
+class LuceneIndexWarmer {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final Collection<IndexDefinition<?, ?, ?>> defs;
+  private final ChangeQueryLog queryLog;
+  private final OneOffRequestContext requestContext;
+  private final Provider<ChangeQueryBuilder> queryBuilderProvider;
+  private final Provider<ChangeQueryProcessor> queryProcessorProvider;
+  private final boolean preload;
+  private final long timeoutMillis;
+
+  @Inject
+  LuceneIndexWarmer(
+      @GerritServerConfig Config cfg,
+      Collection<IndexDefinition<?, ?, ?>> defs,
+      ChangeQueryLog queryLog,
+      OneOffRequestContext requestContext,
+      Provider<ChangeQueryBuilder> queryBuilderProvider,
+      Provider<ChangeQueryProcessor> queryProcessorProvider) {
+    this.defs = defs;
+    this.queryLog = queryLog;
+    this.requestContext = requestContext;
+    this.queryBuilderProvider = queryBuilderProvider;
+    this.queryProcessorProvider = queryProcessorProvider;
+    this.preload = cfg.getBoolean("index", "warmup", "preload", false);
+    this.timeoutMillis =
+        ConfigUtil.getTimeUnit(
+            cfg, "index", "warmup", "timeout", TimeUnit.MINUTES.toMillis(2), MILLISECONDS);
+  }
+
+  boolean isEnabled() {
+    return preload || queryLog.isEnabled();
+  }
+
+  /** Warms up the indexes, blocking until done or until the timeout expired. */
+  void warmUp() {
+    if (!isEnabled()) {
+      return;
+    }
+    ExecutorService executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("IndexWarmup-%d").setDaemon(true).build());
+    Future<?> task = executor.submit(this::run);
+    try {
+      task.get(timeoutMillis, MILLISECONDS);
+    } catch (TimeoutException e) {
+      logger.atWarning().log("Index warm-up did not finish within %d ms, aborting", timeoutMillis);
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e.getCause()).log("Index warm-up failed");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void run() {
+    long start = System.nanoTime();
+    if (preload) {
+      for (IndexDefinition<?, ?, ?> def : defs) {
+        try {
+          preload(def.getIndexCollection().getSearchIndex());
+        } catch (InterruptedIOException e) {
+          return;
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Cannot preload %s index", def.getName());
+        }
+      }
+    }
+    int replayed = replay(queryLog.load());
+    logger.atInfo().log(
+        "Warmed up indexes in %d ms, replayed %d queries",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        replayed);
+  }
+
+  private static void preload(Index<?, ?> index) throws IOException {
+    if (index instanceof LuceneChangeIndex) {
+      ((LuceneChangeIndex) index).warmUp();
+    } else if (index instanceof AbstractLuceneIndex) {
+      ((AbstractLuceneIndex<?, ?>) index).warmUp();
+    }
+  }
+
+  private int replay(List<String> queries) {
+    int replayed = 0;
+    try (ManualRequestContext ctx = requestContext.open()) {
+      for (String query : queries) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        try {
+          queryProcessorProvider
+              .get()
+              .enforceVisibility(false)
+              .query(queryBuilderProvider.get().parse(query));
+          replayed++;
+        } catch (QueryParseException | StorageException e) {
+          logger.atFine().withCause(e).log("Cannot replay query %s", query);
+        }
+      }
+    }
+    return replayed;
+  }
+
+  /**
+   * Reads the files of the given searcher once.
+   *
+   * <p>The files are first advised to be read ahead by the operating system, which is a cheap
+   * asynchronous operation for memory mapped files. Afterwards the doc values and postings of all
+   * fields are iterated, which makes sure that the data needed for sorting and matching is loaded.
+   */
+  static void preload(Directory dir, IndexSearcher searcher) throws IOException {
+    IndexReader reader = searcher.getIndexReader();
+    if (reader instanceof DirectoryReader) {
+      for (String file : ((DirectoryReader) reader).getIndexCommit().getFileNames()) {
+        try (IndexInput in = dir.openInput(file, IOContext.DEFAULT)) {
+          if (in.length() > 0) {
+            in.prefetch(0, in.length());
+          }
+        }
+      }
+    }
+    for (LeafReaderContext ctx : reader.leaves()) {
+      LeafReader leaf = ctx.reader();
+      for (FieldInfo fi : leaf.getFieldInfos()) {
+        checkInterrupted();
+        touchDocValues(leaf, fi);
+        if (fi.getIndexOptions() != IndexOptions.NONE) {
+          touchPostings(leaf.terms(fi.name));
+        }
+      }
+    }
+  }
+
+  private static void touchDocValues(LeafReader leaf, FieldInfo fi) throws IOException {
+    switch (fi.getDocValuesType()) {
+      case NUMERIC -> {
+        NumericDocValues dv = leaf.getNumericDocValues(fi.name);
+        while (dv.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+          dv.longValue();
+        }
+      }
+      case SORTED_NUMERIC -> {
+        SortedNumericDocValues dv = leaf.getSortedNumericDocValues(fi.name);
+        while (dv.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+          for (int i = 0; i < dv.docValueCount(); i++) {
+            dv.nextValue();
+          }
+        }
+      }
+      case BINARY -> {
+        BinaryDocValues dv = leaf.getBinaryDocValues(fi.name);
+        while (dv.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+          dv.binaryValue();
+        }
+      }
+      case SORTED -> {
+        SortedDocValues dv = leaf.getSortedDocValues(fi.name);
+        while (dv.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+          dv.ordValue();
+        }
+      }
+      case SORTED_SET -> {
+        SortedSetDocValues dv = leaf.getSortedSetDocValues(fi.name);
+        while (dv.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+          for (int i = 0; i < dv.docValueCount(); i++) {
+            dv.nextOrd();
+          }
+        }
+      }
+      case NONE -> {}
+    }
+  }
+
+  private static void touchPostings(Terms terms) throws IOException {
+    if (terms == null) {
+      return;
+    }
+    TermsEnum te = terms.iterator();
+    PostingsEnum postings = null;
+    while (te.next() != null) {
+      checkInterrupted();
+      postings = te.postings(postings, PostingsEnum.NONE);
+      while (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        // Only read the postings.
+      }
+    }
+  }
+
+  private static void checkInterrupted() throws InterruptedIOException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("index warm-up aborted");
+    }
+  }
+}
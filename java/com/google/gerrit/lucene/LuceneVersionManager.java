@@ -43,18 +43,29 @@ public class LuceneVersionManager extends VersionManager {
     return sitePaths.index_dir.resolve(String.format("%s_%04d", name, schema.getVersion()));
   }
 
+  private final LuceneIndexWarmer warmer;
+
   @Inject
   LuceneVersionManager(
       @GerritServerConfig Config cfg,
       SitePaths sitePaths,
       PluginSetContext<OnlineUpgradeListener> listeners,
-      Collection<IndexDefinition<?, ?, ?>> defs) {
+      Collection<IndexDefinition<?, ?, ?>> defs,
+      LuceneIndexWarmer warmer) {
     super(
         sitePaths,
         listeners,
         defs,
         VersionManager.shouldPerformOnlineUpgrade(cfg),
         cfg.getBoolean("index", "reuseExistingDocuments", false));
+    this.warmer = warmer;
+  }
+
+  @Override
+  public void start() {
+    super.start();
+    // Blocks the server startup, so that no requests are served before the indexes are warm.
+    warmer.warmUp();
   }
 
   @Override
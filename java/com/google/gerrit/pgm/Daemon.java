@@ -106,10 +106,13 @@ import com.google.gerrit.server.mail.receive.MailReceiver.MailReceiverModule;
 import com.google.gerrit.server.mail.send.FromAddressGeneratorProvider;
 import com.google.gerrit.server.mail.send.SmtpEmailSender.SmtpEmailSenderModule;
 import com.google.gerrit.server.mime.MimeUtil2Module;
+import com.google.gerrit.server.notedb.DraftCommentIndex;
 import com.google.gerrit.server.notedb.NoteDbDraftCommentsModule;
 import com.google.gerrit.server.notedb.NoteDbStarredChangesModule;
 import com.google.gerrit.server.notedb.RepoSequence.RepoSequenceModule;
+import com.google.gerrit.server.notedb.StarredChangesIndex;
 import com.google.gerrit.server.patch.DiffExecutorModule;
+import com.google.gerrit.server.patch.DiffPrecomputer;
 import com.google.gerrit.server.permissions.DefaultPermissionBackendModule;
 import com.google.gerrit.server.plugins.PluginGuiceEnvironment;
 import com.google.gerrit.server.plugins.PluginModule;
@@ -476,6 +479,7 @@ public class Daemon extends SiteProgram {
     }
     modules.add(new SysExecutorModule());
     modules.add(new DiffExecutorModule());
+    modules.add(new DiffPrecomputer.DiffPrecomputerModule(config));
     modules.add(new MimeUtil2Module());
 
     modules.add(cfgInjector.getInstance(AccountCacheImpl.AccountCacheModule.class));
@@ -569,6 +573,8 @@ public class Daemon extends SiteProgram {
       modules.add(new AttentionSetOwnerAdderModule());
       modules.add(new ChangeCleanupRunnerModule());
       modules.add(new DraftCommentsCleanupRunner.Module());
+      modules.add(new DraftCommentIndex.ReconcilerModule());
+      modules.add(new StarredChangesIndex.LoaderModule());
     }
     modules.add(new LocalMergeSuperSetComputationModule());
     modules.add(new DefaultLockManagerModule());
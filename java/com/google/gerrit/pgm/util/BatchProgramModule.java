@@ -78,6 +78,7 @@ import com.google.gerrit.server.patch.DiffOperationsForCommitValidation;
 import com.google.gerrit.server.patch.DiffOperationsImpl;
 import com.google.gerrit.server.patch.PatchListCacheImpl;
 import com.google.gerrit.server.permissions.DefaultPermissionBackendModule;
+import com.google.gerrit.server.permissions.PermissionDecisionCache;
 import com.google.gerrit.server.permissions.SectionSortCache;
 import com.google.gerrit.server.plugins.PluginModule;
 import com.google.gerrit.server.project.CommentLinkProvider;
@@ -195,6 +196,7 @@ public class BatchProgramModule extends FactoryModule {
     modules.add(GroupIncludeCacheImpl.module());
     modules.add(ProjectCacheImpl.module());
     modules.add(SectionSortCache.module());
+    modules.add(PermissionDecisionCache.module());
     modules.add(ChangeKindCacheImpl.module());
     modules.add(MergeabilityCacheImpl.module());
     modules.add(ServiceUserClassifierImpl.module());
@@ -145,6 +145,9 @@ class ChangesImpl implements Changes {
       }
       qc.setLimit(q.getLimit());
       qc.setStart(q.getStart());
+      if (q.getCursor() != null) {
+        qc.setCursor(q.getCursor());
+      }
       qc.setNoLimit(q.getNoLimit());
       qc.setAllowIncompleteResults(q.getAllowIncompleteResults());
       for (ListChangesOption option : q.getOptions()) {
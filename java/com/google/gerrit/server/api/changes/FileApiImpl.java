@@ -132,6 +132,10 @@ class FileApiImpl implements FileApi {
       getDiff.setWhitespace(r.getWhitespace());
     }
     r.getParent().ifPresent(getDiff::setParent);
+    r.getMaxHunks().ifPresent(getDiff::setMaxHunks);
+    if (r.getContinuation() != null) {
+      getDiff.setContinuation(r.getContinuation());
+    }
     try {
       return getDiff.apply(file).value();
     } catch (Exception e) {
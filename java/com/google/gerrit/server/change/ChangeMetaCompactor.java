@@ -0,0 +1,153 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.change;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.gerrit.server.update.context.RefUpdateContext.RefUpdateType.CHANGE_MODIFICATION;
+import static java.util.Comparator.comparing;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.InMemoryInserter;
+import com.google.gerrit.server.notedb.CompactMetaHistoryRewriter;
+import com.google.gerrit.server.notedb.NoteDbRefs;
+import com.google.gerrit.server.project.NoSuchChangeException;
+import com.google.gerrit.server.update.BatchUpdate;
+import com.google.gerrit.server.update.BatchUpdateOp;
+import com.google.gerrit.server.update.ChangeContext;
+import com.google.gerrit.server.update.UpdateException;
+import com.google.gerrit.server.update.context.RefUpdateContext;
+import com.google.gerrit.server.util.time.TimeUtil;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Compacts the history of change meta refs, see {@link CompactMetaHistoryRewriter}.
+ *
+ * <p>The compacted history replaces the meta ref in a batch update that expects the ref to still
+ * point to the commit the compacted history was computed from. Hence compactions can run while the
+ * server is online: a change that is updated concurrently fails to compact and can be retried.
+ */
+@Singleton
+public class ChangeMetaCompactor {
+  @AutoValue
+  public abstract static class Result {
+    public abstract Change.Id changeId();
+
+    public abstract int commitsBefore();
+
+    public abstract int commitsAfter();
+
+    public boolean compacted() {
+      return commitsAfter() < commitsBefore();
+    }
+
+    static Result create(Change.Id changeId, CompactMetaHistoryRewriter rewriter) {
+      return new AutoValue_ChangeMetaCompactor_Result(
+          changeId, rewriter.getCommitsBefore(), rewriter.getCommitsAfter());
+    }
+  }
+
+  private final GitRepositoryManager repoManager;
+  private final BatchUpdate.Factory updateFactory;
+  private final CompactMetaHistoryRewriter.Factory rewriterFactory;
+  private final NoteDbRefs noteDbRefs;
+
+  @Inject
+  ChangeMetaCompactor(
+      GitRepositoryManager repoManager,
+      BatchUpdate.Factory updateFactory,
+      CompactMetaHistoryRewriter.Factory rewriterFactory,
+      NoteDbRefs noteDbRefs) {
+    this.repoManager = repoManager;
+    this.updateFactory = updateFactory;
+    this.rewriterFactory = rewriterFactory;
+    this.noteDbRefs = noteDbRefs;
+  }
+
+  /** Returns the IDs of all changes of {@code project}, in ascending order. */
+  public ImmutableList<Change.Id> listChanges(Project.NameKey project) throws IOException {
+    try (Repository repo = repoManager.openRepository(project)) {
+      return noteDbRefs.scanChangeIds(project, repo).keySet().stream()
+          .sorted(comparing(Change.Id::get))
+          .collect(toImmutableList());
+    }
+  }
+
+  /**
+   * Compacts the history of the meta ref of a change.
+   *
+   * @param project the project of the change.
+   * @param changeId the ID of the change.
+   * @param user the user on whose behalf the meta ref is rewritten.
+   * @param dryRun whether to only compute the compacted history without updating the meta ref.
+   * @return the number of commits before and after the compaction.
+   */
+  public Result compact(
+      Project.NameKey project, Change.Id changeId, CurrentUser user, boolean dryRun)
+      throws IOException, RestApiException, UpdateException {
+    if (dryRun) {
+      return computeCompaction(project, changeId);
+    }
+    CompactOp op = new CompactOp();
+    try (RefUpdateContext ctx = RefUpdateContext.open(CHANGE_MODIFICATION)) {
+      try (BatchUpdate bu = updateFactory.create(project, user, TimeUtil.now())) {
+        bu.addOp(changeId, op).execute();
+      }
+    }
+    return Result.create(changeId, op.rewriter);
+  }
+
+  private Result computeCompaction(Project.NameKey project, Change.Id changeId)
+      throws IOException {
+    try (Repository repo = repoManager.openRepository(project);
+        InMemoryInserter ins = new InMemoryInserter(repo);
+        RevWalk rw = new RevWalk(ins.newReader())) {
+      Ref metaRef = repo.exactRef(RefNames.changeMetaRef(changeId));
+      if (metaRef == null) {
+        throw new NoSuchChangeException(changeId);
+      }
+      CompactMetaHistoryRewriter rewriter = rewriterFactory.create(changeId);
+      rewriter.rewriteCommitHistory(rw, ins, metaRef.getObjectId());
+      return Result.create(changeId, rewriter);
+    } catch (ConfigInvalidException e) {
+      throw new StorageException("Cannot compact history of change " + changeId, e);
+    }
+  }
+
+  private static class CompactOp implements BatchUpdateOp {
+    private CompactMetaHistoryRewriter rewriter;
+
+    @Override
+    public boolean updateChange(ChangeContext ctx) {
+      rewriter =
+          ctx.getUpdate(ctx.getChange().currentPatchSetId())
+              .compactMetaHistoryByRewritingHistory();
+      return true;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.common.FileInfo;
 import com.google.gerrit.extensions.restapi.ResourceConflictException;
+import com.google.gerrit.server.patch.DiffOptions;
 import com.google.gerrit.server.patch.PatchListNotAvailableException;
 import java.util.Map;
 import org.eclipse.jgit.lib.ObjectId;
@@ -81,4 +82,22 @@ public interface FileInfoJson {
    */
   Map<String, FileInfo> getFileInfoMap(Project.NameKey project, ObjectId objectId, int parentNum)
       throws ResourceConflictException, PatchListNotAvailableException;
+
+  /**
+   * Computes the list of modified files for a given project and commit against its parent like
+   * {@link #getFileInfoMap(Project.NameKey, ObjectId, int)}, using the given diff options. This
+   * allows to request {@link DiffOptions#approximateLineCounts() approximate line counts}.
+   *
+   * @param project a project identifying a repository.
+   * @param objectId a commit SHA-1 identifying a patchset commit.
+   * @param parentNum 1-based integer identifying the parent number used for comparison. If zero,
+   *     the only parent will be used or the auto-merge if {@code newCommit} is a merge commit.
+   * @param diffOptions options for computing the diff.
+   * @return a mapping of the file paths to their related diff information.
+   */
+  default Map<String, FileInfo> getFileInfoMap(
+      Project.NameKey project, ObjectId objectId, int parentNum, DiffOptions diffOptions)
+      throws ResourceConflictException, PatchListNotAvailableException {
+    return getFileInfoMap(project, objectId, parentNum);
+  }
 }
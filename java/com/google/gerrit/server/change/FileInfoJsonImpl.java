@@ -69,9 +69,17 @@ public class FileInfoJsonImpl implements FileInfoJson {
   public Map<String, FileInfo> getFileInfoMap(
       Project.NameKey project, ObjectId objectId, int parent)
       throws ResourceConflictException, PatchListNotAvailableException {
+    return getFileInfoMap(project, objectId, parent, DiffOptions.DEFAULTS);
+  }
+
+  @Nullable
+  @Override
+  public Map<String, FileInfo> getFileInfoMap(
+      Project.NameKey project, ObjectId objectId, int parent, DiffOptions diffOptions)
+      throws ResourceConflictException, PatchListNotAvailableException {
     try {
       Map<String, FileDiffOutput> modifiedFiles =
-          diffs.listModifiedFilesAgainstParent(project, objectId, parent, DiffOptions.DEFAULTS);
+          diffs.listModifiedFilesAgainstParent(project, objectId, parent, diffOptions);
       return asFileInfo(modifiedFiles);
     } catch (DiffNotAvailableException e) {
       convertException(e);
@@ -176,6 +176,7 @@ import com.google.gerrit.server.mime.FileTypeRegistry;
 import com.google.gerrit.server.mime.MimeUtilFileTypeRegistry;
 import com.google.gerrit.server.notedb.DeleteZombieCommentsRefs;
 import com.google.gerrit.server.notedb.NoteDbModule;
+import com.google.gerrit.server.notedb.NoteDbRefs;
 import com.google.gerrit.server.notedb.StoreSubmitRequirementsOp;
 import com.google.gerrit.server.patch.DiffFileSizeValidator;
 import com.google.gerrit.server.patch.DiffOperationsForCommitValidation;
@@ -185,7 +186,9 @@ import com.google.gerrit.server.patch.PatchListCacheImpl;
 import com.google.gerrit.server.patch.PatchScriptFactory;
 import com.google.gerrit.server.patch.PatchScriptFactoryForAutoFix;
 import com.google.gerrit.server.patch.PatchSetInfoFactory;
+import com.google.gerrit.server.patch.PositionMappingCache;
 import com.google.gerrit.server.permissions.PermissionCollection;
+import com.google.gerrit.server.permissions.PermissionDecisionCache;
 import com.google.gerrit.server.permissions.SectionSortCache;
 import com.google.gerrit.server.plugins.ReloadPluginListener;
 import com.google.gerrit.server.project.AccessControlModule;
@@ -272,9 +275,11 @@ public class GerritGlobalModule extends FactoryModule {
     install(MergeabilityCacheImpl.module());
     install(ServiceUserClassifierImpl.module());
     install(PatchListCacheImpl.module());
+    install(PositionMappingCache.module());
     install(ProjectCacheImpl.module());
     install(DiffOperationsImpl.module());
     install(SectionSortCache.module());
+    install(PermissionDecisionCache.module());
     install(SubmitStrategy.module());
     install(TagCache.module());
     install(PureRevertCache.module());
@@ -406,6 +411,7 @@ public class GerritGlobalModule extends FactoryModule {
     DynamicSet.setOf(binder(), UsageDataPublishedListener.class);
     DynamicSet.bind(binder(), GitBatchRefUpdateListener.class)
         .to(ReindexChangesAfterRefUpdate.class);
+    DynamicSet.bind(binder(), GitBatchRefUpdateListener.class).to(NoteDbRefs.class);
     DynamicSet.bind(binder(), GitReferenceUpdatedListener.class)
         .to(ProjectConfigEntry.UpdateChecker.class);
     DynamicSet.setOf(binder(), EventListener.class);
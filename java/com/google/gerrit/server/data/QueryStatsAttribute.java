@@ -19,4 +19,5 @@ public class QueryStatsAttribute {
   public int rowCount;
   public long runTimeMilliseconds;
   public boolean moreChanges;
+  public String cursor;
 }
@@ -0,0 +1,135 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.restapi.Url;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Persisted watermarks of the change meta refs per project.
+ *
+ * <p>A watermark records the tips of all {@code refs/changes/*}{@code /meta} refs of a project as
+ * they were when all of the project's changes were last known to be up-to-date in the index.
+ * Diffing the current meta refs against the watermark yields the only changes that may have become
+ * stale since then, which avoids checking every change of the project against the index.
+ *
+ * <p>Watermarks are stored as one file per project in the site's index directory. A missing or
+ * unreadable watermark is reported as absent, in which case callers must fall back to checking all
+ * changes of the project.
+ */
+@Singleton
+public class ChangeIndexWatermarks {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @VisibleForTesting static final String DIR_NAME = "changes_watermarks";
+
+  private final Path dir;
+
+  @Inject
+  ChangeIndexWatermarks(SitePaths sitePaths) {
+    this(sitePaths.index_dir.resolve(DIR_NAME));
+  }
+
+  @VisibleForTesting
+  ChangeIndexWatermarks(Path dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Loads the watermark of a project.
+   *
+   * @return meta ref tips by change, or empty if no valid watermark was stored for the project.
+   */
+  public Optional<ImmutableMap<Change.Id, ObjectId>> load(Project.NameKey project) {
+    Path file = fileFor(project);
+    ImmutableMap.Builder<Change.Id, ObjectId> watermark = ImmutableMap.builder();
+    try (BufferedReader r = Files.newBufferedReader(file, UTF_8)) {
+      String line;
+      while ((line = r.readLine()) != null) {
+        List<String> parts = Splitter.on(' ').splitToList(line);
+        Optional<Change.Id> id =
+            parts.size() == 2 && ObjectId.isId(parts.get(1))
+                ? Change.Id.tryParse(parts.get(0))
+                : Optional.empty();
+        if (id.isEmpty()) {
+          logger.atWarning().log("Ignoring invalid change index watermark %s", file);
+          return Optional.empty();
+        }
+        watermark.put(id.get(), ObjectId.fromString(parts.get(1)));
+      }
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | IllegalArgumentException e) {
+      logger.atWarning().withCause(e).log("Cannot read change index watermark %s", file);
+      return Optional.empty();
+    }
+    return Optional.of(watermark.buildKeepingLast());
+  }
+
+  /** Replaces the watermark of a project. */
+  public void store(Project.NameKey project, Map<Change.Id, ObjectId> metaRefs)
+      throws IOException {
+    Files.createDirectories(dir);
+    Path file = fileFor(project);
+    Path tmp = Files.createTempFile(dir, "watermark", ".tmp");
+    try {
+      try (BufferedWriter w = Files.newBufferedWriter(tmp, UTF_8)) {
+        Map<Change.Id, ObjectId> sorted = new TreeMap<>(comparing(Change.Id::get));
+        sorted.putAll(metaRefs);
+        for (Map.Entry<Change.Id, ObjectId> e : sorted.entrySet()) {
+          w.write(Integer.toString(e.getKey().get()));
+          w.write(' ');
+          w.write(e.getValue().name());
+          w.newLine();
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** Removes the watermark of a project, forcing a full check on the next scan. */
+  public void delete(Project.NameKey project) throws IOException {
+    Files.deleteIfExists(fileFor(project));
+  }
+
+  private Path fileFor(Project.NameKey project) {
+    return dir.resolve(Url.encode(project.get()));
+  }
+}
@@ -455,11 +455,23 @@ public class ChangeIndexer {
    * @return future for reindexing the change; returns true if the change was stale.
    */
   public ListenableFuture<Boolean> asyncReindexIfStale(Project.NameKey project, Change.Id id) {
+    return submitReindexIfStale(project, id).orElseGet(() -> Futures.immediateFuture(false));
+  }
+
+  /**
+   * Asynchronously check if a change is stale, and reindex if it is, unless such a check is
+   * already queued for the change.
+   *
+   * @param project the project to which the change belongs.
+   * @param id ID of the change to index.
+   * @return future for reindexing the change, empty if a check of the change was already queued.
+   */
+  Optional<ListenableFuture<Boolean>> submitReindexIfStale(Project.NameKey project, Change.Id id) {
     ReindexIfStaleTask task = new ReindexIfStaleTask(project, id);
     if (queuedReindexIfStaleTasks.add(task)) {
-      return submit(task, batchExecutor);
+      return Optional.of(submit(task, batchExecutor));
     }
-    return Futures.immediateFuture(false);
+    return Optional.empty();
   }
 
   /**
@@ -0,0 +1,153 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Runnable to schedule periodic detection of stale changes.
+ *
+ * <p>Changes may become stale in the index if updates bypass Gerrit, e.g. when NoteDb refs are
+ * replicated or written directly to the repository. Checking every change of every project for
+ * staleness is expensive on large sites, so this class keeps a {@link ChangeIndexWatermarks
+ * watermark} of the change meta refs per project. On each run only the changes whose meta ref
+ * differs from the watermark are checked and reindexed if stale, and changes whose meta ref was
+ * removed are deleted from the index. Projects without a watermark are checked in full.
+ *
+ * <p>The watermark of a project is only advanced once all of its checks have succeeded, so failed
+ * checks are retried on the next run. Changes for which a check was already queued by someone else
+ * keep their old watermark, so that they are checked on the next run. Enabled by the {@code
+ * scheduledIndexer.changes} subsection in {@code gerrit.config}.
+ */
+public class PeriodicChangeIndexer implements Runnable {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final GitRepositoryManager repoManager;
+  private final ChangeIndexer indexer;
+  private final ChangeIndexWatermarks watermarks;
+
+  @Inject
+  PeriodicChangeIndexer(
+      GitRepositoryManager repoManager, ChangeIndexer indexer, ChangeIndexWatermarks watermarks) {
+    this.repoManager = repoManager;
+    this.indexer = indexer;
+    this.watermarks = watermarks;
+  }
+
+  @Override
+  public synchronized void run() {
+    int checked = 0;
+    int failed = 0;
+    for (Project.NameKey project : repoManager.list()) {
+      try {
+        checked += scan(project);
+      } catch (Exception e) {
+        failed++;
+        logger.atSevere().withCause(e).log("Failed to check changes of project %s", project);
+      }
+    }
+    logger.atInfo().log(
+        "Run change indexer, %d changes checked for staleness, %d projects failed",
+        checked, failed);
+  }
+
+  /**
+   * Checks the changes of a project that were updated since the last scan.
+   *
+   * @return number of changes that were checked or deleted by this scan.
+   */
+  @VisibleForTesting
+  int scan(Project.NameKey project) throws Exception {
+    Map<Change.Id, ObjectId> metaRefs = readMetaRefs(project);
+    Optional<ImmutableMap<Change.Id, ObjectId>> watermark = watermarks.load(project);
+
+    // The meta ref tips to store as new watermark. Changes whose check could not be submitted keep
+    // their old watermark, so that the next run checks them again.
+    Map<Change.Id, ObjectId> newWatermark = new HashMap<>(metaRefs);
+    List<ListenableFuture<?>> tasks = new ArrayList<>();
+    int alreadyQueued = 0;
+    for (Map.Entry<Change.Id, ObjectId> e : metaRefs.entrySet()) {
+      if (watermark.isEmpty() || !e.getValue().equals(watermark.get().get(e.getKey()))) {
+        Optional<ListenableFuture<Boolean>> task =
+            indexer.submitReindexIfStale(project, e.getKey());
+        if (task.isPresent()) {
+          tasks.add(task.get());
+          continue;
+        }
+        // A check of the change is already queued, but it may have been queued before the meta
+        // ref was updated and may still fail.
+        alreadyQueued++;
+        ObjectId previous = watermark.map(w -> w.get(e.getKey())).orElse(null);
+        if (previous != null) {
+          newWatermark.put(e.getKey(), previous);
+        } else {
+          newWatermark.remove(e.getKey());
+        }
+      }
+    }
+    if (watermark.isPresent()) {
+      for (Change.Id id : watermark.get().keySet()) {
+        if (!metaRefs.containsKey(id)) {
+          tasks.add(indexer.deleteAsync(project, id));
+        }
+      }
+    }
+
+    // Fails if any of the tasks failed, in which case the watermark is kept so that the next run
+    // checks the same changes again.
+    Futures.allAsList(tasks).get();
+    watermarks.store(project, newWatermark);
+    if (!tasks.isEmpty() || alreadyQueued > 0) {
+      logger.atFine().log(
+          "Checked %d changes of project %s, %d changes were already queued for a check",
+          tasks.size(), project, alreadyQueued);
+    }
+    return tasks.size();
+  }
+
+  private Map<Change.Id, ObjectId> readMetaRefs(Project.NameKey project) throws IOException {
+    Map<Change.Id, ObjectId> metaRefs = new HashMap<>();
+    try (Repository repo = repoManager.openRepository(project)) {
+      for (Ref ref : repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CHANGES)) {
+        if (!ref.getName().endsWith(RefNames.META_SUFFIX)) {
+          continue;
+        }
+        Change.Id id = Change.Id.fromRef(ref.getName());
+        if (id != null && ref.getObjectId() != null) {
+          metaRefs.put(id, ref.getObjectId());
+        }
+      }
+    }
+    return metaRefs;
+  }
+}
@@ -19,6 +19,7 @@ import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.lifecycle.LifecycleModule;
 import com.google.gerrit.server.git.WorkQueue;
 import com.google.gerrit.server.group.PeriodicGroupIndexer;
+import com.google.gerrit.server.index.change.PeriodicChangeIndexer;
 import com.google.gerrit.server.project.PeriodicProjectIndexer;
 import com.google.inject.Inject;
 import com.google.inject.Scopes;
@@ -48,11 +49,13 @@ public class PeriodicIndexScheduler implements LifecycleListener {
       Map<String, PeriodicIndexerConfig> indexerConfigs,
       WorkQueue queue,
       PeriodicGroupIndexer groupIndexer,
-      PeriodicProjectIndexer projectIndexer) {
+      PeriodicProjectIndexer projectIndexer,
+      PeriodicChangeIndexer changeIndexer) {
     this.indexerConfigs = indexerConfigs;
     this.queue = queue;
     indexers.put("groups", groupIndexer);
     indexers.put("projects", projectIndexer);
+    indexers.put("changes", changeIndexer);
   }
 
   @Override
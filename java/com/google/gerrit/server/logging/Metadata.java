@@ -121,6 +121,9 @@ public abstract class Metadata {
   /** HTTP status response code. */
   public abstract Optional<Integer> httpStatus();
 
+  /** Whether a result was computed incrementally on top of a previous result. */
+  public abstract Optional<Boolean> incremental();
+
   /** The name of a secondary index. */
   public abstract Optional<String> indexName();
 
@@ -256,6 +259,7 @@ public abstract class Metadata {
         .add("groupSystem", groupSystem().orElse(null))
         .add("groupUuid", groupUuid().orElse(null))
         .add("httpStatus", httpStatus().orElse(null))
+        .add("incremental", incremental().orElse(null))
         .add("indexName", indexName().orElse(null))
         .add("memoryPoolName", memoryPoolName().orElse(null))
         .add("methodName", methodName().orElse(null))
@@ -352,6 +356,8 @@ public abstract class Metadata {
 
     public abstract Builder httpStatus(int httpStatus);
 
+    public abstract Builder incremental(boolean incremental);
+
     public abstract Builder indexName(@Nullable String indexName);
 
     public abstract Builder indexVersion(int indexVersion);
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 
@@ -53,6 +54,7 @@ public abstract class AbstractChangeNotes<T> {
     public final GitRepositoryManager repoManager;
     public final AllUsersName allUsers;
     public final NoteDbMetrics metrics;
+    public final NoteDbReaderPool readerPool;
     public final String serverId;
     public final ImmutableList<String> importedServerIds;
 
@@ -67,6 +69,7 @@ public abstract class AbstractChangeNotes<T> {
         AllUsersName allUsers,
         ChangeNoteJson changeNoteJson,
         NoteDbMetrics metrics,
+        NoteDbReaderPool readerPool,
         Provider<ChangeNotesCache> cache,
         @GerritServerId String serverId,
         @GerritImportedServerIds ImmutableList<String> importedServerIds) {
@@ -75,6 +78,7 @@ public abstract class AbstractChangeNotes<T> {
       this.allUsers = allUsers;
       this.changeNoteJson = changeNoteJson;
       this.metrics = metrics;
+      this.readerPool = readerPool;
       this.cache = cache;
       this.serverId = serverId;
       this.importedServerIds = importedServerIds;
@@ -85,6 +89,7 @@ public abstract class AbstractChangeNotes<T> {
   public static class LoadHandle implements AutoCloseable {
     private final Repository repo;
     private final ObjectId id;
+    @Nullable private ObjectReader reader;
     private ChangeNotesRevWalk rw;
 
     private LoadHandle(Repository repo, @Nullable ObjectId id) {
@@ -100,7 +105,10 @@ public abstract class AbstractChangeNotes<T> {
 
     public ChangeNotesRevWalk walk() {
       if (rw == null) {
-        rw = ChangeNotesCommit.newRevWalk(repo);
+        rw =
+            reader != null
+                ? ChangeNotesCommit.newRevWalk(reader)
+                : ChangeNotesCommit.newRevWalk(repo);
       }
       return rw;
     }
@@ -155,9 +163,25 @@ public abstract class AbstractChangeNotes<T> {
 
   @CanIgnoreReturnValue
   public T load(Repository repo) {
+    return load(repo, null);
+  }
+
+  /**
+   * Loads this entity from {@code repo}, reading objects through {@code reader}.
+   *
+   * <p>The reader is not closed, which allows to share it between the loads of many entities. If
+   * {@code reader} is null, a reader is leased from the {@link NoteDbReaderPool} for this load.
+   */
+  @CanIgnoreReturnValue
+  T load(Repository repo, @Nullable ObjectReader reader) {
     if (loaded) {
       return self();
     }
+    if (reader == null) {
+      try (NoteDbReaderPool.Lease lease = args.readerPool.lease(getProjectName(), repo)) {
+        return load(repo, lease.reader());
+      }
+    }
 
     if (args.failOnLoadForTest.get()) {
       throw new StorageException("Reading from NoteDb is disabled");
@@ -166,6 +190,7 @@ public abstract class AbstractChangeNotes<T> {
         // Call openHandle even if reading is disabled, to trigger
         // auto-rebuilding before this object may get passed to a ChangeUpdate.
         LoadHandle handle = openHandle(repo, revision)) {
+      handle.reader = reader;
       revision = handle.id();
       onLoad(handle);
       loaded = true;
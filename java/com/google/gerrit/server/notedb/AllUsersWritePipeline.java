@@ -0,0 +1,351 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.gerrit.server.update.context.RefUpdateContext.RefUpdateType.CHANGE_MODIFICATION;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.git.RefUpdateUtil;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.FanOutExecutor;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.update.context.RefUpdateContext;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.transport.PushCertificate;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+/**
+ * Writes the asynchronous {@code All-Users} updates of {@link AllUsersAsyncUpdate}.
+ *
+ * <p>Writes of all requests are queued and written by a single task at a time. The task writes the
+ * writes that are queued when it starts, and those that were queued while it was busy, as one
+ * atomic {@link BatchRefUpdate}, so that under load {@code All-Users} is updated by a few large
+ * batches rather than by many small batches that contend on the same refs. Optionally the task
+ * waits for up to {@code noteDb.allUsersAsync.coalesceWindow} after the oldest queued write to
+ * collect more writes. A batch has at most {@code noteDb.allUsersAsync.maxBatchSize} writes.
+ *
+ * <p>If a batch fails, its writes are retried one by one, so that a single failing write doesn't
+ * fail the writes of other requests. Writes with a push certificate are never batched with other
+ * writes, since a batch can only be signed by a single certificate.
+ */
+@Singleton
+class AllUsersWritePipeline {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** The updates of a single request. */
+  private static class Write {
+    final ListMultimap<String, ChangeDraftNotesUpdate> draftUpdates;
+    final PersonIdent serverIdent;
+    final PersonIdent refLogIdent;
+    final String refLogMessage;
+    @Nullable final PushCertificate pushCert;
+    @Nullable final AccountState updater;
+    final long enqueuedNanos;
+
+    Write(
+        ListMultimap<String, ChangeDraftNotesUpdate> draftUpdates,
+        PersonIdent serverIdent,
+        PersonIdent refLogIdent,
+        String refLogMessage,
+        @Nullable PushCertificate pushCert,
+        @Nullable AccountState updater,
+        long enqueuedNanos) {
+      this.draftUpdates = draftUpdates;
+      this.serverIdent = serverIdent;
+      this.refLogIdent = refLogIdent;
+      this.refLogMessage = refLogMessage;
+      this.pushCert = pushCert;
+      this.updater = updater;
+      this.enqueuedNanos = enqueuedNanos;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final AllUsersName allUsersName;
+  private final GitRepositoryManager repoManager;
+  private final GitReferenceUpdated gitReferenceUpdated;
+  private final DraftCommentIndex draftCommentIndex;
+  private final NoteDbMetrics metrics;
+  private final int maxBatchSize;
+  private final long coalesceWindowNanos;
+
+  // Guarded by this.
+  private final ArrayDeque<Write> pending = new ArrayDeque<>();
+  private boolean draining;
+
+  @Inject
+  AllUsersWritePipeline(
+      @FanOutExecutor ExecutorService executor,
+      AllUsersName allUsersName,
+      GitRepositoryManager repoManager,
+      GitReferenceUpdated gitReferenceUpdated,
+      DraftCommentIndex draftCommentIndex,
+      NoteDbMetrics metrics,
+      @GerritServerConfig Config cfg) {
+    this(
+        executor,
+        allUsersName,
+        repoManager,
+        gitReferenceUpdated,
+        draftCommentIndex,
+        metrics,
+        cfg.getInt("noteDb", "allUsersAsync", "maxBatchSize", 100),
+        ConfigUtil.getTimeUnit(cfg, "noteDb", "allUsersAsync", "coalesceWindow", 0, MILLISECONDS));
+  }
+
+  @VisibleForTesting
+  AllUsersWritePipeline(
+      ExecutorService executor,
+      AllUsersName allUsersName,
+      GitRepositoryManager repoManager,
+      GitReferenceUpdated gitReferenceUpdated,
+      DraftCommentIndex draftCommentIndex,
+      NoteDbMetrics metrics,
+      int maxBatchSize,
+      long coalesceWindowMillis) {
+    this.executor = executor;
+    this.allUsersName = allUsersName;
+    this.repoManager = repoManager;
+    this.gitReferenceUpdated = gitReferenceUpdated;
+    this.draftCommentIndex = draftCommentIndex;
+    this.metrics = metrics;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.coalesceWindowNanos = MILLISECONDS.toNanos(Math.max(0, coalesceWindowMillis));
+  }
+
+  /**
+   * Queues the updates of a request for writing.
+   *
+   * @param draftUpdates the updates, which must not be modified after they were queued.
+   * @param serverIdent the ident of the server for the ref log if no {@code refLogIdent} is given.
+   * @param refLogIdent the ident for the ref log, if any.
+   * @param refLogMessage the message for the ref log, if any.
+   * @param pushCert the push certificate of the request, if any.
+   * @param currentUser the user of the request.
+   */
+  void enqueue(
+      ListMultimap<String, ChangeDraftNotesUpdate> draftUpdates,
+      PersonIdent serverIdent,
+      @Nullable PersonIdent refLogIdent,
+      @Nullable String refLogMessage,
+      @Nullable PushCertificate pushCert,
+      CurrentUser currentUser) {
+    if (draftUpdates.isEmpty()) {
+      return;
+    }
+    Write write =
+        new Write(
+            draftUpdates,
+            serverIdent,
+            refLogIdent != null ? refLogIdent : serverIdent,
+            refLogMessage != null
+                ? refLogMessage
+                : firstNonNull(NoteDbUtil.guessRestApiHandler(), "Update NoteDb refs async"),
+            pushCert,
+            currentUser.isIdentifiedUser() ? currentUser.asIdentifiedUser().state() : null,
+            System.nanoTime());
+
+    synchronized (this) {
+      pending.addLast(write);
+      metrics.allUsersWriteQueueDepth.record(pending.size());
+      if (pending.size() >= maxBatchSize) {
+        notifyAll();
+      }
+      if (draining) {
+        return;
+      }
+      draining = true;
+    }
+
+    try {
+      @SuppressWarnings("unused")
+      Future<?> possiblyIgnoredError = executor.submit(this::drain);
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        draining = false;
+      }
+      throw e;
+    }
+  }
+
+  private void drain() {
+    boolean drained = false;
+    try (RefUpdateContext ctx = RefUpdateContext.open(CHANGE_MODIFICATION)) {
+      for (ImmutableList<Write> batch = nextBatch(); !batch.isEmpty(); batch = nextBatch()) {
+        metrics.allUsersWriteBatchSize.record(batch.size());
+        if (!write(batch) && batch.size() > 1) {
+          for (Write write : batch) {
+            metrics.allUsersWriteRetryCount.increment();
+            write(ImmutableList.of(write));
+          }
+        }
+        long now = System.nanoTime();
+        for (Write write : batch) {
+          metrics.allUsersWriteLatency.record(now - write.enqueuedNanos, NANOSECONDS);
+        }
+      }
+      // nextBatch() ended draining.
+      drained = true;
+    } finally {
+      if (!drained) {
+        restartDraining();
+      }
+    }
+  }
+
+  /**
+   * Ends draining after it was aborted by an unexpected error, and drains the remaining writes in a
+   * new task, so that they are not stuck in the queue.
+   */
+  private void restartDraining() {
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        draining = false;
+        return;
+      }
+    }
+    try {
+      @SuppressWarnings("unused")
+      Future<?> possiblyIgnoredError = executor.submit(this::drain);
+    } catch (RejectedExecutionException e) {
+      int remaining;
+      synchronized (this) {
+        draining = false;
+        remaining = pending.size();
+      }
+      logger.atSevere().withCause(e).log(
+          "Cannot drain %d asynchronous All-Users updates, they are written with the next update",
+          remaining);
+    }
+  }
+
+  /**
+   * Removes the next batch from the queue, or returns an empty batch and ends draining if the queue
+   * is empty.
+   */
+  private synchronized ImmutableList<Write> nextBatch() {
+    if (pending.isEmpty()) {
+      draining = false;
+      return ImmutableList.of();
+    }
+    long deadline = pending.peekFirst().enqueuedNanos + coalesceWindowNanos;
+    for (long remaining = deadline - System.nanoTime();
+        remaining > 0 && pending.size() < maxBatchSize;
+        remaining = deadline - System.nanoTime()) {
+      try {
+        NANOSECONDS.timedWait(this, remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+
+    ImmutableList.Builder<Write> batch = ImmutableList.builder();
+    Write first = pending.removeFirst();
+    batch.add(first);
+    if (first.pushCert == null) {
+      for (int n = 1; n < maxBatchSize && !pending.isEmpty(); n++) {
+        if (pending.peekFirst().pushCert != null) {
+          break;
+        }
+        batch.add(pending.removeFirst());
+      }
+    }
+    return batch.build();
+  }
+
+  /** Writes a batch atomically and returns whether it succeeded. */
+  private boolean write(ImmutableList<Write> batch) {
+    try (OpenRepo allUsersRepo = OpenRepo.open(repoManager, allUsersName)) {
+      // Later writes of a ref are chained onto earlier ones, so the last write of a ref is the one
+      // whose ref log message and updater are recorded for it.
+      Map<String, Write> writeByRef = new HashMap<>();
+      for (Write write : batch) {
+        // Apply copies, so that the updates can be applied again if the batch is retried.
+        allUsersRepo.addUpdatesNoLimits(copy(write.draftUpdates));
+        write.draftUpdates.keySet().forEach(ref -> writeByRef.put(ref, write));
+      }
+      allUsersRepo.flush();
+
+      Write first = batch.get(0);
+      BatchRefUpdate bru = allUsersRepo.repo.getRefDatabase().newBatchUpdate();
+      bru.setPushCertificate(first.pushCert);
+      bru.setRefLogMessage(first.refLogMessage, false);
+      // The writes of a batch may be of different users, so batches are logged as the server.
+      bru.setRefLogIdent(batch.size() == 1 ? first.refLogIdent : first.serverIdent);
+      bru.setAtomic(true);
+      allUsersRepo.cmds.addTo(bru);
+      bru.setAllowNonFastForwards(true);
+      if (batch.size() > 1) {
+        for (ReceiveCommand cmd : bru.getCommands()) {
+          cmd.setRefLogMessage(writeByRef.get(cmd.getRefName()).refLogMessage, false);
+        }
+      }
+      RefUpdateUtil.executeChecked(bru, allUsersRepo.rw);
+      draftCommentIndex.onRefsUpdated(allUsersRepo.repo, bru.getCommands());
+
+      if (batch.size() == 1) {
+        gitReferenceUpdated.fire(allUsersName, bru, first.updater);
+      } else {
+        for (ReceiveCommand cmd : bru.getCommands()) {
+          gitReferenceUpdated.fire(allUsersName, cmd, writeByRef.get(cmd.getRefName()).updater);
+        }
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      if (batch.size() > 1) {
+        logger.atWarning().withCause(e).log(
+            "Failed to write batch of %d asynchronous All-Users updates, retrying one by one",
+            batch.size());
+      } else {
+        logger.atSevere().withCause(e).log(
+            "Failed to delete draft comments asynchronously after publishing them");
+      }
+      return false;
+    }
+  }
+
+  private static ListMultimap<String, ChangeDraftNotesUpdate> copy(
+      ListMultimap<String, ChangeDraftNotesUpdate> draftUpdates) {
+    ListMultimap<String, ChangeDraftNotesUpdate> copy =
+        MultimapBuilder.hashKeys().arrayListValues().build();
+    draftUpdates.forEach((ref, update) -> copy.put(ref, update.copy()));
+    return copy;
+  }
+}
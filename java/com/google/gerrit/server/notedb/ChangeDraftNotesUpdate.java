@@ -122,6 +122,7 @@ public class ChangeDraftNotesUpdate extends AbstractChangeUpdate implements Chan
     private final NoteDbUpdateExecutor noteDbUpdateExecutor;
     private final CurrentUser currentUser;
     private final AllUsersAsyncUpdate updateAllUsersAsync;
+    private final DraftCommentIndex draftCommentIndex;
     private OpenRepo allUsersRepo;
     private boolean shouldAllowFastForward = false;
 
@@ -131,8 +132,10 @@ public class ChangeDraftNotesUpdate extends AbstractChangeUpdate implements Chan
         AllUsersName allUsersName,
         NoteDbUpdateExecutor noteDbUpdateExecutor,
         AllUsersAsyncUpdate updateAllUsersAsync,
+        DraftCommentIndex draftCommentIndex,
         @Assisted CurrentUser currentUser) {
       this.updateAllUsersAsync = updateAllUsersAsync;
+      this.draftCommentIndex = draftCommentIndex;
       this.repoManager = repoManager;
       this.allUsersName = allUsersName;
       this.noteDbUpdateExecutor = noteDbUpdateExecutor;
@@ -184,14 +187,19 @@ public class ChangeDraftNotesUpdate extends AbstractChangeUpdate implements Chan
       }
       try (TraceContext.TraceTimer ignored =
           newTimer("ChangeDraftNotesUpdate#Executor#updateAllUsersSync", Metadata.empty())) {
-        return noteDbUpdateExecutor.execute(
-            allUsersRepo,
-            dryRun,
-            shouldAllowFastForward,
-            /* batchUpdateListeners= */ ImmutableList.of(),
-            /* pushCert= */ null,
-            refLogIdent,
-            refLogMessage);
+        Optional<BatchRefUpdate> bru =
+            noteDbUpdateExecutor.execute(
+                allUsersRepo,
+                dryRun,
+                shouldAllowFastForward,
+                /* batchUpdateListeners= */ ImmutableList.of(),
+                /* pushCert= */ null,
+                refLogIdent,
+                refLogMessage);
+        if (!dryRun) {
+          bru.ifPresent(u -> draftCommentIndex.onRefsUpdated(allUsersRepo.repo, u.getCommands()));
+        }
+        return bru;
       }
     }
 
@@ -102,28 +102,28 @@ public class ChangeNotes extends AbstractChangeNotes<ChangeNotes> {
     private final Args args;
     private final Provider<InternalChangeQuery> queryProvider;
     private final ProjectCache projectCache;
+    private final NoteDbRefs noteDbRefs;
+    private final ChangeNotesBulkLoader bulkLoader;
 
     @VisibleForTesting
     @Inject
     public Factory(
-        Args args, Provider<InternalChangeQuery> queryProvider, ProjectCache projectCache) {
+        Args args,
+        Provider<InternalChangeQuery> queryProvider,
+        ProjectCache projectCache,
+        NoteDbRefs noteDbRefs,
+        ChangeNotesBulkLoader bulkLoader) {
       this.args = args;
       this.queryProvider = queryProvider;
       this.projectCache = projectCache;
+      this.noteDbRefs = noteDbRefs;
+      this.bulkLoader = bulkLoader;
     }
 
     public static ImmutableMap<Change.Id, ObjectId> scanChangeIds(Repository repo)
         throws IOException {
-      ImmutableMap.Builder<Change.Id, ObjectId> metaIdByChange = ImmutableMap.builder();
-      for (Ref r : repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CHANGES)) {
-        if (r.getName().endsWith(RefNames.META_SUFFIX)) {
-          Change.Id id = Change.Id.fromRef(r.getName());
-          if (id != null) {
-            metaIdByChange.put(id, r.getObjectId());
-          }
-        }
-      }
-      return metaIdByChange.build();
+      return NoteDbRefs.toMetaIdByChange(
+          repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CHANGES));
     }
 
     public ChangeNotes createChecked(Change c) {
@@ -164,6 +164,21 @@ public class ChangeNotes extends AbstractChangeNotes<ChangeNotes> {
           null, changeId, null, BranchNameKey.create(project, "INVALID_NOTE_DB_ONLY"), null);
     }
 
+    /**
+     * Load the change-notes of many changes at once.
+     *
+     * <p>The meta refs of the changes are read in one batch per repository and the changes are
+     * loaded concurrently, which is much faster than loading them one by one with {@link
+     * #createChecked(Project.NameKey, Change.Id)}.
+     *
+     * @param changes changes to load
+     * @return one result per change, in the order of {@code changes}; changes that don't exist have
+     *     a {@link NoSuchChangeException} as error
+     */
+    public ImmutableList<ChangeNotesResult> createBulk(List<ProjectChange> changes) {
+      return bulkLoader.load(changes);
+    }
+
     public ChangeNotes create(Project.NameKey project, Change.Id changeId) {
       checkArgument(project != null, "project is required");
       return new ChangeNotes(args, newChange(project, changeId), true, null).load();
@@ -303,7 +318,7 @@ public class ChangeNotes extends AbstractChangeNotes<ChangeNotes> {
     public Stream<ChangeNotesResult> scan(
         Repository repo, Project.NameKey project, Predicate<Change.Id> changeIdPredicate)
         throws IOException {
-      return scan(scanChangeIds(repo), project, changeIdPredicate);
+      return scan(noteDbRefs.scanChangeIds(project, repo), project, changeIdPredicate);
     }
 
     public Stream<ChangeNotesResult> scan(
@@ -344,7 +359,19 @@ public class ChangeNotes extends AbstractChangeNotes<ChangeNotes> {
       return ChangeNotesResult.notes(n);
     }
 
-    /** Result of {@link #scan(Repository,Project.NameKey)}. */
+    /** Project and numeric ID of a change to load with {@link #createBulk(List)}. */
+    @AutoValue
+    public abstract static class ProjectChange {
+      public static ProjectChange create(Project.NameKey project, Change.Id changeId) {
+        return new AutoValue_ChangeNotes_Factory_ProjectChange(project, changeId);
+      }
+
+      public abstract Project.NameKey project();
+
+      public abstract Change.Id changeId();
+    }
+
+    /** Result of {@link #scan(Repository,Project.NameKey)} and {@link #createBulk(List)}. */
     @AutoValue
     public abstract static class ChangeNotesResult {
       static ChangeNotesResult error(Change.Id id, Throwable e) {
@@ -0,0 +1,235 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.gerrit.entities.RefNames.changeMetaRef;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.FanOutExecutor;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ChangeNotesResult;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ProjectChange;
+import com.google.gerrit.server.project.NoSuchChangeException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Loads the notes of many changes at once, see {@link ChangeNotes.Factory#createBulk(List)}.
+ *
+ * <p>The meta refs of all requested changes of a repository are read in a single batch. The notes
+ * are then loaded concurrently on the {@link FanOutExecutor} by at most {@code
+ * noteDb.changes.bulkLoadParallelism} threads; states that are in the {@link ChangeNotesCache} are
+ * not parsed again. Each thread reads all the changes it loads from a repository through one
+ * {@link ObjectReader} leased from the {@link NoteDbReaderPool}.
+ *
+ * <p>The calling thread always takes part in the loading and the helper tasks only pick up changes
+ * that have not been claimed yet, so a batch completes even if no thread of the executor becomes
+ * available.
+ */
+@Singleton
+public class ChangeNotesBulkLoader {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final AbstractChangeNotes.Args args;
+  private final NoteDbRefs noteDbRefs;
+  private final ExecutorService executor;
+  private final int maxParallelism;
+
+  @Inject
+  ChangeNotesBulkLoader(
+      AbstractChangeNotes.Args args,
+      NoteDbRefs noteDbRefs,
+      @FanOutExecutor ExecutorService executor,
+      @GerritServerConfig Config cfg) {
+    this(args, noteDbRefs, executor, cfg.getInt("noteDb", "changes", "bulkLoadParallelism", 4));
+  }
+
+  @VisibleForTesting
+  ChangeNotesBulkLoader(
+      AbstractChangeNotes.Args args,
+      NoteDbRefs noteDbRefs,
+      ExecutorService executor,
+      int maxParallelism) {
+    this.args = args;
+    this.noteDbRefs = noteDbRefs;
+    this.executor = executor;
+    this.maxParallelism = Math.max(1, maxParallelism);
+  }
+
+  ImmutableList<ChangeNotesResult> load(List<ProjectChange> changes) {
+    if (changes.isEmpty()) {
+      return ImmutableList.of();
+    }
+    try (Timer0.Context ignored = args.metrics.bulkLoadLatency.start()) {
+      args.metrics.bulkLoadSize.record(changes.size());
+      ListMultimap<Project.NameKey, Integer> indexesByProject =
+          MultimapBuilder.linkedHashKeys().arrayListValues().build();
+      for (int i = 0; i < changes.size(); i++) {
+        indexesByProject.put(changes.get(i).project(), i);
+      }
+
+      ChangeNotesResult[] results = new ChangeNotesResult[changes.size()];
+      for (Project.NameKey project : indexesByProject.keySet()) {
+        loadFromProject(project, indexesByProject.get(project), changes, results);
+      }
+      return ImmutableList.copyOf(results);
+    }
+  }
+
+  private void loadFromProject(
+      Project.NameKey project,
+      List<Integer> indexes,
+      List<ProjectChange> changes,
+      ChangeNotesResult[] results) {
+    try (Repository repo = args.repoManager.openRepository(project)) {
+      ImmutableMap<String, Ref> refs =
+          noteDbRefs.exactRefs(
+              repo,
+              indexes.stream()
+                  .map(i -> changeMetaRef(changes.get(i).changeId()))
+                  .collect(toImmutableList()));
+
+      List<Integer> toLoad = new ArrayList<>(indexes.size());
+      ObjectId[] metaIds = new ObjectId[changes.size()];
+      for (int i : indexes) {
+        Change.Id changeId = changes.get(i).changeId();
+        Ref ref = refs.get(changeMetaRef(changeId));
+        if (ref == null || ref.getObjectId() == null) {
+          results[i] = ChangeNotesResult.error(changeId, new NoSuchChangeException(changeId));
+        } else {
+          metaIds[i] = ref.getObjectId();
+          toLoad.add(i);
+        }
+      }
+      loadConcurrently(repo, project, toLoad, changes, metaIds, results);
+    } catch (RepositoryNotFoundException e) {
+      for (int i : indexes) {
+        Change.Id changeId = changes.get(i).changeId();
+        results[i] = ChangeNotesResult.error(changeId, new NoSuchChangeException(changeId, e));
+      }
+    } catch (IOException e) {
+      for (int i : indexes) {
+        results[i] = ChangeNotesResult.error(changes.get(i).changeId(), new StorageException(e));
+      }
+    }
+  }
+
+  private void loadConcurrently(
+      Repository repo,
+      Project.NameKey project,
+      List<Integer> toLoad,
+      List<ProjectChange> changes,
+      ObjectId[] metaIds,
+      ChangeNotesResult[] results) {
+    int n = toLoad.size();
+    if (n == 0) {
+      return;
+    }
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger threads = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(n);
+
+    Runnable worker =
+        () -> {
+          NoteDbReaderPool.Lease lease = null;
+          try {
+            for (int k = next.getAndIncrement(); k < n; k = next.getAndIncrement()) {
+              int i = toLoad.get(k);
+              // Every claimed change must be counted down, otherwise the caller waits forever.
+              try {
+                if (lease == null) {
+                  lease = args.readerPool.lease(project, repo);
+                  threads.incrementAndGet();
+                }
+                results[i] = loadOne(repo, lease.reader(), project, changes.get(i), metaIds[i]);
+              } catch (RuntimeException e) {
+                results[i] = ChangeNotesResult.error(changes.get(i).changeId(), e);
+              } finally {
+                done.countDown();
+              }
+            }
+          } finally {
+            if (lease != null) {
+              lease.close();
+            }
+          }
+        };
+
+    int helpers = Math.min(maxParallelism, n) - 1;
+    List<Future<?>> futures = new ArrayList<>(helpers);
+    try {
+      for (int h = 0; h < helpers; h++) {
+        futures.add(executor.submit(worker));
+      }
+    } catch (RejectedExecutionException e) {
+      logger.atFine().withCause(e).log("Cannot fan out loading of changes in %s", project);
+    }
+
+    worker.run();
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageException("interrupted while loading changes of " + project, e);
+    } finally {
+      // Helpers that did not start yet have nothing left to do.
+      futures.forEach(f -> f.cancel(false));
+    }
+
+    args.metrics.bulkLoadParallelism.record(threads.get());
+    logger.atFine().log("Loaded %d changes of %s on %d threads", n, project, threads.get());
+  }
+
+  private ChangeNotesResult loadOne(
+      Repository repo,
+      ObjectReader reader,
+      Project.NameKey project,
+      ProjectChange change,
+      ObjectId metaId) {
+    ChangeNotes notes =
+        new ChangeNotes(
+            args, ChangeNotes.Factory.newChange(project, change.changeId()), true, null, metaId);
+    try {
+      notes.load(repo, reader);
+    } catch (RuntimeException e) {
+      return ChangeNotesResult.error(change.changeId(), e);
+    }
+    return ChangeNotesResult.notes(notes);
+  }
+}
@@ -31,6 +31,7 @@ import com.google.gerrit.server.cache.CacheModule;
 import com.google.gerrit.server.cache.proto.Cache.ChangeNotesKeyProto;
 import com.google.gerrit.server.cache.serialize.CacheSerializer;
 import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
+import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.notedb.AbstractChangeNotes.Args;
 import com.google.gerrit.server.notedb.ChangeNotesCommit.ChangeNotesRevWalk;
 import com.google.inject.Inject;
@@ -40,11 +41,13 @@ import com.google.inject.name.Named;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectId;
 
 @Singleton
@@ -53,6 +56,10 @@ public class ChangeNotesCache {
 
   @VisibleForTesting static final String CACHE_NAME = "change_notes";
 
+  // Maximum number of ancestors of a meta commit we inspect to find a cached state to parse
+  // incrementally on top of. If none is found, we fall back to parsing all commits.
+  private static final int MAX_HISTORY_LOOKBACK = 10;
+
   public static Module module() {
     return new CacheModule() {
       @Override
@@ -363,34 +370,79 @@ public class ChangeNotesCache {
     public ChangeNotesState call() throws ConfigInvalidException, IOException {
       logger.atFine().log(
           "Load change notes for change %s of project %s", key.changeId(), key.project());
-      ChangeNotesParser parser =
-          new ChangeNotesParser(
-              key.changeId(),
-              key.id(),
-              walkSupplier.get(),
-              args.changeNoteJson,
-              args.metrics,
-              new NoteDbUtil(args.serverId, externalIdCache));
+      ChangeNotesRevWalk walk = walkSupplier.get();
+      if (incrementalParsing) {
+        ChangeNotesState prior = findPriorState(walk);
+        if (prior != null) {
+          ChangeNotesParser parser = newParser(walk);
+          Optional<ChangeNotesState> result = parser.parseIncrementally(prior);
+          if (result.isPresent()) {
+            args.metrics.parseCount.increment(true);
+            revisionNoteMap = parser.getRevisionNoteMap();
+            return result.get();
+          }
+          logger.atFine().log(
+              "Cannot parse change %s of project %s incrementally on top of %s",
+              key.changeId(), key.project(), prior.metaId().name());
+        }
+      }
+      ChangeNotesParser parser = newParser(walk);
       ChangeNotesState result = parser.parseAll();
+      args.metrics.parseCount.increment(false);
       // This assignment only happens if call() was actually called, which only
       // happens when Cache#get(K, Callable<V>) incurs a cache miss.
       revisionNoteMap = parser.getRevisionNoteMap();
       return result;
     }
+
+    private ChangeNotesParser newParser(ChangeNotesRevWalk walk) {
+      return new ChangeNotesParser(
+          key.changeId(),
+          key.id(),
+          walk,
+          args.changeNoteJson,
+          args.metrics,
+          new NoteDbUtil(args.serverId, externalIdCache));
+    }
+
+    /**
+     * Returns the cached state of the most recent ancestor of the requested meta commit, or {@code
+     * null} if none of the last {@link #MAX_HISTORY_LOOKBACK} ancestors is cached.
+     */
+    @Nullable
+    private ChangeNotesState findPriorState(ChangeNotesRevWalk walk) throws IOException {
+      walk.reset();
+      walk.markStart(walk.parseCommit(key.id()));
+      // Skip the requested commit, its state is not cached.
+      walk.next();
+      ChangeNotesCommit commit;
+      int i = 0;
+      while ((commit = walk.next()) != null && i++ < MAX_HISTORY_LOOKBACK) {
+        ChangeNotesState prior =
+            cache.getIfPresent(Key.create(key.project(), key.changeId(), commit));
+        if (prior != null) {
+          return prior;
+        }
+      }
+      return null;
+    }
   }
 
   private final Cache<Key, ChangeNotesState> cache;
   private final Args args;
   private final ExternalIdCache externalIdCache;
+  private final boolean incrementalParsing;
 
   @Inject
   ChangeNotesCache(
       @Named(CACHE_NAME) Cache<Key, ChangeNotesState> cache,
       Args args,
-      ExternalIdCache externalIdCache) {
+      ExternalIdCache externalIdCache,
+      @GerritServerConfig Config cfg) {
     this.cache = cache;
     this.args = args;
     this.externalIdCache = externalIdCache;
+    this.incrementalParsing = cfg.getBoolean("noteDb", "changes", "incrementalParsing", false);
   }
 
   Value get(
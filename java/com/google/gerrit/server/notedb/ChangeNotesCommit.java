@@ -18,14 +18,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_ATTENTION;
 import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_PATCH_SET;
 
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableList;
 import com.google.gerrit.server.git.InMemoryInserter;
 import com.google.gerrit.server.git.InsertedObject;
 import java.io.IOException;
 import java.util.List;
-import java.util.Locale;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.AnyObjectId;
@@ -44,6 +41,8 @@ import org.eclipse.jgit.revwalk.RevWalk;
  * <ul>
  *   <li>Caches the result of {@link #getFooterLines()}, which is otherwise very wasteful with
  *       allocations.
+ *   <li>Looks up footers by matching the raw key bytes, and decodes only the values of footers
+ *       that are looked up, each at most once.
  * </ul>
  */
 public class ChangeNotesCommit extends RevCommit {
@@ -53,6 +52,11 @@ public class ChangeNotesCommit extends RevCommit {
     return new ChangeNotesRevWalk(repo);
   }
 
+  /** A {@link RevWalk} producing {@link ChangeNotesCommit}s that reads through {@code reader}. */
+  static ChangeNotesRevWalk newRevWalk(ObjectReader reader) {
+    return new ChangeNotesRevWalk(reader);
+  }
+
   public static ChangeNotesRevWalk newStagedRevWalk(
       Repository repo, Iterable<InsertedObject> stagedObjs) {
     final InMemoryInserter ins = new InMemoryInserter(repo);
@@ -115,30 +119,59 @@ public class ChangeNotesCommit extends RevCommit {
     }
   }
 
-  private ListMultimap<String, String> footerLines;
+  private List<FooterLine> footerLines;
+  private String[] footerValues;
 
   public ChangeNotesCommit(AnyObjectId id) {
     super(id);
   }
 
   public List<String> getFooterLineValues(FooterKey key) {
-    if (footerLines == null) {
-      List<FooterLine> src = getFooterLines();
-      footerLines = MultimapBuilder.hashKeys(src.size()).arrayListValues(1).build();
-      for (FooterLine fl : src) {
-        footerLines.put(fl.getKey().toLowerCase(Locale.US), fl.getValue());
+    List<FooterLine> src = getCachedFooterLines();
+    ImmutableList.Builder<String> values = null;
+    for (int i = 0; i < src.size(); i++) {
+      if (src.get(i).matches(key)) {
+        if (values == null) {
+          values = ImmutableList.builderWithExpectedSize(1);
+        }
+        values.add(getFooterValue(i));
       }
     }
-    return footerLines.get(key.getName().toLowerCase(Locale.US));
+    return values != null ? values.build() : ImmutableList.of();
   }
 
   public boolean isAttentionSetCommitOnly(boolean hasChangeMessage) {
-    return !hasChangeMessage
-        && footerLines
-            .keySet()
-            .equals(
-                Sets.newHashSet(
-                    FOOTER_PATCH_SET.getName().toLowerCase(Locale.US),
-                    FOOTER_ATTENTION.getName().toLowerCase(Locale.US)));
+    if (hasChangeMessage) {
+      return false;
+    }
+    boolean hasPatchSet = false;
+    boolean hasAttention = false;
+    for (FooterLine fl : getCachedFooterLines()) {
+      if (fl.matches(FOOTER_PATCH_SET)) {
+        hasPatchSet = true;
+      } else if (fl.matches(FOOTER_ATTENTION)) {
+        hasAttention = true;
+      } else {
+        return false;
+      }
+    }
+    return hasPatchSet && hasAttention;
+  }
+
+  private List<FooterLine> getCachedFooterLines() {
+    if (footerLines == null) {
+      // FooterLine only stores the offsets of the key and the value in the raw buffer; keys are
+      // matched against the raw bytes and values are decoded on first access.
+      footerLines = getFooterLines();
+      footerValues = new String[footerLines.size()];
+    }
+    return footerLines;
+  }
+
+  private String getFooterValue(int i) {
+    if (footerValues[i] == null) {
+      footerValues[i] = footerLines.get(i).getValue();
+    }
+    return footerValues[i];
   }
 }
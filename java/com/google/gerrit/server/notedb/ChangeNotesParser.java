@@ -46,6 +46,7 @@ import static com.google.gerrit.server.notedb.ChangeNoteUtil.parseCommitMessageR
 import static java.util.Comparator.comparing;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toSet;
 
 import com.google.common.base.Enums;
 import com.google.common.base.Splitter;
@@ -183,6 +184,12 @@ class ChangeNotesParser {
 
   private final Set<Account.Id> removedReviewers;
 
+  /**
+   * Reviewer updates of the prior state when parsing incrementally, see {@link
+   * #parseIncrementally(ChangeNotesState)}. Already deduplicated and in chronological order.
+   */
+  private ImmutableList<ReviewerStatusUpdate> priorReviewerUpdates = ImmutableList.of();
+
   // Non-final private members filled in during the parsing process.
   private Map<PatchSet.Id, String> branchByPatchSet;
   private String branch;
@@ -282,6 +289,239 @@ class ChangeNotesParser {
     return buildState();
   }
 
+  /**
+   * Parses the state at the tip incrementally, on top of the state at an ancestor of the tip.
+   *
+   * <p>Only the commits after the ancestor are parsed. Since commits are parsed from newest to
+   * oldest, the prior state is merged in as if its commits had been parsed after the new commits,
+   * which yields the same state as {@link #parseAll()}. New commits that interact with older
+   * commits in ways which can't be reconstructed from the prior state (status changes, moves to
+   * another branch, patch set deletions, updates of existing patch sets and re-adding removed
+   * reviewers) are not supported. Neither are prior states of closed changes, whose approvals may
+   * have been back-filled from submit records.
+   *
+   * @param prior the state at an ancestor of the tip
+   * @return the state at the tip, or empty if the new commits can't be parsed incrementally, in
+   *     which case the caller must use a new parser to parse all commits.
+   */
+  Optional<ChangeNotesState> parseIncrementally(ChangeNotesState prior)
+      throws ConfigInvalidException, IOException {
+    if (prior.columns() == null
+        || prior.columns().status() == null
+        || prior.columns().status().isClosed()) {
+      return Optional.empty();
+    }
+    walk.reset();
+    ChangeNotesCommit tipCommit = walk.parseCommit(tip);
+    ChangeNotesCommit priorCommit = walk.parseCommit(prior.metaId());
+    walk.markStart(tipCommit);
+    walk.markUninteresting(priorCommit);
+
+    try (Timer0.Context timer = metrics.incrementalParseLatency.start()) {
+      ChangeNotesCommit commit;
+      while ((commit = walk.next()) != null) {
+        if (!canParseIncrementally(commit)) {
+          return Optional.empty();
+        }
+        parse(commit);
+      }
+      if (!canMergePriorState(prior)) {
+        return Optional.empty();
+      }
+      ImmutableSet<PatchSet.Id> newPatchSets = ImmutableSet.copyOf(patchSets.keySet());
+      ImmutableList<Account.Id> newReviewers = ImmutableList.copyOf(reviewers.rowKeySet());
+      mergePriorState(prior);
+      if (newPatchSets.isEmpty() && tipCommit.getTree().equals(priorCommit.getTree())) {
+        // The notes didn't change, hence neither did the comments, push certificates and submit
+        // requirement results.
+        humanComments.putAll(prior.publishedComments());
+        submitRequirementResults.addAll(prior.submitRequirementsResult());
+      } else {
+        parseNotes();
+      }
+      // Reviewers that were removed before the prior state are not in the reviewers table.
+      allPastReviewers.addAll(newReviewers);
+      prior.allPastReviewers().stream()
+          .filter(a -> !newReviewers.contains(a))
+          .forEach(allPastReviewers::add);
+      pruneReviewers();
+      pruneReviewersByEmail();
+
+      updatePatchSetStates();
+      checkMandatoryFooters();
+    }
+
+    pruneEmptyCustomKeyedValues();
+    return Optional.of(buildState());
+  }
+
+  private boolean canParseIncrementally(ChangeNotesCommit commit) throws ConfigInvalidException {
+    return parsePatchSetState(commit) == null
+        && commit.getFooterLineValues(FOOTER_STATUS).isEmpty()
+        && commit.getFooterLineValues(FOOTER_BRANCH).isEmpty();
+  }
+
+  private boolean canMergePriorState(ChangeNotesState prior) {
+    Set<PatchSet.Id> priorPatchSets =
+        prior.patchSets().stream().map(Map.Entry::getKey).collect(toSet());
+    for (Map.Entry<PatchSet.Id, PatchSet.Builder> e : patchSets.entrySet()) {
+      if (!e.getValue().commitId().isPresent() || priorPatchSets.contains(e.getKey())) {
+        // An existing patch set was updated or created twice.
+        return false;
+      }
+    }
+    for (Account.Id accountId : reviewers.rowKeySet()) {
+      if (prior.allPastReviewers().contains(accountId)
+          && !prior.reviewers().all().contains(accountId)) {
+        // The approvals of a re-added reviewer were dropped from the prior state.
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void mergePriorState(ChangeNotesState prior) {
+    ChangeNotesState.ChangeColumns columns = prior.columns();
+
+    // Fields that every commit overwrites keep the value of the oldest commit.
+    createdOn = columns.createdOn();
+    ownerId = columns.owner();
+    serverId = prior.serverId();
+    if (columns.originalSubject() != null) {
+      originalSubject = columns.originalSubject();
+    }
+
+    // Fields that are only set by the newest commit keep the value of the new commits, if any.
+    branch = columns.branch();
+    status = columns.status();
+    if (changeId == null) {
+      changeId = columns.changeKey().get();
+    }
+    if (subject == null) {
+      subject = columns.subject();
+    }
+    if (topic == null) {
+      topic = columns.topic();
+    }
+    if (hashtags == null) {
+      hashtags = prior.hashtags();
+    }
+    if (submissionId == null) {
+      submissionId = columns.submissionId();
+    }
+    if (mergedOn == null) {
+      mergedOn = prior.mergedOn();
+    }
+    if (submitRecords.isEmpty()) {
+      submitRecords.addAll(prior.submitRecords());
+    }
+    if (isPrivate == null) {
+      isPrivate = columns.isPrivate();
+    }
+    if (revertOf == null) {
+      revertOf = columns.revertOf();
+    }
+    if (cherryPickOf == null) {
+      cherryPickOf = Optional.ofNullable(columns.cherryPickOf());
+    }
+    if (hasReviewStarted == null) {
+      hasReviewStarted = columns.reviewStarted();
+    }
+    if (lastUpdatedOn == null || columns.lastUpdatedOn().isAfter(lastUpdatedOn)) {
+      lastUpdatedOn = columns.lastUpdatedOn();
+    }
+    if (workInProgress == null) {
+      if (columns.workInProgress()) {
+        // The pending reviewers were snapshotted by the prior state, add those of the new commits.
+        pendingReviewers = mergePendingReviewers(prior.pendingReviewers());
+        pendingReviewersByEmail = mergePendingReviewersByEmail(prior.pendingReviewersByEmail());
+      }
+      workInProgress = columns.workInProgress();
+    }
+
+    // New patch sets are on the latest branch of the prior state.
+    patchSets.keySet().forEach(p -> branchByPatchSet.putIfAbsent(p, columns.branch()));
+    for (Map.Entry<PatchSet.Id, PatchSet> e : prior.patchSets()) {
+      patchSets.put(e.getKey(), toBuilder(e.getValue()));
+    }
+    if (columns.currentPatchSetId() != null) {
+      currentPatchSets.add(columns.currentPatchSetId());
+    }
+
+    // The prior state is not closed, so the new approvals are not post-submit.
+    bufferedApprovals.clear();
+    for (Map.Entry<PatchSet.Id, PatchSetApproval> e : prior.approvals()) {
+      PatchSetApproval a = e.getValue();
+      PatchSetApproval.Builder psa = a.toBuilder();
+      if (!a.copied() && removedReviewers.contains(a.accountId())) {
+        // See parseAddApproval.
+        psa.value(0);
+      }
+      approvals.putIfAbsent(psa.key(), psa);
+    }
+
+    for (Table.Cell<ReviewerStateInternal, Account.Id, Instant> c :
+        prior.reviewers().asTable().cellSet()) {
+      if (!reviewers.containsRow(c.getColumnKey())) {
+        reviewers.put(c.getColumnKey(), c.getRowKey(), c.getValue());
+      }
+    }
+    for (Table.Cell<ReviewerStateInternal, Address, Instant> c :
+        prior.reviewersByEmail().asTable().cellSet()) {
+      if (!reviewersByEmail.containsRow(c.getColumnKey())) {
+        reviewersByEmail.put(c.getColumnKey(), c.getRowKey(), c.getValue());
+      }
+    }
+    priorReviewerUpdates = prior.reviewerUpdates();
+
+    for (AttentionSetUpdate u : prior.attentionSet()) {
+      latestAttentionStatus.putIfAbsent(u.account(), u);
+    }
+    allAttentionSetUpdates.addAll(prior.allAttentionSetUpdates());
+    for (Map.Entry<String, String> e : prior.customKeyedValues()) {
+      customKeyedValues.putIfAbsent(e.getKey(), e.getValue());
+    }
+    allChangeMessages.addAll(Lists.reverse(prior.changeMessages()));
+    updateCount += prior.updateCount();
+  }
+
+  private ReviewerSet mergePendingReviewers(ReviewerSet priorPending) {
+    Table<Account.Id, ReviewerStateInternal, Instant> pending = HashBasedTable.create(reviewers);
+    for (Table.Cell<ReviewerStateInternal, Account.Id, Instant> c :
+        priorPending.asTable().cellSet()) {
+      if (!pending.containsRow(c.getColumnKey())) {
+        pending.put(c.getColumnKey(), c.getRowKey(), c.getValue());
+      }
+    }
+    return ReviewerSet.fromTable(Tables.transpose(pending));
+  }
+
+  private ReviewerByEmailSet mergePendingReviewersByEmail(ReviewerByEmailSet priorPending) {
+    Table<Address, ReviewerStateInternal, Instant> pending =
+        HashBasedTable.create(reviewersByEmail);
+    for (Table.Cell<ReviewerStateInternal, Address, Instant> c :
+        priorPending.asTable().cellSet()) {
+      if (!pending.containsRow(c.getColumnKey())) {
+        pending.put(c.getColumnKey(), c.getRowKey(), c.getValue());
+      }
+    }
+    return ReviewerByEmailSet.fromTable(Tables.transpose(pending));
+  }
+
+  private static PatchSet.Builder toBuilder(PatchSet ps) {
+    return PatchSet.builder()
+        .id(ps.id())
+        .commitId(ps.commitId())
+        .branch(ps.branch())
+        .uploader(ps.uploader())
+        .realUploader(ps.realUploader())
+        .createdOn(ps.createdOn())
+        .groups(ps.groups())
+        .pushCertificate(ps.pushCertificate())
+        .description(ps.description())
+        .conflicts(ps.conflicts());
+  }
+
   RevisionNoteMap<ChangeRevisionNote> getRevisionNoteMap() {
     return revisionNoteMap;
   }
@@ -447,9 +687,13 @@ class ChangeNotesParser {
   }
 
   private List<ReviewerStatusUpdate> buildReviewerUpdates() {
-    List<ReviewerStatusUpdate> result = new ArrayList<>();
+    List<ReviewerStatusUpdate> result = new ArrayList<>(priorReviewerUpdates);
     HashMap<Account.Id, ReviewerStateInternal> lastState = new HashMap<>();
     HashMap<Address, ReviewerStateInternal> lastStateReviewerByEmail = new HashMap<>();
+    for (ReviewerStatusUpdate u : priorReviewerUpdates) {
+      u.reviewer().ifPresent(r -> lastState.put(r, u.state()));
+      u.reviewerByEmail().ifPresent(r -> lastStateReviewerByEmail.put(r, u.state()));
+    }
     for (ReviewerStatusUpdate u : Lists.reverse(reviewerUpdates)) {
       if (u.reviewer().isPresent()) {
         if (!Objects.equals(ownerId, u.reviewer().get())
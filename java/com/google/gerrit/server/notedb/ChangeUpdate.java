@@ -161,6 +161,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
   private final ChangeDraftUpdate.ChangeDraftUpdateFactory draftUpdateFactory;
   private final RobotCommentUpdate.Factory robotCommentUpdateFactory;
   private final DeleteCommentRewriter.Factory deleteCommentRewriterFactory;
+  private final CompactMetaHistoryRewriter.Factory compactMetaHistoryRewriterFactory;
   private final ServiceUserClassifier serviceUserClassifier;
   private final PatchSetApprovalUuidGenerator patchSetApprovalUuidGenerator;
 
@@ -204,6 +205,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
   private RobotCommentUpdate robotCommentUpdate;
   private DeleteCommentRewriter deleteCommentRewriter;
   private DeleteChangeMessageRewriter deleteChangeMessageRewriter;
+  private CompactMetaHistoryRewriter compactMetaHistoryRewriter;
   private List<SubmitRequirementResult> submitRequirementResults;
 
   private ImmutableList.Builder<AttentionSetUpdate> attentionSetUpdatesBuilder =
@@ -219,6 +221,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
       ChangeDraftUpdate.ChangeDraftUpdateFactory draftUpdateFactory,
       RobotCommentUpdate.Factory robotCommentUpdateFactory,
       DeleteCommentRewriter.Factory deleteCommentRewriterFactory,
+      CompactMetaHistoryRewriter.Factory compactMetaHistoryRewriterFactory,
       ProjectCache projectCache,
       ServiceUserClassifier serviceUserClassifier,
       PatchSetApprovalUuidGenerator patchSetApprovalUuidGenerator,
@@ -233,6 +236,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
         draftUpdateFactory,
         robotCommentUpdateFactory,
         deleteCommentRewriterFactory,
+        compactMetaHistoryRewriterFactory,
         serviceUserClassifier,
         patchSetApprovalUuidGenerator,
         experimentFeatures,
@@ -259,6 +263,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
       ChangeDraftUpdate.ChangeDraftUpdateFactory draftUpdateFactory,
       RobotCommentUpdate.Factory robotCommentUpdateFactory,
       DeleteCommentRewriter.Factory deleteCommentRewriterFactory,
+      CompactMetaHistoryRewriter.Factory compactMetaHistoryRewriterFactory,
       ServiceUserClassifier serviceUserClassifier,
       PatchSetApprovalUuidGenerator patchSetApprovalUuidGenerator,
       ExperimentFeatures experimentFeatures,
@@ -272,6 +277,7 @@ public class ChangeUpdate extends AbstractChangeUpdate {
     this.draftUpdateFactory = draftUpdateFactory;
     this.robotCommentUpdateFactory = robotCommentUpdateFactory;
     this.deleteCommentRewriterFactory = deleteCommentRewriterFactory;
+    this.compactMetaHistoryRewriterFactory = compactMetaHistoryRewriterFactory;
     this.serviceUserClassifier = serviceUserClassifier;
     this.patchSetApprovalUuidGenerator = patchSetApprovalUuidGenerator;
     this.experimentFeatures = experimentFeatures;
@@ -440,6 +446,18 @@ public class ChangeUpdate extends AbstractChangeUpdate {
         new DeleteChangeMessageRewriter(getChange().getId(), targetMessageId, newMessage);
   }
 
+  /**
+   * Compacts the history of the change meta ref, see {@link CompactMetaHistoryRewriter}.
+   *
+   * @return the rewriter, which provides the number of commits before and after the compaction
+   *     once the update was executed.
+   */
+  @CanIgnoreReturnValue
+  public CompactMetaHistoryRewriter compactMetaHistoryByRewritingHistory() {
+    compactMetaHistoryRewriter = compactMetaHistoryRewriterFactory.create(getChange().getId());
+    return compactMetaHistoryRewriter;
+  }
+
   @VisibleForTesting
   @CanIgnoreReturnValue
   ChangeDraftUpdate createDraftUpdateIfNull() {
@@ -1259,6 +1277,10 @@ public class ChangeUpdate extends AbstractChangeUpdate {
     return deleteChangeMessageRewriter;
   }
 
+  CompactMetaHistoryRewriter getCompactMetaHistoryRewriter() {
+    return compactMetaHistoryRewriter;
+  }
+
   public void setAllowWriteToNewRef(boolean allow) {
     isAllowWriteToNewtRef = allow;
   }
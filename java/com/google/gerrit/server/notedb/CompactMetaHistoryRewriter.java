@@ -0,0 +1,342 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_ATTENTION;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_HASHTAGS;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_LABEL;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_PATCH_SET;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_REAL_USER;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_TAG;
+import static com.google.gerrit.server.notedb.ChangeNoteFooters.FOOTER_TOPIC;
+import static com.google.gerrit.server.notedb.ChangeNoteUtil.parseCommitMessageRange;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.ChangeMessage;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.server.notedb.ChangeNotesCommit.ChangeNotesRevWalk;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.FooterKey;
+import org.eclipse.jgit.revwalk.FooterLine;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Compacts the history of a change meta ref by folding commits into the commit that follows them,
+ * as far as this doesn't change the state that is parsed from the ref.
+ *
+ * <p>A commit is folded into the following commit if both were written by the same user, for the
+ * same patch set and with the same tag, and if the commit only carries:
+ *
+ * <ul>
+ *   <li>a topic or hashtags, which are dropped if the following commit sets them again,
+ *   <li>a change message, votes, reviewer updates or attention set updates. These record the time
+ *       of their commit, hence commits carrying them are only folded into a following commit with
+ *       the same commit time. At most one of the folded commits may carry a change message.
+ * </ul>
+ *
+ * <p>Commits with any other footers, e.g. new patch sets or status changes, and the first commit of
+ * the change are never folded.
+ *
+ * <p>The compacted history is verified by parsing both histories. The compaction is rejected
+ * unless both result in the same state, ignoring the meta ID, the number of updates and the keys
+ * of the change messages, which are derived from the SHA-1s of the commits.
+ */
+public class CompactMetaHistoryRewriter implements NoteDbRewriter {
+  public interface Factory {
+    CompactMetaHistoryRewriter create(Change.Id changeId);
+  }
+
+  private static final ImmutableSet<String> SUPERSEDED_FOOTERS =
+      footerNames(ImmutableList.of(FOOTER_TOPIC, FOOTER_HASHTAGS));
+
+  private static final ImmutableSet<String> TIMESTAMPED_FOOTERS = timestampedFooterNames();
+
+  private static final ImmutableSet<String> IDENTITY_FOOTERS =
+      footerNames(ImmutableList.of(FOOTER_PATCH_SET, FOOTER_REAL_USER, FOOTER_TAG));
+
+  private final ChangeNoteJson changeNoteJson;
+  private final NoteDbMetrics metrics;
+  private final NoteDbUtil noteDbUtil;
+  private final Change.Id changeId;
+
+  private int commitsBefore;
+  private int commitsAfter;
+
+  @Inject
+  CompactMetaHistoryRewriter(
+      ChangeNoteJson changeNoteJson,
+      NoteDbMetrics metrics,
+      NoteDbUtil noteDbUtil,
+      @Assisted Change.Id changeId) {
+    this.changeNoteJson = changeNoteJson;
+    this.metrics = metrics;
+    this.noteDbUtil = noteDbUtil;
+    this.changeId = changeId;
+  }
+
+  @Override
+  public String getRefName() {
+    return RefNames.changeMetaRef(changeId);
+  }
+
+  /** Returns the number of commits of the meta ref before the last rewrite. */
+  public int getCommitsBefore() {
+    return commitsBefore;
+  }
+
+  /** Returns the number of commits of the meta ref after the last rewrite. */
+  public int getCommitsAfter() {
+    return commitsAfter;
+  }
+
+  @Override
+  public ObjectId rewriteCommitHistory(RevWalk revWalk, ObjectInserter inserter, ObjectId currTip)
+      throws IOException, ConfigInvalidException {
+    checkArgument(!currTip.equals(ObjectId.zeroId()));
+
+    // Walk from the first commit of the branch.
+    revWalk.reset();
+    revWalk.markStart(revWalk.parseCommit(currTip));
+    revWalk.sort(RevSort.TOPO);
+    revWalk.sort(RevSort.REVERSE);
+
+    List<Run> runs = new ArrayList<>();
+    RevCommit commit;
+    while ((commit = revWalk.next()) != null) {
+      Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+      // The first commit determines when the change was created and is never folded.
+      if (runs.size() > 1 && last.canFoldInto(commit)) {
+        last.foldInto(commit);
+      } else {
+        runs.add(new Run(commit));
+      }
+    }
+    commitsBefore = runs.stream().mapToInt(r -> r.size).sum();
+    commitsAfter = runs.size();
+    if (commitsAfter == commitsBefore) {
+      return currTip;
+    }
+
+    ObjectId newTip = null;
+    boolean rewritten = false;
+    for (Run run : runs) {
+      if (!rewritten && run.size == 1) {
+        newTip = run.newest;
+        continue;
+      }
+      rewritten = true;
+      newTip = run.write(newTip, inserter);
+    }
+
+    verify(revWalk.getObjectReader(), currTip, newTip);
+    return newTip;
+  }
+
+  private void verify(ObjectReader reader, ObjectId oldTip, ObjectId newTip)
+      throws IOException, ConfigInvalidException {
+    if (!normalize(parse(reader, oldTip)).equals(normalize(parse(reader, newTip)))) {
+      throw new StorageException(
+          String.format(
+              "Compacted history of %s doesn't result in the same state", getRefName()));
+    }
+  }
+
+  private ChangeNotesState parse(ObjectReader reader, ObjectId tip)
+      throws IOException, ConfigInvalidException {
+    try (ChangeNotesRevWalk walk = ChangeNotesCommit.newRevWalk(reader)) {
+      return new ChangeNotesParser(changeId, tip, walk, changeNoteJson, metrics, noteDbUtil)
+          .parseAll();
+    }
+  }
+
+  private static ChangeNotesState normalize(ChangeNotesState state) {
+    return state.toBuilder()
+        .metaId(ObjectId.zeroId())
+        .updateCount(0)
+        .changeMessages(
+            state.changeMessages().stream()
+                .map(
+                    m ->
+                        ChangeMessage.create(
+                            ChangeMessage.key(m.getKey().changeId(), ""),
+                            m.getAuthor(),
+                            m.getWrittenOn(),
+                            m.getPatchSetId(),
+                            m.getMessage(),
+                            m.getRealAuthor(),
+                            m.getTag()))
+                .collect(toImmutableList()))
+        .build();
+  }
+
+  private static ImmutableSet<String> footerNames(List<FooterKey> keys) {
+    return keys.stream().map(FooterKey::getName).collect(toImmutableSet());
+  }
+
+  private static ImmutableSet<String> timestampedFooterNames() {
+    ImmutableSet.Builder<String> names = ImmutableSet.builder();
+    names.add(FOOTER_LABEL.getName(), FOOTER_ATTENTION.getName());
+    for (ReviewerStateInternal state : ReviewerStateInternal.values()) {
+      names.add(state.getFooterKey().getName(), state.getByEmailFooterKey().getName());
+    }
+    return names.build();
+  }
+
+  /** Consecutive commits that are written as one commit. */
+  private static class Run {
+    private RevCommit newest;
+    private int size;
+    @Nullable private String changeMessage;
+    // Newest footers first, so that the parser sees them in the same order as in the original
+    // history.
+    private List<FooterLine> footers;
+    private boolean timestamped;
+
+    Run(RevCommit commit) {
+      newest = commit;
+      size = 1;
+      changeMessage = changeMessage(commit).orElse(null);
+      footers = commit.getFooterLines();
+      timestamped = changeMessage != null || hasFooter(footers, TIMESTAMPED_FOOTERS);
+    }
+
+    boolean canFoldInto(RevCommit next) {
+      if (!sameIdent(newest.getAuthorIdent(), next.getAuthorIdent())
+          || !sameIdent(newest.getCommitterIdent(), next.getCommitterIdent())
+          || !newest.getEncoding().equals(next.getEncoding())) {
+        return false;
+      }
+      List<FooterLine> nextFooters = next.getFooterLines();
+      if (!isFoldable(footers) || !isFoldable(nextFooters)) {
+        return false;
+      }
+      for (String name : IDENTITY_FOOTERS) {
+        if (!values(footers, name).equals(values(nextFooters, name))) {
+          return false;
+        }
+      }
+      if (changeMessage != null && changeMessage(next).isPresent()) {
+        return false;
+      }
+      return !timestamped || newest.getCommitTime() == next.getCommitTime();
+    }
+
+    void foldInto(RevCommit next) {
+      List<FooterLine> nextFooters = next.getFooterLines();
+      List<FooterLine> merged = new ArrayList<>(nextFooters);
+      for (FooterLine f : footers) {
+        String name = f.getKey();
+        if (IDENTITY_FOOTERS.contains(name)
+            || (SUPERSEDED_FOOTERS.contains(name) && !values(nextFooters, name).isEmpty())) {
+          continue;
+        }
+        merged.add(f);
+      }
+      Optional<String> nextMessage = changeMessage(next);
+      if (nextMessage.isPresent()) {
+        changeMessage = nextMessage.get();
+      }
+      timestamped |= nextMessage.isPresent() || hasFooter(nextFooters, TIMESTAMPED_FOOTERS);
+      footers = merged;
+      newest = next;
+      size++;
+    }
+
+    ObjectId write(@Nullable ObjectId parent, ObjectInserter inserter) throws IOException {
+      CommitBuilder cb = new CommitBuilder();
+      if (parent != null) {
+        cb.setParentId(parent);
+      }
+      cb.setTreeId(newest.getTree());
+      cb.setCommitter(newest.getCommitterIdent());
+      cb.setAuthor(newest.getAuthorIdent());
+      cb.setEncoding(newest.getEncoding());
+      cb.setMessage(size == 1 ? newest.getFullMessage() : message());
+      return inserter.insert(cb);
+    }
+
+    private String message() {
+      StringBuilder msg = new StringBuilder(newest.getShortMessage()).append("\n\n");
+      if (changeMessage != null) {
+        msg.append(changeMessage).append("\n\n");
+      }
+      for (FooterLine f : footers) {
+        msg.append(f.getKey()).append(": ").append(f.getValue()).append('\n');
+      }
+      return msg.toString();
+    }
+
+    private static boolean isFoldable(List<FooterLine> footers) {
+      return footers.stream()
+          .map(FooterLine::getKey)
+          .allMatch(
+              k ->
+                  IDENTITY_FOOTERS.contains(k)
+                      || SUPERSEDED_FOOTERS.contains(k)
+                      || TIMESTAMPED_FOOTERS.contains(k));
+    }
+
+    private static boolean hasFooter(List<FooterLine> footers, ImmutableSet<String> names) {
+      return footers.stream().anyMatch(f -> names.contains(f.getKey()));
+    }
+
+    private static ImmutableList<String> values(List<FooterLine> footers, String name) {
+      return footers.stream()
+          .filter(f -> f.getKey().equals(name))
+          .map(FooterLine::getValue)
+          .collect(toImmutableList());
+    }
+
+    private static boolean sameIdent(PersonIdent a, PersonIdent b) {
+      return Objects.equals(a.getName(), b.getName())
+          && Objects.equals(a.getEmailAddress(), b.getEmailAddress());
+    }
+
+    private static Optional<String> changeMessage(RevCommit commit) {
+      byte[] raw = commit.getRawBuffer();
+      return parseCommitMessageRange(commit)
+          .filter(ChangeNoteUtil.CommitMessageRange::hasChangeMessage)
+          .map(
+              r ->
+                  RawParseUtils.decode(
+                      RawParseUtils.parseEncoding(raw),
+                      raw,
+                      r.changeMessageStart(),
+                      r.changeMessageEnd() + 1));
+    }
+  }
+}
@@ -178,6 +178,8 @@ public class DeleteZombieCommentsRefs extends DeleteZombieComments<Ref> {
 
   @Override
   protected List<Ref> listAllDrafts() throws IOException {
+    // Not read through NoteDbRefs: the listed refs are deleted, hence they must not come from a
+    // possibly stale snapshot, and this one-off cleanup doesn't benefit from sharing a snapshot.
     return allUsersRepo.getRefDatabase().getRefsByPrefix(REFS_DRAFT_COMMENTS);
   }
 
@@ -0,0 +1,439 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Converter;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Striped;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.HumanComment;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.proto.Protos;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.cache.proto.Cache.DraftsByAccountProto;
+import com.google.gerrit.server.cache.proto.Cache.DraftsByAccountProto.ChangeDraftsProto;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.cache.serialize.IntegerCacheSerializer;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.ScheduleConfig;
+import com.google.gerrit.server.config.ScheduleConfig.Schedule;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.notes.NoteMap;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+/**
+ * Index of the changes on which an account has draft comments.
+ *
+ * <p>Draft comments are stored in {@code refs/draft-comments/XX/<change>/<account>} refs in
+ * All-Users. Since the account is the last component of the ref name, finding the changes with
+ * drafts of an account requires to scan all draft refs. This index stores, per account, the number
+ * of drafts and the time of the last draft update for each change with drafts, so that draft
+ * queries only depend on the number of drafts of the account.
+ *
+ * <p>The index is backed by a persistent cache that is loaded per account by scanning the draft
+ * refs. Loaded entries are maintained incrementally from the draft ref updates of {@link
+ * ChangeDraftNotesUpdate}. Draft refs that are updated by other means, e.g. by other servers that
+ * share the repositories, are corrected by the reconciliation of the loaded entries, see {@link
+ * #reconcile()}, which only runs if it is scheduled.
+ */
+@Singleton
+public class DraftCommentIndex {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final String CACHE_NAME = "drafts_by_account";
+  private static final String SECTION = "draftCommentIndex";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        persist(
+                CACHE_NAME, Account.Id.class, new TypeLiteral<ImmutableMap<Change.Id, Drafts>>() {})
+            .keySerializer(AccountIdSerializer.INSTANCE)
+            .valueSerializer(DraftsSerializer.INSTANCE)
+            .version(1);
+      }
+    };
+  }
+
+  /** Schedules the reconciliation of the index according to {@code draftCommentIndex.*}. */
+  public static class ReconcilerModule extends LifecycleModule {
+    @Override
+    protected void configure() {
+      listener().to(Lifecycle.class);
+    }
+  }
+
+  static class Lifecycle implements LifecycleListener {
+    private final WorkQueue queue;
+    private final DraftCommentIndex index;
+    private final Optional<Schedule> schedule;
+
+    @Inject
+    Lifecycle(WorkQueue queue, DraftCommentIndex index, @GerritServerConfig Config cfg) {
+      this.queue = queue;
+      this.index = index;
+      this.schedule = ScheduleConfig.createSchedule(cfg, SECTION);
+    }
+
+    @Override
+    public void start() {
+      if (index.isEnabled() && schedule.isPresent()) {
+        logger.atInfo().log(
+            "Scheduling draft comment index reconciliation with %s", schedule.get());
+        queue.scheduleAtFixedRate(index.new Reconciler(), schedule.get());
+      }
+    }
+
+    @Override
+    public void stop() {
+      // handled by WorkQueue.stop() already
+    }
+  }
+
+  /** Drafts of an account on a change. */
+  @AutoValue
+  public abstract static class Drafts {
+    static Drafts create(int count, Instant lastUpdated) {
+      return new AutoValue_DraftCommentIndex_Drafts(count, lastUpdated);
+    }
+
+    /** Number of draft comments. */
+    public abstract int count();
+
+    /** Time of the last update of the drafts. */
+    public abstract Instant lastUpdated();
+  }
+
+  enum AccountIdSerializer implements CacheSerializer<Account.Id> {
+    INSTANCE;
+
+    private final Converter<Account.Id, Integer> converter =
+        Converter.from(Account.Id::get, Account::id);
+
+    @Override
+    public byte[] serialize(Account.Id object) {
+      return IntegerCacheSerializer.INSTANCE.serialize(converter.convert(object));
+    }
+
+    @Override
+    public Account.Id deserialize(byte[] in) {
+      return converter.reverse().convert(IntegerCacheSerializer.INSTANCE.deserialize(in));
+    }
+  }
+
+  enum DraftsSerializer implements CacheSerializer<ImmutableMap<Change.Id, Drafts>> {
+    INSTANCE;
+
+    @Override
+    public byte[] serialize(ImmutableMap<Change.Id, Drafts> object) {
+      DraftsByAccountProto.Builder proto = DraftsByAccountProto.newBuilder();
+      object.forEach(
+          (changeId, drafts) ->
+              proto.addChange(
+                  ChangeDraftsProto.newBuilder()
+                      .setChangeId(changeId.get())
+                      .setCount(drafts.count())
+                      .setLastUpdatedMillis(drafts.lastUpdated().toEpochMilli())));
+      return Protos.toByteArray(proto.build());
+    }
+
+    @Override
+    public ImmutableMap<Change.Id, Drafts> deserialize(byte[] in) {
+      return Protos.parseUnchecked(DraftsByAccountProto.parser(), in).getChangeList().stream()
+          .collect(
+              toImmutableMap(
+                  p -> Change.id(p.getChangeId()),
+                  p ->
+                      Drafts.create(
+                          p.getCount(), Instant.ofEpochMilli(p.getLastUpdatedMillis()))));
+    }
+  }
+
+  /** Runnable that reconciles the index with the draft refs. */
+  class Reconciler implements Runnable {
+    @Override
+    public void run() {
+      try {
+        reconcile();
+      } catch (RuntimeException e) {
+        logger.atSevere().withCause(e).log("Failed to reconcile the draft comment index");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "draft comment index reconciliation";
+    }
+  }
+
+  private final Cache<Account.Id, ImmutableMap<Change.Id, Drafts>> cache;
+  private final GitRepositoryManager repoManager;
+  private final AllUsersName allUsers;
+  private final ChangeNoteJson changeNoteJson;
+  private final NoteDbRefs noteDbRefs;
+  private final boolean enabled;
+  private final Striped<Lock> locks = Striped.lock(64);
+
+  @Inject
+  DraftCommentIndex(
+      @Named(CACHE_NAME) Cache<Account.Id, ImmutableMap<Change.Id, Drafts>> cache,
+      GitRepositoryManager repoManager,
+      AllUsersName allUsers,
+      ChangeNoteJson changeNoteJson,
+      NoteDbRefs noteDbRefs,
+      @GerritServerConfig Config cfg) {
+    this.cache = cache;
+    this.repoManager = repoManager;
+    this.allUsers = allUsers;
+    this.changeNoteJson = changeNoteJson;
+    this.noteDbRefs = noteDbRefs;
+    this.enabled = cfg.getBoolean(SECTION, "enabled", false);
+  }
+
+  /** Returns whether draft queries should use the index. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns the drafts of {@code author}, keyed by the ID of the change they were written on. */
+  public ImmutableMap<Change.Id, Drafts> getDrafts(Account.Id author) {
+    ImmutableMap<Change.Id, Drafts> cached = cache.getIfPresent(author);
+    if (cached != null) {
+      return cached;
+    }
+    // Load under the lock of the account, so that draft ref updates that are reported while the
+    // refs are scanned are applied to the loaded entry rather than being skipped because the
+    // account wasn't loaded yet.
+    Lock lock = locks.get(author);
+    lock.lock();
+    try {
+      cached = cache.getIfPresent(author);
+      if (cached != null) {
+        return cached;
+      }
+      ImmutableMap<Change.Id, Drafts> loaded = load(author);
+      cache.put(author, loaded);
+      return loaded;
+    } catch (IOException | ConfigInvalidException e) {
+      throw new StorageException("Failed to load drafts of account " + author, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Updates the index after draft refs were updated. Only accounts that are already loaded into
+   * the index are updated, the entries of all other accounts are loaded on demand.
+   *
+   * @param allUsersRepo the All-Users repository in which the refs were updated.
+   * @param commands the executed ref updates, updates of other refs than draft refs and updates
+   *     that failed are ignored.
+   */
+  void onRefsUpdated(Repository allUsersRepo, Collection<ReceiveCommand> commands) {
+    if (!enabled) {
+      return;
+    }
+    for (ReceiveCommand cmd : commands) {
+      if (cmd.getResult() != ReceiveCommand.Result.OK
+          || !RefNames.isRefsDraftsComments(cmd.getRefName())) {
+        continue;
+      }
+      Account.Id accountId = accountId(cmd.getRefName());
+      Change.Id changeId = Change.Id.fromAllUsersRef(cmd.getRefName());
+      if (accountId == null || changeId == null) {
+        continue;
+      }
+      Lock lock = locks.get(accountId);
+      lock.lock();
+      try {
+        ImmutableMap<Change.Id, Drafts> cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+          // Read the current state of the ref, so that the result doesn't depend on the order in
+          // which concurrent updates of the same ref are reported.
+          cache.put(accountId, update(cached, changeId, read(allUsersRepo, cmd.getRefName())));
+        }
+      } catch (IOException | ConfigInvalidException e) {
+        logger.atWarning().withCause(e).log(
+            "Failed to update draft comment index for %s, evicting account %s",
+            cmd.getRefName(), accountId);
+        cache.invalidate(accountId);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Scans the draft refs of the accounts that are loaded into the index and corrects their index
+   * entries that don't match the draft refs. Accounts that are not loaded are skipped, they are
+   * loaded from the draft refs on demand.
+   *
+   * @return the number of accounts whose index entry was corrected.
+   */
+  public int reconcile() {
+    logger.atInfo().log("Reconciling draft comment index");
+    int corrected = 0;
+    ImmutableSet<Account.Id> loaded = ImmutableSet.copyOf(cache.asMap().keySet());
+    try (Repository repo = repoManager.openRepository(allUsers)) {
+      Map<Account.Id, Map<Change.Id, Drafts>> scanned = scan(repo, loaded::contains);
+      for (Account.Id accountId : loaded) {
+        ImmutableMap<Change.Id, Drafts> expected =
+            ImmutableMap.copyOf(scanned.getOrDefault(accountId, ImmutableMap.of()));
+        Lock lock = locks.get(accountId);
+        lock.lock();
+        try {
+          ImmutableMap<Change.Id, Drafts> cached = cache.getIfPresent(accountId);
+          if (cached == null || cached.equals(expected)) {
+            // Evicted entries are loaded on demand, which reads the refs under the lock. The scan
+            // may be stale, hence it must not be put into the index.
+            continue;
+          }
+          // The cached entry may have been updated since the scan, re-read the refs that differ.
+          ImmutableMap<Change.Id, Drafts> reconciled = cached;
+          for (Change.Id changeId : Sets.union(cached.keySet(), expected.keySet())) {
+            if (!Objects.equals(cached.get(changeId), expected.get(changeId))) {
+              reconciled =
+                  update(
+                      reconciled,
+                      changeId,
+                      read(repo, RefNames.refsDraftComments(changeId, accountId)));
+            }
+          }
+          if (!reconciled.equals(cached)) {
+            cache.put(accountId, reconciled);
+            corrected++;
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (IOException | ConfigInvalidException e) {
+      throw new StorageException("Failed to reconcile draft comment index", e);
+    }
+    logger.atInfo().log("Reconciled draft comment index, corrected %d account(s)", corrected);
+    return corrected;
+  }
+
+  private ImmutableMap<Change.Id, Drafts> load(Account.Id author)
+      throws IOException, ConfigInvalidException {
+    try (Repository repo = repoManager.openRepository(allUsers)) {
+      return ImmutableMap.copyOf(
+          scan(repo, author::equals).getOrDefault(author, ImmutableMap.of()));
+    }
+  }
+
+  /** Reads the draft refs of the given accounts and returns the drafts per account. */
+  private Map<Account.Id, Map<Change.Id, Drafts>> scan(
+      Repository repo, Predicate<Account.Id> accounts) throws IOException, ConfigInvalidException {
+    Map<Account.Id, Map<Change.Id, Drafts>> result = new HashMap<>();
+    try (RevWalk rw = new RevWalk(repo)) {
+      for (Ref ref : noteDbRefs.getRefsByPrefix(allUsers, repo, RefNames.REFS_DRAFT_COMMENTS)) {
+        Account.Id accountId = accountId(ref.getName());
+        Change.Id changeId = Change.Id.fromAllUsersRef(ref.getName());
+        if (accountId == null || changeId == null || !accounts.test(accountId)) {
+          continue;
+        }
+        Drafts drafts = read(rw, ref.getObjectId());
+        if (drafts != null) {
+          result.computeIfAbsent(accountId, a -> new HashMap<>()).put(changeId, drafts);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private Drafts read(Repository repo, String refName) throws IOException, ConfigInvalidException {
+    Ref ref = repo.exactRef(refName);
+    if (ref == null) {
+      return null;
+    }
+    try (RevWalk rw = new RevWalk(repo)) {
+      return read(rw, ref.getObjectId());
+    }
+  }
+
+  /** Returns the drafts stored in the given draft commit, or null if it doesn't store any. */
+  @Nullable
+  private Drafts read(RevWalk rw, ObjectId draftCommitId)
+      throws IOException, ConfigInvalidException {
+    RevCommit commit = rw.parseCommit(draftCommitId);
+    int count =
+        RevisionNoteMap.parse(
+                changeNoteJson,
+                rw.getObjectReader(),
+                NoteMap.read(rw.getObjectReader(), commit),
+                HumanComment.Status.DRAFT)
+            .revisionNotes
+            .values()
+            .stream()
+            .mapToInt(n -> n.getEntities().size())
+            .sum();
+    return count > 0 ? Drafts.create(count, commit.getCommitterIdent().getWhenAsInstant()) : null;
+  }
+
+  private static ImmutableMap<Change.Id, Drafts> update(
+      ImmutableMap<Change.Id, Drafts> drafts, Change.Id changeId, @Nullable Drafts changeDrafts) {
+    Map<Change.Id, Drafts> updated = new HashMap<>(drafts);
+    if (changeDrafts != null) {
+      updated.put(changeId, changeDrafts);
+    } else {
+      updated.remove(changeId);
+    }
+    return ImmutableMap.copyOf(updated);
+  }
+
+  @Nullable
+  private static Account.Id accountId(String draftRef) {
+    Integer id = RefNames.parseRefSuffix(draftRef);
+    return id != null ? Account.id(id) : null;
+  }
+}
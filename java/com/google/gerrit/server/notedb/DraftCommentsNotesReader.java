@@ -45,17 +45,23 @@ public class DraftCommentsNotesReader implements DraftCommentsReader {
   private final GitRepositoryManager repoManager;
   private final AllUsersName allUsers;
   private final ChangeNumberVirtualIdAlgorithm virtualIdAlgorithm;
+  private final DraftCommentIndex draftCommentIndex;
+  private final NoteDbRefs noteDbRefs;
 
   @Inject
   DraftCommentsNotesReader(
       DraftCommentNotes.Factory draftCommentNotesFactory,
       GitRepositoryManager repoManager,
       AllUsersName allUsers,
-      ChangeNumberVirtualIdAlgorithm virtualIdAlgorithm) {
+      ChangeNumberVirtualIdAlgorithm virtualIdAlgorithm,
+      DraftCommentIndex draftCommentIndex,
+      NoteDbRefs noteDbRefs) {
     this.draftCommentNotesFactory = draftCommentNotesFactory;
     this.repoManager = repoManager;
     this.allUsers = allUsers;
     this.virtualIdAlgorithm = virtualIdAlgorithm;
+    this.draftCommentIndex = draftCommentIndex;
+    this.noteDbRefs = noteDbRefs;
   }
 
   @Override
@@ -119,9 +125,12 @@ public class DraftCommentsNotesReader implements DraftCommentsReader {
 
   @Override
   public Set<Change.Id> getChangesWithDrafts(Account.Id author) {
+    if (draftCommentIndex.isEnabled()) {
+      return new HashSet<>(draftCommentIndex.getDrafts(author).keySet());
+    }
     Set<Change.Id> changes = new HashSet<>();
     try (Repository repo = repoManager.openRepository(allUsers)) {
-      for (Ref ref : repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_DRAFT_COMMENTS)) {
+      for (Ref ref : noteDbRefs.getRefsByPrefix(allUsers, repo, RefNames.REFS_DRAFT_COMMENTS)) {
         Integer accountIdFromRef = RefNames.parseRefSuffix(ref.getName());
         if (accountIdFromRef != null && accountIdFromRef == author.get()) {
           Change.Id changeId = Change.Id.fromAllUsersRef(ref.getName());
@@ -139,8 +148,8 @@ public class DraftCommentsNotesReader implements DraftCommentsReader {
 
   private List<Ref> getDraftRefs(ChangeNotes notes) {
     try (Repository repo = repoManager.openRepository(allUsers)) {
-      return repo.getRefDatabase()
-          .getRefsByPrefix(RefNames.refsDraftCommentsPrefix(getVirtualId(notes)));
+      return noteDbRefs.getRefsByPrefix(
+          allUsers, repo, RefNames.refsDraftCommentsPrefix(getVirtualId(notes)));
     } catch (IOException e) {
       throw new StorageException(e);
     }
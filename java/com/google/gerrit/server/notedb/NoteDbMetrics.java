@@ -14,16 +14,36 @@
 
 package com.google.gerrit.server.notedb;
 
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Counter1;
 import com.google.gerrit.metrics.Description;
 import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.Histogram0;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.metrics.Timer1;
+import com.google.gerrit.server.logging.Metadata;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 /** Metrics for accessing and updating changes in NoteDb. */
 @Singleton
 class NoteDbMetrics {
+  /** How {@link NoteDbRefs} looked up refs. */
+  enum RefLookup {
+    /** Prefix scan by seeking in a reftable. */
+    REFTABLE_SEEK,
+    /** Exact lookups in a reftable. */
+    REFTABLE_EXACT,
+    /** Prefix scan of loose and packed refs. */
+    REF_DIRECTORY_SCAN,
+    /** Exact lookups of loose and packed refs. */
+    REF_DIRECTORY_EXACT,
+    /** Prefix scan served from an in-memory ref snapshot. */
+    SNAPSHOT
+  }
+
   /** End-to-end latency for writing a collection of updates. */
   final Timer0 updateLatency;
 
@@ -43,6 +63,48 @@ class NoteDbMetrics {
    */
   final Timer0 parseLatency;
 
+  /**
+   * The portion of {@link #readLatency} due to parsing only the commits that were added on top of a
+   * cached state, but excluding I/O (to a best effort).
+   */
+  final Timer0 incrementalParseLatency;
+
+  /** Number of parsed changes, by whether they were parsed incrementally. */
+  final Counter1<Boolean> parseCount;
+
+  /** Latency of reading NoteDb refs, by the kind of lookup. */
+  final Timer1<RefLookup> refScanLatency;
+
+  /** Number of in-memory ref snapshots that were loaded. */
+  final Counter0 refSnapshotLoadCount;
+
+  /** End-to-end latency for loading a batch of changes with {@link ChangeNotesBulkLoader}. */
+  final Timer0 bulkLoadLatency;
+
+  /** Number of changes in a batch loaded with {@link ChangeNotesBulkLoader}. */
+  final Histogram0 bulkLoadSize;
+
+  /** Number of threads that loaded the changes of a repository in a batch. */
+  final Histogram0 bulkLoadParallelism;
+
+  /** Number of readers leased from {@link NoteDbReaderPool}, by whether they were reused. */
+  final Counter1<Boolean> readerLeaseCount;
+
+  /** Size of the objects read through a reader leased from {@link NoteDbReaderPool}. */
+  final Histogram0 readerBytesRead;
+
+  /** Number of queued writes of {@link AllUsersWritePipeline} when a write was queued. */
+  final Histogram0 allUsersWriteQueueDepth;
+
+  /** Number of writes in a batch written by {@link AllUsersWritePipeline}. */
+  final Histogram0 allUsersWriteBatchSize;
+
+  /** Latency from queueing a write in {@link AllUsersWritePipeline} until it was written. */
+  final Timer0 allUsersWriteLatency;
+
+  /** Number of writes of {@link AllUsersWritePipeline} retried after their batch failed. */
+  final Counter0 allUsersWriteRetryCount;
+
   @Inject
   NoteDbMetrics(MetricMaker metrics) {
     updateLatency =
@@ -72,5 +134,99 @@ class NoteDbMetrics {
             new Description("NoteDb parse latency for changes")
                 .setCumulative()
                 .setUnit(Units.MICROSECONDS));
+
+    incrementalParseLatency =
+        metrics.newTimer(
+            "notedb/incremental_parse_latency",
+            new Description("NoteDb parse latency for changes parsed on top of a cached state")
+                .setCumulative()
+                .setUnit(Units.MICROSECONDS));
+
+    parseCount =
+        metrics.newCounter(
+            "notedb/parse_count",
+            new Description("Total number of parsed changes").setRate().setUnit("count"),
+            Field.ofBoolean("incremental", Metadata.Builder::incremental)
+                .description(
+                    "Whether only the commits on top of a cached state of the change were parsed.")
+                .build());
+
+    refScanLatency =
+        metrics.newTimer(
+            "notedb/ref_scan_latency",
+            new Description("Latency of reading NoteDb refs")
+                .setCumulative()
+                .setUnit(Units.MICROSECONDS),
+            Field.ofEnum(RefLookup.class, "lookup", Metadata.Builder::operationName)
+                .description("How the refs were looked up.")
+                .build());
+
+    refSnapshotLoadCount =
+        metrics.newCounter(
+            "notedb/ref_snapshot_load_count",
+            new Description("Total number of loaded in-memory ref snapshots")
+                .setRate()
+                .setUnit("count"));
+
+    bulkLoadLatency =
+        metrics.newTimer(
+            "notedb/bulk_load_latency",
+            new Description("Latency for loading a batch of changes from NoteDb")
+                .setCumulative()
+                .setUnit(Units.MILLISECONDS));
+
+    bulkLoadSize =
+        metrics.newHistogram(
+            "notedb/bulk_load_size",
+            new Description("Number of changes in a batch loaded from NoteDb").setCumulative());
+
+    bulkLoadParallelism =
+        metrics.newHistogram(
+            "notedb/bulk_load_parallelism",
+            new Description("Number of threads that loaded the changes of a repository in a batch")
+                .setCumulative());
+
+    readerLeaseCount =
+        metrics.newCounter(
+            "notedb/reader_lease_count",
+            new Description("Total number of readers leased for reading NoteDb")
+                .setRate()
+                .setUnit("count"),
+            Field.ofBoolean("reused", (meta, value) -> {})
+                .description("Whether an idle reader of the repository was reused.")
+                .build());
+
+    readerBytesRead =
+        metrics.newHistogram(
+            "notedb/reader_bytes_read",
+            new Description("Size of the objects read from NoteDb through a leased reader")
+                .setCumulative()
+                .setUnit(Units.BYTES));
+
+    allUsersWriteQueueDepth =
+        metrics.newHistogram(
+            "notedb/all_users_write_queue_depth",
+            new Description("Number of queued asynchronous All-Users writes when a write is queued")
+                .setCumulative());
+
+    allUsersWriteBatchSize =
+        metrics.newHistogram(
+            "notedb/all_users_write_batch_size",
+            new Description("Number of asynchronous All-Users writes written in one batch")
+                .setCumulative());
+
+    allUsersWriteLatency =
+        metrics.newTimer(
+            "notedb/all_users_write_latency",
+            new Description("Latency from queueing an asynchronous All-Users write until written")
+                .setCumulative()
+                .setUnit(Units.MILLISECONDS));
+
+    allUsersWriteRetryCount =
+        metrics.newCounter(
+            "notedb/all_users_write_retry_count",
+            new Description("Total number of All-Users writes retried after their batch failed")
+                .setRate()
+                .setUnit("count"));
   }
 }
@@ -16,6 +16,9 @@ package com.google.gerrit.server.notedb;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
 import com.google.gerrit.extensions.config.FactoryModule;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
@@ -39,16 +42,23 @@ public class NoteDbModule extends FactoryModule {
   public void configure() {
     factory(ChangeUpdate.Factory.class);
     factory(DeleteCommentRewriter.Factory.class);
+    factory(CompactMetaHistoryRewriter.Factory.class);
     factory(NoteDbUpdateManager.Factory.class);
     factory(RobotCommentNotes.Factory.class);
     factory(RobotCommentUpdate.Factory.class);
 
     if (!useTestBindings) {
       install(ChangeNotesCache.module());
+      install(DraftCommentIndex.module());
     } else {
       bind(new TypeLiteral<Cache<ChangeNotesCache.Key, ChangeNotesState>>() {})
           .annotatedWith(Names.named(ChangeNotesCache.CACHE_NAME))
           .toInstance(CacheBuilder.newBuilder().build());
+      bind(
+              new TypeLiteral<
+                  Cache<Account.Id, ImmutableMap<Change.Id, DraftCommentIndex.Drafts>>>() {})
+          .annotatedWith(Names.named(DraftCommentIndex.CACHE_NAME))
+          .toInstance(CacheBuilder.newBuilder().build());
     }
   }
 }
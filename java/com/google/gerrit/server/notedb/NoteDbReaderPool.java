@@ -0,0 +1,331 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Pool of {@link ObjectReader}s for reading NoteDb.
+ *
+ * <p>A reader keeps per-reader caches, e.g. the delta base cache and the inflater of the
+ * repositories that store their objects in packs. Meta commits of changes of the same repository
+ * are usually stored in the same packs, so reusing a reader across loads avoids starting each load
+ * with cold caches.
+ *
+ * <p>A reader is leased exclusively by one thread and returned to the pool of its repository when
+ * the lease is closed. Idle readers keep their repository open, so the pool is kept small: each
+ * repository keeps at most {@code noteDb.readerPool.maxIdlePerRepository} idle readers, and idle
+ * readers are kept for at most {@code noteDb.readerPool.maxRepositories} repositories and at most
+ * {@code noteDb.readerPool.maxIdle} readers in total, evicting the least recently used
+ * repositories first. Readers that were idle for longer than {@code
+ * noteDb.readerPool.maxIdleTime} are closed whenever the pool is used. Idle readers are also
+ * discarded when the packs of their repository changed, e.g. after a garbage collection, so that
+ * they don't keep caches of packs that no longer exist.
+ */
+@Singleton
+public class NoteDbReaderPool {
+  /** A reader leased from the pool; closing the lease returns the reader. */
+  public final class Lease implements AutoCloseable {
+    private final Project.NameKey project;
+    private final Repository repo;
+    private final ImmutableList<Object> packs;
+    private final CountingReader reader;
+    private boolean closed;
+
+    private Lease(
+        Project.NameKey project,
+        Repository repo,
+        ImmutableList<Object> packs,
+        ObjectReader reader) {
+      this.project = project;
+      this.repo = repo;
+      this.packs = packs;
+      this.reader = new CountingReader(reader);
+    }
+
+    /** Returns the leased reader, which must not be used after the lease was closed. */
+    public ObjectReader reader() {
+      return reader;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release(this);
+      }
+    }
+  }
+
+  /** A reader in the pool, with the time it was returned to the pool. */
+  private static class IdleReader {
+    final ObjectReader reader;
+    final long releasedNanos;
+
+    IdleReader(ObjectReader reader, long releasedNanos) {
+      this.reader = reader;
+      this.releasedNanos = releasedNanos;
+    }
+  }
+
+  /** Idle readers of a repository, most recently returned first. */
+  private static class Idle {
+    final Repository repo;
+    final ImmutableList<Object> packs;
+    final ArrayDeque<IdleReader> readers = new ArrayDeque<>();
+
+    Idle(Repository repo, ImmutableList<Object> packs) {
+      this.repo = repo;
+      this.packs = packs;
+    }
+
+    boolean isFor(Repository repo, ImmutableList<Object> packs) {
+      return this.repo == repo && this.packs.equals(packs);
+    }
+
+    void closeAll() {
+      readers.forEach(r -> r.reader.close());
+      readers.clear();
+    }
+  }
+
+  /** Counts the size of the objects that are read through a reader. */
+  private static class CountingReader extends ObjectReader.Filter {
+    private final ObjectReader delegate;
+    private long bytesRead;
+
+    CountingReader(ObjectReader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    protected ObjectReader delegate() {
+      return delegate;
+    }
+
+    @Override
+    public ObjectLoader open(AnyObjectId objectId) throws MissingObjectException, IOException {
+      return count(super.open(objectId));
+    }
+
+    @Override
+    public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+      return count(super.open(objectId, typeHint));
+    }
+
+    @Override
+    public void close() {
+      // The delegate is closed by the pool.
+    }
+
+    private ObjectLoader count(ObjectLoader loader) {
+      bytesRead += loader.getSize();
+      return loader;
+    }
+  }
+
+  private final NoteDbMetrics metrics;
+  private final int maxIdlePerRepository;
+  private final int maxRepositories;
+  private final int maxIdle;
+  private final long maxIdleTimeNanos;
+  private final Ticker ticker;
+
+  // Guarded by this; in access order to evict the least recently used repositories first. Only
+  // repositories with idle readers have an entry, so that the pool doesn't keep other repositories
+  // open.
+  private final LinkedHashMap<Project.NameKey, Idle> idleByProject =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private int idleCount;
+
+  @Inject
+  NoteDbReaderPool(NoteDbMetrics metrics, @GerritServerConfig Config cfg) {
+    this(
+        metrics,
+        cfg.getInt("noteDb", "readerPool", "maxIdlePerRepository", 2),
+        cfg.getInt("noteDb", "readerPool", "maxRepositories", 16),
+        cfg.getInt("noteDb", "readerPool", "maxIdle", 16),
+        ConfigUtil.getTimeUnit(
+            cfg, "noteDb", "readerPool", "maxIdleTime", SECONDS.toNanos(60), NANOSECONDS),
+        Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  NoteDbReaderPool(
+      NoteDbMetrics metrics,
+      int maxIdlePerRepository,
+      int maxRepositories,
+      int maxIdle,
+      long maxIdleTimeNanos,
+      Ticker ticker) {
+    this.metrics = metrics;
+    this.maxIdle = Math.max(0, maxIdle);
+    this.maxRepositories = Math.max(0, maxRepositories);
+    this.maxIdlePerRepository =
+        this.maxIdle > 0 && this.maxRepositories > 0 ? Math.max(0, maxIdlePerRepository) : 0;
+    this.maxIdleTimeNanos = maxIdleTimeNanos;
+    this.ticker = ticker;
+  }
+
+  /**
+   * Leases a reader for {@code repo}, reusing an idle reader of the repository if there is one.
+   *
+   * @param project name of the repository.
+   * @param repo the open repository.
+   * @return the lease, which must be closed to return the reader.
+   */
+  public Lease lease(Project.NameKey project, Repository repo) {
+    ImmutableList<Object> packs = packs(repo);
+    ObjectReader reader = null;
+    if (maxIdlePerRepository > 0) {
+      synchronized (this) {
+        evictExpired();
+        Idle idle = idleByProject.get(project);
+        if (idle != null) {
+          if (idle.isFor(repo, packs)) {
+            reader = idle.readers.removeFirst().reader;
+            idleCount--;
+            if (idle.readers.isEmpty()) {
+              idleByProject.remove(project);
+            }
+          } else {
+            remove(project);
+          }
+        }
+      }
+    }
+    metrics.readerLeaseCount.increment(reader != null);
+    return new Lease(project, repo, packs, reader != null ? reader : repo.newObjectReader());
+  }
+
+  private void release(Lease lease) {
+    metrics.readerBytesRead.record(lease.reader.bytesRead);
+    ObjectReader reader = lease.reader.delegate;
+    if (maxIdlePerRepository > 0 && lease.packs.equals(packs(lease.repo))) {
+      synchronized (this) {
+        evictExpired();
+        Idle idle = idleByProject.get(lease.project);
+        if (idle == null || !idle.isFor(lease.repo, lease.packs)) {
+          remove(lease.project);
+          idle = new Idle(lease.repo, lease.packs);
+          idleByProject.put(lease.project, idle);
+        }
+        if (idle.readers.size() < maxIdlePerRepository) {
+          idle.readers.addFirst(new IdleReader(reader, ticker.read()));
+          idleCount++;
+          evictLeastRecentlyUsed();
+          return;
+        }
+      }
+    }
+    reader.close();
+  }
+
+  /** Closes the idle readers of a repository. */
+  private void remove(Project.NameKey project) {
+    Idle idle = idleByProject.remove(project);
+    if (idle != null) {
+      idleCount -= idle.readers.size();
+      idle.closeAll();
+    }
+  }
+
+  /** Closes readers that were idle for longer than the maximum idle time. */
+  private void evictExpired() {
+    if (maxIdleTimeNanos <= 0 || idleCount == 0) {
+      return;
+    }
+    long now = ticker.read();
+    Iterator<Idle> it = idleByProject.values().iterator();
+    while (it.hasNext()) {
+      Idle idle = it.next();
+      while (!idle.readers.isEmpty()
+          && now - idle.readers.peekLast().releasedNanos > maxIdleTimeNanos) {
+        idle.readers.removeLast().reader.close();
+        idleCount--;
+      }
+      if (idle.readers.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  /** Closes idle readers of the least recently used repositories until the pool is in bounds. */
+  private void evictLeastRecentlyUsed() {
+    while (idleByProject.size() > maxRepositories || idleCount > maxIdle) {
+      Iterator<Idle> it = idleByProject.values().iterator();
+      Idle eldest = it.next();
+      if (idleByProject.size() > maxRepositories) {
+        idleCount -= eldest.readers.size();
+        eldest.closeAll();
+      } else {
+        eldest.readers.removeLast().reader.close();
+        idleCount--;
+      }
+      if (eldest.readers.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int idleCount(Project.NameKey project) {
+    Idle idle = idleByProject.get(project);
+    return idle != null ? idle.readers.size() : 0;
+  }
+
+  @VisibleForTesting
+  synchronized int idleCount() {
+    return idleCount;
+  }
+
+  /**
+   * Returns the packs that store the objects of {@code repo}, or an empty list if the repository
+   * does not store its objects in packs that the pool knows about.
+   */
+  private static ImmutableList<Object> packs(Repository repo) {
+    ObjectDatabase odb = repo.getObjectDatabase();
+    if (odb instanceof ObjectDirectory) {
+      return ImmutableList.copyOf(((ObjectDirectory) odb).getPacks());
+    }
+    if (odb instanceof DfsObjDatabase) {
+      return ImmutableList.copyOf(((DfsObjDatabase) odb).getCurrentPacks());
+    }
+    return ImmutableList.of();
+  }
+}
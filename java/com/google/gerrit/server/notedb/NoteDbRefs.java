@@ -0,0 +1,234 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.metrics.Timer1;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.notedb.NoteDbMetrics.RefLookup;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.internal.storage.dfs.DfsReftableDatabase;
+import org.eclipse.jgit.internal.storage.file.FileReftableDatabase;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reads NoteDb refs with the lookups that are the most efficient for the ref database of the
+ * repository.
+ *
+ * <p>Reftable repositories serve prefix scans by seeking to the prefix in the merged table and
+ * exact lookups by seeking in the same, cached merged table. Their refs are always read directly.
+ *
+ * <p>Repositories that store their refs as loose and packed refs must list and check all refs of a
+ * namespace on every prefix scan. For these repositories prefix scans can be served from an
+ * in-memory sorted snapshot of all refs of the repository, which is shared by all scans of the
+ * same repository generation. The generation of a repository is increased whenever Gerrit updates
+ * refs of the repository. Since refs that are updated by other means, e.g. by replication, don't
+ * increase the generation, snapshots expire after {@code noteDb.refs.snapshotMaxAge}. Expired
+ * snapshots are evicted, and at most {@code noteDb.refs.maxSnapshots} snapshots are kept, evicting
+ * the least recently used ones. Snapshots are disabled by default. Exact lookups never use
+ * snapshots, since callers of exact lookups usually need the current value of the ref.
+ */
+@Singleton
+public class NoteDbRefs implements GitBatchRefUpdateListener {
+  private final NoteDbMetrics metrics;
+  private final long snapshotMaxAgeNanos;
+  private final Ticker ticker;
+  private final Map<Project.NameKey, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final Cache<Project.NameKey, RefSnapshot> snapshots;
+
+  @Inject
+  NoteDbRefs(NoteDbMetrics metrics, @GerritServerConfig Config cfg) {
+    this(
+        metrics,
+        MILLISECONDS.toNanos(
+            ConfigUtil.getTimeUnit(cfg, "noteDb", "refs", "snapshotMaxAge", 0, MILLISECONDS)),
+        cfg.getInt("noteDb", "refs", "maxSnapshots", 16),
+        Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  NoteDbRefs(NoteDbMetrics metrics, long snapshotMaxAgeNanos, int maxSnapshots, Ticker ticker) {
+    this.metrics = metrics;
+    this.snapshotMaxAgeNanos = snapshotMaxAgeNanos;
+    this.ticker = ticker;
+    this.snapshots =
+        CacheBuilder.newBuilder()
+            .ticker(ticker)
+            .expireAfterWrite(Math.max(1, snapshotMaxAgeNanos), NANOSECONDS)
+            .maximumSize(Math.max(0, maxSnapshots))
+            .build();
+  }
+
+  /** Returns the refs of {@code repo} whose names start with {@code prefix}, sorted by name. */
+  public List<Ref> getRefsByPrefix(Project.NameKey project, Repository repo, String prefix)
+      throws IOException {
+    RefDatabase refDb = repo.getRefDatabase();
+    if (isReftable(refDb)) {
+      try (Timer1.Context<RefLookup> ignored =
+          metrics.refScanLatency.start(RefLookup.REFTABLE_SEEK)) {
+        return refDb.getRefsByPrefix(prefix);
+      }
+    }
+    if (snapshotMaxAgeNanos <= 0) {
+      try (Timer1.Context<RefLookup> ignored =
+          metrics.refScanLatency.start(RefLookup.REF_DIRECTORY_SCAN)) {
+        return refDb.getRefsByPrefix(prefix);
+      }
+    }
+    try (Timer1.Context<RefLookup> ignored = metrics.refScanLatency.start(RefLookup.SNAPSHOT)) {
+      return snapshot(project, refDb).getRefsByPrefix(prefix);
+    }
+  }
+
+  /**
+   * Returns the refs of {@code repo} with the given names. Names of refs that don't exist are
+   * omitted from the result.
+   */
+  public ImmutableMap<String, Ref> exactRefs(Repository repo, Collection<String> names)
+      throws IOException {
+    RefDatabase refDb = repo.getRefDatabase();
+    try (Timer1.Context<RefLookup> ignored =
+        metrics.refScanLatency.start(
+            isReftable(refDb) ? RefLookup.REFTABLE_EXACT : RefLookup.REF_DIRECTORY_EXACT)) {
+      return ImmutableMap.copyOf(refDb.exactRef(names.toArray(new String[0])));
+    }
+  }
+
+  /** Returns the IDs of the meta commits of all changes in {@code repo}. */
+  public ImmutableMap<Change.Id, ObjectId> scanChangeIds(Project.NameKey project, Repository repo)
+      throws IOException {
+    return toMetaIdByChange(getRefsByPrefix(project, repo, RefNames.REFS_CHANGES));
+  }
+
+  static ImmutableMap<Change.Id, ObjectId> toMetaIdByChange(List<Ref> changeRefs) {
+    ImmutableMap.Builder<Change.Id, ObjectId> metaIdByChange = ImmutableMap.builder();
+    for (Ref r : changeRefs) {
+      if (r.getName().endsWith(RefNames.META_SUFFIX)) {
+        Change.Id id = Change.Id.fromRef(r.getName());
+        if (id != null) {
+          metaIdByChange.put(id, r.getObjectId());
+        }
+      }
+    }
+    return metaIdByChange.build();
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(GitBatchRefUpdateListener.Event event) {
+    Project.NameKey project = Project.nameKey(event.getProjectName());
+    generation(project).incrementAndGet();
+    snapshots.invalidate(project);
+  }
+
+  private RefSnapshot snapshot(Project.NameKey project, RefDatabase refDb) throws IOException {
+    try {
+      // Computing the snapshot of a project evicts expired snapshots of other projects, too.
+      return snapshots
+          .asMap()
+          .compute(
+              project,
+              (p, snapshot) -> {
+                // Read the generation before reading the refs, so that a snapshot that raced with
+                // an update is never considered current.
+                long generation = generation(p).get();
+                long now = ticker.read();
+                if (snapshot != null
+                    && snapshot.generation == generation
+                    && now - snapshot.createdNanos < snapshotMaxAgeNanos) {
+                  return snapshot;
+                }
+                try {
+                  metrics.refSnapshotLoadCount.increment();
+                  return new RefSnapshot(generation, now, refDb.getRefsByPrefix(RefDatabase.ALL));
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @VisibleForTesting
+  long snapshotCount() {
+    snapshots.cleanUp();
+    return snapshots.size();
+  }
+
+  private AtomicLong generation(Project.NameKey project) {
+    return generations.computeIfAbsent(project, p -> new AtomicLong());
+  }
+
+  private static boolean isReftable(RefDatabase refDb) {
+    return refDb instanceof FileReftableDatabase || refDb instanceof DfsReftableDatabase;
+  }
+
+  /** Sorted snapshot of all refs of a repository. */
+  private static class RefSnapshot {
+    final long generation;
+    final long createdNanos;
+    private final String[] names;
+    private final Ref[] refs;
+
+    RefSnapshot(long generation, long createdNanos, List<Ref> refs) {
+      this.generation = generation;
+      this.createdNanos = createdNanos;
+      this.refs = refs.toArray(new Ref[0]);
+      Arrays.sort(this.refs, (a, b) -> a.getName().compareTo(b.getName()));
+      this.names = new String[this.refs.length];
+      for (int i = 0; i < this.refs.length; i++) {
+        names[i] = this.refs[i].getName();
+      }
+    }
+
+    List<Ref> getRefsByPrefix(String prefix) {
+      int start = Arrays.binarySearch(names, prefix);
+      if (start < 0) {
+        start = -(start + 1);
+      }
+      int end = start;
+      while (end < names.length && names[end].startsWith(prefix)) {
+        end++;
+      }
+      return ImmutableList.copyOf(Arrays.asList(refs).subList(start, end));
+    }
+  }
+}
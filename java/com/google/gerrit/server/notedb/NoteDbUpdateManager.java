@@ -272,6 +272,20 @@ public class NoteDbUpdateManager implements AutoCloseable {
       rewriters.put(deleteChangeMessageRewriter.getRefName(), deleteChangeMessageRewriter);
     }
 
+    CompactMetaHistoryRewriter compactMetaHistoryRewriter = update.getCompactMetaHistoryRewriter();
+    if (compactMetaHistoryRewriter != null) {
+      // Checks whether there is any ChangeUpdate or rewriter added earlier for the same ref.
+      checkArgument(
+          !changeUpdates.containsKey(compactMetaHistoryRewriter.getRefName()),
+          "cannot update & rewrite ref %s in one BatchUpdate",
+          compactMetaHistoryRewriter.getRefName());
+      checkArgument(
+          !rewriters.containsKey(compactMetaHistoryRewriter.getRefName()),
+          "cannot rewrite the same ref %s in one BatchUpdate",
+          compactMetaHistoryRewriter.getRefName());
+      rewriters.put(compactMetaHistoryRewriter.getRefName(), compactMetaHistoryRewriter);
+    }
+
     changeUpdates.put(update.getRefName(), update);
   }
 
@@ -0,0 +1,478 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.primitives.Ints;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.ScheduleConfig;
+import com.google.gerrit.server.config.ScheduleConfig.Schedule;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * In-memory index of the starred changes of all accounts.
+ *
+ * <p>Stars are stored in {@code refs/starred-changes/XX/<change>/<account>} refs in All-Users.
+ * Finding the changes starred by an account therefore requires to scan all star refs. This index
+ * keeps the stars in both directions, from accounts to their starred changes and from changes to
+ * the accounts that starred them, as sorted arrays of numeric IDs.
+ *
+ * <p>The index is loaded by scanning all star refs when the server starts and is then maintained
+ * from the star updates of {@link StarredChangesUtilNoteDbImpl}. To serve stars before the scan
+ * completes, the index is saved to a snapshot file in the cache directory when the server stops
+ * and the snapshot is loaded on start. Star refs that are updated by other means, e.g. by other
+ * servers that share the repositories, are only corrected by the next scan, see {@link
+ * #reload()}.
+ *
+ * <p>Until the index is loaded, stars are read from the refs.
+ */
+@Singleton
+public class StarredChangesIndex {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final String SECTION = "starredChangesIndex";
+  private static final String SNAPSHOT_FILE = "starred_changes.snapshot";
+  private static final int SNAPSHOT_MAGIC = 0x53544152;
+  private static final int SNAPSHOT_VERSION = 1;
+
+  /** Loads the index on start and reloads it according to {@code starredChangesIndex.*}. */
+  public static class LoaderModule extends LifecycleModule {
+    @Override
+    protected void configure() {
+      listener().to(Lifecycle.class);
+    }
+  }
+
+  static class Lifecycle implements LifecycleListener {
+    private final WorkQueue queue;
+    private final StarredChangesIndex index;
+    private final Optional<Schedule> schedule;
+    @Nullable private final Path snapshot;
+
+    @Inject
+    Lifecycle(
+        WorkQueue queue,
+        StarredChangesIndex index,
+        SitePaths site,
+        @GerritServerConfig Config cfg) {
+      this.queue = queue;
+      this.index = index;
+      this.schedule = ScheduleConfig.createSchedule(cfg, SECTION);
+      Path cacheDir = site.resolve(cfg.getString("cache", null, "directory"));
+      this.snapshot =
+          cacheDir != null && cfg.getBoolean(SECTION, "snapshot", true)
+              ? cacheDir.resolve(SNAPSHOT_FILE)
+              : null;
+    }
+
+    @Override
+    public void start() {
+      if (!index.isEnabled()) {
+        return;
+      }
+      if (snapshot != null) {
+        index.loadSnapshot(snapshot);
+      }
+      @SuppressWarnings("unused")
+      var unused = queue.getDefaultQueue().submit(index.new Reloader());
+      schedule.ifPresent(s -> queue.scheduleAtFixedRate(index.new Reloader(), s));
+    }
+
+    @Override
+    public void stop() {
+      if (index.isEnabled() && snapshot != null) {
+        index.saveSnapshot(snapshot);
+      }
+    }
+  }
+
+  class Reloader implements Runnable {
+    @Override
+    public void run() {
+      try {
+        reload();
+      } catch (IOException | RuntimeException e) {
+        logger.atSevere().withCause(e).log("Failed to load the starred changes index");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "starred changes index loading";
+    }
+  }
+
+  /** A star update that happened while the index was reloaded. */
+  private static class StarUpdate {
+    final int accountId;
+    final int changeId;
+    final boolean starred;
+
+    StarUpdate(int accountId, int changeId, boolean starred) {
+      this.accountId = accountId;
+      this.changeId = changeId;
+      this.starred = starred;
+    }
+  }
+
+  /**
+   * Stars in both directions. The maps are updated under the lock of the index; the arrays are
+   * sorted and never modified once they are in a map, so they can be read without locking.
+   */
+  private static class Stars {
+    final Map<Integer, int[]> changesByAccount;
+    final Map<Integer, int[]> accountsByChange;
+
+    Stars(Map<Integer, int[]> changesByAccount) {
+      this.changesByAccount = new ConcurrentHashMap<>(changesByAccount);
+      Map<Integer, List<Integer>> accounts = new HashMap<>();
+      changesByAccount.forEach(
+          (account, changes) -> {
+            for (int change : changes) {
+              accounts.computeIfAbsent(change, k -> new ArrayList<>()).add(account);
+            }
+          });
+      this.accountsByChange = new ConcurrentHashMap<>(toSortedArrays(accounts));
+    }
+
+    void apply(StarUpdate u) {
+      changesByAccount.compute(
+          u.accountId, (k, v) -> u.starred ? add(v, u.changeId) : remove(v, u.changeId));
+      accountsByChange.compute(
+          u.changeId, (k, v) -> u.starred ? add(v, u.accountId) : remove(v, u.accountId));
+    }
+  }
+
+  private final GitRepositoryManager repoManager;
+  private final AllUsersName allUsers;
+  private final NoteDbRefs noteDbRefs;
+  private final boolean enabled;
+
+  @Nullable private volatile Stars stars;
+
+  // Guarded by this; not null while the index is reloaded.
+  @Nullable private List<StarUpdate> updatesDuringReload;
+
+  @Inject
+  StarredChangesIndex(
+      GitRepositoryManager repoManager,
+      AllUsersName allUsers,
+      NoteDbRefs noteDbRefs,
+      @GerritServerConfig Config cfg) {
+    this.repoManager = repoManager;
+    this.allUsers = allUsers;
+    this.noteDbRefs = noteDbRefs;
+    this.enabled = cfg.getBoolean(SECTION, "enabled", false);
+  }
+
+  /** Returns whether stars should be read from the index once it is loaded. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns whether {@code accountId} starred {@code changeId}, empty if not loaded. */
+  public Optional<Boolean> isStarred(Account.Id accountId, Change.Id changeId) {
+    Stars s = stars;
+    if (s == null) {
+      return Optional.empty();
+    }
+    int[] changes = s.changesByAccount.get(accountId.get());
+    return Optional.of(changes != null && Arrays.binarySearch(changes, changeId.get()) >= 0);
+  }
+
+  /** Returns which of {@code changeIds} are starred by {@code accountId}, empty if not loaded. */
+  public Optional<Set<Change.Id>> areStarred(
+      Account.Id accountId, Collection<Change.Id> changeIds) {
+    Stars s = stars;
+    if (s == null) {
+      return Optional.empty();
+    }
+    int[] changes = s.changesByAccount.get(accountId.get());
+    Set<Change.Id> result = new HashSet<>();
+    if (changes != null) {
+      for (Change.Id changeId : changeIds) {
+        if (Arrays.binarySearch(changes, changeId.get()) >= 0) {
+          result.add(changeId);
+        }
+      }
+    }
+    return Optional.of(result);
+  }
+
+  /** Returns the changes starred by {@code accountId}, empty if not loaded. */
+  public Optional<ImmutableSet<Change.Id>> byAccount(Account.Id accountId) {
+    Stars s = stars;
+    if (s == null) {
+      return Optional.empty();
+    }
+    int[] changes = s.changesByAccount.get(accountId.get());
+    if (changes == null) {
+      return Optional.of(ImmutableSet.of());
+    }
+    ImmutableSet.Builder<Change.Id> result = ImmutableSet.builderWithExpectedSize(changes.length);
+    for (int change : changes) {
+      result.add(Change.id(change));
+    }
+    return Optional.of(result.build());
+  }
+
+  /** Returns the accounts that starred {@code changeId}, empty if not loaded. */
+  public Optional<ImmutableList<Account.Id>> byChange(Change.Id changeId) {
+    Stars s = stars;
+    if (s == null) {
+      return Optional.empty();
+    }
+    int[] accounts = s.accountsByChange.get(changeId.get());
+    if (accounts == null) {
+      return Optional.of(ImmutableList.of());
+    }
+    ImmutableList.Builder<Account.Id> result =
+        ImmutableList.builderWithExpectedSize(accounts.length);
+    for (int account : accounts) {
+      result.add(Account.id(account));
+    }
+    return Optional.of(result.build());
+  }
+
+  /** Updates the index after the star ref of {@code accountId} on {@code changeId} was updated. */
+  synchronized void onStarUpdated(Account.Id accountId, Change.Id changeId, boolean starred) {
+    if (!enabled) {
+      return;
+    }
+    StarUpdate u = new StarUpdate(accountId.get(), changeId.get(), starred);
+    if (updatesDuringReload != null) {
+      updatesDuringReload.add(u);
+    }
+    Stars s = stars;
+    if (s != null) {
+      s.apply(u);
+    }
+  }
+
+  /**
+   * Reloads the index by scanning all star refs.
+   *
+   * <p>Stars that are updated while the refs are scanned are applied on top of the scanned state,
+   * so concurrent updates are not lost. Does nothing if a reload is already running.
+   */
+  public void reload() throws IOException {
+    synchronized (this) {
+      if (!enabled || updatesDuringReload != null) {
+        return;
+      }
+      updatesDuringReload = new ArrayList<>();
+    }
+    try {
+      Stopwatch sw = Stopwatch.createStarted();
+      Stars loaded = new Stars(scan());
+      synchronized (this) {
+        updatesDuringReload.forEach(loaded::apply);
+        stars = loaded;
+      }
+      logger.atInfo().log(
+          "Loaded stars of %d accounts on %d changes in %s",
+          loaded.changesByAccount.size(), loaded.accountsByChange.size(), sw);
+    } finally {
+      synchronized (this) {
+        updatesDuringReload = null;
+      }
+    }
+  }
+
+  private Map<Integer, int[]> scan() throws IOException {
+    Map<Integer, List<Integer>> changesByAccount = new HashMap<>();
+    try (Repository repo = repoManager.openRepository(allUsers)) {
+      for (Ref ref : noteDbRefs.getRefsByPrefix(allUsers, repo, RefNames.REFS_STARRED_CHANGES)) {
+        Account.Id accountId = Account.Id.fromRef(ref.getName());
+        Change.Id changeId = Change.Id.fromAllUsersRef(ref.getName());
+        if (accountId != null && changeId != null) {
+          changesByAccount
+              .computeIfAbsent(accountId.get(), k -> new ArrayList<>())
+              .add(changeId.get());
+        }
+      }
+    }
+    return toSortedArrays(changesByAccount);
+  }
+
+  /**
+   * Loads the index from a snapshot, unless the index was already loaded.
+   *
+   * <p>The snapshot may be outdated; it only serves stars until the next {@link #reload()}. The
+   * snapshot file is deleted once it was read, so that after an unclean shutdown no snapshot is
+   * loaded, rather than a snapshot that is older than the last stop.
+   */
+  void loadSnapshot(Path file) {
+    Map<Integer, int[]> changesByAccount;
+    try {
+      changesByAccount = readSnapshot(file);
+    } finally {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot delete starred changes snapshot %s", file);
+      }
+    }
+    if (changesByAccount == null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (stars == null) {
+        stars = new Stars(changesByAccount);
+        logger.atInfo().log(
+            "Loaded stars of %d accounts from snapshot %s", changesByAccount.size(), file);
+      }
+    }
+  }
+
+  @Nullable
+  private static Map<Integer, int[]> readSnapshot(Path file) {
+    Map<Integer, int[]> changesByAccount = new HashMap<>();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+        logger.atWarning().log("Ignoring starred changes snapshot %s of unknown format", file);
+        return null;
+      }
+      int accounts = in.readInt();
+      for (int i = 0; i < accounts; i++) {
+        int account = in.readInt();
+        int[] changes = new int[in.readInt()];
+        for (int j = 0; j < changes.length; j++) {
+          changes[j] = in.readInt();
+        }
+        changesByAccount.put(account, changes);
+      }
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot read starred changes snapshot %s", file);
+      return null;
+    }
+    return changesByAccount;
+  }
+
+  /** Saves the index to a snapshot, if it is loaded. */
+  void saveSnapshot(Path file) {
+    Stars s = stars;
+    if (s == null) {
+      return;
+    }
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        // Copy the map so that the number of accounts matches the written entries.
+        Map<Integer, int[]> changesByAccount = new HashMap<>(s.changesByAccount);
+        out.writeInt(changesByAccount.size());
+        for (Map.Entry<Integer, int[]> e : changesByAccount.entrySet()) {
+          out.writeInt(e.getKey());
+          out.writeInt(e.getValue().length);
+          for (int change : e.getValue()) {
+            out.writeInt(change);
+          }
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write starred changes snapshot %s", file);
+    }
+  }
+
+  private static Map<Integer, int[]> toSortedArrays(Map<Integer, List<Integer>> ids) {
+    Map<Integer, int[]> result = new HashMap<>(ids.size());
+    ids.forEach(
+        (k, v) -> {
+          int[] sorted = Ints.toArray(v);
+          Arrays.sort(sorted);
+          result.put(k, sorted);
+        });
+    return result;
+  }
+
+  @Nullable
+  private static int[] add(@Nullable int[] set, int id) {
+    if (set == null) {
+      return new int[] {id};
+    }
+    int i = Arrays.binarySearch(set, id);
+    if (i >= 0) {
+      return set;
+    }
+    i = -i - 1;
+    int[] result = new int[set.length + 1];
+    System.arraycopy(set, 0, result, 0, i);
+    result[i] = id;
+    System.arraycopy(set, i, result, i + 1, set.length - i);
+    return result;
+  }
+
+  @Nullable
+  private static int[] remove(@Nullable int[] set, int id) {
+    if (set == null) {
+      return null;
+    }
+    int i = Arrays.binarySearch(set, id);
+    if (i < 0) {
+      return set;
+    }
+    if (set.length == 1) {
+      return null;
+    }
+    int[] result = new int[set.length - 1];
+    System.arraycopy(set, 0, result, 0, i);
+    System.arraycopy(set, i + 1, result, i, set.length - i - 1);
+    return result;
+  }
+}
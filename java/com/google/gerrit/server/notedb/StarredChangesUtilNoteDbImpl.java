@@ -71,21 +71,28 @@ public class StarredChangesUtilNoteDbImpl implements StarredChangesReader, Starr
   private final GitReferenceUpdated gitRefUpdated;
   private final AllUsersName allUsers;
   private final Provider<PersonIdent> serverIdent;
+  private final StarredChangesIndex index;
 
   @Inject
   StarredChangesUtilNoteDbImpl(
       GitRepositoryManager repoManager,
       GitReferenceUpdated gitRefUpdated,
       AllUsersName allUsers,
-      @GerritPersonIdent Provider<PersonIdent> serverIdent) {
+      @GerritPersonIdent Provider<PersonIdent> serverIdent,
+      StarredChangesIndex index) {
     this.repoManager = repoManager;
     this.gitRefUpdated = gitRefUpdated;
     this.allUsers = allUsers;
     this.serverIdent = serverIdent;
+    this.index = index;
   }
 
   @Override
   public boolean isStarred(Account.Id accountId, Change.Id virtualId) {
+    Optional<Boolean> indexed = index.isStarred(accountId, virtualId);
+    if (indexed.isPresent()) {
+      return indexed.get();
+    }
     try (Repository repo = repoManager.openRepository(allUsers)) {
       return getStarRef(repo, RefNames.refsStarredChanges(virtualId, accountId)).isPresent();
     } catch (IOException e) {
@@ -118,6 +125,7 @@ public class StarredChangesUtilNoteDbImpl implements StarredChangesReader, Starr
           deleteRef(repo, refName, ref.get().getObjectId());
         }
       }
+      index.onStarUpdated(accountId, virtualId, shouldAdd);
     } catch (IOException e) {
       throw new StorageException(
           String.format("Star change %d for account %d failed", virtualId.get(), accountId.get()),
@@ -128,6 +136,10 @@ public class StarredChangesUtilNoteDbImpl implements StarredChangesReader, Starr
   @Override
   public Set<Change.Id> areStarred(
       Repository allUsersRepo, List<Change.Id> virtualIds, Account.Id caller) {
+    Optional<Set<Change.Id>> indexed = index.areStarred(caller, virtualIds);
+    if (indexed.isPresent()) {
+      return indexed.get();
+    }
     List<String> starRefs =
         virtualIds.stream()
             .map(c -> RefNames.refsStarredChanges(c, caller))
@@ -176,11 +188,18 @@ public class StarredChangesUtilNoteDbImpl implements StarredChangesReader, Starr
           throw new GitUpdateFailureException(message, batchUpdate);
         }
       }
+      for (ReceiveCommand command : batchUpdate.getCommands()) {
+        index.onStarUpdated(Account.Id.fromRef(command.getRefName()), virtualId, false);
+      }
     }
   }
 
   @Override
   public ImmutableList<Account.Id> byChange(Change.Id virtualId) {
+    Optional<ImmutableList<Account.Id>> indexed = index.byChange(virtualId);
+    if (indexed.isPresent()) {
+      return indexed.get();
+    }
     try (Repository repo = repoManager.openRepository(allUsers)) {
       ImmutableList.Builder<Account.Id> builder = ImmutableList.builder();
       for (Account.Id accountId : getStars(repo, virtualId)) {
@@ -203,6 +222,11 @@ public class StarredChangesUtilNoteDbImpl implements StarredChangesReader, Starr
 
   @Override
   public ImmutableSet<Change.Id> byAccountId(Account.Id accountId, boolean skipInvalidChanges) {
+    Optional<ImmutableSet<Change.Id>> indexed = index.byAccount(accountId);
+    if (indexed.isPresent()) {
+      // The index only contains valid change IDs.
+      return indexed.get();
+    }
     try (Repository repo = repoManager.openRepository(allUsers)) {
       ImmutableSet.Builder<Change.Id> builder = ImmutableSet.builder();
       for (Ref ref : repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_STARRED_CHANGES)) {
@@ -0,0 +1,242 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.proto.Protos;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.cache.proto.Cache.AutoMergeKeyProto;
+import com.google.gerrit.server.cache.proto.Cache.AutoMergeProto;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+/**
+ * Persistent cache of auto-merge commits, used instead of {@code refs/cache-automerge/*} if {@code
+ * change.autoMergeStorage} is set to {@code cache}.
+ *
+ * <p>An entry holds the IDs of the auto-merge commit and its tree, together with the deflated Git
+ * objects that were created by the merge, i.e. the trees, the merged blobs that may contain
+ * conflict markers and the commit itself. The objects are inserted into the repository whenever
+ * they are needed but are not referenced by any ref, so they don't show up in ref advertisements
+ * and are eventually pruned by Git garbage collection, after which they are inserted again on the
+ * next use.
+ */
+@Singleton
+public class AutoMergeCache {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final String CACHE_NAME = "auto_merge";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        persist(CACHE_NAME, Key.class, Value.class)
+            .keySerializer(Key.Serializer.INSTANCE)
+            .valueSerializer(Value.Serializer.INSTANCE)
+            .maximumWeight(10 << 20)
+            .weigher(AutoMergeWeigher.class)
+            .diskLimit(1 << 30)
+            .version(1);
+      }
+    };
+  }
+
+  /** Identifies the auto-merge of a merge commit. */
+  @AutoValue
+  public abstract static class Key {
+    /** The merge commit for which the auto-merge was computed. */
+    public abstract ObjectId mergeCommit();
+
+    /** Name of the merge strategy used to compute the auto-merge. */
+    public abstract String mergeStrategy();
+
+    /** Whether conflicts are shown in the diff3 style, including the base. */
+    public abstract boolean diff3();
+
+    public static Key create(ObjectId mergeCommit, String mergeStrategy, boolean diff3) {
+      return new AutoValue_AutoMergeCache_Key(mergeCommit.copy(), mergeStrategy, diff3);
+    }
+
+    enum Serializer implements CacheSerializer<Key> {
+      INSTANCE;
+
+      @Override
+      public byte[] serialize(Key key) {
+        return Protos.toByteArray(
+            AutoMergeKeyProto.newBuilder()
+                .setMergeCommit(ObjectIdConverter.create().toByteString(key.mergeCommit()))
+                .setMergeStrategy(key.mergeStrategy())
+                .setDiff3(key.diff3())
+                .build());
+      }
+
+      @Override
+      public Key deserialize(byte[] in) {
+        AutoMergeKeyProto proto = Protos.parseUnchecked(AutoMergeKeyProto.parser(), in);
+        return create(
+            ObjectIdConverter.create().fromByteString(proto.getMergeCommit()),
+            proto.getMergeStrategy(),
+            proto.getDiff3());
+      }
+    }
+  }
+
+  /** The auto-merge commit and the objects needed to recreate it in a repository. */
+  @AutoValue
+  public abstract static class Value {
+    public abstract ObjectId commit();
+
+    public abstract ObjectId tree();
+
+    /** The deflated objects, each stored as type, size and raw content. */
+    public abstract ByteString objects();
+
+    public static Value create(ObjectId commit, ObjectId tree, ByteString objects) {
+      return new AutoValue_AutoMergeCache_Value(commit.copy(), tree.copy(), objects);
+    }
+
+    /** Inserts the objects of the auto-merge with the given inserter, without flushing it. */
+    void insertInto(ObjectInserter ins) throws IOException {
+      try (InputStream in = new InflaterInputStream(objects().newInput())) {
+        CodedInputStream cis = CodedInputStream.newInstance(in);
+        while (!cis.isAtEnd()) {
+          int type = cis.readUInt32();
+          ins.insert(type, cis.readByteArray());
+        }
+      }
+    }
+
+    enum Serializer implements CacheSerializer<Value> {
+      INSTANCE;
+
+      @Override
+      public byte[] serialize(Value value) {
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        return Protos.toByteArray(
+            AutoMergeProto.newBuilder()
+                .setCommit(idConverter.toByteString(value.commit()))
+                .setTree(idConverter.toByteString(value.tree()))
+                .setObjects(value.objects())
+                .build());
+      }
+
+      @Override
+      public Value deserialize(byte[] in) {
+        AutoMergeProto proto = Protos.parseUnchecked(AutoMergeProto.parser(), in);
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        return create(
+            idConverter.fromByteString(proto.getCommit()),
+            idConverter.fromByteString(proto.getTree()),
+            proto.getObjects());
+      }
+    }
+  }
+
+  public static class AutoMergeWeigher implements Weigher<Key, Value> {
+    @Override
+    public int weigh(Key key, Value value) {
+      return 16
+          + 3 * (16 + 20) // merge commit, commit and tree IDs
+          + 2 * key.mergeStrategy().length()
+          + value.objects().size();
+    }
+  }
+
+  /**
+   * Inserter that records the objects it inserts, so that they can be stored in the cache.
+   *
+   * <p>Flushing and closing are passed on to the wrapped inserter.
+   */
+  static class RecordingInserter extends ObjectInserter.Filter {
+    private final ObjectInserter delegate;
+    private final ByteString.Output out = ByteString.newOutput();
+    private final DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+    private final CodedOutputStream cos = CodedOutputStream.newInstance(deflater);
+
+    RecordingInserter(ObjectInserter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    protected ObjectInserter delegate() {
+      return delegate;
+    }
+
+    @Override
+    public ObjectId insert(int type, byte[] data) throws IOException {
+      return insert(type, data, 0, data.length);
+    }
+
+    @Override
+    public ObjectId insert(int type, byte[] data, int off, int len) throws IOException {
+      cos.writeUInt32NoTag(type);
+      cos.writeUInt32NoTag(len);
+      cos.writeRawBytes(data, off, len);
+      return delegate.insert(type, data, off, len);
+    }
+
+    @Override
+    public ObjectId insert(int type, long len, InputStream in) throws IOException {
+      byte[] data = in.readNBytes(Math.toIntExact(len));
+      if (data.length != len) {
+        throw new IOException(String.format("expected %d bytes, got %d", len, data.length));
+      }
+      return insert(type, data, 0, data.length);
+    }
+
+    /** Returns the deflated objects recorded so far; no further objects may be inserted. */
+    ByteString finish() throws IOException {
+      cos.flush();
+      deflater.finish();
+      return out.toByteString();
+    }
+  }
+
+  private final Cache<Key, Value> cache;
+
+  @Inject
+  AutoMergeCache(@Named(CACHE_NAME) Cache<Key, Value> cache) {
+    this.cache = cache;
+  }
+
+  Optional<Value> get(Key key) {
+    return Optional.ofNullable(cache.getIfPresent(key));
+  }
+
+  void put(Key key, Value value) {
+    logger.atFine().log(
+        "Caching AutoMerge %s of %s (%d bytes)",
+        value.commit().name(), key.mergeCommit().name(), value.objects().size());
+    cache.put(key, value);
+  }
+}
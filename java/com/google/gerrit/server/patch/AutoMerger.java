@@ -70,6 +70,10 @@ import org.eclipse.jgit.transport.ReceiveCommand;
  *
  * <p>The second point means that these commits are referenced from NoteDb. The consequence of this
  * is that these refs should never be deleted.
+ *
+ * <p>If {@code change.autoMergeStorage} is set to {@code cache}, no refs are created. Instead the
+ * auto-merge commits are stored in the {@link AutoMergeCache} and their objects are inserted into
+ * the repository whenever they are needed.
  */
 @Singleton
 public class AutoMerger {
@@ -86,8 +90,22 @@ public class AutoMerger {
     return cfg.getBoolean("change", null, "diff3ConflictView", false);
   }
 
+  /** Where auto-merge commits are stored if {@code change.cacheAutomerge} is enabled. */
+  public enum AutoMergeStorage {
+    /** As {@code refs/cache-automerge/*} branches in the repository of the merge commit. */
+    GIT,
+
+    /** In the persistent {@link AutoMergeCache}, without creating any refs. */
+    CACHE
+  }
+
+  public static AutoMergeStorage autoMergeStorage(Config cfg) {
+    return cfg.getEnum("change", null, "autoMergeStorage", AutoMergeStorage.GIT);
+  }
+
   private enum OperationType {
     CACHE_LOAD,
+    PERSISTENT_CACHE_LOAD,
     IN_MEMORY_WRITE,
     ON_DISK_WRITE
   }
@@ -95,7 +113,9 @@ public class AutoMerger {
   private final Counter1<OperationType> counter;
   private final Timer1<OperationType> latency;
   private final Provider<PersonIdent> gerritIdentProvider;
+  private final AutoMergeCache autoMergeCache;
   private final boolean save;
+  private final boolean useCache;
   private final boolean useDiff3;
   private final ThreeWayMergeStrategy configuredMergeStrategy;
 
@@ -103,10 +123,13 @@ public class AutoMerger {
   AutoMerger(
       MetricMaker metricMaker,
       @GerritServerConfig Config cfg,
-      @GerritPersonIdent Provider<PersonIdent> gerritIdentProvider) {
+      @GerritPersonIdent Provider<PersonIdent> gerritIdentProvider,
+      AutoMergeCache autoMergeCache) {
     Field<OperationType> operationTypeField =
         Field.ofEnum(OperationType.class, "type", Metadata.Builder::operationName)
-            .description("The type of the operation (CACHE_LOAD, IN_MEMORY_WRITE, ON_DISK_WRITE).")
+            .description(
+                "The type of the operation (CACHE_LOAD, PERSISTENT_CACHE_LOAD, IN_MEMORY_WRITE,"
+                    + " ON_DISK_WRITE).")
             .build();
     this.counter =
         metricMaker.newCounter(
@@ -121,8 +144,10 @@ public class AutoMerger {
                 .setUnit("milliseconds"),
             operationTypeField);
     this.save = cacheAutomerge(cfg);
+    this.useCache = save && autoMergeStorage(cfg) == AutoMergeStorage.CACHE;
     this.useDiff3 = diff3ConflictView(cfg);
     this.gerritIdentProvider = gerritIdentProvider;
+    this.autoMergeCache = autoMergeCache;
     this.configuredMergeStrategy = MergeUtil.getMergeStrategy(cfg);
   }
 
@@ -146,9 +171,18 @@ public class AutoMerger {
         counter.increment(OperationType.CACHE_LOAD);
         return existingCommit.get();
       }
+      if (useCache) {
+        Optional<RevCommit> cachedCommit = lookupFromCache(rw, ins, merge);
+        if (cachedCommit.isPresent()) {
+          return cachedCommit.get();
+        }
+      }
       counter.increment(OperationType.IN_MEMORY_WRITE);
       logger.atInfo().log("Computing in-memory AutoMerge for %s", merge.name());
       try (Timer1.Context<OperationType> ignored = latency.start(OperationType.IN_MEMORY_WRITE)) {
+        if (useCache) {
+          return createAndCacheAutoMergeCommit(repo.getConfig(), rw, ins, merge);
+        }
         return rw.parseCommit(
             createAutoMergeCommit(repo.getConfig(), rw, ins, merge, configuredMergeStrategy));
       }
@@ -159,7 +193,9 @@ public class AutoMerger {
    * Creates an auto merge commit for the provided commit in case it is a merge commit. To be used
    * whenever Gerrit creates new patch sets.
    *
-   * <p>Callers need to include the returned {@link ReceiveCommand} in their ref transaction.
+   * <p>Callers need to include the returned {@link ReceiveCommand} in their ref transaction. If
+   * auto-merge commits are stored in the {@link AutoMergeCache}, the auto-merge commit is cached
+   * right away and no {@link ReceiveCommand} is returned.
    *
    * @return A {@link ReceiveCommand} wrapped in an {@link Optional} to be used in a {@link
    *     org.eclipse.jgit.lib.BatchRefUpdate}. {@link Optional#empty()} in case we don't need an
@@ -175,6 +211,10 @@ public class AutoMerger {
       logger.atFine().log("Saving AutoMerge is disabled");
       return Optional.empty();
     }
+    if (useCache) {
+      lookupFromCacheOrCreate(repoView, ins, maybeMergeCommit);
+      return Optional.empty();
+    }
 
     String automergeRef = RefNames.refsCacheAutomerge(maybeMergeCommit.name());
     logger.atFine().log("AutoMerge ref=%s, mergeCommit=%s", automergeRef, maybeMergeCommit.name());
@@ -213,6 +253,71 @@ public class AutoMerger {
     return autoMerge;
   }
 
+  /** Whether auto-merge commits are stored in the {@link AutoMergeCache} rather than in refs. */
+  boolean usesCache() {
+    return useCache;
+  }
+
+  /**
+   * Reads the auto-merge commit of the given merge commit from the {@link AutoMergeCache}, or
+   * creates and caches it. The objects of the auto-merge commit are inserted with the given
+   * inserter if they are missing in the repository, and the inserter is flushed.
+   *
+   * @return auto-merge commit. Headers of the returned RevCommit are parsed.
+   */
+  RevCommit lookupFromCacheOrCreate(RepoView repoView, ObjectInserter ins, RevCommit mergeCommit)
+      throws IOException {
+    Optional<RevCommit> cachedCommit = lookupFromCache(repoView.getRevWalk(), ins, mergeCommit);
+    if (cachedCommit.isPresent()) {
+      return cachedCommit.get();
+    }
+    RevCommit autoMerge;
+    try (Timer1.Context<OperationType> ignored = latency.start(OperationType.ON_DISK_WRITE)) {
+      autoMerge =
+          createAndCacheAutoMergeCommit(
+              repoView.getConfig(), repoView.getRevWalk(), ins, mergeCommit);
+    }
+    counter.increment(OperationType.ON_DISK_WRITE);
+    return autoMerge;
+  }
+
+  private Optional<RevCommit> lookupFromCache(RevWalk rw, ObjectInserter ins, RevCommit merge)
+      throws IOException {
+    Optional<AutoMergeCache.Value> cached = autoMergeCache.get(cacheKey(merge));
+    if (cached.isEmpty()) {
+      return Optional.empty();
+    }
+    counter.increment(OperationType.PERSISTENT_CACHE_LOAD);
+    try (Timer1.Context<OperationType> ignored =
+        latency.start(OperationType.PERSISTENT_CACHE_LOAD)) {
+      if (!rw.getObjectReader().has(cached.get().commit())) {
+        // The objects were never written to this repository, or they were pruned since.
+        logger.atFine().log(
+            "Inserting cached AutoMerge %s of %s", cached.get().commit().name(), merge.name());
+        cached.get().insertInto(ins);
+        ins.flush();
+      }
+      return Optional.of(rw.parseCommit(cached.get().commit()));
+    }
+  }
+
+  private RevCommit createAndCacheAutoMergeCommit(
+      Config repoConfig, RevWalk rw, ObjectInserter ins, RevCommit merge) throws IOException {
+    AutoMergeCache.RecordingInserter recordingInserter = new AutoMergeCache.RecordingInserter(ins);
+    RevCommit autoMerge =
+        rw.parseCommit(
+            createAutoMergeCommit(
+                repoConfig, rw, recordingInserter, merge, configuredMergeStrategy));
+    autoMergeCache.put(
+        cacheKey(merge),
+        AutoMergeCache.Value.create(autoMerge, autoMerge.getTree(), recordingInserter.finish()));
+    return autoMerge;
+  }
+
+  private AutoMergeCache.Key cacheKey(RevCommit merge) {
+    return AutoMergeCache.Key.create(merge, configuredMergeStrategy.getName(), useDiff3);
+  }
+
   Optional<RevCommit> lookupCommit(RepoView repoView, String refName) throws IOException {
     Optional<ObjectId> commit = repoView.getRef(refName);
     if (commit.isPresent()) {
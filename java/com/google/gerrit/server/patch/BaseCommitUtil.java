@@ -118,7 +118,8 @@ class BaseCommitUtil {
 
   /**
    * Gets the auto-merge commit from git if it already exists. If not, the auto-merge is created,
-   * persisted in git and the cache-automerge ref is updated for the merge commit.
+   * persisted in git and the cache-automerge ref is updated for the merge commit, or it is read
+   * from or stored in the {@link AutoMergeCache} if that is used instead of refs.
    *
    * @return the auto-merge {@link RevCommit}
    */
@@ -129,6 +130,9 @@ class BaseCommitUtil {
     if (autoMergeCommit.isPresent()) {
       return autoMergeCommit.get();
     }
+    if (autoMerger.usesCache()) {
+      return autoMerger.lookupFromCacheOrCreate(repoView, ins, mergeCommit);
+    }
     if (!saveAutomerge && !(ins instanceof InMemoryInserter)) {
       ins = new InMemoryInserter(repoView.getRevWalk().getObjectReader());
     }
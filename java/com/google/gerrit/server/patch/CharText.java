@@ -17,14 +17,19 @@ package com.google.gerrit.server.patch;
 import org.eclipse.jgit.diff.Sequence;
 
 class CharText extends Sequence {
-  private final String content;
+  private final char[] content;
 
   CharText(Text text, int s, int e) {
-    content = text.getString(s, e, false /* keep LF */);
+    content = text.getString(s, e, false /* keep LF */).toCharArray();
   }
 
   char charAt(int idx) {
-    return content.charAt(idx);
+    return content[idx];
+  }
+
+  /** Returns the characters of this text, which must not be modified. */
+  char[] chars() {
+    return content;
   }
 
   boolean isLineStart(int b) {
@@ -42,6 +47,6 @@ class CharText extends Sequence {
 
   @Override
   public int size() {
-    return content.length();
+    return content.length;
   }
 }
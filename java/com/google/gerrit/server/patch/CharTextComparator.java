@@ -14,6 +14,8 @@
 
 package com.google.gerrit.server.patch;
 
+import java.util.Arrays;
+import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.SequenceComparator;
 
 class CharTextComparator extends SequenceComparator<CharText> {
@@ -26,4 +28,26 @@ class CharTextComparator extends SequenceComparator<CharText> {
   public int hash(CharText seq, int ptr) {
     return seq.charAt(ptr);
   }
+
+  @Override
+  public Edit reduceCommonStartEnd(CharText a, CharText b, Edit e) {
+    // Arrays.mismatch compares many characters at once, which matters for the long lines of
+    // minified files where only a small part of a line is modified.
+    int beginA = e.getBeginA();
+    int endA = e.getEndA();
+    int beginB = e.getBeginB();
+    int endB = e.getEndB();
+    int prefix = Arrays.mismatch(a.chars(), beginA, endA, b.chars(), beginB, endB);
+    if (prefix < 0) {
+      // Both regions are identical.
+      return new Edit(endA, endA, endB, endB);
+    }
+    beginA += prefix;
+    beginB += prefix;
+    while (beginA < endA && beginB < endB && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+      endA--;
+      endB--;
+    }
+    return new Edit(beginA, endA, beginB, endB);
+  }
 }
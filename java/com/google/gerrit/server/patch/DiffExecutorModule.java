@@ -15,14 +15,16 @@
 package com.google.gerrit.server.patch;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.logging.LoggingContextAwareExecutorService;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import org.eclipse.jgit.lib.Config;
 
-/** Module providing the {@link DiffExecutor}. */
+/** Module providing the {@link DiffExecutor} and the {@link IntraLineDiffExecutor}. */
 @SuppressWarnings("ProvidesMethodOutsideOfModule")
 public class DiffExecutorModule extends AbstractModule {
 
@@ -37,4 +39,20 @@ public class DiffExecutorModule extends AbstractModule {
         Executors.newCachedThreadPool(
             new ThreadFactoryBuilder().setNameFormat("Diff-%d").setDaemon(true).build()));
   }
+
+  @Provides
+  @Singleton
+  @IntraLineDiffExecutor
+  public ExecutorService provideIntraLineDiffExecutor(@GerritServerConfig Config cfg) {
+    int threads =
+        cfg.getInt(
+            "cache",
+            PatchListCacheImpl.INTRA_NAME,
+            "threads",
+            Runtime.getRuntime().availableProcessors());
+    return new LoggingContextAwareExecutorService(
+        Executors.newFixedThreadPool(
+            Math.max(1, threads),
+            new ThreadFactoryBuilder().setNameFormat("IntraLineDiff-%d").setDaemon(true).build()));
+  }
 }
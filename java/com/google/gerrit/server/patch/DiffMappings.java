@@ -14,6 +14,7 @@
 
 package com.google.gerrit.server.patch;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.util.stream.Collectors.toList;
 
@@ -24,7 +25,10 @@ import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
 import com.google.gerrit.server.patch.GitPositionTransformer.Range;
 import com.google.gerrit.server.patch.GitPositionTransformer.RangeMapping;
 import com.google.gerrit.server.patch.filediff.Edit;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
 import com.google.gerrit.server.patch.filediff.FileEdits;
+import com.google.gerrit.server.patch.filediff.TaggedEdit;
+import java.util.Collection;
 import java.util.List;
 
 /** Mappings derived from diffs. */
@@ -44,6 +48,20 @@ public class DiffMappings {
     return Mapping.create(fileMapping, rangeMappings);
   }
 
+  public static ImmutableSet<Mapping> toMappings(Collection<FileDiffOutput> fileDiffOutputs) {
+    return fileDiffOutputs.stream()
+        .map(DiffMappings::toFileEdits)
+        .map(DiffMappings::toMapping)
+        .collect(toImmutableSet());
+  }
+
+  private static FileEdits toFileEdits(FileDiffOutput fileDiffOutput) {
+    return FileEdits.create(
+        fileDiffOutput.edits().stream().map(TaggedEdit::edit).collect(toImmutableList()),
+        fileDiffOutput.oldPath(),
+        fileDiffOutput.newPath());
+  }
+
   private static FileMapping toFileMapping(PatchListEntry ple) {
     return toFileMapping(ple.getChangeType(), ple.getOldName(), ple.getNewName());
   }
@@ -43,6 +43,7 @@ import com.google.gerrit.server.patch.filediff.FileDiffCacheKey;
 import com.google.gerrit.server.patch.filediff.FileDiffOutput;
 import com.google.gerrit.server.patch.gitdiff.GitModifiedFilesCacheImpl;
 import com.google.gerrit.server.patch.gitdiff.ModifiedFile;
+import com.google.gerrit.server.patch.gitfilediff.GitBlobDiffCache;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
 import com.google.gerrit.server.update.RepoView;
@@ -61,6 +62,7 @@ import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 
 /**
@@ -91,6 +93,7 @@ public class DiffOperationsImpl implements DiffOperations {
         bind(DiffOperations.class).to(DiffOperationsImpl.class);
         install(GitModifiedFilesCacheImpl.module());
         install(ModifiedFilesCacheImpl.module());
+        install(GitBlobDiffCache.module());
         install(GitFileDiffCacheImpl.module());
         install(FileDiffCacheImpl.module());
       }
@@ -127,6 +130,9 @@ public class DiffOperationsImpl implements DiffOperations {
           project, newCommit.name(), ins);
 
       DiffParameters diffParams = computeDiffParameters(project, newCommit, parent, repoView, ins);
+      if (diffOptions.approximateLineCounts() && diffParams.skipFiles() == null) {
+        return getModifiedFilesWithApproximateLineCounts(diffParams, diffOptions, revWalk);
+      }
       return getModifiedFiles(diffParams, diffOptions);
     } catch (IOException e) {
       throw new DiffNotAvailableException(
@@ -300,6 +306,70 @@ public class DiffOperationsImpl implements DiffOperations {
     }
   }
 
+  /**
+   * Like {@link #getModifiedFiles(DiffParameters, DiffOptions)}, but the diffs of files that are
+   * not cached yet are estimated by the {@link LineHashDiffEstimator} instead of being computed.
+   * The commit message and the merge list are always diffed exactly.
+   */
+  private ImmutableMap<String, FileDiffOutput> getModifiedFilesWithApproximateLineCounts(
+      DiffParameters diffParams, DiffOptions diffOptions, RevWalk revWalk)
+      throws DiffNotAvailableException {
+    Project.NameKey project = diffParams.project();
+    ObjectId newCommit = diffParams.newCommit();
+    ObjectId oldCommit = diffParams.baseCommit();
+    DiffParameters magicFilesParams =
+        DiffParameters.builder()
+            .project(project)
+            .newCommit(newCommit)
+            .baseCommit(oldCommit)
+            .comparisonType(diffParams.comparisonType())
+            .parent(diffParams.parent())
+            .skipFiles(true)
+            .build();
+    ImmutableList.Builder<FileDiffOutput> result = ImmutableList.builder();
+    result.addAll(getModifiedFiles(magicFilesParams, diffOptions).values());
+
+    try {
+      RevTree oldTree =
+          oldCommit.equals(ObjectId.zeroId()) ? null : revWalk.parseCommit(oldCommit).getTree();
+      RevTree newTree = revWalk.parseCommit(newCommit).getTree();
+      int estimated = 0;
+      for (ModifiedFile file :
+          modifiedFilesCache.get(createModifiedFilesKey(project, oldCommit, newCommit))) {
+        Optional<FileDiffOutput> cached =
+            fileDiffCache.getIfPresent(
+                createFileDiffCacheKey(
+                    project,
+                    oldCommit,
+                    newCommit,
+                    file.getDefaultPath(),
+                    DEFAULT_DIFF_ALGORITHM,
+                    /* useTimeout= */ true,
+                    /* whitespace= */ null));
+        if (cached.isPresent() && !cached.get().isNegative()) {
+          result.add(cached.get());
+        } else {
+          result.add(
+              LineHashDiffEstimator.estimate(
+                  revWalk.getObjectReader(),
+                  oldTree,
+                  newTree,
+                  file,
+                  oldCommit,
+                  newCommit,
+                  diffParams.comparisonType()));
+          estimated++;
+        }
+      }
+      logger.atFine().log(
+          "Estimated the line counts of %d files modified by %s in project %s",
+          estimated, newCommit.name(), project);
+    } catch (IOException e) {
+      throw new DiffNotAvailableException(e);
+    }
+    return mapByFilePath(result.build(), diffOptions);
+  }
+
   private FileDiffOutput getModifiedFileForKey(FileDiffCacheKey key)
       throws DiffNotAvailableException {
     ImmutableMap<String, FileDiffOutput> diffList =
@@ -23,14 +23,27 @@ public abstract class DiffOptions {
 
   public abstract boolean skipFilesWithAllEditsDueToRebase();
 
+  /**
+   * Whether the line counts of files whose diff is not cached yet may be estimated from the
+   * multisets of their lines, instead of computing their diff. The estimated line counts are a
+   * lower bound of the exact line counts. Files whose diff is cached already always have exact line
+   * counts.
+   *
+   * <p>Only supported for diffs against a parent, the estimated file diffs must only be used for
+   * computing file statistics.
+   */
+  public abstract boolean approximateLineCounts();
+
   public static DiffOptions.Builder builder() {
-    return new AutoValue_DiffOptions.Builder();
+    return new AutoValue_DiffOptions.Builder().approximateLineCounts(false);
   }
 
   @AutoValue.Builder
   public abstract static class Builder {
     public abstract Builder skipFilesWithAllEditsDueToRebase(boolean value);
 
+    public abstract Builder approximateLineCounts(boolean value);
+
     public abstract DiffOptions build();
   }
 }
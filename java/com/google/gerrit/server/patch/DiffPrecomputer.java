@@ -0,0 +1,270 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo;
+import com.google.gerrit.extensions.common.ChangeInfo;
+import com.google.gerrit.extensions.events.RevisionCreatedListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.InternalUser;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.notedb.ChangeNotes;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Precomputes the diffs of a new patch set in the background.
+ *
+ * <p>The first user that opens a new patch set otherwise pays for computing the modified files,
+ * the file diffs, the auto-merge of merge commits and the intraline diffs, which can take many
+ * seconds for large changes. When {@code change.precomputeDiffs} is enabled, these caches are
+ * populated for the comparisons that the UI shows by default, i.e. against the parent and against
+ * the previous patch set, using the default diff preferences.
+ *
+ * <p>The work is done on a dedicated queue of low priority threads. If another patch set is created
+ * for the same change before the precomputation finished, the outdated precomputation is cancelled.
+ */
+@Singleton
+public class DiffPrecomputer implements RevisionCreatedListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Binds the precomputer as a listener if enabled in {@code gerrit.config}. */
+  public static class DiffPrecomputerModule extends AbstractModule {
+    private final Config cfg;
+
+    public DiffPrecomputerModule(Config cfg) {
+      this.cfg = cfg;
+    }
+
+    @Override
+    protected void configure() {
+      if (isEnabled(cfg)) {
+        DynamicSet.bind(binder(), RevisionCreatedListener.class).to(DiffPrecomputer.class);
+      }
+    }
+  }
+
+  @Singleton
+  static class Metrics {
+    final Timer0 latency;
+    final Counter1<String> result;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      latency =
+          metricMaker.newTimer(
+              "diff/precompute/latency",
+              new Description("Latency for precomputing the diffs of a new patch set")
+                  .setCumulative()
+                  .setUnit(Units.MILLISECONDS));
+      result =
+          metricMaker.newCounter(
+              "diff/precompute/count",
+              new Description("Number of diff precomputations for new patch sets").setRate(),
+              Field.ofString("result", (metadataBuilder, fieldValue) -> {})
+                  .description("completed, superseded or failed")
+                  .build());
+    }
+  }
+
+  public static boolean isEnabled(Config cfg) {
+    return cfg.getBoolean("change", null, "precomputeDiffs", false);
+  }
+
+  private final ChangeNotes.Factory notesFactory;
+  private final DiffOperations diffOperations;
+  private final PatchScriptFactory.Factory patchScriptFactoryFactory;
+  private final InternalUser.Factory internalUserFactory;
+  private final ExecutorService executor;
+  private final Metrics metrics;
+  private final Map<Change.Id, Task> pending = new ConcurrentHashMap<>();
+
+  @Inject
+  DiffPrecomputer(
+      @GerritServerConfig Config cfg,
+      WorkQueue workQueue,
+      ChangeNotes.Factory notesFactory,
+      DiffOperations diffOperations,
+      PatchScriptFactory.Factory patchScriptFactoryFactory,
+      InternalUser.Factory internalUserFactory,
+      Metrics metrics) {
+    this(
+        workQueue.createQueue(
+            Math.max(1, cfg.getInt("change", null, "precomputeDiffThreads", 1)),
+            "DiffPrecompute",
+            Thread.MIN_PRIORITY,
+            true),
+        notesFactory,
+        diffOperations,
+        patchScriptFactoryFactory,
+        internalUserFactory,
+        metrics);
+  }
+
+  @VisibleForTesting
+  DiffPrecomputer(
+      ExecutorService executor,
+      ChangeNotes.Factory notesFactory,
+      DiffOperations diffOperations,
+      PatchScriptFactory.Factory patchScriptFactoryFactory,
+      InternalUser.Factory internalUserFactory,
+      Metrics metrics) {
+    this.executor = executor;
+    this.notesFactory = notesFactory;
+    this.diffOperations = diffOperations;
+    this.patchScriptFactoryFactory = patchScriptFactoryFactory;
+    this.internalUserFactory = internalUserFactory;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void onRevisionCreated(Event event) {
+    ChangeInfo change = event.getChange();
+    Change.Id changeId = Change.id(change._number);
+    schedule(
+        Project.nameKey(change.project), PatchSet.id(changeId, event.getRevision()._number));
+  }
+
+  /** Schedules the precomputation for a patch set, cancelling any outdated one of the change. */
+  @VisibleForTesting
+  void schedule(Project.NameKey project, PatchSet.Id psId) {
+    Task task = new Task(project, psId);
+    Task previous = pending.put(psId.changeId(), task);
+    if (previous != null) {
+      previous.cancel();
+    }
+    try {
+      task.future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      pending.remove(psId.changeId(), task);
+      logger.atFine().withCause(e).log("Cannot precompute diffs of %s", psId);
+    }
+  }
+
+  private class Task implements Runnable {
+    private final Project.NameKey project;
+    private final PatchSet.Id psId;
+    private volatile boolean cancelled;
+    private volatile Future<?> future;
+
+    Task(Project.NameKey project, PatchSet.Id psId) {
+      this.project = project;
+      this.psId = psId;
+    }
+
+    void cancel() {
+      cancelled = true;
+      Future<?> f = future;
+      if (f != null) {
+        // Only drop the task if it did not start yet, a running task checks the flag between
+        // files so that no cache loader is interrupted.
+        f.cancel(false);
+      }
+      metrics.result.increment("superseded");
+    }
+
+    @Override
+    public void run() {
+      try (Timer0.Context ignored = metrics.latency.start()) {
+        precompute();
+        if (!cancelled) {
+          metrics.result.increment("completed");
+        }
+      } catch (Exception e) {
+        metrics.result.increment("failed");
+        logger.atWarning().withCause(e).log("Failed to precompute diffs of %s", psId);
+      } finally {
+        pending.remove(psId.changeId(), this);
+      }
+    }
+
+    private void precompute() throws Exception {
+      ChangeNotes notes = notesFactory.createChecked(project, psId.changeId());
+      PatchSet ps = notes.getPatchSets().get(psId);
+      if (cancelled || ps == null) {
+        return;
+      }
+      DiffPreferencesInfo prefs = DiffPreferencesInfo.defaults();
+
+      // Against the parent, or the auto-merge for merge commits.
+      Map<String, FileDiffOutput> files =
+          diffOperations.listModifiedFilesAgainstParent(
+              project, ps.commitId(), 0, DiffOptions.DEFAULTS);
+      for (String file : files.keySet()) {
+        if (cancelled) {
+          return;
+        }
+        warmIntraline(
+            patchScriptFactoryFactory.create(
+                notes, file, null, psId, prefs, internalUserFactory.create()),
+            file);
+      }
+
+      // Against the previous patch set.
+      Optional<PatchSet> previous = previousPatchSet(notes, psId);
+      if (previous.isEmpty()) {
+        return;
+      }
+      ObjectId oldCommit = previous.get().commitId();
+      files =
+          diffOperations.listModifiedFiles(project, oldCommit, ps.commitId(), DiffOptions.DEFAULTS);
+      for (String file : files.keySet()) {
+        if (cancelled) {
+          return;
+        }
+        warmIntraline(
+            patchScriptFactoryFactory.create(
+                notes, file, previous.get().id(), psId, prefs, internalUserFactory.create()),
+            file);
+      }
+    }
+
+    private void warmIntraline(PatchScriptFactory patchScript, String file) {
+      try {
+        // Computing the patch script loads the intraline diff into its cache.
+        patchScript.call();
+      } catch (Exception e) {
+        logger.atFine().withCause(e).log("Cannot precompute diff of %s in %s", file, psId);
+      }
+    }
+  }
+
+  private static Optional<PatchSet> previousPatchSet(ChangeNotes notes, PatchSet.Id psId) {
+    return Optional.ofNullable(notes.getPatchSets().headMap(psId).lastEntry())
+        .map(Map.Entry::getValue);
+  }
+}
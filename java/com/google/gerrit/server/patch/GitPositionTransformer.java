@@ -100,6 +100,115 @@ public class GitPositionTransformer {
     return shiftRanges(filePathUpdatedEntities, mappings);
   }
 
+  /**
+   * Chains two sets of {@link Mapping}s. The target tree of {@code first} must be the source tree
+   * of {@code second}. The returned {@link Mapping}s describe how positions in the source tree of
+   * {@code first} map to the target tree of {@code second}.
+   *
+   * <p>Transforming positions with the chained {@link Mapping}s is equivalent to transforming them
+   * with {@code first} and afterwards with {@code second}, except that any conflict is only
+   * resolved once: a position which conflicts with {@code first} or {@code second} also conflicts
+   * with the chained {@link Mapping}s.
+   *
+   * @param first the mappings from the source tree to an intermediate tree
+   * @param second the mappings from the intermediate tree to the target tree
+   * @return the mappings from the source tree to the target tree
+   */
+  public static ImmutableSet<Mapping> chain(Set<Mapping> first, Set<Mapping> second) {
+    Map<String, ImmutableList<Mapping>> secondPerOldPath =
+        second.stream()
+            .filter(mapping -> mapping.file().oldPath().isPresent())
+            .collect(
+                groupingBy(mapping -> mapping.file().oldPath().orElse(""), toImmutableList()));
+    // Paths of the intermediate tree which were written by first. The old path of a mapping isn't
+    // one of them: after a rename or deletion, it doesn't exist in the intermediate tree anymore
+    // (unless it was written again), and after a copy, it still holds the unchanged source file.
+    Set<String> touchedPaths = new HashSet<>();
+    ImmutableSet.Builder<Mapping> chainedMappings = ImmutableSet.builder();
+    for (Mapping mapping : first) {
+      Optional<String> intermediatePath = mapping.file().newPath();
+      intermediatePath.ifPresent(touchedPaths::add);
+      // Ignore file additions (irrelevant for mappings).
+      if (mapping.file().oldPath().isEmpty()) {
+        continue;
+      }
+      if (intermediatePath.isEmpty() || !secondPerOldPath.containsKey(intermediatePath.get())) {
+        // Deleted file or file not modified in second.
+        chainedMappings.add(mapping);
+        continue;
+      }
+      for (Mapping secondMapping : secondPerOldPath.get(intermediatePath.get())) {
+        chainedMappings.add(
+            Mapping.create(
+                FileMapping.forFile(mapping.file().oldPath(), secondMapping.file().newPath()),
+                secondMapping.file().newPath().isPresent()
+                    ? chainRanges(mapping.ranges(), secondMapping.ranges())
+                    : ImmutableSet.of()));
+      }
+    }
+    // Files which weren't touched by first are unchanged in the intermediate tree.
+    secondPerOldPath.entrySet().stream()
+        .filter(oldPathAndMappings -> !touchedPaths.contains(oldPathAndMappings.getKey()))
+        .forEach(oldPathAndMappings -> chainedMappings.addAll(oldPathAndMappings.getValue()));
+    return chainedMappings.build();
+  }
+
+  /**
+   * Chains the range mappings of one file. Walks through the intermediate file from top to bottom
+   * and merges all overlapping or adjacent ranges of both sides into one range mapping. Lines
+   * outside of those ranges are unchanged in both steps and hence only shifted.
+   */
+  private static ImmutableSet<RangeMapping> chainRanges(
+      Set<RangeMapping> first, Set<RangeMapping> second) {
+    if (first.isEmpty()) {
+      return ImmutableSet.copyOf(second);
+    }
+    if (second.isEmpty()) {
+      return ImmutableSet.copyOf(first);
+    }
+    ImmutableList<RangeMapping> sortedFirst = sortByNewStartEnd(first);
+    ImmutableList<RangeMapping> sortedSecond = sortByOldStartEnd(second);
+
+    ImmutableSet.Builder<RangeMapping> chainedRanges = ImmutableSet.builder();
+    int firstIndex = 0;
+    int secondIndex = 0;
+    int firstShiftedAmount = 0;
+    int secondShiftedAmount = 0;
+    while (firstIndex < sortedFirst.size() || secondIndex < sortedSecond.size()) {
+      int start =
+          Math.min(
+              firstIndex < sortedFirst.size()
+                  ? sortedFirst.get(firstIndex).newLineRange().start()
+                  : Integer.MAX_VALUE,
+              secondIndex < sortedSecond.size()
+                  ? sortedSecond.get(secondIndex).oldLineRange().start()
+                  : Integer.MAX_VALUE);
+      int sourceStart = start - firstShiftedAmount;
+      int targetStart = start + secondShiftedAmount;
+      int end = start;
+      while (true) {
+        if (firstIndex < sortedFirst.size()
+            && sortedFirst.get(firstIndex).newLineRange().start() <= end) {
+          RangeMapping mapping = sortedFirst.get(firstIndex++);
+          end = Math.max(end, mapping.newLineRange().end());
+          firstShiftedAmount = mapping.newLineRange().end() - mapping.oldLineRange().end();
+        } else if (secondIndex < sortedSecond.size()
+            && sortedSecond.get(secondIndex).oldLineRange().start() <= end) {
+          RangeMapping mapping = sortedSecond.get(secondIndex++);
+          end = Math.max(end, mapping.oldLineRange().end());
+          secondShiftedAmount = mapping.newLineRange().end() - mapping.oldLineRange().end();
+        } else {
+          break;
+        }
+      }
+      chainedRanges.add(
+          RangeMapping.create(
+              Range.create(sourceStart, end - firstShiftedAmount),
+              Range.create(targetStart, end + secondShiftedAmount)));
+    }
+    return chainedRanges.build();
+  }
+
   private <T> ImmutableList<PositionedEntity<T>> updateFilePaths(
       Collection<PositionedEntity<T>> entities, Set<Mapping> mappings) {
     Map<String, ImmutableSet<String>> newFilesPerOldFile = groupNewFilesByOldFiles(mappings);
@@ -253,6 +362,14 @@ public class GitPositionTransformer {
         .collect(toImmutableList());
   }
 
+  private static ImmutableList<RangeMapping> sortByNewStartEnd(Set<RangeMapping> mappings) {
+    return mappings.stream()
+        .sorted(
+            comparing(
+                RangeMapping::newLineRange, comparing(Range::start).thenComparing(Range::end)))
+        .collect(toImmutableList());
+  }
+
   private static ImmutableList<RangeMapping> sortByOldStartEnd(Set<RangeMapping> mappings) {
     return mappings.stream()
         .sorted(
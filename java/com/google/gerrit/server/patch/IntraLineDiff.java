@@ -21,6 +21,7 @@ import static com.google.gerrit.server.ioutil.BasicSerialization.writeVarInt32;
 import static java.util.stream.Collectors.toList;
 
 import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.CodedEnum;
 import com.google.gerrit.jgit.diff.ReplaceEdit;
 import java.io.IOException;
@@ -81,14 +82,18 @@ public class IntraLineDiff implements Serializable {
   private void writeObject(ObjectOutputStream out) throws IOException {
     writeEnum(out, status);
     writeVarInt32(out, edits.size());
+    Edit prev = null;
     for (Edit e : edits) {
-      writeEdit(out, e);
+      writeEdit(out, e, prev);
+      prev = e;
 
       if (e instanceof ReplaceEdit) {
         ReplaceEdit r = (ReplaceEdit) e;
         writeVarInt32(out, r.getInternalEdits().size());
+        Edit prevInternal = null;
         for (Edit i : r.getInternalEdits()) {
-          writeEdit(out, i);
+          writeEdit(out, i, prevInternal);
+          prevInternal = i;
         }
       } else {
         writeVarInt32(out, 0);
@@ -101,13 +106,13 @@ public class IntraLineDiff implements Serializable {
     int editCount = readVarInt32(in);
     Edit[] editArray = new Edit[editCount];
     for (int i = 0; i < editCount; i++) {
-      editArray[i] = readEdit(in);
+      editArray[i] = readEdit(in, i > 0 ? editArray[i - 1] : null);
 
       int innerCount = readVarInt32(in);
       if (0 < innerCount) {
         Edit[] inner = new Edit[innerCount];
         for (int j = 0; j < innerCount; j++) {
-          inner[j] = readEdit(in);
+          inner[j] = readEdit(in, j > 0 ? inner[j - 1] : null);
         }
         editArray[i] = new ReplaceEdit(editArray[i], asList(inner));
       }
@@ -133,21 +138,33 @@ public class IntraLineDiff implements Serializable {
         edit.getBeginA(), edit.getEndA(), edit.getBeginB(), edit.getEndB(), internalEdits);
   }
 
-  private static void writeEdit(OutputStream out, Edit e) throws IOException {
-    writeVarInt32(out, e.getBeginA());
-    writeVarInt32(out, e.getEndA());
-    writeVarInt32(out, e.getBeginB());
-    writeVarInt32(out, e.getEndB());
+  /**
+   * Writes an edit relative to the end of the previous edit, which keeps the values small as the
+   * edits are sorted.
+   */
+  private static void writeEdit(OutputStream out, Edit e, @Nullable Edit prev) throws IOException {
+    writeVarInt32(out, zigZag(e.getBeginA() - (prev != null ? prev.getEndA() : 0)));
+    writeVarInt32(out, e.getLengthA());
+    writeVarInt32(out, zigZag(e.getBeginB() - (prev != null ? prev.getEndB() : 0)));
+    writeVarInt32(out, e.getLengthB());
   }
 
-  private static Edit readEdit(InputStream in) throws IOException {
-    int beginA = readVarInt32(in);
-    int endA = readVarInt32(in);
-    int beginB = readVarInt32(in);
-    int endB = readVarInt32(in);
+  private static Edit readEdit(InputStream in, @Nullable Edit prev) throws IOException {
+    int beginA = unZigZag(readVarInt32(in)) + (prev != null ? prev.getEndA() : 0);
+    int endA = beginA + readVarInt32(in);
+    int beginB = unZigZag(readVarInt32(in)) + (prev != null ? prev.getEndB() : 0);
+    int endB = beginB + readVarInt32(in);
     return new Edit(beginA, endA, beginB, endB);
   }
 
+  private static int zigZag(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  private static int unZigZag(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
   private static List<Edit> asList(Edit[] l) {
     return Collections.unmodifiableList(Arrays.asList(l));
   }
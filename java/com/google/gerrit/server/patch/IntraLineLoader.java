@@ -19,16 +19,26 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.jgit.diff.ReplaceEdit;
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
 import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.google.inject.assistedinject.Assisted;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -52,7 +62,39 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
 
   private static final Pattern CONTROL_BLOCK_START_RE = Pattern.compile("[{:][ \\t]*$");
 
+  private static final Pattern FILE_EXTENSION_RE = Pattern.compile("[a-z0-9]{1,10}");
+
+  @Singleton
+  static class Metrics {
+    final Timer1<String> latency;
+    final Counter1<String> timeouts;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      latency =
+          metricMaker.newTimer(
+              "diff/intraline/latency",
+              new Description("Latency for computing the intraline diff of a file")
+                  .setCumulative()
+                  .setUnit(Units.MILLISECONDS),
+              fileExtensionField());
+      timeouts =
+          metricMaker.newCounter(
+              "diff/intraline/timeouts",
+              new Description("Number of intraline diff computations that timed out").setRate(),
+              fileExtensionField());
+    }
+
+    private static Field<String> fileExtensionField() {
+      return Field.ofString("file_extension", (metadataBuilder, fieldValue) -> {})
+          .description("The extension of the file, \"none\" or \"other\" for unusual ones.")
+          .build();
+    }
+  }
+
   private final ExecutorService diffExecutor;
+  private final ExecutorService intraLineExecutor;
+  private final Metrics metrics;
   private final long timeoutMillis;
   private final IntraLineDiffKey key;
   private final IntraLineDiffArgs args;
@@ -60,10 +102,14 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
   @Inject
   IntraLineLoader(
       @DiffExecutor ExecutorService diffExecutor,
+      @IntraLineDiffExecutor ExecutorService intraLineExecutor,
+      Metrics metrics,
       @GerritServerConfig Config cfg,
       @Assisted IntraLineDiffKey key,
       @Assisted IntraLineDiffArgs args) {
     this.diffExecutor = diffExecutor;
+    this.intraLineExecutor = intraLineExecutor;
+    this.metrics = metrics;
     timeoutMillis =
         ConfigUtil.getTimeUnit(
             cfg,
@@ -78,14 +124,20 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
 
   @Override
   public IntraLineDiff call() throws Exception {
+    String fileExtension = fileExtension(args.path());
     Future<IntraLineDiff> result =
         diffExecutor.submit(
             () ->
                 IntraLineLoader.compute(
-                    args.aText(), args.bText(), args.edits(), args.editsDueToRebase()));
-    try {
+                    args.aText(),
+                    args.bText(),
+                    args.edits(),
+                    args.editsDueToRebase(),
+                    intraLineExecutor));
+    try (Timer1.Context<String> ignored = metrics.latency.start(fileExtension)) {
       return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
     } catch (InterruptedException | TimeoutException e) {
+      metrics.timeouts.increment(fileExtension);
       logger.atWarning().log(
           "%s ms timeout reached for IntraLineDiff"
               + " in project %s on commit %s for path %s comparing %s..%s",
@@ -110,160 +162,210 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
       Text bText,
       ImmutableList<Edit> immutableEdits,
       ImmutableSet<Edit> immutableEditsDueToRebase) {
+    try {
+      return compute(
+          aText,
+          bText,
+          immutableEdits,
+          immutableEditsDueToRebase,
+          MoreExecutors.newDirectExecutorService());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while computing intraline diff", e);
+    }
+  }
+
+  /**
+   * Computes the intraline diff, refining the replace edits concurrently on the given executor.
+   *
+   * @throws InterruptedException if interrupted while waiting for the refined edits, in which case
+   *     the pending refinements are cancelled.
+   */
+  static IntraLineDiff compute(
+      Text aText,
+      Text bText,
+      ImmutableList<Edit> immutableEdits,
+      ImmutableSet<Edit> immutableEditsDueToRebase,
+      ExecutorService executor)
+      throws InterruptedException {
     List<Edit> edits = new ArrayList<>(immutableEdits);
     combineLineEdits(edits, immutableEditsDueToRebase, aText, bText);
 
+    // The characters of the replaced regions are extracted upfront, since Text decodes lazily and
+    // is not thread-safe.
+    List<Integer> replaced = new ArrayList<>();
+    List<Callable<ReplaceEdit>> tasks = new ArrayList<>();
     for (int i = 0; i < edits.size(); i++) {
       Edit e = edits.get(i);
-
       if (e.getType() == Edit.Type.REPLACE) {
         CharText a = new CharText(aText, e.getBeginA(), e.getEndA());
         CharText b = new CharText(bText, e.getBeginB(), e.getEndB());
-        CharTextComparator cmp = new CharTextComparator();
-
-        List<Edit> wordEdits = MyersDiff.INSTANCE.diff(cmp, a, b);
-
-        // Combine edits that are really close together. If they are
-        // just a few characters apart we tend to get better results
-        // by joining them together and taking the whole span.
-        //
-        for (int j = 0; j < wordEdits.size() - 1; ) {
-          Edit c = wordEdits.get(j);
-          Edit n = wordEdits.get(j + 1);
-
-          if (n.getBeginA() - c.getEndA() <= 5 || n.getBeginB() - c.getEndB() <= 5) {
-            int ab = c.getBeginA();
-            int ae = n.getEndA();
-
-            int bb = c.getBeginB();
-            int be = n.getEndB();
-
-            if (canCoalesce(a, c.getEndA(), n.getBeginA())
-                && canCoalesce(b, c.getEndB(), n.getBeginB())) {
-              wordEdits.set(j, new Edit(ab, ae, bb, be));
-              wordEdits.remove(j + 1);
-              continue;
-            }
-          }
+        replaced.add(i);
+        tasks.add(() -> refine(e, a, b));
+      }
+    }
+
+    List<Future<ReplaceEdit>> refined =
+        tasks.size() > 1
+            ? executor.invokeAll(tasks)
+            : MoreExecutors.newDirectExecutorService().invokeAll(tasks);
+    for (int i = 0; i < refined.size(); i++) {
+      try {
+        edits.set(replaced.get(i), refined.get(i).get());
+      } catch (ExecutionException e) {
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return new IntraLineDiff(edits);
+  }
+
+  /**
+   * Computes the intraline edits of a replace edit.
+   *
+   * @throws CancellationException if the thread is interrupted, e.g. because the computation timed
+   *     out.
+   */
+  private static ReplaceEdit refine(Edit e, CharText a, CharText b) {
+    CharTextComparator cmp = new InterruptibleCharTextComparator();
+    List<Edit> wordEdits = MyersDiff.INSTANCE.diff(cmp, a, b);
+
+    // Combine edits that are really close together. If they are
+    // just a few characters apart we tend to get better results
+    // by joining them together and taking the whole span.
+    //
+    for (int j = 0; j < wordEdits.size() - 1; ) {
+      Edit c = wordEdits.get(j);
+      Edit n = wordEdits.get(j + 1);
+
+      if (n.getBeginA() - c.getEndA() <= 5 || n.getBeginB() - c.getEndB() <= 5) {
+        int ab = c.getBeginA();
+        int ae = n.getEndA();
 
-          j++;
+        int bb = c.getBeginB();
+        int be = n.getEndB();
+
+        if (canCoalesce(a, c.getEndA(), n.getBeginA())
+            && canCoalesce(b, c.getEndB(), n.getBeginB())) {
+          wordEdits.set(j, new Edit(ab, ae, bb, be));
+          wordEdits.remove(j + 1);
+          continue;
         }
+      }
 
-        // Apply some simple rules to fix up some of the edits. Our
-        // logic above, along with our per-character difference tends
-        // to produce some crazy stuff.
-        //
-        for (int j = 0; j < wordEdits.size(); j++) {
-          Edit c = wordEdits.get(j);
-          int ab = c.getBeginA();
-          int ae = c.getEndA();
-
-          int bb = c.getBeginB();
-          int be = c.getEndB();
-
-          // Sometimes the diff generator produces an INSERT or DELETE
-          // right up against a REPLACE, but we only find this after
-          // we've also played some shifting games on the prior edit.
-          // If that happened to us, coalesce them together so we can
-          // correct this mess for the user. If we don't we wind up
-          // with silly stuff like "es" -> "es = Addresses".
-          //
-          if (1 < j) {
-            Edit p = wordEdits.get(j - 1);
-            if (p.getEndA() == ab || p.getEndB() == bb) {
-              if (p.getEndA() == ab && p.getBeginA() < p.getEndA()) {
-                ab = p.getBeginA();
-              }
-              if (p.getEndB() == bb && p.getBeginB() < p.getEndB()) {
-                bb = p.getBeginB();
-              }
-              wordEdits.remove(--j);
-            }
-          }
+      j++;
+    }
 
-          // We sometimes collapsed an edit together in a strange way,
-          // such that the edges of each text is identical. Fix by
-          // by dropping out that incorrectly replaced region.
-          //
-          while (ab < ae && bb < be && cmp.equals(a, ab, b, bb)) {
-            ab++;
-            bb++;
+    // Apply some simple rules to fix up some of the edits. Our
+    // logic above, along with our per-character difference tends
+    // to produce some crazy stuff.
+    //
+    for (int j = 0; j < wordEdits.size(); j++) {
+      Edit c = wordEdits.get(j);
+      int ab = c.getBeginA();
+      int ae = c.getEndA();
+
+      int bb = c.getBeginB();
+      int be = c.getEndB();
+
+      // Sometimes the diff generator produces an INSERT or DELETE
+      // right up against a REPLACE, but we only find this after
+      // we've also played some shifting games on the prior edit.
+      // If that happened to us, coalesce them together so we can
+      // correct this mess for the user. If we don't we wind up
+      // with silly stuff like "es" -> "es = Addresses".
+      //
+      if (1 < j) {
+        Edit p = wordEdits.get(j - 1);
+        if (p.getEndA() == ab || p.getEndB() == bb) {
+          if (p.getEndA() == ab && p.getBeginA() < p.getEndA()) {
+            ab = p.getBeginA();
           }
-          while (ab < ae && bb < be && cmp.equals(a, ae - 1, b, be - 1)) {
-            ae--;
-            be--;
+          if (p.getEndB() == bb && p.getBeginB() < p.getEndB()) {
+            bb = p.getBeginB();
           }
+          wordEdits.remove(--j);
+        }
+      }
 
-          // The leading part of an edit and its trailing part in the same
-          // text might be identical. Slide down that edit and use the tail
-          // rather than the leading bit.
-          //
-          while (0 < ab
-              && ab < ae
-              && a.charAt(ab - 1) != '\n'
-              && cmp.equals(a, ab - 1, a, ae - 1)) {
-            ab--;
-            ae--;
-          }
-          if (!a.isLineStart(ab) || !a.contains(ab, ae, '\n')) {
-            while (ab < ae && ae < a.size() && cmp.equals(a, ab, a, ae)) {
-              ab++;
-              ae++;
-              if (a.charAt(ae - 1) == '\n') {
-                break;
-              }
-            }
-          }
+      // We sometimes collapsed an edit together in a strange way,
+      // such that the edges of each text is identical. Fix by
+      // by dropping out that incorrectly replaced region.
+      //
+      while (ab < ae && bb < be && cmp.equals(a, ab, b, bb)) {
+        ab++;
+        bb++;
+      }
+      while (ab < ae && bb < be && cmp.equals(a, ae - 1, b, be - 1)) {
+        ae--;
+        be--;
+      }
 
-          while (0 < bb
-              && bb < be
-              && b.charAt(bb - 1) != '\n'
-              && cmp.equals(b, bb - 1, b, be - 1)) {
-            bb--;
-            be--;
-          }
-          if (!b.isLineStart(bb) || !b.contains(bb, be, '\n')) {
-            while (bb < be && be < b.size() && cmp.equals(b, bb, b, be)) {
-              bb++;
-              be++;
-              if (b.charAt(be - 1) == '\n') {
-                break;
-              }
-            }
+      // The leading part of an edit and its trailing part in the same
+      // text might be identical. Slide down that edit and use the tail
+      // rather than the leading bit.
+      //
+      while (0 < ab
+          && ab < ae
+          && a.charAt(ab - 1) != '\n'
+          && cmp.equals(a, ab - 1, a, ae - 1)) {
+        ab--;
+        ae--;
+      }
+      if (!a.isLineStart(ab) || !a.contains(ab, ae, '\n')) {
+        while (ab < ae && ae < a.size() && cmp.equals(a, ab, a, ae)) {
+          ab++;
+          ae++;
+          if (a.charAt(ae - 1) == '\n') {
+            break;
           }
+        }
+      }
 
-          // If most of a line was modified except the LF was common, make
-          // the LF part of the modification region. This is easier to read.
-          //
-          if (ab < ae //
-              && (ab == 0 || a.charAt(ab - 1) == '\n') //
-              && ae < a.size()
-              && a.charAt(ae - 1) != '\n'
-              && a.charAt(ae) == '\n') {
-            ae++;
-          }
-          if (bb < be //
-              && (bb == 0 || b.charAt(bb - 1) == '\n') //
-              && be < b.size()
-              && b.charAt(be - 1) != '\n'
-              && b.charAt(be) == '\n') {
-            be++;
+      while (0 < bb
+          && bb < be
+          && b.charAt(bb - 1) != '\n'
+          && cmp.equals(b, bb - 1, b, be - 1)) {
+        bb--;
+        be--;
+      }
+      if (!b.isLineStart(bb) || !b.contains(bb, be, '\n')) {
+        while (bb < be && be < b.size() && cmp.equals(b, bb, b, be)) {
+          bb++;
+          be++;
+          if (b.charAt(be - 1) == '\n') {
+            break;
           }
-
-          wordEdits.set(j, new Edit(ab, ae, bb, be));
         }
+      }
 
-        // Validate that the intra-line edits applied to the "a" text produces the "b" text. If this
-        // check fails, fallback to a single replace edit that covers the whole area.
-        if (isValidTransformation(a, b, wordEdits)) {
-          edits.set(i, new ReplaceEdit(e, wordEdits));
-        } else {
-          edits.set(i, new ReplaceEdit(e, Arrays.asList(new Edit(0, a.size(), 0, b.size()))));
-        }
+      // If most of a line was modified except the LF was common, make
+      // the LF part of the modification region. This is easier to read.
+      //
+      if (ab < ae //
+          && (ab == 0 || a.charAt(ab - 1) == '\n') //
+          && ae < a.size()
+          && a.charAt(ae - 1) != '\n'
+          && a.charAt(ae) == '\n') {
+        ae++;
+      }
+      if (bb < be //
+          && (bb == 0 || b.charAt(bb - 1) == '\n') //
+          && be < b.size()
+          && b.charAt(be - 1) != '\n'
+          && b.charAt(be) == '\n') {
+        be++;
       }
+
+      wordEdits.set(j, new Edit(ab, ae, bb, be));
     }
 
-    return new IntraLineDiff(edits);
+    // Validate that the intra-line edits applied to the "a" text produces the "b" text. If this
+    // check fails, fallback to a single replace edit that covers the whole area.
+    if (isValidTransformation(a, b, wordEdits)) {
+      return new ReplaceEdit(e, wordEdits);
+    }
+    return new ReplaceEdit(e, Arrays.asList(new Edit(0, a.size(), 0, b.size())));
   }
 
   /**
@@ -342,11 +444,17 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
   }
 
   private static StringBuilder toStringBuilder(CharText text) {
-    StringBuilder result = new StringBuilder();
-    for (int i = 0; i < text.size(); i++) {
-      result.append(text.charAt(i));
+    return new StringBuilder(text.size()).append(text.chars());
+  }
+
+  private static String fileExtension(String path) {
+    int slash = path.lastIndexOf('/');
+    int dot = path.lastIndexOf('.');
+    if (dot <= slash + 1) {
+      return "none";
     }
-    return result;
+    String extension = path.substring(dot + 1).toLowerCase(Locale.US);
+    return FILE_EXTENSION_RE.matcher(extension).matches() ? extension : "other";
   }
 
   private static void combineLineEdits(
@@ -409,4 +517,23 @@ public class IntraLineLoader implements Callable<IntraLineDiff> {
     }
     return true;
   }
+
+  /**
+   * Comparator that stops the diff once the thread is interrupted. {@link MyersDiff} doesn't check
+   * for interrupts itself, hence without this a timed out diff would keep its thread busy until it
+   * is done.
+   */
+  private static class InterruptibleCharTextComparator extends CharTextComparator {
+    private static final int CHECK_INTERVAL = 1 << 12;
+
+    private int comparisons;
+
+    @Override
+    public boolean equals(CharText a, int ai, CharText b, int bi) {
+      if (++comparisons % CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("intraline diff was interrupted");
+      }
+      return super.equals(a, ai, b, bi);
+    }
+  }
 }
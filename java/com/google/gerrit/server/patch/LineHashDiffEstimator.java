@@ -0,0 +1,188 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Patch;
+import com.google.gerrit.server.patch.filediff.Edit;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import com.google.gerrit.server.patch.filediff.TaggedEdit;
+import com.google.gerrit.server.patch.gitdiff.ModifiedFile;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Estimates the file diff of a modified file by comparing the multisets of the line hashes of the
+ * old and the new file content, without aligning the lines.
+ *
+ * <p>A line that occurs {@code n} times in the old and {@code m} times in the new content counts as
+ * {@code max(0, n - m)} deletions and {@code max(0, m - n)} insertions. Since every pair of lines
+ * that an exact diff keeps unchanged is also matched by the multisets, the estimated counts never
+ * exceed the counts of an exact diff. They are lower if lines were moved within the file.
+ *
+ * <p>The estimated {@link FileDiffOutput} has a single edit that carries the estimated counts and
+ * must not be used for anything else than computing file statistics.
+ */
+class LineHashDiffEstimator {
+  private static final Side MISSING = new Side(FileMode.MISSING, new byte[0], 0, false);
+
+  private LineHashDiffEstimator() {}
+
+  static FileDiffOutput estimate(
+      ObjectReader reader,
+      @Nullable RevTree oldTree,
+      RevTree newTree,
+      ModifiedFile file,
+      ObjectId oldCommit,
+      ObjectId newCommit,
+      ComparisonType comparisonType)
+      throws IOException {
+    Side oldSide = Side.read(reader, oldTree, file.oldPath());
+    Side newSide = Side.read(reader, newTree, file.newPath());
+    boolean binary = oldSide.binary || newSide.binary;
+
+    ImmutableList<TaggedEdit> edits = ImmutableList.of();
+    if (!binary) {
+      RawText a = new RawText(oldSide.content);
+      RawText b = new RawText(newSide.content);
+      int common = countCommonLines(a, b);
+      int deletions = a.size() - common;
+      int insertions = b.size() - common;
+      if (deletions > 0 || insertions > 0) {
+        edits =
+            ImmutableList.of(
+                TaggedEdit.create(
+                    Edit.create(0, deletions, 0, insertions), /* dueToRebase= */ false));
+      }
+    }
+
+    String oldPath = file.oldPath().orElseGet(() -> file.newPath().get());
+    String newPath = file.newPath().orElse(oldPath);
+    return FileDiffOutput.builder()
+        .oldCommitId(oldCommit)
+        .newCommitId(newCommit)
+        .comparisonType(comparisonType)
+        .changeType(file.changeType())
+        .patchType(Optional.of(binary ? Patch.PatchType.BINARY : Patch.PatchType.UNIFIED))
+        .oldPath(file.oldPath())
+        .newPath(file.newPath())
+        .oldMode(oldSide.patchFileMode())
+        .newMode(newSide.patchFileMode())
+        .headerLines(ImmutableList.of("diff --git a/" + oldPath + " b/" + newPath))
+        .edits(edits)
+        .size(newSide.size)
+        .sizeDelta(newSide.size - oldSide.size)
+        .build();
+  }
+
+  /** Returns the size of the intersection of the multisets of the lines of both texts. */
+  @VisibleForTesting
+  static int countCommonLines(RawText a, RawText b) {
+    int[] aHashes = sortedLineHashes(a);
+    int[] bHashes = sortedLineHashes(b);
+    int common = 0;
+    int i = 0;
+    int j = 0;
+    while (i < aHashes.length && j < bHashes.length) {
+      if (aHashes[i] < bHashes[j]) {
+        i++;
+      } else if (aHashes[i] > bHashes[j]) {
+        j++;
+      } else {
+        common++;
+        i++;
+        j++;
+      }
+    }
+    return common;
+  }
+
+  private static int[] sortedLineHashes(RawText text) {
+    int[] hashes = new int[text.size()];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = RawTextComparator.DEFAULT.hash(text, i);
+    }
+    Arrays.sort(hashes);
+    return hashes;
+  }
+
+  /** The file content at one side of the diff. */
+  private static class Side {
+    final FileMode mode;
+    final byte[] content;
+    final long size;
+    final boolean binary;
+
+    Side(FileMode mode, byte[] content, long size, boolean binary) {
+      this.mode = mode;
+      this.content = content;
+      this.size = size;
+      this.binary = binary;
+    }
+
+    static Side read(ObjectReader reader, @Nullable RevTree tree, Optional<String> path)
+        throws IOException {
+      if (tree == null || path.isEmpty()) {
+        return MISSING;
+      }
+      try (TreeWalk tw = TreeWalk.forPath(reader, path.get(), tree)) {
+        if (tw == null) {
+          return MISSING;
+        }
+        FileMode mode = tw.getFileMode(0);
+        ObjectId id = tw.getObjectId(0);
+        if (mode.getObjectType() != OBJ_BLOB) {
+          // Git formats submodules as a single line with the ID of the referenced commit.
+          byte[] content = ("Subproject commit " + id.name() + "\n").getBytes(UTF_8);
+          return new Side(mode, content, 0, false);
+        }
+        ObjectLoader loader = reader.open(id, OBJ_BLOB);
+        if (loader.isLarge()) {
+          // Like JGit's diff formatter, don't load large files and treat them as binary.
+          return new Side(mode, new byte[0], loader.getSize(), true);
+        }
+        byte[] content = loader.getCachedBytes();
+        return new Side(mode, content, content.length, RawText.isBinary(content));
+      }
+    }
+
+    Optional<Patch.FileMode> patchFileMode() {
+      if (mode == FileMode.MISSING) {
+        return Optional.empty();
+      } else if (mode == FileMode.SYMLINK) {
+        return Optional.of(Patch.FileMode.SYMLINK);
+      } else if (mode == FileMode.GITLINK) {
+        return Optional.of(Patch.FileMode.GITLINK);
+      } else if (mode == FileMode.EXECUTABLE_FILE) {
+        return Optional.of(Patch.FileMode.EXECUTABLE_FILE);
+      }
+      return Optional.of(Patch.FileMode.REGULAR_FILE);
+    }
+  }
+}
@@ -54,6 +54,8 @@ public class PatchListCacheImpl implements PatchListCache {
 
         bind(PatchListCacheImpl.class);
         bind(PatchListCache.class).to(PatchListCacheImpl.class);
+
+        install(AutoMergeCache.module());
       }
     };
   }
@@ -27,6 +27,7 @@ import com.google.gerrit.entities.Project;
 import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.client.DiffPreferencesInfo;
 import com.google.gerrit.extensions.restapi.AuthException;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.PatchSetUtil;
 import com.google.gerrit.server.edit.ChangeEdit;
@@ -52,8 +53,13 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 
 public class PatchScriptFactory implements Callable<PatchScript> {
 
@@ -95,6 +101,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
   private final ProjectCache projectCache;
   private final DiffOperations diffOperations;
   private final DiffValidators diffValidators;
+  private final StreamingDiff streamingDiff;
 
   private final Change.Id changeId;
 
@@ -111,6 +118,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
       ProjectCache projectCache,
       DiffOperations diffOperations,
       DiffValidators diffValidators,
+      StreamingDiff streamingDiff,
       @Assisted ChangeNotes notes,
       @Assisted String fileName,
       @Assisted("patchSetA") @Nullable PatchSet.Id patchSetA,
@@ -127,6 +135,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
     this.projectCache = projectCache;
     this.diffOperations = diffOperations;
     this.diffValidators = diffValidators;
+    this.streamingDiff = streamingDiff;
 
     this.fileName = fileName;
     this.psa = patchSetA;
@@ -148,6 +157,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
       ProjectCache projectCache,
       DiffOperations diffOperations,
       DiffValidators diffValidators,
+      StreamingDiff streamingDiff,
       @Assisted ChangeNotes notes,
       @Assisted String fileName,
       @Assisted int parentNum,
@@ -164,6 +174,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
     this.projectCache = projectCache;
     this.diffOperations = diffOperations;
     this.diffValidators = diffValidators;
+    this.streamingDiff = streamingDiff;
 
     this.fileName = fileName;
     this.psa = null;
@@ -182,17 +193,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
           InvalidChangeOperationException,
           IOException,
           PermissionBackendException {
-
-    if (!permissionBackend.user(currentUser).change(notes).test(ChangePermission.READ)) {
-      throw new NoSuchChangeException(changeId);
-    }
-
-    if (!projectCache
-        .get(notes.getProjectName())
-        .map(ProjectState::statePermitsRead)
-        .orElse(false)) {
-      throw new NoSuchChangeException(changeId);
-    }
+    checkCanRead();
 
     try (Repository git = repoManager.openRepository(notes.getProjectName())) {
       try {
@@ -200,15 +201,7 @@ public class PatchScriptFactory implements Callable<PatchScript> {
         validatePatchSetId(psb);
 
         ObjectId aId = getAId().orElse(null);
-        ObjectId bId = getBId().orElse(null);
-        if (bId == null) {
-          // Change edit: create synthetic PatchSet corresponding to the edit.
-          Optional<ChangeEdit> edit = editReader.byChange(notes);
-          if (!edit.isPresent()) {
-            throw new NoSuchChangeException(notes.getChangeId());
-          }
-          bId = edit.get().getEditCommit();
-        }
+        ObjectId bId = getBIdOrEdit();
         return getPatchScript(git, aId, bId);
       } catch (DiffNotAvailableException e) {
         throw new StorageException(e);
@@ -227,6 +220,97 @@ public class PatchScriptFactory implements Callable<PatchScript> {
     }
   }
 
+  /**
+   * Computes the diff of the file with {@link StreamingDiff}, which neither loads the files into
+   * memory nor computes the full edit list, and hence also works for very large files.
+   *
+   * <p>The file is compared by name, renames are not detected. For merge commits the diff is
+   * computed against the first parent if no parent was specified.
+   *
+   * @param maxHunks maximum number of hunks to compute.
+   * @param start position to start the diff at, as returned by a previous call.
+   * @throws ResourceNotFoundException if the file exists in neither of the revisions.
+   */
+  public StreamingDiff.Result stream(int maxHunks, StreamingDiff.Position start)
+      throws LargeObjectException,
+          AuthException,
+          ResourceNotFoundException,
+          IOException,
+          PermissionBackendException {
+    checkCanRead();
+
+    try (Repository git = repoManager.openRepository(notes.getProjectName());
+        RevWalk rw = new RevWalk(git)) {
+      validatePatchSetId(psa);
+      validatePatchSetId(psb);
+
+      RevCommit b = rw.parseCommit(getBIdOrEdit());
+      RevCommit a;
+      if (psa != null) {
+        a = rw.parseCommit(getAId().get());
+      } else {
+        int parent = Math.max(parentNum, 1);
+        a = b.getParentCount() >= parent ? rw.parseCommit(b.getParent(parent - 1)) : null;
+      }
+      ObjectReader reader = rw.getObjectReader();
+      ObjectId blobA = a != null ? blobId(reader, a, fileName) : null;
+      ObjectId blobB = blobId(reader, b, fileName);
+      if (blobA == null && blobB == null) {
+        throw new ResourceNotFoundException("file not found: " + fileName);
+      }
+      return streamingDiff.diff(
+          reader,
+          blobA,
+          blobB,
+          diffPrefs.ignoreWhitespace,
+          diffPrefs.context != null ? diffPrefs.context : DiffPreferencesInfo.DEFAULT_CONTEXT,
+          maxHunks,
+          start);
+    } catch (RepositoryNotFoundException e) {
+      logger.atSevere().withCause(e).log("Repository %s not found", notes.getProjectName());
+      throw new NoSuchChangeException(changeId, e);
+    } catch (org.eclipse.jgit.errors.LargeObjectException err) {
+      throw new LargeObjectException("File content is too large", err);
+    }
+  }
+
+  @Nullable
+  private static ObjectId blobId(ObjectReader reader, RevCommit commit, String path)
+      throws IOException {
+    try (TreeWalk tw = TreeWalk.forPath(reader, path, commit.getTree())) {
+      if (tw == null || tw.getFileMode(0).getObjectType() != Constants.OBJ_BLOB) {
+        return null;
+      }
+      return tw.getObjectId(0);
+    }
+  }
+
+  private void checkCanRead() throws PermissionBackendException {
+    if (!permissionBackend.user(currentUser).change(notes).test(ChangePermission.READ)) {
+      throw new NoSuchChangeException(changeId);
+    }
+
+    if (!projectCache
+        .get(notes.getProjectName())
+        .map(ProjectState::statePermitsRead)
+        .orElse(false)) {
+      throw new NoSuchChangeException(changeId);
+    }
+  }
+
+  private ObjectId getBIdOrEdit() throws AuthException, IOException {
+    Optional<ObjectId> bId = getBId();
+    if (bId.isPresent()) {
+      return bId.get();
+    }
+    // Change edit: create synthetic PatchSet corresponding to the edit.
+    Optional<ChangeEdit> edit = editReader.byChange(notes);
+    if (!edit.isPresent()) {
+      throw new NoSuchChangeException(notes.getChangeId());
+    }
+    return edit.get().getEditCommit();
+  }
+
   private PatchScript getPatchScript(Repository git, ObjectId aId, ObjectId bId)
       throws IOException, DiffNotAvailableException, LargeObjectException {
     FileDiffOutput fileDiffOutput =
@@ -0,0 +1,167 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.logging.Metadata;
+import com.google.gerrit.server.logging.TraceContext;
+import com.google.gerrit.server.logging.TraceContext.TraceTimer;
+import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Cache of the {@link Mapping}s along a chain of commits, e.g. the commits of consecutive
+ * patchsets of a change.
+ *
+ * <p>The {@link Mapping}s between two consecutive commits are derived from their diff. The
+ * {@link Mapping}s of a longer chain are computed by chaining the {@link Mapping}s of its first
+ * two commits with the (cached) {@link Mapping}s of the remaining chain, see {@link
+ * GitPositionTransformer#chain(java.util.Set, java.util.Set)}. When a chain is extended by a new
+ * commit (e.g. a new patchset), only the diff between the last two commits has to be computed.
+ */
+@Singleton
+public class PositionMappingCache {
+  static final String CACHE_NAME = "position_mappings";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        cache(CACHE_NAME, Key.class, new TypeLiteral<ImmutableSet<Mapping>>() {});
+      }
+    };
+  }
+
+  @AutoValue
+  abstract static class Key {
+    abstract Project.NameKey project();
+
+    abstract ImmutableList<ObjectId> commits();
+
+    static Key create(Project.NameKey project, List<ObjectId> commits) {
+      return new AutoValue_PositionMappingCache_Key(project, ImmutableList.copyOf(commits));
+    }
+  }
+
+  private final Cache<Key, ImmutableSet<Mapping>> cache;
+  private final DiffOperations diffOperations;
+
+  @Inject
+  PositionMappingCache(
+      @Named(CACHE_NAME) Cache<Key, ImmutableSet<Mapping>> cache, DiffOperations diffOperations) {
+    this.cache = cache;
+    this.diffOperations = diffOperations;
+  }
+
+  /**
+   * Returns the {@link Mapping}s from the first to the last of the given commits.
+   *
+   * @param project the project containing the commits
+   * @param commits the chain of commits. Each commit is diffed against its successor.
+   * @return the {@link Mapping}s from the first to the last commit
+   * @throws DiffNotAvailableException if a diff between two consecutive commits can't be computed
+   */
+  public ImmutableSet<Mapping> get(Project.NameKey project, List<ObjectId> commits)
+      throws DiffNotAvailableException {
+    ImmutableList<ObjectId> chain = withoutConsecutiveDuplicates(commits);
+    if (chain.size() < 2) {
+      return ImmutableSet.of();
+    }
+    ImmutableSet<Mapping> cached = cache.getIfPresent(Key.create(project, chain));
+    if (cached != null) {
+      return cached;
+    }
+    try (TraceTimer ignored =
+        TraceContext.newTimer(
+            "Chaining position mappings",
+            Metadata.builder()
+                .projectName(project.get())
+                .commit(chain.get(0).name())
+                .resourceCount(chain.size())
+                .build())) {
+      ImmutableSet<Mapping> mappings = ImmutableSet.of();
+      for (int i = chain.size() - 2; i >= 0; i--) {
+        Key chainKey = Key.create(project, chain.subList(i, chain.size()));
+        ImmutableSet<Mapping> cachedChain = cache.getIfPresent(chainKey);
+        if (cachedChain != null) {
+          mappings = cachedChain;
+          continue;
+        }
+        // Resolve the mappings of the pair before loading the chain, so that the loader of the
+        // chain doesn't access the cache itself.
+        ImmutableList<ObjectId> pair = chain.subList(i, i + 2);
+        ImmutableSet<Mapping> pairMappings =
+            get(Key.create(project, pair), () -> load(project, pair));
+        if (i == chain.size() - 2) {
+          mappings = pairMappings;
+          continue;
+        }
+        ImmutableSet<Mapping> laterMappings = mappings;
+        mappings = get(chainKey, () -> GitPositionTransformer.chain(pairMappings, laterMappings));
+      }
+      return mappings;
+    }
+  }
+
+  private ImmutableSet<Mapping> get(Key key, Callable<ImmutableSet<Mapping>> loader)
+      throws DiffNotAvailableException {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), DiffNotAvailableException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new DiffNotAvailableException(e.getCause());
+    }
+  }
+
+  private ImmutableSet<Mapping> load(Project.NameKey project, List<ObjectId> pair)
+      throws DiffNotAvailableException {
+    return DiffMappings.toMappings(
+        diffOperations
+            .listModifiedFiles(
+                project,
+                pair.get(0),
+                pair.get(1),
+                DiffOptions.builder().skipFilesWithAllEditsDueToRebase(false).build())
+            .values());
+  }
+
+  private static ImmutableList<ObjectId> withoutConsecutiveDuplicates(List<ObjectId> commits) {
+    ImmutableList.Builder<ObjectId> result = ImmutableList.builderWithExpectedSize(commits.size());
+    ObjectId previous = null;
+    for (ObjectId commit : commits) {
+      if (!commit.equals(previous)) {
+        result.add(commit);
+      }
+      previous = commit;
+    }
+    return result.build();
+  }
+}
@@ -0,0 +1,497 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Patch.ChangeType;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Computes the diff of two, possibly very large, text files in a single pass while only keeping a
+ * window of {@code change.streamingDiffWindow} lines of each file in memory.
+ *
+ * <p>Starting from a position at which both files are aligned, lines are consumed as long as they
+ * match. At the first mismatch the next anchor is searched within the buffered windows: the first
+ * line that occurs exactly once in both windows, as in patience diff, or, if there is none, the
+ * first line that occurs in both windows. The lines before the anchor form a hunk. If the windows
+ * have no line in common, the full windows form a hunk. Hence hunks are at most as large as the
+ * window, and the result approximates the regular diff. It is meant for files for which the regular
+ * diff cannot be computed within time and memory limits.
+ *
+ * <p>After {@code maxHunks} hunks the diff stops and returns the {@link Position} from which it can
+ * be continued by a later call.
+ *
+ * <p>As in {@link RawText}, lines are only split at {@code \n} and are compared including their
+ * line terminator, so that changed line endings and a missing newline at the end of a file show up
+ * as differences. Lines are decoded as UTF-8, falling back to ISO-8859-1 for invalid input.
+ */
+@Singleton
+public class StreamingDiff {
+  private static final int DEFAULT_WINDOW = 10000;
+
+  /** Position at which both files are aligned, used to continue a diff. */
+  @AutoValue
+  public abstract static class Position {
+    public static final Position START = create(0, 0);
+
+    public static Position create(int lineA, int lineB) {
+      return new AutoValue_StreamingDiff_Position(lineA, lineB);
+    }
+
+    /**
+     * Parses a continuation token that was returned by {@link #toToken()}.
+     *
+     * @throws IllegalArgumentException if the token is invalid.
+     */
+    public static Position parse(String token) {
+      int sep = token.indexOf('-');
+      if (sep <= 0) {
+        throw new IllegalArgumentException("invalid continuation token: " + token);
+      }
+      try {
+        int lineA = Integer.parseInt(token.substring(0, sep));
+        int lineB = Integer.parseInt(token.substring(sep + 1));
+        if (lineA < 0 || lineB < 0) {
+          throw new IllegalArgumentException("invalid continuation token: " + token);
+        }
+        return create(lineA, lineB);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("invalid continuation token: " + token, e);
+      }
+    }
+
+    /** Number of lines of the old file before this position. */
+    public abstract int lineA();
+
+    /** Number of lines of the new file before this position. */
+    public abstract int lineB();
+
+    public String toToken() {
+      return lineA() + "-" + lineB();
+    }
+  }
+
+  /**
+   * A part of the diff: either lines common to both files, a number of skipped common lines or a
+   * hunk of differing lines.
+   */
+  @AutoValue
+  public abstract static class Chunk {
+    static Chunk common(List<String> lines) {
+      return new AutoValue_StreamingDiff_Chunk(
+          withoutNewline(lines), ImmutableList.of(), ImmutableList.of(), 0);
+    }
+
+    static Chunk skip(int lines) {
+      return new AutoValue_StreamingDiff_Chunk(
+          ImmutableList.of(), ImmutableList.of(), ImmutableList.of(), lines);
+    }
+
+    static Chunk hunk(List<String> a, List<String> b) {
+      return new AutoValue_StreamingDiff_Chunk(
+          ImmutableList.of(), withoutNewline(a), withoutNewline(b), 0);
+    }
+
+    private static ImmutableList<String> withoutNewline(List<String> lines) {
+      return lines.stream()
+          .map(l -> l.endsWith("\n") ? l.substring(0, l.length() - 1) : l)
+          .collect(toImmutableList());
+    }
+
+    /** Lines common to both files. */
+    public abstract ImmutableList<String> common();
+
+    /** Lines of the old file in a hunk. */
+    public abstract ImmutableList<String> a();
+
+    /** Lines of the new file in a hunk. */
+    public abstract ImmutableList<String> b();
+
+    /** Number of skipped common lines. */
+    public abstract int skip();
+
+    public boolean isHunk() {
+      return !a().isEmpty() || !b().isEmpty();
+    }
+  }
+
+  @AutoValue
+  public abstract static class Result {
+    public abstract ChangeType changeType();
+
+    public abstract boolean binary();
+
+    public abstract ImmutableList<Chunk> chunks();
+
+    /** Position to continue the diff at, empty if the end of both files was reached. */
+    public abstract Optional<Position> next();
+
+    /** Total number of lines of the old file, only known if the end was reached. */
+    public abstract OptionalInt linesA();
+
+    /** Total number of lines of the new file, only known if the end was reached. */
+    public abstract OptionalInt linesB();
+  }
+
+  private final int window;
+
+  @Inject
+  StreamingDiff(@GerritServerConfig Config cfg) {
+    this(cfg.getInt("change", null, "streamingDiffWindow", DEFAULT_WINDOW));
+  }
+
+  @VisibleForTesting
+  StreamingDiff(int window) {
+    this.window = Math.max(1, window);
+  }
+
+  /**
+   * Computes the diff of two blobs.
+   *
+   * @param reader reader to open the blobs.
+   * @param blobA old blob, {@code null} if the file was added.
+   * @param blobB new blob, {@code null} if the file was deleted. Must not be {@code null} if
+   *     {@code blobA} is {@code null}.
+   * @param whitespace how whitespace differences are handled.
+   * @param context number of common lines shown around each hunk.
+   * @param maxHunks maximum number of hunks to compute.
+   * @param start position to start the diff at.
+   */
+  public Result diff(
+      ObjectReader reader,
+      @Nullable ObjectId blobA,
+      @Nullable ObjectId blobB,
+      Whitespace whitespace,
+      int context,
+      int maxHunks,
+      Position start)
+      throws IOException {
+    checkArgument(blobA != null || blobB != null, "file is missing in both revisions");
+    ChangeType changeType =
+        blobA == null ? ChangeType.ADDED : blobB == null ? ChangeType.DELETED : ChangeType.MODIFIED;
+    ObjectLoader a = blobA != null ? reader.open(blobA, Constants.OBJ_BLOB) : null;
+    ObjectLoader b = blobB != null ? reader.open(blobB, Constants.OBJ_BLOB) : null;
+    if (isBinary(a) || isBinary(b)) {
+      return new AutoValue_StreamingDiff_Result(
+          changeType,
+          true,
+          ImmutableList.of(),
+          Optional.empty(),
+          OptionalInt.empty(),
+          OptionalInt.empty());
+    }
+    try (InputStream ra = open(a);
+        InputStream rb = open(b)) {
+      return diff(ra, rb, changeType, whitespace, context, maxHunks, start);
+    }
+  }
+
+  @VisibleForTesting
+  Result diff(
+      InputStream a,
+      InputStream b,
+      ChangeType changeType,
+      Whitespace whitespace,
+      int context,
+      int maxHunks,
+      Position start)
+      throws IOException {
+    return new Run(a, b, whitespace, context, maxHunks).run(changeType, start);
+  }
+
+  private static boolean isBinary(@Nullable ObjectLoader loader) throws IOException {
+    if (loader == null) {
+      return false;
+    }
+    try (InputStream in = loader.openStream()) {
+      return RawText.isBinary(in);
+    }
+  }
+
+  private static InputStream open(@Nullable ObjectLoader loader) throws IOException {
+    if (loader == null) {
+      return InputStream.nullInputStream();
+    }
+    return loader.openStream();
+  }
+
+  /**
+   * Window of buffered lines of one of the files. Lines are kept with their terminating {@code
+   * \n}, the last line of a file lacks it if the file doesn't end with a newline.
+   */
+  private static class Side {
+    private final InputStream in;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    private boolean eof;
+    private int consumed;
+
+    Side(InputStream in) {
+      this.in = new BufferedInputStream(in);
+    }
+
+    void fill(int window) throws IOException {
+      while (!eof && lines.size() < window) {
+        String l = readLine();
+        if (l == null) {
+          eof = true;
+        } else {
+          lines.addLast(l);
+        }
+      }
+    }
+
+    void skip(int n) throws IOException {
+      for (int i = 0; i < n && readLine() != null; i++) {
+        consumed++;
+      }
+    }
+
+    /** Reads the next line including its {@code \n}, {@code null} at the end of the file. */
+    @Nullable
+    private String readLine() throws IOException {
+      line.reset();
+      int c;
+      while ((c = in.read()) != -1) {
+        line.write(c);
+        if (c == '\n') {
+          break;
+        }
+      }
+      return line.size() > 0 ? RawParseUtils.decode(line.toByteArray()) : null;
+    }
+
+    boolean isEmpty() {
+      return lines.isEmpty();
+    }
+
+    String peek() {
+      return lines.peekFirst();
+    }
+
+    String poll() {
+      consumed++;
+      return lines.pollFirst();
+    }
+
+    List<String> take(int n) {
+      List<String> taken = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        taken.add(poll());
+      }
+      return taken;
+    }
+  }
+
+  private class Run {
+    private final Side a;
+    private final Side b;
+    private final Whitespace whitespace;
+    private final int context;
+    private final int maxHunks;
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    // The current run of common lines: the first lines after the previous hunk and the last lines
+    // before the next hunk, each up to the context size, and the total length of the run.
+    private final List<String> trailing = new ArrayList<>();
+    private final ArrayDeque<String> leading = new ArrayDeque<>();
+    private int runLength;
+    private int hunks;
+
+    Run(InputStream a, InputStream b, Whitespace whitespace, int context, int maxHunks) {
+      this.a = new Side(a);
+      this.b = new Side(b);
+      this.whitespace = whitespace;
+      this.context = Math.max(0, context);
+      this.maxHunks = Math.max(1, maxHunks);
+    }
+
+    Result run(ChangeType changeType, Position start) throws IOException {
+      a.skip(start.lineA());
+      b.skip(start.lineB());
+      while (true) {
+        a.fill(window);
+        b.fill(window);
+        if (a.isEmpty() && b.isEmpty()) {
+          flushRun(true);
+          return result(changeType, Optional.empty());
+        }
+        if (!a.isEmpty() && !b.isEmpty() && key(a.peek()).equals(key(b.peek()))) {
+          b.poll();
+          addCommon(a.poll());
+          if (hunks == maxHunks && trailing.size() == context) {
+            break;
+          }
+          continue;
+        }
+        if (hunks == maxHunks) {
+          break;
+        }
+        flushRun(false);
+        int[] anchor = findAnchor();
+        chunks.add(Chunk.hunk(a.take(anchor[0]), b.take(anchor[1])));
+        hunks++;
+      }
+      // The trailing context of the last hunk is complete, or the next hunk starts.
+      flushRun(true);
+      return result(changeType, Optional.of(Position.create(a.consumed, b.consumed)));
+    }
+
+    private Result result(ChangeType changeType, Optional<Position> next) {
+      return new AutoValue_StreamingDiff_Result(
+          changeType,
+          false,
+          ImmutableList.copyOf(chunks),
+          next,
+          next.isPresent() ? OptionalInt.empty() : OptionalInt.of(a.consumed),
+          next.isPresent() ? OptionalInt.empty() : OptionalInt.of(b.consumed));
+    }
+
+    private void addCommon(String line) {
+      runLength++;
+      if (hunks > 0 && trailing.size() < context) {
+        trailing.add(line);
+        return;
+      }
+      if (context > 0) {
+        leading.addLast(line);
+        if (leading.size() > context) {
+          leading.removeFirst();
+        }
+      }
+    }
+
+    /**
+     * Adds the current run of common lines to the chunks.
+     *
+     * @param last whether no hunk follows the run, so that no leading context is needed.
+     */
+    private void flushRun(boolean last) {
+      if (runLength == 0) {
+        return;
+      }
+      List<String> shown = new ArrayList<>(trailing);
+      int skipped = runLength - trailing.size();
+      if (!last) {
+        skipped -= leading.size();
+        if (skipped > 0) {
+          addIfNotEmpty(shown);
+          chunks.add(Chunk.skip(skipped));
+          shown.clear();
+          skipped = 0;
+        }
+        shown.addAll(leading);
+      }
+      addIfNotEmpty(shown);
+      if (skipped > 0) {
+        chunks.add(Chunk.skip(skipped));
+      }
+      trailing.clear();
+      leading.clear();
+      runLength = 0;
+    }
+
+    private void addIfNotEmpty(List<String> common) {
+      if (!common.isEmpty()) {
+        chunks.add(Chunk.common(common));
+      }
+    }
+
+    /**
+     * Returns the number of lines of each window before the next anchor, or the sizes of the
+     * windows if they don't have any line in common.
+     */
+    private int[] findAnchor() {
+      // For each distinct line: occurrences and first index in window A and in window B.
+      Map<String, int[]> occurrences = new HashMap<>();
+      int i = 0;
+      for (String line : a.lines) {
+        int[] o = occurrences.computeIfAbsent(key(line), k -> new int[] {0, -1, 0, -1});
+        if (o[0]++ == 0) {
+          o[1] = i;
+        }
+        i++;
+      }
+      int j = 0;
+      for (String line : b.lines) {
+        int[] o = occurrences.get(key(line));
+        if (o != null && o[2]++ == 0) {
+          o[3] = j;
+        }
+        j++;
+      }
+      int[] unique = null;
+      int[] any = null;
+      for (int[] o : occurrences.values()) {
+        if (o[2] == 0) {
+          continue;
+        }
+        if (o[0] == 1 && o[2] == 1 && (unique == null || o[1] + o[3] < unique[1] + unique[3])) {
+          unique = o;
+        }
+        if (any == null || o[1] + o[3] < any[1] + any[3]) {
+          any = o;
+        }
+      }
+      int[] anchor = unique != null ? unique : any;
+      if (anchor == null) {
+        return new int[] {a.lines.size(), b.lines.size()};
+      }
+      return new int[] {anchor[1], anchor[3]};
+    }
+
+    private String key(String line) {
+      switch (whitespace) {
+        case IGNORE_TRAILING:
+          return CharMatcher.whitespace().trimTrailingFrom(line);
+        case IGNORE_LEADING_AND_TRAILING:
+          return CharMatcher.whitespace().trimFrom(line);
+        case IGNORE_ALL:
+          return CharMatcher.whitespace().removeFrom(line);
+        case IGNORE_NONE:
+        default:
+          return line;
+      }
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.Sets;
 import com.google.common.flogger.FluentLogger;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.BooleanProjectConfig;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
 import com.google.gerrit.server.patch.DiffUtil;
@@ -31,6 +32,8 @@ import com.google.gerrit.server.patch.gitdiff.GitModifiedFilesCache;
 import com.google.gerrit.server.patch.gitdiff.GitModifiedFilesCacheKey;
 import com.google.gerrit.server.patch.gitdiff.GitModifiedFilesLoader;
 import com.google.gerrit.server.patch.gitdiff.ModifiedFile;
+import com.google.gerrit.server.patch.gitdiff.RenameDetectionMetrics;
+import com.google.gerrit.server.project.ProjectCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.IOException;
@@ -67,10 +70,17 @@ public class ModifiedFilesLoader {
   @Singleton
   public static class Factory {
     private final GitModifiedFilesCache gitModifiedFilesCache;
+    private final ProjectCache projectCache;
+    private final RenameDetectionMetrics renameDetectionMetrics;
 
     @Inject
-    Factory(GitModifiedFilesCache gitModifiedFilesCache) {
+    Factory(
+        GitModifiedFilesCache gitModifiedFilesCache,
+        ProjectCache projectCache,
+        RenameDetectionMetrics renameDetectionMetrics) {
       this.gitModifiedFilesCache = gitModifiedFilesCache;
+      this.projectCache = projectCache;
+      this.renameDetectionMetrics = renameDetectionMetrics;
     }
 
     /**
@@ -80,7 +90,8 @@ public class ModifiedFilesLoader {
      * method.
      */
     public ModifiedFilesLoader create() {
-      return new ModifiedFilesLoader(/* gitModifiedFilesCache= */ null);
+      return new ModifiedFilesLoader(
+          /* gitModifiedFilesCache= */ null, projectCache, renameDetectionMetrics);
     }
 
     /**
@@ -99,16 +110,23 @@ public class ModifiedFilesLoader {
      * this class.
      */
     ModifiedFilesLoader createWithRetrievingModifiedFilesForTreesFromGitModifiedFilesCache() {
-      return new ModifiedFilesLoader(gitModifiedFilesCache);
+      return new ModifiedFilesLoader(gitModifiedFilesCache, projectCache, renameDetectionMetrics);
     }
   }
 
   @Nullable private final GitModifiedFilesCache gitModifiedFilesCache;
+  private final ProjectCache projectCache;
+  private final RenameDetectionMetrics renameDetectionMetrics;
 
   @Nullable private Integer renameScore = null;
 
-  ModifiedFilesLoader(@Nullable GitModifiedFilesCache gitModifiedFilesCache) {
+  ModifiedFilesLoader(
+      @Nullable GitModifiedFilesCache gitModifiedFilesCache,
+      ProjectCache projectCache,
+      RenameDetectionMetrics renameDetectionMetrics) {
     this.gitModifiedFilesCache = gitModifiedFilesCache;
+    this.projectCache = projectCache;
+    this.renameDetectionMetrics = renameDetectionMetrics;
   }
 
   /**
@@ -235,9 +253,14 @@ public class ModifiedFilesLoader {
       ObjectId baseTree,
       ObjectId newTree)
       throws IOException, DiffNotAvailableException {
+    boolean accelerated = renameScore != null && useAcceleratedRenameDetection(project);
     if (gitModifiedFilesCache != null) {
       GitModifiedFilesCacheKey.Builder cacheKeyBuilder =
-          GitModifiedFilesCacheKey.builder().project(project).aTree(baseTree).bTree(newTree);
+          GitModifiedFilesCacheKey.builder()
+              .project(project)
+              .aTree(baseTree)
+              .bTree(newTree)
+              .acceleratedRenameDetection(accelerated);
       if (renameScore != null) {
         cacheKeyBuilder.renameScore(renameScore);
       } else {
@@ -246,13 +269,24 @@ public class ModifiedFilesLoader {
       return gitModifiedFilesCache.get(cacheKeyBuilder.build());
     }
 
-    GitModifiedFilesLoader gitModifiedFilesLoader = new GitModifiedFilesLoader();
+    GitModifiedFilesLoader gitModifiedFilesLoader =
+        new GitModifiedFilesLoader().withMetrics(renameDetectionMetrics);
     if (renameScore != null) {
       gitModifiedFilesLoader.withRenameDetection(renameScore);
+      if (accelerated) {
+        gitModifiedFilesLoader.withAcceleratedRenameDetection();
+      }
     }
     return gitModifiedFilesLoader.load(repoConfig, reader, baseTree, newTree);
   }
 
+  private boolean useAcceleratedRenameDetection(Project.NameKey project) {
+    return projectCache
+        .get(project)
+        .map(p -> p.is(BooleanProjectConfig.ACCELERATED_RENAME_DETECTION))
+        .orElse(false);
+  }
+
   private ImmutableSet<String> getOldAndNewPaths(List<ModifiedFile> files) {
     return files.stream()
         .flatMap(file -> Stream.concat(file.oldPath().stream(), file.newPath().stream()))
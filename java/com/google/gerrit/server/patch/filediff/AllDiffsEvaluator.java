@@ -16,11 +16,14 @@ package com.google.gerrit.server.patch.filediff;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.BooleanProjectConfig;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
 import com.google.gerrit.server.patch.DiffUtil;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiff;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCache;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheKey;
+import com.google.gerrit.server.project.ProjectCache;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.io.IOException;
@@ -52,14 +55,17 @@ class AllDiffsEvaluator {
 
   private final RevWalk rw;
   private final GitFileDiffCache gitCache;
+  private final ProjectCache projectCache;
 
   interface Factory {
     AllDiffsEvaluator create(RevWalk rw);
   }
 
   @Inject
-  private AllDiffsEvaluator(GitFileDiffCache gitCache, @Assisted RevWalk rw) {
+  private AllDiffsEvaluator(
+      GitFileDiffCache gitCache, ProjectCache projectCache, @Assisted RevWalk rw) {
     this.gitCache = gitCache;
+    this.projectCache = projectCache;
     this.rw = rw;
   }
 
@@ -209,9 +215,21 @@ class AllDiffsEvaluator {
         .newTree(newTreeId)
         .newFilePath(pathNew == null ? key.newFilePath() : pathNew)
         .renameScore(key.renameScore())
+        .acceleratedRenameDetection(useAcceleratedRenameDetection(key.project()))
         .diffAlgorithm(key.diffAlgorithm())
         .whitespace(key.whitespace())
         .useTimeout(key.useTimeout())
         .build();
   }
+
+  /**
+   * Whether the renames of the file diffs are detected like the ones of the modified files, so that
+   * both agree on which files were renamed.
+   */
+  private boolean useAcceleratedRenameDetection(Project.NameKey project) {
+    return projectCache
+        .get(project)
+        .map(p -> p.is(BooleanProjectConfig.ACCELERATED_RENAME_DETECTION))
+        .orElse(false);
+  }
 }
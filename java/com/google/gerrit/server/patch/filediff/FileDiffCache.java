@@ -16,6 +16,7 @@ package com.google.gerrit.server.patch.filediff;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
+import java.util.Optional;
 
 /**
  * This cache computes the git diff for a single file path and adds some extra logic, e.g. for
@@ -42,4 +43,13 @@ public interface FileDiffCache {
    */
   ImmutableMap<FileDiffCacheKey, FileDiffOutput> getAll(Iterable<FileDiffCacheKey> keys)
       throws DiffNotAvailableException;
+
+  /**
+   * Returns the file diff for a single file path identified by its key if it is cached already,
+   * without computing it otherwise.
+   *
+   * @param key identifies two git commits, a specific file path and other diff parameters.
+   * @return the cached file diff, or an empty optional if the file diff is not cached.
+   */
+  Optional<FileDiffOutput> getIfPresent(FileDiffCacheKey key);
 }
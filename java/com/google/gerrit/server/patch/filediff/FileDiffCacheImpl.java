@@ -97,7 +97,7 @@ public class FileDiffCacheImpl implements FileDiffCache {
         persist(DIFF, FileDiffCacheKey.class, FileDiffOutput.class)
             .maximumWeight(10 << 20)
             .weigher(FileDiffWeigher.class)
-            .version(9)
+            .version(10)
             .keySerializer(FileDiffCacheKey.Serializer.INSTANCE)
             .valueSerializer(FileDiffOutput.Serializer.INSTANCE)
             .loader(FileDiffLoader.class);
@@ -142,6 +142,11 @@ public class FileDiffCacheImpl implements FileDiffCache {
     }
   }
 
+  @Override
+  public Optional<FileDiffOutput> getIfPresent(FileDiffCacheKey key) {
+    return Optional.ofNullable(cache.getIfPresent(key));
+  }
+
   static class FileDiffLoader extends CacheLoader<FileDiffCacheKey, FileDiffOutput> {
     private final GitRepositoryManager repoManager;
     private final AllDiffsEvaluator.Factory allDiffsEvaluatorFactory;
@@ -32,7 +32,6 @@ import com.google.gerrit.server.patch.ComparisonType;
 import com.google.protobuf.Descriptors.FieldDescriptor;
 import java.io.Serializable;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import org.eclipse.jgit.lib.ObjectId;
 
 /** File diff for a single file path. Produced as output of the {@link FileDiffCache}. */
@@ -185,7 +184,8 @@ public abstract class FileDiffOutput implements Serializable {
     if (oldPath().isPresent()) {
       result += stringSize(oldPath().get());
     }
-    if (newPath().isPresent()) {
+    if (newPath().isPresent() && !newPath().equals(oldPath())) {
+      // The deserializer shares the instance with the old path if the file was not renamed.
       result += stringSize(newPath().get());
     }
     result += 20 + 20; // old and new commit IDs
@@ -196,9 +196,11 @@ public abstract class FileDiffOutput implements Serializable {
     }
     result += 4 + 4; // insertions and deletions
     result += 4 + 4; // size and size delta
-    result += 20 * edits().size(); // each edit is 4 Integers + boolean = 4 * 4 + 4 = 20
+    // Each tagged edit is a TaggedEdit object (16) referencing an Edit object (32) of 4 integers,
+    // plus the reference in the list (8).
+    result += 56 * edits().size();
     for (String s : headerLines()) {
-      s += stringSize(s);
+      result += stringSize(s);
     }
     if (negative().isPresent()) {
       result += 1;
@@ -276,28 +278,18 @@ public abstract class FileDiffOutput implements Serializable {
               .setSizeDelta(fileDiff.sizeDelta())
               .addAllHeaderLines(fileDiff.headerLines())
               .setChangeType(fileDiff.changeType().name())
-              .addAllEdits(
-                  fileDiff.edits().stream()
-                      .map(
-                          e ->
-                              FileDiffOutputProto.TaggedEdit.newBuilder()
-                                  .setEdit(
-                                      FileDiffOutputProto.Edit.newBuilder()
-                                          .setBeginA(e.edit().beginA())
-                                          .setEndA(e.edit().endA())
-                                          .setBeginB(e.edit().beginB())
-                                          .setEndB(e.edit().endB())
-                                          .build())
-                                  .setDueToRebase(e.dueToRebase())
-                                  .build())
-                      .collect(Collectors.toList()));
+              .setPackedEdits(PackedEdits.packTagged(fileDiff.edits()));
 
       if (fileDiff.oldPath().isPresent()) {
         builder.setOldPath(fileDiff.oldPath().get());
       }
 
       if (fileDiff.newPath().isPresent()) {
-        builder.setNewPath(fileDiff.newPath().get());
+        if (fileDiff.newPath().equals(fileDiff.oldPath())) {
+          builder.setNewPathIsOldPath(true);
+        } else {
+          builder.setNewPath(fileDiff.newPath().get());
+        }
       }
 
       if (fileDiff.patchType().isPresent()) {
@@ -331,23 +323,17 @@ public abstract class FileDiffOutput implements Serializable {
           .sizeDelta(proto.getSizeDelta())
           .headerLines(proto.getHeaderLinesList().stream().collect(ImmutableList.toImmutableList()))
           .changeType(ChangeType.valueOf(proto.getChangeType()))
-          .edits(
-              proto.getEditsList().stream()
-                  .map(
-                      e ->
-                          TaggedEdit.create(
-                              Edit.create(
-                                  e.getEdit().getBeginA(),
-                                  e.getEdit().getEndA(),
-                                  e.getEdit().getBeginB(),
-                                  e.getEdit().getEndB()),
-                              e.getDueToRebase()))
-                  .collect(ImmutableList.toImmutableList()));
+          .edits(PackedEdits.unpackTagged(proto.getPackedEdits()));
 
+      Optional<String> oldPath = Optional.empty();
       if (proto.hasField(OLD_PATH_DESCRIPTOR)) {
-        builder.oldPath(Optional.of(proto.getOldPath()));
+        oldPath = Optional.of(proto.getOldPath());
+        builder.oldPath(oldPath);
       }
-      if (proto.hasField(NEW_PATH_DESCRIPTOR)) {
+      if (proto.getNewPathIsOldPath()) {
+        // Share the instance, most files are not renamed.
+        builder.newPath(oldPath);
+      } else if (proto.hasField(NEW_PATH_DESCRIPTOR)) {
         builder.newPath(Optional.of(proto.getNewPath()));
       }
       if (proto.hasField(PATCH_TYPE_DESCRIPTOR)) {
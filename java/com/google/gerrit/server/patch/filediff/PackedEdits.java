@@ -0,0 +1,172 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.filediff;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gerrit.common.Nullable;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compact encoding of edit lists for the persisted diff caches.
+ *
+ * <p>The edits are stored column by column as varints: first the begins of all edits in sequence A,
+ * then their lengths, then the same for sequence B. The edits of a file are sorted and don't
+ * overlap, so each begin is stored as distance to the end of the previous edit, which keeps almost
+ * all values within one or two bytes. The {@link TaggedEdit#dueToRebase()} flags are stored as a
+ * bit set at the end.
+ */
+public final class PackedEdits {
+  private static final int FORMAT_VERSION = 1;
+
+  /** Encodes the given edits. */
+  public static ByteString pack(List<Edit> edits) {
+    return encode(edits, null);
+  }
+
+  /** Encodes the given tagged edits. */
+  public static ByteString packTagged(List<TaggedEdit> edits) {
+    BitSet dueToRebase = new BitSet(edits.size());
+    for (int i = 0; i < edits.size(); i++) {
+      dueToRebase.set(i, edits.get(i).dueToRebase());
+    }
+    return encode(Lists.transform(edits, TaggedEdit::edit), dueToRebase);
+  }
+
+  /** Decodes edits that were encoded by {@link #pack(List)}. */
+  public static ImmutableList<Edit> unpack(ByteString packed) {
+    if (packed.isEmpty()) {
+      return ImmutableList.of();
+    }
+    CodedInputStream in = packed.newCodedInput();
+    try {
+      Columns c = Columns.read(in);
+      ImmutableList.Builder<Edit> edits = ImmutableList.builderWithExpectedSize(c.size);
+      for (int i = 0; i < c.size; i++) {
+        edits.add(c.edit(i));
+      }
+      return edits.build();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid packed edits", e);
+    }
+  }
+
+  /** Decodes tagged edits that were encoded by {@link #packTagged(List)}. */
+  public static ImmutableList<TaggedEdit> unpackTagged(ByteString packed) {
+    if (packed.isEmpty()) {
+      return ImmutableList.of();
+    }
+    CodedInputStream in = packed.newCodedInput();
+    try {
+      Columns c = Columns.read(in);
+      BitSet dueToRebase = BitSet.valueOf(in.readByteArray());
+      ImmutableList.Builder<TaggedEdit> edits = ImmutableList.builderWithExpectedSize(c.size);
+      for (int i = 0; i < c.size; i++) {
+        edits.add(TaggedEdit.create(c.edit(i), dueToRebase.get(i)));
+      }
+      return edits.build();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid packed edits", e);
+    }
+  }
+
+  private static ByteString encode(List<Edit> edits, @Nullable BitSet dueToRebase) {
+    if (edits.isEmpty()) {
+      return ByteString.EMPTY;
+    }
+    ByteString.Output out = ByteString.newOutput();
+    CodedOutputStream cos = CodedOutputStream.newInstance(out);
+    try {
+      cos.writeUInt32NoTag(FORMAT_VERSION);
+      cos.writeUInt32NoTag(edits.size());
+      int end = 0;
+      for (Edit e : edits) {
+        cos.writeSInt32NoTag(e.beginA() - end);
+        end = e.endA();
+      }
+      for (Edit e : edits) {
+        cos.writeSInt32NoTag(e.endA() - e.beginA());
+      }
+      end = 0;
+      for (Edit e : edits) {
+        cos.writeSInt32NoTag(e.beginB() - end);
+        end = e.endB();
+      }
+      for (Edit e : edits) {
+        cos.writeSInt32NoTag(e.endB() - e.beginB());
+      }
+      if (dueToRebase != null) {
+        cos.writeByteArrayNoTag(dueToRebase.toByteArray());
+      }
+      cos.flush();
+    } catch (IOException e) {
+      // Cannot happen, the output is kept in memory.
+      throw new IllegalStateException(e);
+    }
+    return out.toByteString();
+  }
+
+  private static class Columns {
+    final int size;
+    final int[] beginA;
+    final int[] endA;
+    final int[] beginB;
+    final int[] endB;
+
+    static Columns read(CodedInputStream in) throws IOException {
+      int version = in.readUInt32();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported format version " + version);
+      }
+      Columns c = new Columns(in.readUInt32());
+      readSide(in, c.beginA, c.endA);
+      readSide(in, c.beginB, c.endB);
+      return c;
+    }
+
+    private static void readSide(CodedInputStream in, int[] begin, int[] end) throws IOException {
+      // The begins are stored relative to the end of the previous edit, which is only known once
+      // the lengths were read.
+      for (int i = 0; i < begin.length; i++) {
+        begin[i] = in.readSInt32();
+      }
+      int prevEnd = 0;
+      for (int i = 0; i < begin.length; i++) {
+        begin[i] += prevEnd;
+        end[i] = begin[i] + in.readSInt32();
+        prevEnd = end[i];
+      }
+    }
+
+    private Columns(int size) {
+      this.size = size;
+      beginA = new int[size];
+      endA = new int[size];
+      beginB = new int[size];
+      endB = new int[size];
+    }
+
+    Edit edit(int i) {
+      return Edit.create(beginA[i], endA[i], beginB[i], endB[i]);
+    }
+  }
+
+  private PackedEdits() {}
+}
@@ -0,0 +1,404 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitdiff;
+
+import static java.util.Comparator.comparing;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.SimilarityIndex;
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+/**
+ * Rename detection for diffs that add and delete many files, e.g. when a directory is moved.
+ *
+ * <p>JGit's {@link org.eclipse.jgit.diff.RenameDetector} scores every added file against every
+ * deleted file, which is quadratic in the number of files. This detector instead:
+ *
+ * <ol>
+ *   <li>pairs files with identical content by their blob ID,
+ *   <li>computes a MinHash signature over the lines of each remaining text file and uses locality
+ *       sensitive hashing to find the pairs of files that are likely to be similar,
+ *   <li>scores only these candidate pairs with JGit's {@link SimilarityIndex}, the most promising
+ *       ones first and at most {@link #MAX_SCORED_PAIRS} of them.
+ * </ol>
+ *
+ * <p>Pairs whose content is similar but that share no LSH band are not detected, so for files
+ * close to the rename score the result may differ from the one of JGit.
+ */
+public class AcceleratedRenameDetector {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Content renames are not detected if more files than this were added and deleted. */
+  @VisibleForTesting static final int MAX_FILES = 20_000;
+
+  /** Maximum number of candidate pairs whose similarity is computed. */
+  @VisibleForTesting static final int MAX_SCORED_PAIRS = 50_000;
+
+  /** Files larger than this are only detected as exact renames. */
+  private static final int MAX_FILE_SIZE = 1 << 20;
+
+  /**
+   * Buckets with more files than this are ignored, they only contain very common lines. Ignoring a
+   * bucket truncates the rename detection, since it may hide the only band shared by similar files.
+   */
+  private static final int MAX_BUCKET_SIZE = 64;
+
+  private static final int BANDS = 16;
+  private static final int ROWS = 2;
+  private static final long[] SEEDS = new SplittableRandom(0x5eed).longs(BANDS * ROWS).toArray();
+
+  private final ObjectReader reader;
+  private final int renameScore;
+  private boolean truncated;
+
+  public AcceleratedRenameDetector(ObjectReader reader, int renameScore) {
+    this.reader = reader;
+    this.renameScore = renameScore;
+  }
+
+  /** Whether content rename detection was cut short because of the limits on the work. */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * Pairs the added and deleted files of the given entries to renames and copies.
+   *
+   * @param entries the entries of a diff without rename detection.
+   * @return the entries with renames and copies, sorted by path.
+   */
+  public List<DiffEntry> compute(List<DiffEntry> entries) throws IOException {
+    List<DiffEntry> result = new ArrayList<>(entries.size());
+    List<DiffEntry> added = new ArrayList<>();
+    List<DiffEntry> deleted = new ArrayList<>();
+    for (DiffEntry e : entries) {
+      switch (e.getChangeType()) {
+        case ADD -> added.add(e);
+        case DELETE -> deleted.add(e);
+        default -> result.add(e);
+      }
+    }
+
+    Set<DiffEntry> usedSources = Sets.newIdentityHashSet();
+    added = matchExact(added, deleted, usedSources, result);
+    deleted = deleted.stream().filter(d -> !usedSources.contains(d)).toList();
+    if (!added.isEmpty() && !deleted.isEmpty()) {
+      if (added.size() + deleted.size() > MAX_FILES) {
+        truncated = true;
+      } else {
+        Set<DiffEntry> matched = matchContent(added, deleted, result);
+        added = added.stream().filter(a -> !matched.contains(a)).toList();
+        deleted = deleted.stream().filter(d -> !matched.contains(d)).toList();
+      }
+    }
+    result.addAll(added);
+    result.addAll(deleted);
+    result.sort(comparing(AcceleratedRenameDetector::path));
+    return result;
+  }
+
+  /** Pairs added files with deleted files of the same blob and returns the unpaired added files. */
+  private static List<DiffEntry> matchExact(
+      List<DiffEntry> added,
+      List<DiffEntry> deleted,
+      Set<DiffEntry> usedSources,
+      List<DiffEntry> result) {
+    ListMultimap<ObjectId, DiffEntry> deletedById = ArrayListMultimap.create();
+    for (DiffEntry d : deleted) {
+      deletedById.put(d.getOldId().toObjectId(), d);
+    }
+    List<DiffEntry> unmatched = new ArrayList<>();
+    for (DiffEntry a : added) {
+      List<DiffEntry> sources =
+          deletedById.get(a.getNewId().toObjectId()).stream()
+              .filter(d -> sameType(d.getOldMode(), a.getNewMode()))
+              .toList();
+      if (sources.isEmpty()) {
+        unmatched.add(a);
+        continue;
+      }
+      Optional<DiffEntry> unused =
+          sources.stream().filter(s -> !usedSources.contains(s)).findFirst();
+      if (unused.isPresent()) {
+        usedSources.add(unused.get());
+        result.add(new Pair(ChangeType.RENAME, unused.get(), a, 100));
+      } else {
+        result.add(new Pair(ChangeType.COPY, sources.get(0), a, 100));
+      }
+    }
+    return unmatched;
+  }
+
+  /**
+   * Pairs similar added and deleted files and returns all files that were paired.
+   *
+   * <p>Like JGit, an added file is paired with the most similar deleted file. If that deleted file
+   * was already renamed, the added file is a copy of it.
+   */
+  private Set<DiffEntry> matchContent(
+      List<DiffEntry> added, List<DiffEntry> deleted, List<DiffEntry> result) throws IOException {
+    Map<DiffEntry, long[]> signatures = new HashMap<>();
+    for (DiffEntry e : added) {
+      putSignature(signatures, e, e.getNewId().toObjectId(), e.getNewMode());
+    }
+    for (DiffEntry e : deleted) {
+      putSignature(signatures, e, e.getOldId().toObjectId(), e.getOldMode());
+    }
+
+    List<Candidate> candidates = findCandidates(added, deleted, signatures);
+    candidates.sort(comparing((Candidate c) -> -c.similarity).thenComparing(c -> path(c.dst)));
+    if (candidates.size() > MAX_SCORED_PAIRS) {
+      truncated = true;
+      candidates = candidates.subList(0, MAX_SCORED_PAIRS);
+    }
+
+    Map<DiffEntry, SimilarityIndex> indexes = new HashMap<>();
+    List<Candidate> matches = new ArrayList<>();
+    for (Candidate c : candidates) {
+      SimilarityIndex src = index(indexes, c.src, c.src.getOldId().toObjectId());
+      SimilarityIndex dst = index(indexes, c.dst, c.dst.getNewId().toObjectId());
+      if (src != null && dst != null) {
+        int score = src.score(dst, 100);
+        if (score >= renameScore) {
+          matches.add(new Candidate(c.src, c.dst, score));
+        }
+      }
+    }
+    matches.sort(
+        comparing((Candidate c) -> -c.similarity)
+            .thenComparing(c -> path(c.dst))
+            .thenComparing(c -> path(c.src)));
+
+    Set<DiffEntry> matched = Sets.newIdentityHashSet();
+    Set<DiffEntry> renamedSources = Sets.newIdentityHashSet();
+    for (Candidate m : matches) {
+      if (matched.contains(m.dst)) {
+        continue;
+      }
+      matched.add(m.dst);
+      if (renamedSources.add(m.src)) {
+        matched.add(m.src);
+        result.add(new Pair(ChangeType.RENAME, m.src, m.dst, m.similarity));
+      } else {
+        result.add(new Pair(ChangeType.COPY, m.src, m.dst, m.similarity));
+      }
+    }
+    return matched;
+  }
+
+  /** Returns the pairs of added and deleted files that share at least one band of signature. */
+  private List<Candidate> findCandidates(
+      List<DiffEntry> added, List<DiffEntry> deleted, Map<DiffEntry, long[]> signatures) {
+    Set<Candidate> candidates = new HashSet<>();
+    for (int band = 0; band < BANDS; band++) {
+      ListMultimap<Long, DiffEntry> addedByBand = bucket(added, signatures, band);
+      ListMultimap<Long, DiffEntry> deletedByBand = bucket(deleted, signatures, band);
+      for (Long bucket : addedByBand.keySet()) {
+        List<DiffEntry> dsts = addedByBand.get(bucket);
+        List<DiffEntry> srcs = deletedByBand.get(bucket);
+        if (srcs.isEmpty()) {
+          continue;
+        }
+        if (dsts.size() > MAX_BUCKET_SIZE || srcs.size() > MAX_BUCKET_SIZE) {
+          truncated = true;
+          continue;
+        }
+        for (DiffEntry dst : dsts) {
+          for (DiffEntry src : srcs) {
+            if (sameType(src.getOldMode(), dst.getNewMode())) {
+              candidates.add(
+                  new Candidate(src, dst, estimate(signatures.get(src), signatures.get(dst))));
+            }
+          }
+        }
+      }
+    }
+    return new ArrayList<>(candidates);
+  }
+
+  private static ListMultimap<Long, DiffEntry> bucket(
+      Collection<DiffEntry> entries, Map<DiffEntry, long[]> signatures, int band) {
+    ListMultimap<Long, DiffEntry> buckets = ArrayListMultimap.create();
+    for (DiffEntry e : entries) {
+      long[] signature = signatures.get(e);
+      if (signature != null) {
+        long h = band;
+        for (int row = 0; row < ROWS; row++) {
+          h = 31 * h + signature[band * ROWS + row];
+        }
+        buckets.put(h, e);
+      }
+    }
+    return buckets;
+  }
+
+  /** Estimated similarity in percent, as the share of equal MinHash values. */
+  private static int estimate(long[] a, long[] b) {
+    int equal = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == b[i]) {
+        equal++;
+      }
+    }
+    return equal * 100 / a.length;
+  }
+
+  private void putSignature(
+      Map<DiffEntry, long[]> signatures, DiffEntry e, ObjectId id, FileMode mode)
+      throws IOException {
+    if (!isFile(mode)) {
+      return;
+    }
+    byte[] content = read(id);
+    if (content == null || content.length == 0 || RawText.isBinary(content)) {
+      return;
+    }
+    signatures.put(e, signature(content));
+  }
+
+  /** Computes the MinHash signature of the set of lines of the given text. */
+  @VisibleForTesting
+  static long[] signature(byte[] content) {
+    long[] signature = new long[SEEDS.length];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    int start = 0;
+    while (start < content.length) {
+      long h = 1125899906842597L;
+      int end = start;
+      for (; end < content.length && content[end] != '\n'; end++) {
+        if (content[end] != '\r') {
+          h = 31 * h + content[end];
+        }
+      }
+      for (int i = 0; i < SEEDS.length; i++) {
+        long v = mix(h ^ SEEDS[i]);
+        if (v < signature[i]) {
+          signature[i] = v;
+        }
+      }
+      start = end + 1;
+    }
+    return signature;
+  }
+
+  private static long mix(long h) {
+    // Finalizer of MurmurHash3, so that each seed yields an independent permutation.
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  @Nullable
+  private SimilarityIndex index(Map<DiffEntry, SimilarityIndex> indexes, DiffEntry e, ObjectId id)
+      throws IOException {
+    if (indexes.containsKey(e)) {
+      return indexes.get(e);
+    }
+    SimilarityIndex index;
+    try {
+      index = SimilarityIndex.create(reader.open(id, Constants.OBJ_BLOB));
+    } catch (SimilarityIndex.TableFullException ex) {
+      logger.atFine().log("Skipping rename detection for %s: %s", path(e), ex.getMessage());
+      index = null;
+    }
+    indexes.put(e, index);
+    return index;
+  }
+
+  @Nullable
+  private byte[] read(ObjectId id) throws IOException {
+    try {
+      return reader.open(id, Constants.OBJ_BLOB).getCachedBytes(MAX_FILE_SIZE);
+    } catch (LargeObjectException e) {
+      return null;
+    }
+  }
+
+  private static boolean isFile(FileMode mode) {
+    return mode.getObjectType() == Constants.OBJ_BLOB && mode != FileMode.SYMLINK;
+  }
+
+  private static boolean sameType(FileMode a, FileMode b) {
+    return (a.getBits() & FileMode.TYPE_MASK) == (b.getBits() & FileMode.TYPE_MASK);
+  }
+
+  private static String path(DiffEntry e) {
+    return e.getChangeType() == ChangeType.DELETE ? e.getOldPath() : e.getNewPath();
+  }
+
+  private static class Candidate {
+    final DiffEntry src;
+    final DiffEntry dst;
+
+    /** Estimated or computed similarity in percent. */
+    final int similarity;
+
+    Candidate(DiffEntry src, DiffEntry dst, int similarity) {
+      this.src = src;
+      this.dst = dst;
+      this.similarity = similarity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Candidate c && c.src == src && c.dst == dst;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(src) + System.identityHashCode(dst);
+    }
+  }
+
+  /** A rename or copy of a deleted file to an added file. */
+  private static class Pair extends DiffEntry {
+    Pair(ChangeType changeType, DiffEntry src, DiffEntry dst, int score) {
+      this.changeType = changeType;
+      this.oldPath = src.getOldPath();
+      this.oldId = src.getOldId();
+      this.oldMode = src.getOldMode();
+      this.newPath = dst.getNewPath();
+      this.newId = dst.getNewId();
+      this.newMode = dst.getNewMode();
+      this.score = score;
+    }
+  }
+}
@@ -84,19 +84,25 @@ public class GitModifiedFilesCacheImpl implements GitModifiedFilesCache {
 
   static class Loader extends CacheLoader<GitModifiedFilesCacheKey, ImmutableList<ModifiedFile>> {
     private final GitRepositoryManager repoManager;
+    private final RenameDetectionMetrics renameDetectionMetrics;
 
     @Inject
-    Loader(GitRepositoryManager repoManager) {
+    Loader(GitRepositoryManager repoManager, RenameDetectionMetrics renameDetectionMetrics) {
       this.repoManager = repoManager;
+      this.renameDetectionMetrics = renameDetectionMetrics;
     }
 
     @Override
     public ImmutableList<ModifiedFile> load(GitModifiedFilesCacheKey key) throws IOException {
       try (Repository repo = repoManager.openRepository(key.project());
           ObjectReader reader = repo.newObjectReader()) {
-        GitModifiedFilesLoader loader = new GitModifiedFilesLoader();
+        GitModifiedFilesLoader loader =
+            new GitModifiedFilesLoader().withMetrics(renameDetectionMetrics);
         if (key.renameDetection()) {
           loader.withRenameDetection(key.renameScore());
+          if (key.acceleratedRenameDetection()) {
+            loader.withAcceleratedRenameDetection();
+          }
         }
         return loader.load(repo.getConfig(), reader, key.aTree(), key.bTree());
       }
@@ -63,6 +63,12 @@ public abstract class GitModifiedFilesCacheKey {
     return renameScore() != -1;
   }
 
+  /**
+   * Whether renames are detected with the {@link AcceleratedRenameDetector} rather than with JGit's
+   * rename detector. Only relevant if {@link #renameDetection()} is true.
+   */
+  public abstract boolean acceleratedRenameDetection();
+
   public static GitModifiedFilesCacheKey create(
       Project.NameKey project, ObjectId aCommit, ObjectId bCommit, int renameScore, RevWalk rw)
       throws IOException {
@@ -72,14 +78,15 @@ public abstract class GitModifiedFilesCacheKey {
   }
 
   public static Builder builder() {
-    return new AutoValue_GitModifiedFilesCacheKey.Builder();
+    return new AutoValue_GitModifiedFilesCacheKey.Builder().acceleratedRenameDetection(false);
   }
 
   /** Returns the size of the object in bytes */
   public int weight() {
     return stringSize(project().get())
         + 20 * 2 // old and new tree IDs
-        + 4; // rename score
+        + 4 // rename score
+        + 1; // accelerated rename detection
   }
 
   @AutoValue.Builder
@@ -93,6 +100,8 @@ public abstract class GitModifiedFilesCacheKey {
 
     public abstract Builder renameScore(int value);
 
+    public abstract Builder acceleratedRenameDetection(boolean value);
+
     @CanIgnoreReturnValue
     public Builder disableRenameDetection() {
       renameScore(-1);
@@ -114,6 +123,7 @@ public abstract class GitModifiedFilesCacheKey {
               .setATree(idConverter.toByteString(key.aTree()))
               .setBTree(idConverter.toByteString(key.bTree()))
               .setRenameScore(key.renameScore())
+              .setAcceleratedRenameDetection(key.acceleratedRenameDetection())
               .build());
     }
 
@@ -126,6 +136,7 @@ public abstract class GitModifiedFilesCacheKey {
           .aTree(idConverter.fromByteString(proto.getATree()))
           .bTree(idConverter.fromByteString(proto.getBTree()))
           .renameScore(proto.getRenameScore())
+          .acceleratedRenameDetection(proto.getAcceleratedRenameDetection())
           .build();
     }
   }
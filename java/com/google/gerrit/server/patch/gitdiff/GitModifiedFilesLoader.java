@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Patch;
+import com.google.gerrit.metrics.Timer1;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -37,7 +38,9 @@ import org.eclipse.jgit.util.io.DisabledOutputStream;
 /**
  * /** Class to load the files that have been modified between two Git trees.
  *
- * <p>Rename detection is off unless {@link #withRenameDetection(int)} is called.
+ * <p>Rename detection is off unless {@link #withRenameDetection(int)} is called. By default renames
+ * are detected with JGit's {@link org.eclipse.jgit.diff.RenameDetector}, {@link
+ * #withAcceleratedRenameDetection()} selects the {@link AcceleratedRenameDetector} instead.
  *
  * <p>The commits and the commit trees are looked up via the {@link RevWalk} instance that is
  * provided to the {@link #load(Config, ObjectReader, ObjectId, ObjectId)} method.
@@ -57,6 +60,8 @@ public class GitModifiedFilesLoader {
           Patch.ChangeType.COPIED);
 
   @Nullable private Integer renameScore = null;
+  private boolean acceleratedRenameDetection;
+  @Nullable private RenameDetectionMetrics metrics;
 
   /**
    * Enables rename detection
@@ -70,6 +75,23 @@ public class GitModifiedFilesLoader {
     return this;
   }
 
+  /**
+   * Detects renames with the {@link AcceleratedRenameDetector}. Only has an effect if rename
+   * detection is enabled by {@link #withRenameDetection(int)}.
+   */
+  @CanIgnoreReturnValue
+  public GitModifiedFilesLoader withAcceleratedRenameDetection() {
+    this.acceleratedRenameDetection = true;
+    return this;
+  }
+
+  /** Records the latency of the rename detection in the given metrics. */
+  @CanIgnoreReturnValue
+  public GitModifiedFilesLoader withMetrics(RenameDetectionMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
   /**
    * Loads the files that have been modified between {@code aTree} and {@code bTree}.
    *
@@ -77,7 +99,16 @@ public class GitModifiedFilesLoader {
    */
   public ImmutableList<ModifiedFile> load(
       Config repoConfig, ObjectReader reader, ObjectId aTree, ObjectId bTree) throws IOException {
-    List<DiffEntry> entries = getGitTreeDiff(repoConfig, reader, aTree, bTree);
+    List<DiffEntry> entries;
+    if (renameScore == null) {
+      entries = getGitTreeDiff(repoConfig, reader, aTree, bTree);
+    } else {
+      String detector = acceleratedRenameDetection ? "accelerated" : "default";
+      try (Timer1.Context<String> ignored =
+          metrics != null ? metrics.latency.start(detector) : null) {
+        entries = getGitTreeDiff(repoConfig, reader, aTree, bTree);
+      }
+    }
     return entries.stream().map(GitModifiedFilesLoader::toModifiedFile).collect(toImmutableList());
   }
 
@@ -85,6 +116,16 @@ public class GitModifiedFilesLoader {
       Config repoConfig, ObjectReader reader, ObjectId aTree, ObjectId bTree) throws IOException {
     try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
       df.setReader(reader, repoConfig);
+      if (renameScore != null && acceleratedRenameDetection) {
+        AcceleratedRenameDetector renameDetector =
+            new AcceleratedRenameDetector(reader, renameScore);
+        List<DiffEntry> entries =
+            renameDetector.compute(df.scan(aTree.equals(ObjectId.zeroId()) ? null : aTree, bTree));
+        if (renameDetector.isTruncated() && metrics != null) {
+          metrics.truncated.increment();
+        }
+        return entries;
+      }
       if (renameScore != null) {
         df.setDetectRenames(true);
         df.getRenameDetector().setRenameScore(renameScore);
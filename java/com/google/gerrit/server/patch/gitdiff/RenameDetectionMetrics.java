@@ -0,0 +1,51 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitdiff;
+
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/** Metrics of the rename detection done by {@link GitModifiedFilesLoader}. */
+@Singleton
+public class RenameDetectionMetrics {
+  final Timer1<String> latency;
+  final Counter0 truncated;
+
+  @Inject
+  RenameDetectionMetrics(MetricMaker metricMaker) {
+    latency =
+        metricMaker.newTimer(
+            "diff/rename_detection/latency",
+            new Description("Latency for listing the modified files of a diff with renames")
+                .setCumulative()
+                .setUnit(Units.MILLISECONDS),
+            Field.ofString("detector", (metadataBuilder, fieldValue) -> {})
+                .description("The rename detector, \"default\" or \"accelerated\".")
+                .build());
+    truncated =
+        metricMaker.newCounter(
+            "diff/rename_detection/truncated",
+            new Description(
+                    "Number of accelerated rename detections that stopped early because of the"
+                        + " limits on the work")
+                .setRate());
+  }
+}
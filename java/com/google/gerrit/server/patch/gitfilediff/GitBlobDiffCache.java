@@ -0,0 +1,291 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitfilediff;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Converter;
+import com.google.common.base.Enums;
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.proto.Protos;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.cache.proto.Cache.GitBlobDiffKeyProto;
+import com.google.gerrit.server.cache.proto.Cache.GitBlobDiffProto;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
+import com.google.gerrit.server.patch.filediff.Edit;
+import com.google.gerrit.server.patch.filediff.PackedEdits;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Content-addressed cache of the edits between two blobs.
+ *
+ * <p>The edits between two blobs only depend on the content of the blobs, the whitespace mode and
+ * the diff algorithm, but not on the project, the commits or the file paths. Entries of this cache
+ * are hence shared by all {@link GitFileDiffCacheKey}s that diff the same blob pair, e.g. the same
+ * file in different forks of a repository or an unmodified file of a rebased patchset.
+ *
+ * <p>The cache is consulted by the {@link BlobPairDiffAlgorithm} which {@link GitFileDiffCacheImpl}
+ * uses to compute git file diffs. The file header, paths and modes are still derived from the
+ * actual diff entry, only the computation of the edits is skipped.
+ */
+@Singleton
+public class GitBlobDiffCache {
+  static final String CACHE_NAME = "git_blob_diff";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        persist(CACHE_NAME, Key.class, new TypeLiteral<ImmutableList<Edit>>() {})
+            .keySerializer(Key.Serializer.INSTANCE)
+            .valueSerializer(EditsSerializer.INSTANCE)
+            .maximumWeight(10 << 20)
+            .weigher(BlobDiffWeigher.class)
+            .version(1);
+      }
+    };
+  }
+
+  @Singleton
+  static class Metrics {
+    final Counter0 hits;
+    final Counter0 misses;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      hits =
+          metricMaker.newCounter(
+              "caches/diff/blob_pair/hits",
+              new Description(
+                      "Total number of git file diffs whose edits were reused from the diff of an"
+                          + " identical blob pair.")
+                  .setRate()
+                  .setUnit("count"));
+      misses =
+          metricMaker.newCounter(
+              "caches/diff/blob_pair/misses",
+              new Description(
+                      "Total number of git file diffs whose edits had to be computed because no"
+                          + " diff of an identical blob pair was cached.")
+                  .setRate()
+                  .setUnit("count"));
+    }
+  }
+
+  /** Identifies the diff of two blobs. */
+  @AutoValue
+  public abstract static class Key {
+    public abstract ObjectId oldBlob();
+
+    public abstract ObjectId newBlob();
+
+    public abstract Whitespace whitespace();
+
+    public abstract DiffAlgorithm diffAlgorithm();
+
+    public static Key create(
+        ObjectId oldBlob, ObjectId newBlob, Whitespace whitespace, DiffAlgorithm diffAlgorithm) {
+      return new AutoValue_GitBlobDiffCache_Key(
+          oldBlob.copy(), newBlob.copy(), whitespace, diffAlgorithm);
+    }
+
+    int weight() {
+      return 2 * 20 // oldBlob, newBlob
+          + 4 // whitespace
+          + 4; // diffAlgorithm
+    }
+
+    enum Serializer implements CacheSerializer<Key> {
+      INSTANCE;
+
+      private static final Converter<String, DiffAlgorithm> DIFF_ALGORITHM_CONVERTER =
+          Enums.stringConverter(DiffAlgorithm.class);
+
+      private static final Converter<String, Whitespace> WHITESPACE_CONVERTER =
+          Enums.stringConverter(Whitespace.class);
+
+      @Override
+      public byte[] serialize(Key key) {
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        return Protos.toByteArray(
+            GitBlobDiffKeyProto.newBuilder()
+                .setOldBlob(idConverter.toByteString(key.oldBlob()))
+                .setNewBlob(idConverter.toByteString(key.newBlob()))
+                .setWhitespace(WHITESPACE_CONVERTER.reverse().convert(key.whitespace()))
+                .setDiffAlgorithm(DIFF_ALGORITHM_CONVERTER.reverse().convert(key.diffAlgorithm()))
+                .build());
+      }
+
+      @Override
+      public Key deserialize(byte[] in) {
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        GitBlobDiffKeyProto proto = Protos.parseUnchecked(GitBlobDiffKeyProto.parser(), in);
+        return create(
+            idConverter.fromByteString(proto.getOldBlob()),
+            idConverter.fromByteString(proto.getNewBlob()),
+            WHITESPACE_CONVERTER.convert(proto.getWhitespace()),
+            DIFF_ALGORITHM_CONVERTER.convert(proto.getDiffAlgorithm()));
+      }
+    }
+  }
+
+  enum EditsSerializer implements CacheSerializer<ImmutableList<Edit>> {
+    INSTANCE;
+
+    @Override
+    public byte[] serialize(ImmutableList<Edit> edits) {
+      return Protos.toByteArray(
+          GitBlobDiffProto.newBuilder().setPackedEdits(PackedEdits.pack(edits)).build());
+    }
+
+    @Override
+    public ImmutableList<Edit> deserialize(byte[] in) {
+      return PackedEdits.unpack(
+          Protos.parseUnchecked(GitBlobDiffProto.parser(), in).getPackedEdits());
+    }
+  }
+
+  public static class BlobDiffWeigher implements Weigher<Key, ImmutableList<Edit>> {
+    @Override
+    public int weigh(Key key, ImmutableList<Edit> edits) {
+      // Each edit is an object (32) of 4 integers, plus the reference in the list (8).
+      return key.weight() + 40 * edits.size();
+    }
+  }
+
+  private final Cache<Key, ImmutableList<Edit>> cache;
+  private final Metrics metrics;
+
+  @Inject
+  GitBlobDiffCache(@Named(CACHE_NAME) Cache<Key, ImmutableList<Edit>> cache, Metrics metrics) {
+    this.cache = cache;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Wraps the given diff algorithm so that it reuses and stores the edits of the blob pairs which
+   * are set with {@link BlobPairDiffAlgorithm#setDiffEntry(DiffEntry)}.
+   */
+  BlobPairDiffAlgorithm wrap(
+      org.eclipse.jgit.diff.DiffAlgorithm delegate,
+      Whitespace whitespace,
+      DiffAlgorithm diffAlgorithm) {
+    return new BlobPairDiffAlgorithm(delegate, whitespace, diffAlgorithm);
+  }
+
+  /**
+   * Diff algorithm that looks up the edits of the current blob pair in the {@link
+   * GitBlobDiffCache} and stores computed edits in it, unless the computation was cancelled.
+   *
+   * <p>Instances are not thread-safe; each one must only be used by one {@link
+   * org.eclipse.jgit.diff.DiffFormatter} at a time.
+   */
+  class BlobPairDiffAlgorithm extends org.eclipse.jgit.diff.DiffAlgorithm {
+    private final org.eclipse.jgit.diff.DiffAlgorithm delegate;
+    private final Whitespace whitespace;
+    private final DiffAlgorithm diffAlgorithm;
+    @Nullable private Key currentKey;
+
+    private BlobPairDiffAlgorithm(
+        org.eclipse.jgit.diff.DiffAlgorithm delegate,
+        Whitespace whitespace,
+        DiffAlgorithm diffAlgorithm) {
+      this.delegate = delegate;
+      this.whitespace = whitespace;
+      this.diffAlgorithm = diffAlgorithm;
+    }
+
+    /**
+     * Sets the diff entry whose blobs are diffed next. Blob pairs that are cheap to diff (e.g. of
+     * added or deleted files) are not cached.
+     *
+     * @param diffEntry the diff entry, or {@code null} to stop using the cache
+     */
+    void setDiffEntry(@Nullable DiffEntry diffEntry) {
+      currentKey = null;
+      if (diffEntry != null && isCacheable(diffEntry.getOldId(), diffEntry.getNewId())) {
+        currentKey =
+            Key.create(
+                diffEntry.getOldId().toObjectId(),
+                diffEntry.getNewId().toObjectId(),
+                whitespace,
+                diffAlgorithm);
+      }
+    }
+
+    @Override
+    public <S extends Sequence> EditList diff(SequenceComparator<? super S> cmp, S a, S b) {
+      Key key = currentKey;
+      if (key == null) {
+        return delegate.diff(cmp, a, b);
+      }
+      ImmutableList<Edit> cached = cache.getIfPresent(key);
+      if (cached != null) {
+        metrics.hits.increment();
+        return toEditList(cached);
+      }
+      metrics.misses.increment();
+      EditList edits = delegate.diff(cmp, a, b);
+      // The file diff computation is cancelled with an interrupt once its timeout is reached. The
+      // edits of such a computation are not stored, like the negative result of the file diff.
+      if (!Thread.currentThread().isInterrupted()) {
+        cache.put(key, edits.stream().map(Edit::fromJGitEdit).collect(toImmutableList()));
+      }
+      return edits;
+    }
+
+    @Override
+    public <S extends Sequence> EditList diffNonCommon(
+        SequenceComparator<? super S> cmp, S a, S b) {
+      return delegate.diffNonCommon(cmp, a, b);
+    }
+  }
+
+  private static EditList toEditList(ImmutableList<Edit> edits) {
+    EditList editList = new EditList(edits.size());
+    edits.stream().map(Edit::toJGitEdit).forEach(editList::add);
+    return editList;
+  }
+
+  private static boolean isCacheable(AbbreviatedObjectId oldId, AbbreviatedObjectId newId) {
+    return oldId != null
+        && newId != null
+        && oldId.isComplete()
+        && newId.isComplete()
+        && !oldId.equals(newId)
+        && !oldId.toObjectId().equals(ObjectId.zeroId())
+        && !newId.toObjectId().equals(ObjectId.zeroId());
+  }
+}
@@ -30,6 +30,7 @@ import com.google.gerrit.server.cache.proto.Cache.GitFileDiffProto;
 import com.google.gerrit.server.cache.serialize.CacheSerializer;
 import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
 import com.google.gerrit.server.patch.filediff.Edit;
+import com.google.gerrit.server.patch.filediff.PackedEdits;
 import com.google.protobuf.Descriptors.FieldDescriptor;
 import java.util.Optional;
 import org.eclipse.jgit.diff.DiffEntry;
@@ -168,12 +169,14 @@ public abstract class GitFileDiff {
   /** Returns the size of the object in bytes. */
   public int weight() {
     int result = 20 * 2; // oldId and newId
-    result += 16 * edits().size(); // each edit contains 4 integers (hence 16 bytes)
+    // Each edit is an object (32) of 4 integers, plus the reference in the list (8).
+    result += 40 * edits().size();
     result += stringSize(fileHeader());
     if (oldPath().isPresent()) {
       result += stringSize(oldPath().get());
     }
-    if (newPath().isPresent()) {
+    if (newPath().isPresent() && !newPath().equals(oldPath())) {
+      // The deserializer shares the instance with the old path if the file was not renamed.
       result += stringSize(newPath().get());
     }
     result += 4;
@@ -268,22 +271,17 @@ public abstract class GitFileDiff {
               .setFileHeader(gitFileDiff.fileHeader())
               .setOldId(idConverter.toByteString(gitFileDiff.oldId().toObjectId()))
               .setNewId(idConverter.toByteString(gitFileDiff.newId().toObjectId()))
-              .setChangeType(CHANGE_TYPE_CONVERTER.reverse().convert(gitFileDiff.changeType()));
-      gitFileDiff
-          .edits()
-          .forEach(
-              e ->
-                  builder.addEdits(
-                      GitFileDiffProto.Edit.newBuilder()
-                          .setBeginA(e.beginA())
-                          .setEndA(e.endA())
-                          .setBeginB(e.beginB())
-                          .setEndB(e.endB())));
+              .setChangeType(CHANGE_TYPE_CONVERTER.reverse().convert(gitFileDiff.changeType()))
+              .setPackedEdits(PackedEdits.pack(gitFileDiff.edits()));
       if (gitFileDiff.oldPath().isPresent()) {
         builder.setOldPath(gitFileDiff.oldPath().get());
       }
       if (gitFileDiff.newPath().isPresent()) {
-        builder.setNewPath(gitFileDiff.newPath().get());
+        if (gitFileDiff.newPath().equals(gitFileDiff.oldPath())) {
+          builder.setNewPathIsOldPath(true);
+        } else {
+          builder.setNewPath(gitFileDiff.newPath().get());
+        }
       }
       if (gitFileDiff.oldMode().isPresent()) {
         builder.setOldMode(FILE_MODE_CONVERTER.reverse().convert(gitFileDiff.oldMode().get()));
@@ -306,19 +304,21 @@ public abstract class GitFileDiff {
       GitFileDiffProto proto = Protos.parseUnchecked(GitFileDiffProto.parser(), in);
       GitFileDiff.Builder builder = GitFileDiff.builder();
       builder
-          .edits(
-              proto.getEditsList().stream()
-                  .map(e -> Edit.create(e.getBeginA(), e.getEndA(), e.getBeginB(), e.getEndB()))
-                  .collect(toImmutableList()))
+          .edits(PackedEdits.unpack(proto.getPackedEdits()))
           .fileHeader(proto.getFileHeader())
           .oldId(AbbreviatedObjectId.fromObjectId(idConverter.fromByteString(proto.getOldId())))
           .newId(AbbreviatedObjectId.fromObjectId(idConverter.fromByteString(proto.getNewId())))
           .changeType(CHANGE_TYPE_CONVERTER.convert(proto.getChangeType()));
 
+      Optional<String> oldPath = Optional.empty();
       if (proto.hasField(OLD_PATH_DESCRIPTOR)) {
-        builder.oldPath(Optional.of(proto.getOldPath()));
+        oldPath = Optional.of(proto.getOldPath());
+        builder.oldPath(oldPath);
       }
-      if (proto.hasField(NEW_PATH_DESCRIPTOR)) {
+      if (proto.getNewPathIsOldPath()) {
+        // Share the instance, most files are not renamed.
+        builder.newPath(oldPath);
+      } else if (proto.hasField(NEW_PATH_DESCRIPTOR)) {
         builder.newPath(Optional.of(proto.getNewPath()));
       }
       if (proto.hasField(OLD_MODE_DESCRIPTOR)) {
@@ -14,6 +14,7 @@
 
 package com.google.gerrit.server.patch.gitfilediff;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.function.Function.identity;
 
 import com.google.auto.value.AutoValue;
@@ -25,10 +26,12 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Streams;
 import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Patch;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
@@ -44,22 +47,29 @@ import com.google.gerrit.server.logging.TraceContext;
 import com.google.gerrit.server.logging.TraceContext.TraceTimer;
 import com.google.gerrit.server.patch.DiffExecutor;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
+import com.google.gerrit.server.patch.gitdiff.AcceleratedRenameDetector;
 import com.google.gerrit.server.util.git.CloseablePool;
 import com.google.inject.Inject;
 import com.google.inject.Module;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
@@ -68,8 +78,14 @@ import org.eclipse.jgit.diff.HistogramDiff;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
 import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
@@ -90,7 +106,7 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
             .weigher(GitFileDiffWeigher.class)
             .keySerializer(GitFileDiffCacheKey.Serializer.INSTANCE)
             .valueSerializer(GitFileDiff.Serializer.INSTANCE)
-            .version(3)
+            .version(5)
             .loader(GitFileDiffCacheImpl.Loader.class);
       }
     };
@@ -157,17 +173,23 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
   }
 
   static class Loader extends CacheLoader<GitFileDiffCacheKey, GitFileDiff> {
+    /** Maximum size of the blobs that are prefetched for a window of file diffs. */
+    private static final long MAX_PREFETCHED_BYTES = 16 << 20;
+
     private final GitRepositoryManager repoManager;
     private final ExecutorService diffExecutor;
     private final long timeoutMillis;
+    private final int parallelism;
     private final Metrics metrics;
+    private final GitBlobDiffCache blobDiffCache;
 
     @Inject
     public Loader(
         @GerritServerConfig Config cfg,
         GitRepositoryManager repoManager,
         @DiffExecutor ExecutorService de,
-        Metrics metrics) {
+        Metrics metrics,
+        GitBlobDiffCache blobDiffCache) {
       this.repoManager = repoManager;
       this.diffExecutor = de;
       this.timeoutMillis =
@@ -178,7 +200,13 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
               "timeout",
               TimeUnit.MILLISECONDS.convert(5, TimeUnit.SECONDS),
               TimeUnit.MILLISECONDS);
+      this.parallelism =
+          Math.max(
+              1,
+              cfg.getInt(
+                  "cache", GIT_DIFF, "parallelism", Runtime.getRuntime().availableProcessors()));
       this.metrics = metrics;
+      this.blobDiffCache = blobDiffCache;
     }
 
     @Override
@@ -230,6 +258,11 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
      * Loads the git file diffs for all keys of the same repository, and having the same diff {@code
      * options}.
      *
+     * <p>The modified files are found with a single tree walk. The file diffs are then computed
+     * concurrently on the {@link DiffExecutor} in windows of {@link #parallelism} files. Before a
+     * window is computed, its blobs are read in pack order by a reader that is shared by the whole
+     * batch, so that the diff computations don't each seek in the packs.
+     *
      * @return The git file diffs for all input keys.
      */
     private ImmutableMap<GitFileDiffCacheKey, GitFileDiff> loadAllImpl(
@@ -238,51 +271,157 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
       ImmutableMap.Builder<GitFileDiffCacheKey, GitFileDiff> result =
           ImmutableMap.builderWithExpectedSize(keys.size());
       Map<GitFileDiffCacheKey, String> filePaths =
-          keys.stream().collect(Collectors.toMap(identity(), GitFileDiffCacheKey::newFilePath));
-      try (CloseablePool<DiffFormatter> diffPool =
-          new CloseablePool<>(() -> createDiffFormatter(options, repo))) {
+          keys.stream()
+              .collect(
+                  Collectors.toMap(
+                      identity(),
+                      GitFileDiffCacheKey::newFilePath,
+                      (a, b) -> a,
+                      LinkedHashMap::new));
+      AtomicReference<ImmutableMap<ObjectId, byte[]>> prefetchedBlobs =
+          new AtomicReference<>(ImmutableMap.of());
+      try (ObjectReader reader = repo.newObjectReader();
+          CloseablePool<DiffFormatter> diffPool =
+              new CloseablePool<>(() -> createDiffFormatter(options, repo, prefetchedBlobs))) {
         ListMultimap<String, DiffEntry> diffEntries;
         try (CloseablePool<DiffFormatter>.Handle formatter = diffPool.get()) {
-          diffEntries = loadDiffEntries(formatter.get(), options, filePaths.values());
+          diffEntries = loadDiffEntries(reader, formatter.get(), options, filePaths.values());
         }
+
+        List<GitFileDiffCacheKey> modifiedKeys = new ArrayList<>();
         for (GitFileDiffCacheKey key : filePaths.keySet()) {
           String newFilePath = filePaths.get(key);
-          if (!diffEntries.containsKey(newFilePath)) {
-            result.put(
-                key,
-                GitFileDiff.empty(
-                    AbbreviatedObjectId.fromObjectId(key.oldTree()),
-                    AbbreviatedObjectId.fromObjectId(key.newTree()),
-                    newFilePath));
+          if (diffEntries.containsKey(newFilePath)) {
+            modifiedKeys.add(key);
             continue;
           }
-          List<DiffEntry> entries = diffEntries.get(newFilePath);
-          if (entries.size() == 1) {
-            result.put(key, createGitFileDiff(entries.get(0), key, diffPool));
-          } else {
-            // Handle when JGit returns two {Added, Deleted} entries for the same file. This
-            // happens, for example, when a file's mode is changed between patchsets (e.g.
-            // converting a symlink to a regular file). We combine both diff entries into a single
-            // entry with {changeType = Rewrite}.
-            List<GitFileDiff> gitDiffs = new ArrayList<>();
-            for (DiffEntry entry : diffEntries.get(newFilePath)) {
-              gitDiffs.add(createGitFileDiff(entry, key, diffPool));
+          result.put(
+              key,
+              GitFileDiff.empty(
+                  AbbreviatedObjectId.fromObjectId(key.oldTree()),
+                  AbbreviatedObjectId.fromObjectId(key.newTree()),
+                  newFilePath));
+        }
+
+        for (List<GitFileDiffCacheKey> window : Lists.partition(modifiedKeys, parallelism)) {
+          Map<GitFileDiffCacheKey, List<Future<GitFileDiff>>> futures = new LinkedHashMap<>();
+          try {
+            prefetchedBlobs.set(
+                prefetchBlobs(
+                    reader,
+                    window.stream()
+                        .flatMap(key -> diffEntries.get(filePaths.get(key)).stream())
+                        .collect(toImmutableList())));
+            for (GitFileDiffCacheKey key : window) {
+              List<Future<GitFileDiff>> keyFutures = new ArrayList<>();
+              for (DiffEntry entry : diffEntries.get(filePaths.get(key))) {
+                keyFutures.add(submitGitFileDiff(entry, key, diffPool));
+              }
+              futures.put(key, keyFutures);
             }
-            result.put(key, createRewriteEntry(gitDiffs));
+            for (Map.Entry<GitFileDiffCacheKey, List<Future<GitFileDiff>>> e :
+                futures.entrySet()) {
+              // Each file gets the full timeout, counted from when its result is awaited, so that
+              // a slow file doesn't use up the time of the files that are awaited after it.
+              long deadlineNanos =
+                  System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+              List<GitFileDiff> gitDiffs = new ArrayList<>();
+              for (Future<GitFileDiff> f : e.getValue()) {
+                gitDiffs.add(awaitGitFileDiff(f, e.getKey(), deadlineNanos));
+              }
+              if (gitDiffs.size() == 1) {
+                result.put(e.getKey(), gitDiffs.get(0));
+              } else {
+                // Handle when JGit returns two {Added, Deleted} entries for the same file. This
+                // happens, for example, when a file's mode is changed between patchsets (e.g.
+                // converting a symlink to a regular file). We combine both diff entries into a
+                // single entry with {changeType = Rewrite}.
+                result.put(e.getKey(), createRewriteEntry(gitDiffs));
+              }
+            }
+          } finally {
+            // Don't leave computations running if the window failed; the diff pool is closed
+            // below. Futures that completed are not affected.
+            futures.values().forEach(keyFutures -> keyFutures.forEach(f -> f.cancel(true)));
+            prefetchedBlobs.set(ImmutableMap.of());
           }
         }
         return result.build();
       }
     }
 
+    /**
+     * Reads the blobs of the given diff entries with the shared {@code reader}, in pack order if
+     * the object database supports it, and returns their content. Blobs that don't fit into {@link
+     * #MAX_PREFETCHED_BYTES} are left to be read by the diff computation.
+     */
+    private static ImmutableMap<ObjectId, byte[]> prefetchBlobs(
+        ObjectReader reader, List<DiffEntry> diffEntries) throws IOException {
+      Set<ObjectId> blobs = new LinkedHashSet<>();
+      for (DiffEntry entry : diffEntries) {
+        addBlob(blobs, entry.getOldId(), entry.getOldMode());
+        addBlob(blobs, entry.getNewId(), entry.getNewMode());
+      }
+      if (blobs.isEmpty()) {
+        return ImmutableMap.of();
+      }
+      Map<ObjectId, byte[]> result = new HashMap<>();
+      try (TraceTimer timer =
+          TraceContext.newTimer(
+              "Prefetching blobs for git file diffs",
+              Metadata.builder().resourceCount(blobs.size()).build())) {
+        AsyncObjectLoaderQueue<ObjectId> queue = reader.open(blobs, false);
+        try {
+          long remaining = MAX_PREFETCHED_BYTES;
+          while (queue.next()) {
+            ObjectLoader loader;
+            try {
+              loader = queue.open();
+            } catch (MissingObjectException e) {
+              // Reported by the diff computation.
+              continue;
+            }
+            if (loader != null && !loader.isLarge() && loader.getSize() <= remaining) {
+              byte[] content = loader.getCachedBytes();
+              remaining -= content.length;
+              result.put(queue.getObjectId().copy(), content);
+            }
+          }
+        } catch (MissingObjectException e) {
+          // The remaining blobs are read by the diff computation, which reports missing objects.
+        } finally {
+          queue.release();
+        }
+      }
+      return ImmutableMap.copyOf(result);
+    }
+
+    private static void addBlob(Set<ObjectId> blobs, AbbreviatedObjectId id, FileMode mode) {
+      if (id != null
+          && id.isComplete()
+          && mode.getObjectType() == Constants.OBJ_BLOB
+          && !id.toObjectId().equals(ObjectId.zeroId())) {
+        blobs.add(id.toObjectId());
+      }
+    }
+
     private static ListMultimap<String, DiffEntry> loadDiffEntries(
-        DiffFormatter diffFormatter, DiffOptions diffOptions, Collection<String> filePaths)
+        ObjectReader reader,
+        DiffFormatter diffFormatter,
+        DiffOptions diffOptions,
+        Collection<String> filePaths)
         throws IOException {
       ImmutableSet<String> filePathsSet = ImmutableSet.copyOf(filePaths);
       List<DiffEntry> diffEntries =
           diffFormatter.scan(
               diffOptions.oldTree().equals(ObjectId.zeroId()) ? null : diffOptions.oldTree(),
               diffOptions.newTree());
+      if (diffOptions.useAcceleratedRenameDetection()) {
+        // The formatter doesn't detect renames in this case, pair the added and deleted files the
+        // same way as the modified files cache does, so that both agree on the renamed files.
+        diffEntries =
+            new AcceleratedRenameDetector(reader, diffOptions.renameScore()).compute(diffEntries);
+      }
 
       return diffEntries.stream()
           .filter(d -> filePathsSet.contains(extractPath(d)))
@@ -293,18 +432,109 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
                   MultimapBuilder.treeKeys().arrayListValues()::build));
     }
 
-    private static DiffFormatter createDiffFormatter(DiffOptions diffOptions, Repository repo) {
-      try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-        diffFormatter.setRepository(repo);
-        RawTextComparator cmp = comparatorFor(diffOptions.whitespace());
-        diffFormatter.setDiffComparator(cmp);
-        if (diffOptions.renameScore() != -1) {
-          diffFormatter.setDetectRenames(true);
-          diffFormatter.getRenameDetector().setRenameScore(diffOptions.renameScore());
-        }
-        diffFormatter.setDiffAlgorithm(DiffAlgorithmFactory.create(diffOptions.diffAlgorithm()));
+    private DiffFormatter createDiffFormatter(
+        DiffOptions diffOptions,
+        Repository repo,
+        AtomicReference<ImmutableMap<ObjectId, byte[]>> prefetchedBlobs) {
+      DiffFormatter diffFormatter =
+          new BlobPairDiffFormatter(
+              blobDiffCache.wrap(
+                  DiffAlgorithmFactory.create(diffOptions.diffAlgorithm()),
+                  diffOptions.whitespace(),
+                  diffOptions.diffAlgorithm()),
+              new PrefetchedBlobReader(repo.newObjectReader(), prefetchedBlobs),
+              repo.getConfig());
+      RawTextComparator cmp = comparatorFor(diffOptions.whitespace());
+      diffFormatter.setDiffComparator(cmp);
+      if (diffOptions.renameScore() != -1 && !diffOptions.acceleratedRenameDetection()) {
+        diffFormatter.setDetectRenames(true);
+        diffFormatter.getRenameDetector().setRenameScore(diffOptions.renameScore());
         diffFormatter.getRenameDetector().setSkipContentRenamesForBinaryFiles(true);
-        return diffFormatter;
+      }
+      return diffFormatter;
+    }
+
+    /**
+     * {@link DiffFormatter} which lets its {@link GitBlobDiffCache.BlobPairDiffAlgorithm} know
+     * which blobs are diffed, so that the edits of identical blob pairs are computed only once.
+     */
+    private static class BlobPairDiffFormatter extends DiffFormatter {
+      private final GitBlobDiffCache.BlobPairDiffAlgorithm diffAlgorithm;
+      private final ObjectReader reader;
+
+      BlobPairDiffFormatter(
+          GitBlobDiffCache.BlobPairDiffAlgorithm diffAlgorithm,
+          ObjectReader reader,
+          Config repoConfig) {
+        super(DisabledOutputStream.INSTANCE);
+        this.diffAlgorithm = diffAlgorithm;
+        this.reader = reader;
+        setReader(reader, repoConfig);
+        setDiffAlgorithm(diffAlgorithm);
+      }
+
+      @Override
+      public void close() {
+        super.close();
+        // Unlike with setRepository(), the formatter doesn't own the reader.
+        reader.close();
+      }
+
+      @Override
+      public FileHeader toFileHeader(DiffEntry diffEntry) throws IOException {
+        diffAlgorithm.setDiffEntry(diffEntry);
+        try {
+          return super.toFileHeader(diffEntry);
+        } finally {
+          diffAlgorithm.setDiffEntry(null);
+        }
+      }
+    }
+
+    /**
+     * Reader of a diff formatter which serves the blobs that were prefetched for the current window
+     * from memory, and reads all other objects with its own reader.
+     */
+    private static class PrefetchedBlobReader extends ObjectReader.Filter {
+      private final ObjectReader delegate;
+      private final AtomicReference<ImmutableMap<ObjectId, byte[]>> prefetchedBlobs;
+
+      PrefetchedBlobReader(
+          ObjectReader delegate,
+          AtomicReference<ImmutableMap<ObjectId, byte[]>> prefetchedBlobs) {
+        this.delegate = delegate;
+        this.prefetchedBlobs = prefetchedBlobs;
+      }
+
+      @Override
+      protected ObjectReader delegate() {
+        return delegate;
+      }
+
+      @Override
+      public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+        byte[] content = getPrefetched(objectId, typeHint);
+        if (content != null) {
+          return new ObjectLoader.SmallObject(Constants.OBJ_BLOB, content);
+        }
+        return super.open(objectId, typeHint);
+      }
+
+      @Override
+      public long getObjectSize(AnyObjectId objectId, int typeHint) throws IOException {
+        byte[] content = getPrefetched(objectId, typeHint);
+        if (content != null) {
+          return content.length;
+        }
+        return super.getObjectSize(objectId, typeHint);
+      }
+
+      @Nullable
+      private byte[] getPrefetched(AnyObjectId objectId, int typeHint) {
+        if (typeHint != Constants.OBJ_BLOB && typeHint != ObjectReader.OBJ_ANY) {
+          return null;
+        }
+        return prefetchedBlobs.get().get(objectId);
       }
     }
 
@@ -326,57 +556,61 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
     }
 
     /**
-     * Create a {@link GitFileDiff}. The result depends on the value of the {@code useTimeout} field
-     * of the {@code key} parameter.
+     * Submits the computation of a {@link GitFileDiff} to the {@link DiffExecutor}.
+     *
+     * <p>The CloseablePool and our usage of it ensures that any DiffFormatter instance and the
+     * ObjectReader it references internally is only used by a single thread concurrently. However,
+     * ObjectReaders have a reference to Repository which might not be thread safe (FileRepository
+     * is, DfsRepository might not). This could lead to a race condition.
+     */
+    private Future<GitFileDiff> submitGitFileDiff(
+        DiffEntry diffEntry, GitFileDiffCacheKey key, CloseablePool<DiffFormatter> diffPool) {
+      return diffExecutor.submit(
+          () -> {
+            try (CloseablePool<DiffFormatter>.Handle formatter = diffPool.get();
+                TraceTimer timer =
+                    TraceContext.newTimer(
+                        "Computing git file diff",
+                        Metadata.builder()
+                            .diffAlgorithm(key.diffAlgorithm().name())
+                            .filePath(key.newFilePath())
+                            .build())) {
+              return GitFileDiff.create(diffEntry, getFileHeader(formatter, diffEntry));
+            }
+          });
+    }
+
+    /**
+     * Waits for a {@link GitFileDiff} computation. The result depends on the value of the {@code
+     * useTimeout} field of the {@code key} parameter.
      *
      * <ul>
      *   <li>If {@code useTimeout} is true, the computation is performed with timeout enforcement
-     *       (identified by {@link #timeoutMillis}). If the timeout is exceeded, this method returns
-     *       a negative result using {@link GitFileDiff#createNegative(AbbreviatedObjectId,
+     *       (identified by {@link #timeoutMillis}, counted from when the result of the file is
+     *       awaited). If the timeout is exceeded, this method returns a
+     *       negative result using {@link GitFileDiff#createNegative(AbbreviatedObjectId,
      *       AbbreviatedObjectId, String)}.
-     *   <li>If {@code useTimeouts} is false, the computation is performed synchronously without
-     *       timeout enforcement.
+     *   <li>If {@code useTimeouts} is false, this method waits for the computation without timeout
+     *       enforcement.
      */
-    private GitFileDiff createGitFileDiff(
-        DiffEntry diffEntry, GitFileDiffCacheKey key, CloseablePool<DiffFormatter> diffPool)
+    private GitFileDiff awaitGitFileDiff(
+        Future<GitFileDiff> fileDiffFuture, GitFileDiffCacheKey key, long deadlineNanos)
         throws IOException {
-      if (!key.useTimeout()) {
-        try (CloseablePool<DiffFormatter>.Handle formatter = diffPool.get();
-            TraceTimer timer =
-                TraceContext.newTimer(
-                    "Computing git file diff without timeout",
-                    Metadata.builder()
-                        .diffAlgorithm(key.diffAlgorithm().name())
-                        .filePath(key.newFilePath())
-                        .build())) {
-          return GitFileDiff.create(diffEntry, getFileHeader(formatter, diffEntry));
+      try {
+        if (!key.useTimeout()) {
+          return fileDiffFuture.get();
         }
-      }
-      // This submits the DiffFormatter to a different thread. The CloseablePool and our usage of it
-      // ensures that any DiffFormatter instance and the ObjectReader it references internally is
-      // only used by a single thread concurrently. However, ObjectReaders have a reference to
-      // Repository which might not be thread safe (FileRepository is, DfsRepository might not).
-      // This could lead to a race condition.
-      Future<GitFileDiff> fileDiffFuture =
-          diffExecutor.submit(
-              () -> {
-                try (CloseablePool<DiffFormatter>.Handle formatter = diffPool.get()) {
-                  return GitFileDiff.create(diffEntry, getFileHeader(formatter, diffEntry));
-                }
-              });
-      try (TraceTimer timer =
-          TraceContext.newTimer(
-              "Computing git file diff with timeout",
-              Metadata.builder()
-                  .diffAlgorithm(key.diffAlgorithm().name())
-                  .filePath(key.newFilePath())
-                  .build())) {
         // We employ the timeout because of a bug in Myers diff in JGit. See
         // https://issues.gerritcodereview.com/issues/40000618 for more details. The bug may happen
         // if the algorithm used in diffs is HISTOGRAM_WITH_FALLBACK_MYERS.
-        return fileDiffFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        return fileDiffFuture.get(
+            Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
       } catch (InterruptedException | TimeoutException e) {
         fileDiffFuture.cancel(true);
+        if (!key.useTimeout()) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("interrupted while computing git file diff");
+        }
         // If timeout happens, create a negative result
         logger.atFine().log(
             "computing git file diff for %s with %s as diff algorithm failed with a timeout,"
@@ -473,17 +707,23 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
     /** Convert a {@link GitFileDiffCacheKey} input to a {@link DiffOptions}. */
     static DiffOptions fromKey(GitFileDiffCacheKey key) {
       return create(
-          key.oldTree(), key.newTree(), key.renameScore(), key.whitespace(), key.diffAlgorithm());
+          key.oldTree(),
+          key.newTree(),
+          key.renameScore(),
+          key.acceleratedRenameDetection(),
+          key.whitespace(),
+          key.diffAlgorithm());
     }
 
     private static DiffOptions create(
         ObjectId oldTree,
         ObjectId newTree,
         int renameScore,
+        boolean acceleratedRenameDetection,
         Whitespace whitespace,
         DiffAlgorithm diffAlgorithm) {
       return new AutoValue_GitFileDiffCacheImpl_DiffOptions(
-          oldTree, newTree, renameScore, whitespace, diffAlgorithm);
+          oldTree, newTree, renameScore, acceleratedRenameDetection, whitespace, diffAlgorithm);
     }
 
     abstract ObjectId oldTree();
@@ -492,8 +732,14 @@ public class GitFileDiffCacheImpl implements GitFileDiffCache {
 
     abstract int renameScore();
 
+    abstract boolean acceleratedRenameDetection();
+
     abstract Whitespace whitespace();
 
     abstract DiffAlgorithm diffAlgorithm();
+
+    boolean useAcceleratedRenameDetection() {
+      return renameScore() != -1 && acceleratedRenameDetection();
+    }
   }
 }
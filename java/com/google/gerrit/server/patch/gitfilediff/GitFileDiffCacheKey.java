@@ -27,6 +27,7 @@ import com.google.gerrit.proto.Protos;
 import com.google.gerrit.server.cache.proto.Cache.GitFileDiffKeyProto;
 import com.google.gerrit.server.cache.serialize.CacheSerializer;
 import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
+import com.google.gerrit.server.patch.gitdiff.AcceleratedRenameDetector;
 import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
 import org.eclipse.jgit.lib.ObjectId;
 
@@ -55,6 +56,12 @@ public abstract class GitFileDiffCacheKey {
    */
   public abstract int renameScore();
 
+  /**
+   * Whether renames are detected with the {@link AcceleratedRenameDetector} rather than with JGit's
+   * rename detector. Only relevant if rename detection is enabled.
+   */
+  public abstract boolean acceleratedRenameDetection();
+
   public abstract DiffAlgorithm diffAlgorithm();
 
   public abstract DiffPreferencesInfo.Whitespace whitespace();
@@ -67,13 +74,14 @@ public abstract class GitFileDiffCacheKey {
         + 20 * 2 // oldTree and newTree
         + stringSize(newFilePath())
         + 4 // renameScore
+        + 1 // acceleratedRenameDetection
         + 4 // diffAlgorithm
         + 4 // whitespace
         + 1; // useTimeout
   }
 
   public static Builder builder() {
-    return new AutoValue_GitFileDiffCacheKey.Builder();
+    return new AutoValue_GitFileDiffCacheKey.Builder().acceleratedRenameDetection(false);
   }
 
   @AutoValue.Builder
@@ -94,6 +102,8 @@ public abstract class GitFileDiffCacheKey {
       return this;
     }
 
+    public abstract Builder acceleratedRenameDetection(boolean value);
+
     public abstract Builder diffAlgorithm(DiffAlgorithm value);
 
     public abstract Builder whitespace(Whitespace value);
@@ -122,6 +132,7 @@ public abstract class GitFileDiffCacheKey {
               .setBTree(idConverter.toByteString(key.newTree()))
               .setFilePath(key.newFilePath())
               .setRenameScore(key.renameScore())
+              .setAcceleratedRenameDetection(key.acceleratedRenameDetection())
               .setDiffAlgorithm(DIFF_ALGORITHM_CONVERTER.reverse().convert(key.diffAlgorithm()))
               .setWhitepsace(WHITESPACE_CONVERTER.reverse().convert(key.whitespace()))
               .setUseTimeout(key.useTimeout())
@@ -138,6 +149,7 @@ public abstract class GitFileDiffCacheKey {
           .newTree(idConverter.fromByteString(proto.getBTree()))
           .newFilePath(proto.getFilePath())
           .renameScore(proto.getRenameScore())
+          .acceleratedRenameDetection(proto.getAcceleratedRenameDetection())
           .diffAlgorithm(DIFF_ALGORITHM_CONVERTER.convert(proto.getDiffAlgorithm()))
           .whitespace(WHITESPACE_CONVERTER.convert(proto.getWhitepsace()))
           .useTimeout(proto.getUseTimeout())
@@ -0,0 +1,201 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.permissions;
+
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.server.AccessPath;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.logging.LoggingContext;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import java.util.Optional;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Caches the decisions of {@link RefControl} across requests.
+ *
+ * <p>{@link RefControl} only remembers its decisions for the duration of a request, but many
+ * requests ask the same questions for users that are members of the same groups. A decision only
+ * depends on the access sections of the project and its parents and on the groups of the user that
+ * these sections refer to, so decisions are cached by the revisions of the project configs, the
+ * groups of the user that are referenced by the project's access sections, the ref and the
+ * permission. Changing a project config or the group memberships of a user changes the key, so
+ * stale decisions are never served and are evicted from the bounded cache over time.
+ *
+ * <p>Decisions that depend on more than that are never cached: reading refs (which depends on the
+ * visibility of changes and tags), decisions for internal users and decisions on projects whose
+ * access sections use parameterized ref patterns such as {@code ${username}}. The cache is bypassed
+ * while ACL logging is enabled, so that traces still log why permissions are granted or denied.
+ *
+ * <p>The cache is only used if {@code permissionDecisionCache.enabled} is set.
+ */
+@Singleton
+public class PermissionDecisionCache {
+  @VisibleForTesting static final String CACHE_NAME = "permission_decisions";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        cache(CACHE_NAME, Key.class, Boolean.class).maximumWeight(1 << 16);
+        bind(PermissionDecisionCache.class);
+      }
+    };
+  }
+
+  /** Outcome of looking up a decision. */
+  enum Lookup {
+    /** The decision was served from the cache. */
+    HIT,
+    /** The decision was computed and cached. */
+    MISS,
+    /** The decision can't be cached and was computed. */
+    UNCACHEABLE
+  }
+
+  /** Computes a decision. */
+  @FunctionalInterface
+  interface Decision {
+    boolean compute() throws PermissionBackendException;
+  }
+
+  /** Everything besides the ref and the permission that decisions of a user on a project use. */
+  @AutoValue
+  abstract static class Scope {
+    abstract Project.NameKey project();
+
+    /** Revisions of the configs of the project and its parents, starting with the project. */
+    abstract ImmutableList<ObjectId> revisions();
+
+    /** Groups of the user that are referenced by the access sections, sorted by UUID. */
+    abstract ImmutableList<AccountGroup.UUID> groups();
+
+    abstract boolean admin();
+
+    abstract boolean declaredOwner();
+
+    abstract AccessPath accessPath();
+
+    static Scope create(
+        Project.NameKey project,
+        ImmutableList<ObjectId> revisions,
+        ImmutableList<AccountGroup.UUID> groups,
+        boolean admin,
+        boolean declaredOwner,
+        AccessPath accessPath) {
+      return new AutoValue_PermissionDecisionCache_Scope(
+          project, revisions, groups, admin, declaredOwner, accessPath);
+    }
+
+    @Memoized
+    @Override
+    public abstract int hashCode();
+  }
+
+  @AutoValue
+  abstract static class Key {
+    abstract Scope scope();
+
+    abstract String ref();
+
+    abstract RefPermission permission();
+
+    static Key create(Scope scope, String ref, RefPermission permission) {
+      return new AutoValue_PermissionDecisionCache_Key(scope, ref, permission);
+    }
+  }
+
+  @Singleton
+  private static class Metrics {
+    final Counter1<Lookup> lookupCount;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      lookupCount =
+          metricMaker.newCounter(
+              "permissions/decision_cache/lookup_count",
+              new Description("Rate of ref permission decisions looked up in the decision cache")
+                  .setRate(),
+              Field.ofEnum(Lookup.class, "result", (meta, value) -> {})
+                  .description("Whether the decision was cached or could be cached.")
+                  .build());
+    }
+  }
+
+  private final Cache<Key, Boolean> cache;
+  private final Metrics metrics;
+  private final boolean enabled;
+
+  @Inject
+  PermissionDecisionCache(
+      @Named(CACHE_NAME) Cache<Key, Boolean> cache,
+      Metrics metrics,
+      @GerritServerConfig Config cfg) {
+    this.cache = cache;
+    this.metrics = metrics;
+    this.enabled = cfg.getBoolean("permissionDecisionCache", "enabled", false);
+  }
+
+  /**
+   * Returns the decision of {@code permission} on {@code ref}, from the cache if possible.
+   *
+   * @param projectControl control of the user on the project.
+   * @param ref name of the ref.
+   * @param permission the permission.
+   * @param decision computes the decision if it isn't cached.
+   * @return whether the permission is granted.
+   * @throws PermissionBackendException if the decision couldn't be computed.
+   */
+  boolean can(
+      ProjectControl projectControl, String ref, RefPermission permission, Decision decision)
+      throws PermissionBackendException {
+    if (!enabled) {
+      return decision.compute();
+    }
+    Optional<Scope> scope =
+        permission != RefPermission.READ && !LoggingContext.getInstance().isAclLogging()
+            ? projectControl.decisionScope()
+            : Optional.empty();
+    if (scope.isEmpty()) {
+      metrics.lookupCount.increment(Lookup.UNCACHEABLE);
+      return decision.compute();
+    }
+
+    Key key = Key.create(scope.get(), ref, permission);
+    Boolean cached = cache.getIfPresent(key);
+    if (cached != null) {
+      metrics.lookupCount.increment(Lookup.HIT);
+      return cached;
+    }
+    metrics.lookupCount.increment(Lookup.MISS);
+    boolean result = decision.compute();
+    cache.put(key, result);
+    return result;
+  }
+}
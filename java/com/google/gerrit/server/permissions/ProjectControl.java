@@ -15,11 +15,17 @@
 package com.google.gerrit.server.permissions;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.gerrit.entities.AccessSection.ALL;
 import static com.google.gerrit.entities.AccessSection.REGEX_PREFIX;
 import static com.google.gerrit.entities.RefNames.REFS_TAGS;
+import static com.google.gerrit.server.project.RefPattern.containsParameters;
 import static com.google.gerrit.server.util.MagicBranch.NEW_CHANGE;
+import static java.util.Comparator.comparing;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.common.UsedAt;
@@ -27,6 +33,7 @@ import com.google.gerrit.entities.AccessSection;
 import com.google.gerrit.entities.AccountGroup;
 import com.google.gerrit.entities.BranchNameKey;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.GroupReference;
 import com.google.gerrit.entities.Permission;
 import com.google.gerrit.entities.PermissionRule;
 import com.google.gerrit.entities.Project;
@@ -37,6 +44,7 @@ import com.google.gerrit.extensions.api.access.PluginProjectPermission;
 import com.google.gerrit.extensions.conditions.BooleanCondition;
 import com.google.gerrit.extensions.restapi.AuthException;
 import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.account.CapabilityCollection;
 import com.google.gerrit.server.account.GroupMembership;
 import com.google.gerrit.server.config.AllUsersName;
 import com.google.gerrit.server.config.GerritServerConfig;
@@ -62,8 +70,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 
@@ -87,6 +98,7 @@ public class ProjectControl {
   private List<SectionMatcher> allSections;
   private Map<String, RefControl> refControls;
   private Boolean declaredOwner;
+  private Optional<PermissionDecisionCache.Scope> decisionScope;
   private Config cfg;
 
   @Inject
@@ -360,6 +372,71 @@ public class ProjectControl {
     }
   }
 
+  /**
+   * Returns the scope in which the {@link PermissionDecisionCache} may share the ref permission
+   * decisions of this user with other requests, or empty if the decisions of this user on this
+   * project can't be shared.
+   */
+  Optional<PermissionDecisionCache.Scope> decisionScope() {
+    if (decisionScope == null) {
+      decisionScope = computeDecisionScope();
+    }
+    return decisionScope;
+  }
+
+  private Optional<PermissionDecisionCache.Scope> computeDecisionScope() {
+    if (user.isInternalUser()
+        || access().stream().anyMatch(m -> containsParameters(m.getSection().getName()))) {
+      return Optional.empty();
+    }
+    ImmutableList.Builder<ObjectId> revisions = ImmutableList.builder();
+    ProjectState allProjects = null;
+    for (ProjectState s : state.tree()) {
+      Optional<ObjectId> revision = s.getConfig().getRevision();
+      if (revision.isEmpty()) {
+        return Optional.empty();
+      }
+      revisions.add(revision.get());
+      allProjects = s;
+    }
+    CapabilityCollection capabilities = allProjects.getCapabilityCollection();
+    if (capabilities == null) {
+      return Optional.empty();
+    }
+
+    // The scope needs the membership of the user in all referenced groups and in the administrator
+    // groups upfront. This is only cheap for internal and system groups, the membership in external
+    // groups may be looked up remotely per group, hence decisions that involve external groups
+    // aren't cached.
+    ImmutableSet<AccountGroup.UUID> referencedGroups =
+        state.getAllGroups().stream()
+            .map(GroupReference::getUUID)
+            .filter(Objects::nonNull)
+            .collect(toImmutableSet());
+    if (!referencedGroups.stream().allMatch(ProjectControl::isInternalOrSystemGroup)
+        || !capabilities.administrateServer.stream()
+            .allMatch(r -> isInternalOrSystemGroup(r.getGroup().getUUID()))) {
+      return Optional.empty();
+    }
+
+    ImmutableList<AccountGroup.UUID> groups =
+        user.getEffectiveGroups().intersection(referencedGroups).stream()
+            .sorted(comparing(AccountGroup.UUID::get))
+            .collect(toImmutableList());
+    return Optional.of(
+        PermissionDecisionCache.Scope.create(
+            getProject().getNameKey(),
+            revisions.build(),
+            groups,
+            isAdmin(),
+            isDeclaredOwner(),
+            user.getAccessPath()));
+  }
+
+  private static boolean isInternalOrSystemGroup(@Nullable AccountGroup.UUID uuid) {
+    return uuid != null && (uuid.isInternalGroup() || SystemGroupBackend.isSystemGroup(uuid));
+  }
+
   @UsedAt(UsedAt.Project.GOOGLE)
   protected boolean canUpdateConfigWithoutCreatingChange() {
     // In google, the implementation use more complicated logic - this is why it is placed inside
@@ -66,6 +66,7 @@ public class RefControl {
   private final RefVisibilityControl refVisibilityControl;
   private final ProjectControl projectControl;
   private final GitRepositoryManager repositoryManager;
+  private final PermissionDecisionCache decisionCache;
   private final String refName;
 
   /** All permissions that apply to this reference. */
@@ -83,12 +84,14 @@ public class RefControl {
       ChangeData.Factory changeDataFactory,
       RefVisibilityControl refVisibilityControl,
       GitRepositoryManager repositoryManager,
+      PermissionDecisionCache decisionCache,
       @Assisted ProjectControl projectControl,
       @Assisted String ref,
       @Assisted PermissionCollection relevant) {
     this.changeDataFactory = changeDataFactory;
     this.refVisibilityControl = refVisibilityControl;
     this.repositoryManager = repositoryManager;
+    this.decisionCache = decisionCache;
     this.projectControl = projectControl;
     this.refName = ref;
     this.relevant = relevant;
@@ -526,7 +529,7 @@ public class RefControl {
 
     @Override
     public void check(RefPermission perm) throws AuthException, PermissionBackendException {
-      if (!can(perm)) {
+      if (!canCached(perm)) {
         PermissionDeniedException pde = new PermissionDeniedException(perm, refName);
         switch (perm) {
           case UPDATE -> {
@@ -596,7 +599,7 @@ public class RefControl {
         throws PermissionBackendException {
       EnumSet<RefPermission> ok = EnumSet.noneOf(RefPermission.class);
       for (RefPermission perm : permSet) {
-        if (can(perm)) {
+        if (canCached(perm)) {
           ok.add(perm);
         }
       }
@@ -607,6 +610,10 @@ public class RefControl {
     public BooleanCondition testCond(RefPermission perm) {
       return new PermissionBackendCondition.ForRef(this, perm, getUser());
     }
+
+    private boolean canCached(RefPermission perm) throws PermissionBackendException {
+      return decisionCache.can(projectControl, refName, perm, () -> can(perm));
+    }
   }
 
   protected boolean can(RefPermission perm) throws PermissionBackendException {
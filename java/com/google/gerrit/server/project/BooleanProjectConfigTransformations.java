@@ -76,6 +76,10 @@ public class BooleanProjectConfigTransformations {
               new Mapper(
                   i -> i.skipAddingAuthorAndCommitterAsReviewers,
                   (i, v) -> i.skipAddingAuthorAndCommitterAsReviewers = v))
+          .put(
+              BooleanProjectConfig.ACCELERATED_RENAME_DETECTION,
+              new Mapper(
+                  i -> i.acceleratedRenameDetection, (i, v) -> i.acceleratedRenameDetection = v))
           .build();
 
   static {
@@ -14,6 +14,7 @@
 
 package com.google.gerrit.server.query.change;
 
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.query.AndSource;
 import com.google.gerrit.index.query.Predicate;
@@ -21,14 +22,24 @@ import java.util.Collection;
 import java.util.List;
 
 public class AndChangeSource extends AndSource<ChangeData> implements ChangeDataSource {
+  @Nullable private final PostFilterEvaluator postFilterEvaluator;
 
   public AndChangeSource(Collection<Predicate<ChangeData>> that, IndexConfig indexConfig) {
-    super(that, indexConfig);
+    this(that, 0, indexConfig, null);
   }
 
   public AndChangeSource(
       Collection<Predicate<ChangeData>> that, int start, IndexConfig indexConfig) {
+    this(that, start, indexConfig, null);
+  }
+
+  public AndChangeSource(
+      Collection<Predicate<ChangeData>> that,
+      int start,
+      IndexConfig indexConfig,
+      @Nullable PostFilterEvaluator postFilterEvaluator) {
     super(that, start, indexConfig);
+    this.postFilterEvaluator = postFilterEvaluator;
   }
 
   @Override
@@ -45,6 +56,14 @@ public class AndChangeSource extends AndSource<ChangeData> implements ChangeData
     return super.transformBuffer(buffer);
   }
 
+  @Override
+  protected List<ChangeData> filter(List<ChangeData> partition) {
+    if (postFilterEvaluator == null) {
+      return super.filter(partition);
+    }
+    return postFilterEvaluator.filter(partition, this::match);
+  }
+
   @Override
   public int compare(Predicate<ChangeData> a, Predicate<ChangeData> b) {
     int cmp = super.compare(a, b);
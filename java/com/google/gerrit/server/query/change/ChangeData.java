@@ -82,6 +82,8 @@ import com.google.gerrit.server.config.TrackingFooters;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.git.MergeUtilFactory;
 import com.google.gerrit.server.notedb.ChangeNotes;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ChangeNotesResult;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ProjectChange;
 import com.google.gerrit.server.notedb.RobotCommentNotes;
 import com.google.gerrit.server.patch.DiffSummary;
 import com.google.gerrit.server.patch.DiffSummaryKey;
@@ -149,6 +151,7 @@ public class ChangeData {
   }
 
   public static List<Change> asChanges(List<ChangeData> changeDatas) {
+    ensureChangeLoaded(changeDatas);
     List<Change> result = new ArrayList<>(changeDatas.size());
     for (ChangeData cd : changeDatas) {
       result.add(cd.change());
@@ -166,6 +169,24 @@ public class ChangeData {
       return;
     }
 
+    List<ChangeData> missing = new ArrayList<>();
+    for (ChangeData cd : changes) {
+      if (cd.change == null && cd.metaRevision == null && cd.lazyload()) {
+        missing.add(cd);
+      }
+    }
+    if (missing.size() > 1) {
+      ImmutableList<ChangeNotesResult> results =
+          missing.get(0).notesFactory.createBulk(
+              Lists.transform(missing, cd -> ProjectChange.create(cd.project, cd.legacyId)));
+      for (int i = 0; i < missing.size(); i++) {
+        // Changes that failed to load are loaded again below to surface the error to the caller.
+        if (!results.get(i).error().isPresent()) {
+          missing.get(i).setLoadedNotes(results.get(i).notes());
+        }
+      }
+    }
+
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.change();
@@ -787,10 +808,15 @@ public class ChangeData {
   @CanIgnoreReturnValue
   private Change loadChange() {
     try {
-      notes = notesFactory.createChecked(project, legacyId, metaRevision);
+      return setLoadedNotes(notesFactory.createChecked(project, legacyId, metaRevision));
     } catch (NoSuchChangeException e) {
       throw new StorageException("Unable to load change " + legacyId, e);
     }
+  }
+
+  @CanIgnoreReturnValue
+  private Change setLoadedNotes(ChangeNotes notes) {
+    this.notes = notes;
     change = notes.getChange();
     changeServerId = notes.getServerId();
     metaRevision = null;
@@ -0,0 +1,93 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.io.BaseEncoding;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Opaque position in the sort order of the change index.
+ *
+ * <p>Change queries are sorted by last updated, merged on and change number, all descending. A
+ * cursor records these sort values for the last change of a page, so that the next page can be
+ * requested as "everything after this change" instead of by offset. Index backends translate the
+ * cursor into their native search-after representation, which keeps the cost of deep pagination
+ * proportional to the page size rather than to the offset.
+ *
+ * <p>The sort values are only used as a position, the change they were taken from may have been
+ * updated or deleted in the meantime.
+ */
+@AutoValue
+public abstract class ChangeQueryCursor {
+  private static final byte VERSION = 1;
+  private static final int SIZE = 1 + Long.BYTES + Long.BYTES + Integer.BYTES;
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+  public static ChangeQueryCursor create(long lastUpdatedMillis, long mergedOnMillis, int id) {
+    return new AutoValue_ChangeQueryCursor(lastUpdatedMillis, mergedOnMillis, id);
+  }
+
+  /** Returns a cursor that points directly after the given change. */
+  public static ChangeQueryCursor after(ChangeData cd) {
+    return create(
+        cd.change().getLastUpdatedOn().toEpochMilli(),
+        cd.getMergedOn().map(t -> t.toEpochMilli()).orElse(0L),
+        cd.virtualId().get());
+  }
+
+  /**
+   * Parses a cursor previously returned by {@link #encode()}.
+   *
+   * @throws IllegalArgumentException if the value is not a valid cursor.
+   */
+  public static ChangeQueryCursor decode(String cursor) {
+    byte[] bytes;
+    try {
+      bytes = ENCODING.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+    }
+    if (bytes.length != SIZE || bytes[0] != VERSION) {
+      throw new IllegalArgumentException("invalid cursor: " + cursor);
+    }
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(bytes, 1, SIZE - 1);
+      return create(buf.getLong(), buf.getLong(), buf.getInt());
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+    }
+  }
+
+  /** Last updated timestamp of the change the cursor points after, in milliseconds. */
+  public abstract long lastUpdatedMillis();
+
+  /** Merged on timestamp of the change the cursor points after, in milliseconds, or 0. */
+  public abstract long mergedOnMillis();
+
+  /** Virtual ID of the change the cursor points after. */
+  public abstract int id();
+
+  /** Encodes this cursor to a URL safe string. */
+  public String encode() {
+    ByteBuffer buf = ByteBuffer.allocate(SIZE);
+    buf.put(VERSION);
+    buf.putLong(lastUpdatedMillis());
+    buf.putLong(mergedOnMillis());
+    buf.putInt(id());
+    return ENCODING.encode(buf.array());
+  }
+}
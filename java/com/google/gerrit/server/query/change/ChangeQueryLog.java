@@ -0,0 +1,172 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jgit.lib.Config;
+
+/**
+ * Bounded log of the most recently executed user change queries.
+ *
+ * <p>The log keeps the {@code index.warmup.queries} most recently used distinct queries in memory
+ * and persists them in the site's index directory when the server stops. On the next start they are
+ * replayed against the change index to warm it up before the server accepts traffic. Queries are
+ * recorded as entered by the users, so the log is only used if {@code
+ * index.warmup.persistQueries} is set.
+ */
+@Singleton
+public class ChangeQueryLog implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @VisibleForTesting static final String FILE_NAME = "changes_query_log";
+
+  private final Path file;
+  private final int maxQueries;
+
+  // Access-ordered, so that the least recently used query is evicted first.
+  private final LinkedHashMap<String, Boolean> recent;
+
+  @Inject
+  ChangeQueryLog(SitePaths sitePaths, @GerritServerConfig Config cfg) {
+    this(sitePaths.index_dir.resolve(FILE_NAME), maxQueries(cfg));
+  }
+
+  @VisibleForTesting
+  ChangeQueryLog(Path file, int maxQueries) {
+    this.file = file;
+    this.maxQueries = Math.max(0, maxQueries);
+    this.recent =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > ChangeQueryLog.this.maxQueries;
+          }
+        };
+  }
+
+  @VisibleForTesting
+  static int maxQueries(Config cfg) {
+    int maxQueries = cfg.getInt("index", "warmup", "queries", 0);
+    if (maxQueries > 0 && !cfg.getBoolean("index", "warmup", "persistQueries", false)) {
+      logger.atWarning().log(
+          "index.warmup.queries is ignored, set index.warmup.persistQueries to record queries");
+      return 0;
+    }
+    return maxQueries;
+  }
+
+  public boolean isEnabled() {
+    return maxQueries > 0;
+  }
+
+  /** Records an executed query. */
+  public void record(String query) {
+    if (!isEnabled() || query.isEmpty() || query.indexOf('\n') >= 0) {
+      return;
+    }
+    synchronized (recent) {
+      recent.put(query, Boolean.TRUE);
+    }
+  }
+
+  /** Returns the recorded queries, least recently used first. */
+  public ImmutableList<String> snapshot() {
+    synchronized (recent) {
+      return ImmutableList.copyOf(recent.keySet());
+    }
+  }
+
+  /** Loads the queries that were persisted when the server was last stopped. */
+  public ImmutableList<String> load() {
+    if (!isEnabled()) {
+      return ImmutableList.of();
+    }
+    try {
+      List<String> lines = Files.readAllLines(file, UTF_8);
+      int from = Math.max(0, lines.size() - maxQueries);
+      return ImmutableList.copyOf(lines.subList(from, lines.size()));
+    } catch (NoSuchFileException e) {
+      return ImmutableList.of();
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot read change query log %s", file);
+      return ImmutableList.of();
+    }
+  }
+
+  @Override
+  public void start() {
+    if (!isEnabled()) {
+      // Don't keep the queries of users on disk once persisting them was disabled.
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot delete change query log %s", file);
+      }
+      return;
+    }
+    // Keep the persisted queries, so that they survive restarts with little traffic in between.
+    for (String query : load()) {
+      record(query);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (!isEnabled()) {
+      return;
+    }
+    try {
+      store(snapshot());
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write change query log %s", file);
+    }
+  }
+
+  private void store(List<String> queries) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path tmp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+    try {
+      try (BufferedWriter w = Files.newBufferedWriter(tmp, UTF_8)) {
+        for (String query : queries) {
+          w.write(query);
+          w.newLine();
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -20,6 +20,7 @@ import static com.google.gerrit.server.query.change.ChangeQueryBuilder.FIELD_LIM
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.extensions.common.PluginDefinedInfo;
 import com.google.gerrit.extensions.registration.DynamicSet;
@@ -28,7 +29,9 @@ import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.QueryOptions;
 import com.google.gerrit.index.query.IndexPredicate;
 import com.google.gerrit.index.query.Predicate;
+import com.google.gerrit.index.query.QueryParseException;
 import com.google.gerrit.index.query.QueryProcessor;
+import com.google.gerrit.index.query.QueryResult;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.DynamicOptions;
@@ -65,6 +68,8 @@ public class ChangeQueryProcessor extends QueryProcessor<ChangeData>
   private final List<Extension<ChangePluginDefinedInfoFactory>>
       changePluginDefinedInfoFactoriesByPlugin = new ArrayList<>();
   private final IndexConfig indexConfig;
+  private final PostFilterEvaluator postFilterEvaluator;
+  private final ChangeQueryLog queryLog;
 
   @Singleton
   protected static class ChangeQueryMetrics extends QueryProcessor.Metrics {
@@ -90,7 +95,9 @@ public class ChangeQueryProcessor extends QueryProcessor<ChangeData>
       ChangeIndexCollection indexes,
       ChangeIndexRewriter rewriter,
       ChangeIsVisibleToPredicate.Factory changeIsVisibleToPredicateFactory,
-      DynamicSet<ChangePluginDefinedInfoFactory> changePluginDefinedInfoFactories) {
+      DynamicSet<ChangePluginDefinedInfoFactory> changePluginDefinedInfoFactories,
+      PostFilterEvaluator postFilterEvaluator,
+      ChangeQueryLog queryLog) {
     super(
         changeQueryMetrics,
         ChangeSchemaDefinitions.INSTANCE,
@@ -102,6 +109,8 @@ public class ChangeQueryProcessor extends QueryProcessor<ChangeData>
     this.userProvider = userProvider;
     this.changeIsVisibleToPredicateFactory = changeIsVisibleToPredicateFactory;
     this.indexConfig = indexConfig;
+    this.postFilterEvaluator = postFilterEvaluator;
+    this.queryLog = queryLog;
 
     changePluginDefinedInfoFactories
         .entries()
@@ -115,6 +124,20 @@ public class ChangeQueryProcessor extends QueryProcessor<ChangeData>
     return this;
   }
 
+  @Override
+  @CanIgnoreReturnValue
+  public List<QueryResult<ChangeData>> queryByStrings(
+      @Nullable List<String> queryStrings, List<Predicate<ChangeData>> queries)
+      throws QueryParseException {
+    List<QueryResult<ChangeData>> results = super.queryByStrings(queryStrings, queries);
+    if (queryStrings != null && isVisibilityEnforced() && queryLog.isEnabled()) {
+      // Only user queries are worth replaying for warming up the index, internal queries mostly
+      // look up changes by their primary key.
+      queryStrings.forEach(queryLog::record);
+    }
+    return results;
+  }
+
   @Override
   protected QueryOptions createOptions(
       IndexConfig indexConfig,
@@ -160,7 +183,8 @@ public class ChangeQueryProcessor extends QueryProcessor<ChangeData>
     return new AndChangeSource(
         ImmutableList.of(pred, changeIsVisibleToPredicateFactory.forUser(userProvider.get())),
         start,
-        indexConfig);
+        indexConfig,
+        postFilterEvaluator);
   }
 
   @Override
@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Change;
@@ -101,6 +102,7 @@ public class OutputStreamQuery {
   private boolean includeDependencies;
   private boolean includeSubmitRecords;
   private boolean includeAllReviewers;
+  private String cursor;
 
   private OutputStream outputStream = DisabledOutputStream.INSTANCE;
   private PrintWriter out;
@@ -137,6 +139,10 @@ public class OutputStreamQuery {
     queryProcessor.setStart(n);
   }
 
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
   public void setIncludePatchSets(boolean on) {
     includePatchSets = on;
   }
@@ -215,10 +221,23 @@ public class OutputStreamQuery {
         final QueryStatsAttribute stats = new QueryStatsAttribute();
         stats.runTimeMilliseconds = TimeUtil.nowMs();
 
+        if (cursor != null) {
+          try {
+            queryProcessor.setSearchAfter(ChangeQueryCursor.decode(cursor));
+          } catch (IllegalArgumentException e) {
+            throw new QueryParseException(e.getMessage(), e);
+          }
+        }
+
         Map<Project.NameKey, Repository> repos = new HashMap<>();
         Map<Project.NameKey, RevWalk> revWalks = new HashMap<>();
         Map<Project.NameKey, AttributesNodeProvider> attributesNodeProviders = new HashMap<>();
-        QueryResult<ChangeData> results = queryProcessor.query(queryBuilder.parse(queryString));
+        QueryResult<ChangeData> results =
+            queryProcessor
+                .queryByStrings(
+                    ImmutableList.of(queryString),
+                    ImmutableList.of(queryBuilder.parse(queryString)))
+                .get(0);
         pluginInfosByChange = queryProcessor.createPluginDefinedInfos(results.entities());
         try {
           AccountAttributeLoader accountLoader = accountAttributeLoaderFactory.create();
@@ -235,6 +254,9 @@ public class OutputStreamQuery {
 
         stats.rowCount = results.entities().size();
         stats.moreChanges = results.more();
+        if (results.more() && !results.entities().isEmpty()) {
+          stats.cursor = ChangeQueryCursor.after(Iterables.getLast(results.entities())).encode();
+        }
         stats.runTimeMilliseconds = TimeUtil.nowMs() - stats.runTimeMilliseconds;
         show(stats);
       } catch (StorageException err) {
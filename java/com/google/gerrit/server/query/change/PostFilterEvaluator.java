@@ -0,0 +1,188 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Histogram0;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.FanOutExecutor;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import org.eclipse.jgit.lib.Config;
+
+/**
+ * Evaluates post-filter predicates for a batch of candidate changes.
+ *
+ * <p>Matching a change against predicates that cannot be answered by the index (visibility, votes
+ * by a given user, file regexes, ...) usually requires loading the change from NoteDb. These loads
+ * are independent of each other, so with {@code index.postFilterParallelism} greater than 1 the
+ * candidates of a batch are matched concurrently on the {@link FanOutExecutor}.
+ *
+ * <p>The calling thread always takes part in the evaluation and the helper tasks only pick up
+ * candidates that have not been claimed yet. A batch therefore completes even if no thread of the
+ * executor becomes available, which makes it safe to query from a task that is itself running on
+ * the fan-out executor.
+ */
+@Singleton
+public class PostFilterEvaluator {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @Singleton
+  static class Metrics {
+    final Timer0 latency;
+    final Histogram0 parallelism;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      latency =
+          metricMaker.newTimer(
+              "query/post_filter_latency",
+              new Description("Latency for matching a batch of changes against post-filters")
+                  .setCumulative()
+                  .setUnit(Units.MILLISECONDS));
+      parallelism =
+          metricMaker.newHistogram(
+              "query/post_filter_parallelism",
+              new Description("Number of threads that matched a batch of changes").setCumulative());
+    }
+  }
+
+  private final ExecutorService executor;
+  private final Metrics metrics;
+  private final int maxParallelism;
+
+  @Inject
+  PostFilterEvaluator(
+      @FanOutExecutor ExecutorService executor,
+      @GerritServerConfig Config cfg,
+      Metrics metrics) {
+    this(executor, metrics, cfg.getInt("index", null, "postFilterParallelism", 1));
+  }
+
+  @VisibleForTesting
+  PostFilterEvaluator(ExecutorService executor, Metrics metrics, int maxParallelism) {
+    this.executor = executor;
+    this.metrics = metrics;
+    this.maxParallelism = Math.max(1, maxParallelism);
+  }
+
+  /**
+   * Returns the candidates that match, preserving their order.
+   *
+   * @param candidates changes to match
+   * @param matcher evaluates the post-filters for a single change; must be safe to call from
+   *     multiple threads for different changes
+   */
+  public List<ChangeData> filter(List<ChangeData> candidates, Predicate<ChangeData> matcher) {
+    try (Timer0.Context ignored = metrics.latency.start()) {
+      int helpers = Math.min(maxParallelism, candidates.size()) - 1;
+      if (helpers <= 0) {
+        metrics.parallelism.record(1);
+        return filterSerially(candidates, matcher);
+      }
+      return filterConcurrently(candidates, matcher, helpers);
+    }
+  }
+
+  private static List<ChangeData> filterSerially(
+      List<ChangeData> candidates, Predicate<ChangeData> matcher) {
+    List<ChangeData> r = new ArrayList<>(candidates.size());
+    for (ChangeData cd : candidates) {
+      if (matcher.test(cd)) {
+        r.add(cd);
+      }
+    }
+    return r;
+  }
+
+  private List<ChangeData> filterConcurrently(
+      List<ChangeData> candidates, Predicate<ChangeData> matcher, int helpers) {
+    int n = candidates.size();
+    boolean[] matches = new boolean[n];
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger threads = new AtomicInteger();
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(n);
+
+    Runnable worker =
+        () -> {
+          boolean participated = false;
+          for (int i = next.getAndIncrement(); i < n; i = next.getAndIncrement()) {
+            if (!participated) {
+              participated = true;
+              threads.incrementAndGet();
+            }
+            try {
+              if (failure.get() == null) {
+                matches[i] = matcher.test(candidates.get(i));
+              }
+            } catch (RuntimeException e) {
+              failure.compareAndSet(null, e);
+            } finally {
+              done.countDown();
+            }
+          }
+        };
+
+    List<Future<?>> futures = new ArrayList<>(helpers);
+    try {
+      for (int i = 0; i < helpers; i++) {
+        futures.add(executor.submit(worker));
+      }
+    } catch (RejectedExecutionException e) {
+      logger.atFine().withCause(e).log("Cannot fan out post-filter evaluation");
+    }
+
+    worker.run();
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageException("interrupted while matching changes", e);
+    } finally {
+      // Helpers that did not start yet have nothing left to do.
+      futures.forEach(f -> f.cancel(false));
+    }
+
+    metrics.parallelism.record(threads.get());
+    logger.atFine().log("Matched %d changes against post-filters on %d threads", n, threads.get());
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+
+    List<ChangeData> r = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      if (matches[i]) {
+        r.add(candidates.get(i));
+      }
+    }
+    return r;
+  }
+}
@@ -97,6 +97,7 @@ public class ChangeRestApiModule extends RestApiModule {
     post(CHANGE_KIND, "hashtags").to(PostHashtags.class);
     get(CHANGE_KIND, "in").to(ChangeIncludedIn.class);
     post(CHANGE_KIND, "index").to(Index.class);
+    post(CHANGE_KIND, "meta_compact").to(CompactMeta.class);
     get(CHANGE_KIND, "meta_diff").to(GetMetaDiff.class);
     post(CHANGE_KIND, "merge").to(CreateMergePatchSet.class);
     get(CHANGE_KIND, "validation-options").to(GetValidationOptions.class);
@@ -33,6 +33,7 @@ import com.google.gerrit.metrics.Counter0;
 import com.google.gerrit.metrics.Description;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.server.CommentsUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.logging.Metadata;
 import com.google.gerrit.server.logging.TraceContext;
 import com.google.gerrit.server.logging.TraceContext.TraceTimer;
@@ -47,9 +48,8 @@ import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
 import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
 import com.google.gerrit.server.patch.GitPositionTransformer.Position;
 import com.google.gerrit.server.patch.GitPositionTransformer.PositionedEntity;
+import com.google.gerrit.server.patch.PositionMappingCache;
 import com.google.gerrit.server.patch.filediff.FileDiffOutput;
-import com.google.gerrit.server.patch.filediff.FileEdits;
-import com.google.gerrit.server.patch.filediff.TaggedEdit;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.List;
@@ -57,6 +57,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectId;
 
 /**
@@ -66,6 +67,10 @@ import org.eclipse.jgit.lib.ObjectId;
  * patchset. If a comment eligible for porting (e.g. before target patchset) can't be matched to its
  * exact position in the target patchset, we'll map it to its next best location. This can also
  * include a transformation of a line comment into a file comment.
+ *
+ * <p>If {@code change.portCommentsIncrementally} is set, comments are ported along the chain of
+ * all patchsets between the original and the target patchset. The mappings between consecutive
+ * patchsets are cached and chained, so that a new patchset only requires one additional diff.
  */
 @Singleton
 public class CommentPorter {
@@ -105,14 +110,23 @@ public class CommentPorter {
   private final DiffOperations diffOperations;
   private final GitPositionTransformer positionTransformer =
       new GitPositionTransformer(BestPositionOnConflict.INSTANCE);
+  private final PositionMappingCache positionMappingCache;
   private final CommentsUtil commentsUtil;
   private final Metrics metrics;
+  private final boolean portIncrementally;
 
   @Inject
-  public CommentPorter(DiffOperations diffOperations, CommentsUtil commentsUtil, Metrics metrics) {
+  public CommentPorter(
+      DiffOperations diffOperations,
+      PositionMappingCache positionMappingCache,
+      CommentsUtil commentsUtil,
+      Metrics metrics,
+      @GerritServerConfig Config cfg) {
     this.diffOperations = diffOperations;
+    this.positionMappingCache = positionMappingCache;
     this.commentsUtil = commentsUtil;
     this.metrics = metrics;
+    this.portIncrementally = cfg.getBoolean("change", "portCommentsIncrementally", false);
   }
 
   /**
@@ -190,6 +204,7 @@ public class CommentPorter {
                 notes.getProjectName(),
                 notes.getChange(),
                 originalPatchset,
+                getIntermediatePatchsets(notes, originalPatchset, targetPatchset),
                 targetPatchset,
                 patchsetComments));
       } else {
@@ -202,10 +217,23 @@ public class CommentPorter {
     return portedComments.build();
   }
 
+  private ImmutableList<PatchSet> getIntermediatePatchsets(
+      ChangeNotes notes, PatchSet originalPatchset, PatchSet targetPatchset) {
+    if (!portIncrementally) {
+      return ImmutableList.of();
+    }
+    return notes
+        .getPatchSets()
+        .subMap(originalPatchset.id(), false, targetPatchset.id(), false)
+        .values()
+        .asList();
+  }
+
   private ImmutableList<HumanComment> portSamePatchset(
       Project.NameKey project,
       Change change,
       PatchSet originalPatchset,
+      ImmutableList<PatchSet> intermediatePatchsets,
       PatchSet targetPatchset,
       ImmutableList<HumanComment> comments) {
     try (TraceTimer ignored =
@@ -225,6 +253,7 @@ public class CommentPorter {
                 project,
                 change,
                 originalPatchset,
+                intermediatePatchsets,
                 targetPatchset,
                 sideAndComments.getValue(),
                 sideAndComments.getKey()));
@@ -237,6 +266,7 @@ public class CommentPorter {
       Project.NameKey project,
       Change change,
       PatchSet originalPatchset,
+      ImmutableList<PatchSet> intermediatePatchsets,
       PatchSet targetPatchset,
       List<HumanComment> comments,
       short side) {
@@ -251,7 +281,9 @@ public class CommentPorter {
                 .build())) {
       ImmutableSet<Mapping> mappings;
       try {
-        mappings = loadMappings(project, change, originalPatchset, targetPatchset, side);
+        mappings =
+            loadMappings(
+                project, change, originalPatchset, intermediatePatchsets, targetPatchset, side);
       } catch (Exception e) {
         logger.atWarning().withCause(e).log(
             "Could not determine some necessary diff mappings for porting comments on change %s"
@@ -280,6 +312,7 @@ public class CommentPorter {
       Project.NameKey project,
       Change change,
       PatchSet originalPatchset,
+      ImmutableList<PatchSet> intermediatePatchsets,
       PatchSet targetPatchset,
       short side)
       throws DiffNotAvailableException {
@@ -293,6 +326,18 @@ public class CommentPorter {
                 .build())) {
       ObjectId originalCommit = determineCommitId(change, originalPatchset, side);
       ObjectId targetCommit = determineCommitId(change, targetPatchset, side);
+      if (portIncrementally) {
+        // Intermediate patchsets without a commit for the side (e.g. a merge parent which doesn't
+        // exist) are skipped. Chaining through fewer patchsets is still valid.
+        ImmutableList.Builder<ObjectId> commits = ImmutableList.builder();
+        commits.add(originalCommit);
+        intermediatePatchsets.stream()
+            .map(patchset -> commentsUtil.determineCommitId(change, patchset, side))
+            .flatMap(Optional::stream)
+            .forEach(commits::add);
+        commits.add(targetCommit);
+        return positionMappingCache.get(project, commits.build());
+      }
       return loadCommitMappings(project, originalCommit, targetCommit);
     }
   }
@@ -320,20 +365,10 @@ public class CommentPorter {
               originalCommit,
               targetCommit,
               DiffOptions.builder().skipFilesWithAllEditsDueToRebase(false).build());
-      return modifiedFiles.values().stream()
-          .map(CommentPorter::getFileEdits)
-          .map(DiffMappings::toMapping)
-          .collect(toImmutableSet());
+      return DiffMappings.toMappings(modifiedFiles.values());
     }
   }
 
-  private static FileEdits getFileEdits(FileDiffOutput fileDiffOutput) {
-    return FileEdits.create(
-        fileDiffOutput.edits().stream().map(TaggedEdit::edit).collect(toImmutableList()),
-        fileDiffOutput.oldPath(),
-        fileDiffOutput.newPath());
-  }
-
   private ImmutableSet<Mapping> getFallbackMappings(List<HumanComment> comments) {
     // Consider all files as deleted. -> Comments will be ported to the fallback destination, which
     // currently are patchset-level comments.
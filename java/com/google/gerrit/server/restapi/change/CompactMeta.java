@@ -0,0 +1,58 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.restapi.change;
+
+import com.google.gerrit.extensions.api.changes.CompactMetaInput;
+import com.google.gerrit.extensions.common.CompactMetaInfo;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestModifyView;
+import com.google.gerrit.server.change.ChangeMetaCompactor;
+import com.google.gerrit.server.change.ChangeResource;
+import com.google.gerrit.server.permissions.GlobalPermission;
+import com.google.gerrit.server.permissions.PermissionBackend;
+import com.google.gerrit.server.permissions.PermissionBackendException;
+import com.google.gerrit.server.update.UpdateException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+
+/** Compacts the history of the meta ref of a change. */
+@Singleton
+public class CompactMeta implements RestModifyView<ChangeResource, CompactMetaInput> {
+  private final PermissionBackend permissionBackend;
+  private final ChangeMetaCompactor compactor;
+
+  @Inject
+  CompactMeta(PermissionBackend permissionBackend, ChangeMetaCompactor compactor) {
+    this.permissionBackend = permissionBackend;
+    this.compactor = compactor;
+  }
+
+  @Override
+  public Response<CompactMetaInfo> apply(ChangeResource rsrc, CompactMetaInput input)
+      throws RestApiException, PermissionBackendException, UpdateException, IOException {
+    permissionBackend.currentUser().check(GlobalPermission.MAINTAIN_SERVER);
+    boolean dryRun = input != null && input.dryRun;
+
+    ChangeMetaCompactor.Result result =
+        compactor.compact(rsrc.getProject(), rsrc.getId(), rsrc.getUser(), dryRun);
+    CompactMetaInfo info = new CompactMetaInfo();
+    info.commitsBefore = result.commitsBefore();
+    info.commitsAfter = result.commitsAfter();
+    info.dryRun = dryRun ? true : null;
+    return Response.ok(info);
+  }
+}
@@ -30,6 +30,7 @@ import com.google.gerrit.extensions.restapi.BadRequestException;
 import com.google.gerrit.extensions.restapi.CacheControl;
 import com.google.gerrit.extensions.restapi.ChildCollection;
 import com.google.gerrit.extensions.restapi.IdString;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
 import com.google.gerrit.extensions.restapi.RestReadView;
@@ -112,6 +113,9 @@ public class Files implements ChildCollection<RevisionResource, FileResource> {
     @Option(name = "-q")
     String query;
 
+    @Option(name = "--approximate-stats")
+    boolean approximateStats;
+
     private final DiffOperations diffOperations;
     private final Provider<CurrentUser> self;
     private final FileInfoJson fileInfoJson;
@@ -183,13 +187,19 @@ public class Files implements ChildCollection<RevisionResource, FileResource> {
         }
         r =
             Response.ok(
-                fileInfoJson.getFileInfoMap(
-                    resource.getChange(), resource.getPatchSet().commitId(), parentNum));
+                approximateStats
+                    ? getFileInfoMapWithApproximateStats(resource, parentNum)
+                    : fileInfoJson.getFileInfoMap(
+                        resource.getChange(), resource.getPatchSet().commitId(), parentNum));
+      } else if (approximateStats) {
+        r = Response.ok(getFileInfoMapWithApproximateStats(resource, /* parentNum= */ 0));
       } else {
         r = Response.ok(fileInfoJson.getFileInfoMap(resource.getChange(), resource.getPatchSet()));
       }
 
-      if (resource.isCacheable()) {
+      // Approximate stats become exact once the file diffs are cached, don't let clients cache
+      // them.
+      if (resource.isCacheable() && !approximateStats) {
         r.caching(CacheControl.PRIVATE(7, TimeUnit.DAYS));
       }
       return r;
@@ -212,6 +222,22 @@ public class Files implements ChildCollection<RevisionResource, FileResource> {
       if (supplied > 1) {
         throw new BadRequestException("cannot combine base, parent, reviewed, query");
       }
+      if (approximateStats && base != null) {
+        throw new BadRequestException("cannot combine approximate-stats and base");
+      }
+    }
+
+    private Map<String, FileInfo> getFileInfoMapWithApproximateStats(
+        RevisionResource resource, int parentNum)
+        throws ResourceConflictException, PatchListNotAvailableException {
+      return fileInfoJson.getFileInfoMap(
+          resource.getProject(),
+          resource.getPatchSet().commitId(),
+          parentNum,
+          DiffOptions.builder()
+              .skipFilesWithAllEditsDueToRebase(true)
+              .approximateLineCounts(true)
+              .build());
     }
 
     private List<String> query(RevisionResource resource)
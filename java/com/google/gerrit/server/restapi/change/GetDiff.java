@@ -22,10 +22,12 @@ import com.google.common.flogger.FluentLogger;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.common.data.PatchScript;
+import com.google.gerrit.entities.Patch;
 import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.client.DiffPreferencesInfo;
 import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.extensions.common.ChangeType;
 import com.google.gerrit.extensions.common.DiffInfo;
 import com.google.gerrit.extensions.common.DiffWebLinkInfo;
 import com.google.gerrit.extensions.common.WebLinkInfo;
@@ -47,6 +49,7 @@ import com.google.gerrit.server.diff.DiffWebLinksProvider;
 import com.google.gerrit.server.git.LargeObjectException;
 import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.patch.PatchScriptFactory;
+import com.google.gerrit.server.patch.StreamingDiff;
 import com.google.gerrit.server.permissions.PermissionBackendException;
 import com.google.gerrit.server.project.InvalidChangeOperationException;
 import com.google.gerrit.server.project.NoSuchChangeException;
@@ -55,6 +58,8 @@ import com.google.gerrit.server.project.ProjectState;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.OptionalInt;
 import java.util.concurrent.TimeUnit;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
@@ -93,6 +98,18 @@ public class GetDiff implements RestReadView<FileResource> {
   @Option(name = "--intraline")
   boolean intraline;
 
+  @Option(
+      name = "--max-hunks",
+      metaVar = "CNT",
+      usage = "compute the diff in streaming mode, returning at most CNT hunks")
+  int maxHunks;
+
+  @Option(
+      name = "--continuation",
+      metaVar = "TOKEN",
+      usage = "continue a diff in streaming mode where the previous response ended")
+  String continuation;
+
   @Inject
   GetDiff(
       ProjectCache projectCache,
@@ -125,6 +142,14 @@ public class GetDiff implements RestReadView<FileResource> {
       prefs.ignoreWhitespace = Whitespace.IGNORE_LEADING_AND_TRAILING;
     }
     prefs.intralineDifference = intraline;
+    if (maxHunks > 0 && currentUser.get().isIdentifiedUser()) {
+      // In streaming mode only the lines around the hunks are returned, as many as configured in
+      // the user's diff preferences. Showing the whole file is not supported in streaming mode.
+      Integer userContext = currentUser.get().asIdentifiedUser().state().diffPreferences().context;
+      if (userContext != null && userContext >= 0) {
+        prefs.context = userContext;
+      }
+    }
     logger.atFine().log(
         "diff preferences: ignoreWhitespace = %s, intralineDifference = %s",
         prefs.ignoreWhitespace, prefs.intralineDifference);
@@ -155,6 +180,12 @@ public class GetDiff implements RestReadView<FileResource> {
       psf = patchScriptFactoryFactory.create(notes, fileName, null, pId, prefs, currentUser.get());
     }
 
+    if (maxHunks > 0) {
+      return Response.ok(stream(psf, fileName));
+    } else if (continuation != null) {
+      throw new BadRequestException("continuation requires max-hunks");
+    }
+
     try {
       PatchScript ps = psf.call();
       Project.NameKey projectName = resource.getRevision().getChange().getProject();
@@ -182,6 +213,69 @@ public class GetDiff implements RestReadView<FileResource> {
     }
   }
 
+  private DiffInfo stream(PatchScriptFactory psf, String fileName)
+      throws BadRequestException,
+          ResourceConflictException,
+          ResourceNotFoundException,
+          AuthException,
+          IOException,
+          PermissionBackendException {
+    StreamingDiff.Position start;
+    try {
+      start =
+          continuation != null
+              ? StreamingDiff.Position.parse(continuation)
+              : StreamingDiff.Position.START;
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage(), e);
+    }
+
+    StreamingDiff.Result diff;
+    try {
+      diff = psf.stream(maxHunks, start);
+    } catch (NoSuchChangeException e) {
+      throw new ResourceNotFoundException(e.getMessage(), e);
+    } catch (LargeObjectException e) {
+      throw new ResourceConflictException(e.getMessage(), e);
+    }
+
+    DiffInfo result = new DiffInfo();
+    result.changeType = ChangeType.valueOf(diff.changeType().name());
+    if (diff.changeType() != Patch.ChangeType.ADDED) {
+      result.metaA = fileMeta(fileName, diff.linesA());
+    }
+    if (diff.changeType() != Patch.ChangeType.DELETED) {
+      result.metaB = fileMeta(fileName, diff.linesB());
+    }
+    if (diff.binary()) {
+      result.binary = true;
+    }
+    result.content = new ArrayList<>(diff.chunks().size());
+    for (StreamingDiff.Chunk chunk : diff.chunks()) {
+      DiffInfo.ContentEntry e = new DiffInfo.ContentEntry();
+      if (chunk.skip() > 0) {
+        e.skip = chunk.skip();
+      } else if (!chunk.isHunk()) {
+        e.ab = chunk.common();
+      } else {
+        e.a = chunk.a().isEmpty() ? null : chunk.a();
+        e.b = chunk.b().isEmpty() ? null : chunk.b();
+      }
+      result.content.add(e);
+    }
+    result.continuation = diff.next().map(StreamingDiff.Position::toToken).orElse(null);
+    return result;
+  }
+
+  private static DiffInfo.FileMeta fileMeta(String fileName, OptionalInt lines) {
+    DiffInfo.FileMeta meta = new DiffInfo.FileMeta();
+    meta.name = fileName;
+    if (lines.isPresent()) {
+      meta.lines = lines.getAsInt();
+    }
+    return meta;
+  }
+
   private static class DiffWebLinksProviderImpl implements DiffWebLinksProvider {
 
     private final WebLinks webLinks;
@@ -286,6 +380,18 @@ public class GetDiff implements RestReadView<FileResource> {
     return this;
   }
 
+  @CanIgnoreReturnValue
+  public GetDiff setMaxHunks(int maxHunks) {
+    this.maxHunks = maxHunks;
+    return this;
+  }
+
+  @CanIgnoreReturnValue
+  public GetDiff setContinuation(String continuation) {
+    this.continuation = continuation;
+    return this;
+  }
+
   @Deprecated
   enum IgnoreWhitespace {
     NONE(DiffPreferencesInfo.Whitespace.IGNORE_NONE),
@@ -37,6 +37,7 @@ import com.google.gerrit.server.permissions.PermissionBackend;
 import com.google.gerrit.server.permissions.PermissionBackendException;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.gerrit.server.query.change.ChangeQueryBuilder;
+import com.google.gerrit.server.query.change.ChangeQueryCursor;
 import com.google.gerrit.server.query.change.ChangeQueryProcessor;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -59,6 +60,7 @@ public class QueryChanges implements RestReadView<TopLevelResource>, DynamicOpti
   private EnumSet<ListChangesOption> options;
   private Integer limit;
   private Integer start;
+  private String cursor;
   private Boolean noLimit;
   private Boolean allowIncompleteResults;
 
@@ -97,6 +99,14 @@ public class QueryChanges implements RestReadView<TopLevelResource>, DynamicOpti
     this.start = start;
   }
 
+  @Option(
+      name = "--cursor",
+      metaVar = "CURSOR",
+      usage = "Continue after the change the cursor of a previous query points to")
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
   @Option(
       name = "--no-limit",
       usage = "Return all results, overriding the default limit. Ignored for anonymous users.")
@@ -205,6 +215,20 @@ public class QueryChanges implements RestReadView<TopLevelResource>, DynamicOpti
       }
       queryProcessor.setStart(start);
     }
+    if (!Strings.isNullOrEmpty(cursor)) {
+      if (start != null && start > 0) {
+        throw new BadRequestException("'cursor' and 'start' parameters cannot be combined");
+      }
+      if (queries != null && queries.size() > 1) {
+        // A cursor is a position in the results of the query it was issued for.
+        throw new BadRequestException("'cursor' can only be used with a single query");
+      }
+      try {
+        queryProcessor.setSearchAfter(ChangeQueryCursor.decode(cursor));
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException(e.getMessage(), e);
+      }
+    }
     if (noLimit != null && !AnonymousUser.class.isAssignableFrom(userProvider.get().getClass())) {
       queryProcessor.setNoLimit(noLimit);
     }
@@ -222,13 +246,19 @@ public class QueryChanges implements RestReadView<TopLevelResource>, DynamicOpti
     }
 
     int cnt = queries.size();
-    List<QueryResult<ChangeData>> results = queryProcessor.query(qb.parse(queries));
+    List<QueryResult<ChangeData>> results =
+        queryProcessor.queryByStrings(queries, qb.parse(queries));
     List<List<ChangeInfo>> res =
         json.create(options, queryProcessor.getInfosFactory()).format(results);
     for (int n = 0; n < cnt; n++) {
       List<ChangeInfo> info = res.get(n);
       if (results.get(n).more() && !info.isEmpty()) {
-        Iterables.getLast(info)._moreChanges = true;
+        ChangeInfo last = Iterables.getLast(info);
+        last._moreChanges = true;
+        if (cnt == 1) {
+          last._cursor =
+              ChangeQueryCursor.after(Iterables.getLast(results.get(n).entities())).encode();
+        }
       }
     }
     return res;
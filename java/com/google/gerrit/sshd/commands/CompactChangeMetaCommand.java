@@ -0,0 +1,104 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd.commands;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.gerrit.sshd.CommandMetaData.Mode.MASTER;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.common.data.GlobalCapability;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.annotations.RequiresCapability;
+import com.google.gerrit.server.change.ChangeMetaCompactor;
+import com.google.gerrit.server.project.ProjectState;
+import com.google.gerrit.sshd.CommandMetaData;
+import com.google.gerrit.sshd.SshCommand;
+import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+@RequiresCapability(GlobalCapability.MAINTAIN_SERVER)
+@CommandMetaData(
+    name = "compact-change-meta",
+    description = "Compact the history of change meta refs",
+    runsAt = MASTER)
+public class CompactChangeMetaCommand extends SshCommand {
+  @Inject private ChangeMetaCompactor compactor;
+
+  @Option(
+      name = "--project",
+      aliases = {"-p"},
+      metaVar = "PROJECT",
+      required = true,
+      usage = "project of the changes to compact")
+  private ProjectState projectState;
+
+  @Option(name = "--dry-run", usage = "only report how far the changes can be compacted")
+  private boolean dryRun;
+
+  @Argument(
+      metaVar = "CHANGE",
+      usage = "numeric IDs of the changes to compact, all changes of the project if omitted")
+  private List<Integer> changes = new ArrayList<>();
+
+  @Override
+  protected void run() throws Exception {
+    enableGracefulStop();
+    Project.NameKey project = projectState.getNameKey();
+    ImmutableList<Change.Id> changeIds =
+        changes.isEmpty()
+            ? compactor.listChanges(project)
+            : changes.stream().map(Change::id).collect(toImmutableList());
+
+    int done = 0;
+    int compacted = 0;
+    int failed = 0;
+    long commitsBefore = 0;
+    long commitsAfter = 0;
+    for (Change.Id changeId : changeIds) {
+      done++;
+      try {
+        ChangeMetaCompactor.Result result = compactor.compact(project, changeId, user, dryRun);
+        commitsBefore += result.commitsBefore();
+        commitsAfter += result.commitsAfter();
+        if (result.compacted()) {
+          compacted++;
+        }
+        stdout.format(
+            "[%d/%d] change %d: %d -> %d commits\n",
+            done, changeIds.size(), changeId.get(), result.commitsBefore(), result.commitsAfter());
+      } catch (Exception e) {
+        failed++;
+        writeError(
+            "error",
+            String.format(
+                "[%d/%d] change %d: cannot compact: %s",
+                done, changeIds.size(), changeId.get(), e.getMessage()));
+      }
+      stdout.flush();
+    }
+    stdout.format(
+        "%s %d of %d changes, %d -> %d commits, %d failed\n",
+        dryRun ? "Can compact" : "Compacted",
+        compacted,
+        changeIds.size(),
+        commitsBefore,
+        commitsAfter,
+        failed);
+  }
+}
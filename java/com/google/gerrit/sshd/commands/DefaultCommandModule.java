@@ -63,6 +63,7 @@ public class DefaultCommandModule extends CommandModule {
     command(gerrit, VersionCommand.class);
     command(gerrit, GarbageCollectionCommand.class);
     command(gerrit, CleanupDraftComments.class);
+    command(gerrit, CompactChangeMetaCommand.class);
 
     command(gerrit, "plugin").toProvider(new DispatchCommandProvider(plugin));
     command(plugin, PluginLsCommand.class);
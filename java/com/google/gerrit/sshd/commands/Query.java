@@ -91,6 +91,14 @@ public class Query extends SshCommand implements DynamicOptions.BeanReceiver {
     processor.setStart(start);
   }
 
+  @Option(
+      name = "--cursor",
+      metaVar = "CURSOR",
+      usage = "Continue after the change the cursor of a previous query points to")
+  void setCursor(String cursor) {
+    processor.setCursor(cursor);
+  }
+
   @Option(name = "--no-limit", usage = "Return all results, overriding the default limit")
   void setNoLimit(boolean on) {
     processor.setNoLimit(on);
@@ -110,6 +110,7 @@ import com.google.gerrit.server.notedb.NoteDbStarredChangesModule;
 import com.google.gerrit.server.notedb.RepoSequence.DisabledGitRefUpdatedRepoGroupsSequenceProvider;
 import com.google.gerrit.server.notedb.RepoSequence.RepoSequenceModule;
 import com.google.gerrit.server.patch.DiffExecutor;
+import com.google.gerrit.server.patch.IntraLineDiffExecutor;
 import com.google.gerrit.server.permissions.DefaultPermissionBackendModule;
 import com.google.gerrit.server.plugins.ServerInformationImpl;
 import com.google.gerrit.server.project.DefaultLockManager.DefaultLockManagerModule;
@@ -275,6 +276,13 @@ public class InMemoryModule extends FactoryModule {
           public ExecutorService createDiffExecutor() {
             return newDirectExecutorService();
           }
+
+          @Provides
+          @Singleton
+          @IntraLineDiffExecutor
+          public ExecutorService createIntraLineDiffExecutor() {
+            return newDirectExecutorService();
+          }
         });
     install(new DefaultMemoryCacheModule());
     install(new H2CacheModule());
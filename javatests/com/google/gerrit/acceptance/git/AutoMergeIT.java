@@ -23,9 +23,11 @@ import com.google.common.collect.ImmutableMap;
 import com.google.gerrit.acceptance.AbstractDaemonTest;
 import com.google.gerrit.acceptance.GitUtil;
 import com.google.gerrit.acceptance.PushOneCommit;
+import com.google.gerrit.acceptance.config.GerritConfig;
 import com.google.gerrit.common.RawInputUtil;
 import com.google.gerrit.entities.RefNames;
 import com.google.gerrit.extensions.common.ChangeInput;
+import com.google.gerrit.extensions.common.DiffInfo;
 import com.google.gerrit.extensions.common.MergeInput;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.RefUpdate;
@@ -186,6 +188,29 @@ public class AutoMergeIT extends AbstractDaemonTest {
     assertAutoMergeCreated(result.getCommit());
   }
 
+  @Test
+  @GerritConfig(name = "change.autoMergeStorage", value = "cache")
+  public void noAutoMergeRefCreatedWhenStoredInCache() throws Exception {
+    PushOneCommit m =
+        pushFactory.create(
+            admin.newIdent(), testRepo, "merge", ImmutableMap.of("foo", "foo-1", "bar", "bar-2"));
+    m.setParents(ImmutableList.of(parent1, parent2));
+    PushOneCommit.Result result = m.to("refs/for/master");
+    result.assertOkStatus();
+
+    try (Repository repo = repoManager.openRepository(project)) {
+      assertThat(repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CACHE_AUTOMERGE)).isEmpty();
+    }
+
+    // Diffs against the auto-merge still work without the ref.
+    assertThat(gApi.changes().id(result.getChangeId()).current().files().keySet())
+        .containsAtLeast("foo", "bar");
+    DiffInfo diff = gApi.changes().id(result.getChangeId()).current().file("foo").diff();
+    assertThat(diff.metaA.name).isEqualTo("foo");
+    assertThat(diff.metaB.name).isEqualTo("foo");
+    assertThat(diff.content.stream().anyMatch(c -> c.b != null && c.b.contains("foo-1"))).isTrue();
+  }
+
   private void assertAutoMergeCreated(ObjectId mergeCommit) throws Exception {
     try (Repository repo = repoManager.openRepository(project)) {
       assertThat(repo.exactRef(RefNames.refsCacheAutomerge(mergeCommit.name()))).isNotNull();
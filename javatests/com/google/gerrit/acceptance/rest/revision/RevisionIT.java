@@ -15,6 +15,7 @@
 package com.google.gerrit.acceptance.rest.revision;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.acceptance.GitUtil.pushHead;
 import static com.google.gerrit.acceptance.PushOneCommit.FILE_CONTENT;
 import static com.google.gerrit.acceptance.PushOneCommit.FILE_NAME;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -25,6 +26,10 @@ import com.google.gerrit.acceptance.PushOneCommit;
 import com.google.gerrit.acceptance.RestResponse;
 import com.google.gerrit.extensions.api.changes.ReviewInput;
 import com.google.gerrit.extensions.common.ChangeInfo;
+import com.google.gerrit.extensions.common.FileInfo;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.Map;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Test;
 
@@ -92,6 +97,48 @@ public class RevisionIT extends AbstractDaemonTest {
     assertThat(info2.currentRevision).isEqualTo(ps2Commit.name());
   }
 
+  @Test
+  public void listFilesWithApproximateStats() throws Exception {
+    commitBuilder().add(FILE_NAME, "line1\nline2\n").message("Parent").create();
+    pushHead(testRepo, "refs/heads/master", false);
+    PushOneCommit.Result r = createChange("Swap lines", FILE_NAME, "line2\nline1\n");
+    r.assertOkStatus();
+    // Drop the file diffs that were computed when the change was created.
+    adminRestSession.post("/config/server/caches/gerrit_file_diff/flush").assertOK();
+
+    // The lines were only moved, which the estimate doesn't detect.
+    FileInfo approximate = listFiles(r, "?approximate-stats").get(FILE_NAME);
+    assertThat(approximate.linesInserted).isNull();
+    assertThat(approximate.linesDeleted).isNull();
+
+    FileInfo exact = listFiles(r, "").get(FILE_NAME);
+    assertThat(exact.linesInserted).isEqualTo(1);
+    assertThat(exact.linesDeleted).isEqualTo(1);
+
+    // Once the diff of the file is cached, its exact counts are returned.
+    assertThat(listFiles(r, "?approximate-stats").get(FILE_NAME)).isEqualTo(exact);
+  }
+
+  @Test
+  public void listFilesWithApproximateStatsAndBase() throws Exception {
+    PushOneCommit.Result r = createChange();
+    amendChange(r.getChangeId()).assertOkStatus();
+
+    adminRestSession
+        .get("/changes/" + r.getChangeId() + "/revisions/current/files/?approximate-stats&base=1")
+        .assertBadRequest();
+  }
+
+  private Map<String, FileInfo> listFiles(PushOneCommit.Result r, String query) throws Exception {
+    RestResponse response =
+        adminRestSession.get("/changes/" + r.getChangeId() + "/revisions/current/files/" + query);
+    response.assertOK();
+    Type type = new TypeToken<Map<String, FileInfo>>() {}.getType();
+    Map<String, FileInfo> files = newGson().fromJson(response.getReader(), type);
+    response.consume();
+    return files;
+  }
+
   private ChangeInfo checkRevisionReview(
       PushOneCommit.Result r, int psNum, ObjectId expectedRevision) throws Exception {
     gApi.changes().id(r.getChangeId()).current().review(ReviewInput.approve());
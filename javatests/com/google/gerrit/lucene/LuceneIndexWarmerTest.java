@@ -0,0 +1,112 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lucene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.index.query.Predicate;
+import com.google.gerrit.index.query.QueryParseException;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.ChangeQueryBuilder;
+import com.google.gerrit.server.query.change.ChangeQueryLog;
+import com.google.gerrit.server.query.change.ChangeQueryProcessor;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.OneOffRequestContext;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LuceneIndexWarmerTest {
+  private final ChangeQueryLog queryLog = mock(ChangeQueryLog.class);
+  private final ChangeQueryBuilder queryBuilder = mock(ChangeQueryBuilder.class);
+  private final ChangeQueryProcessor queryProcessor = mock(ChangeQueryProcessor.class);
+  private final OneOffRequestContext requestContext = mock(OneOffRequestContext.class);
+  private final Predicate<ChangeData> predicate = Predicate.any();
+
+  @Before
+  public void setUp() throws Exception {
+    when(queryLog.isEnabled()).thenReturn(true);
+    when(requestContext.open()).thenReturn(mock(ManualRequestContext.class));
+    when(queryBuilder.parse(any(String.class))).thenReturn(predicate);
+    when(queryProcessor.enforceVisibility(false)).thenReturn(queryProcessor);
+  }
+
+  @Test
+  public void disabledWithoutPreloadAndQueryLog() {
+    when(queryLog.isEnabled()).thenReturn(false);
+    LuceneIndexWarmer warmer = newWarmer(new Config());
+    assertThat(warmer.isEnabled()).isFalse();
+
+    warmer.warmUp();
+    verify(queryLog, never()).load();
+  }
+
+  @Test
+  public void replaysLoggedQueriesWithoutRecordingThem() throws Exception {
+    when(queryLog.load()).thenReturn(ImmutableList.of("status:open", "bad:query", "owner:self"));
+    when(queryBuilder.parse("bad:query")).thenThrow(new QueryParseException("bad"));
+
+    newWarmer(new Config()).warmUp();
+
+    verify(queryBuilder).parse("status:open");
+    verify(queryBuilder).parse("owner:self");
+    verify(queryProcessor, times(2)).enforceVisibility(false);
+    verify(queryProcessor, times(2)).query(predicate);
+    verify(queryLog, never()).record(any(String.class));
+  }
+
+  @Test
+  public void timeoutInterruptsWarmUp() throws Exception {
+    when(queryLog.load()).thenReturn(ImmutableList.of("status:open", "status:merged"));
+    CountDownLatch interrupted = new CountDownLatch(1);
+    when(queryProcessor.query(predicate))
+        .thenAnswer(
+            invocation -> {
+              try {
+                new CountDownLatch(1).await();
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+              }
+              return null;
+            });
+    Config cfg = new Config();
+    cfg.setString("index", "warmup", "timeout", "100ms");
+
+    newWarmer(cfg).warmUp();
+
+    assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    verify(queryBuilder, never()).parse("status:merged");
+  }
+
+  private LuceneIndexWarmer newWarmer(Config cfg) {
+    return new LuceneIndexWarmer(
+        cfg,
+        ImmutableList.of(),
+        queryLog,
+        requestContext,
+        () -> queryBuilder,
+        () -> queryProcessor);
+  }
+}
@@ -57,4 +57,26 @@ public class FileDiffOutputSerializerTest {
     byte[] serialized = FileDiffOutput.Serializer.INSTANCE.serialize(fileDiff);
     assertThat(FileDiffOutput.Serializer.INSTANCE.deserialize(serialized)).isEqualTo(fileDiff);
   }
+
+  @Test
+  public void roundTripWithSamePaths() {
+    FileDiffOutput fileDiff =
+        FileDiffOutput.builder()
+            .oldCommitId(ObjectId.fromString("dd4d2a1498870ca5fe415b33f65d052d69d9eaf5"))
+            .newCommitId(ObjectId.fromString("0cfaab3f2ba76f71798da0a2651f41be8d45f842"))
+            .comparisonType(ComparisonType.againstOtherPatchSet())
+            .oldPath(Optional.of("file.txt"))
+            .newPath(Optional.of("file.txt"))
+            .changeType(ChangeType.MODIFIED)
+            .size(23)
+            .sizeDelta(10)
+            .headerLines(ImmutableList.of())
+            .edits(ImmutableList.of(TaggedEdit.create(Edit.create(1, 5, 3, 4), false)))
+            .build();
+
+    byte[] serialized = FileDiffOutput.Serializer.INSTANCE.serialize(fileDiff);
+    FileDiffOutput deserialized = FileDiffOutput.Serializer.INSTANCE.deserialize(serialized);
+    assertThat(deserialized).isEqualTo(fileDiff);
+    assertThat(deserialized.newPath().get()).isSameInstanceAs(deserialized.oldPath().get());
+  }
 }
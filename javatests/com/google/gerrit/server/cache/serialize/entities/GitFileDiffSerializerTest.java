@@ -57,4 +57,23 @@ public class GitFileDiffSerializerTest {
     byte[] serialized = Serializer.INSTANCE.serialize(gitFileDiff);
     assertThat(Serializer.INSTANCE.deserialize(serialized)).isEqualTo(gitFileDiff);
   }
+
+  @Test
+  public void roundTripWithSamePaths() {
+    GitFileDiff gitFileDiff =
+        GitFileDiff.builder()
+            .edits(ImmutableList.of())
+            .fileHeader("file_header")
+            .oldPath(Optional.of("file.txt"))
+            .newPath(Optional.of("file.txt"))
+            .oldId(AbbreviatedObjectId.fromObjectId(OLD_ID))
+            .newId(AbbreviatedObjectId.fromObjectId(NEW_ID))
+            .changeType(ChangeType.MODIFIED)
+            .build();
+
+    byte[] serialized = Serializer.INSTANCE.serialize(gitFileDiff);
+    GitFileDiff deserialized = Serializer.INSTANCE.deserialize(serialized);
+    assertThat(deserialized).isEqualTo(gitFileDiff);
+    assertThat(deserialized.newPath().get()).isSameInstanceAs(deserialized.oldPath().get());
+  }
 }
@@ -40,4 +40,18 @@ public class GitModifiedFilesCacheKeySerializerTest {
     byte[] serialized = Serializer.INSTANCE.serialize(key);
     assertThat(Serializer.INSTANCE.deserialize(serialized)).isEqualTo(key);
   }
+
+  @Test
+  public void roundTripWithAcceleratedRenameDetection() {
+    GitModifiedFilesCacheKey key =
+        GitModifiedFilesCacheKey.builder()
+            .project(Project.NameKey.parse("Project/X"))
+            .aTree(TREE_ID_1)
+            .bTree(TREE_ID_2)
+            .renameScore(65)
+            .acceleratedRenameDetection(true)
+            .build();
+    byte[] serialized = Serializer.INSTANCE.serialize(key);
+    assertThat(Serializer.INSTANCE.deserialize(serialized)).isEqualTo(key);
+  }
 }
@@ -0,0 +1,97 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeIndexWatermarksTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final Project.NameKey PROJECT = Project.nameKey("foo/bar");
+
+  private Path dir;
+  private ChangeIndexWatermarks watermarks;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = temporaryFolder.newFolder().toPath().resolve(ChangeIndexWatermarks.DIR_NAME);
+    watermarks = new ChangeIndexWatermarks(dir);
+  }
+
+  @Test
+  public void missingWatermark() {
+    assertThat(watermarks.load(PROJECT)).isEmpty();
+  }
+
+  @Test
+  public void storeAndLoad() throws Exception {
+    ImmutableMap<Change.Id, ObjectId> metaRefs =
+        ImmutableMap.of(
+            Change.id(2), ObjectId.fromString("2222222222222222222222222222222222222222"),
+            Change.id(1), ObjectId.fromString("1111111111111111111111111111111111111111"));
+    watermarks.store(PROJECT, metaRefs);
+    assertThat(watermarks.load(PROJECT)).hasValue(metaRefs);
+    assertThat(watermarks.load(Project.nameKey("foo"))).isEmpty();
+  }
+
+  @Test
+  public void storeEmptyWatermark() throws Exception {
+    watermarks.store(PROJECT, ImmutableMap.of());
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of());
+  }
+
+  @Test
+  public void storeReplacesWatermark() throws Exception {
+    watermarks.store(
+        PROJECT,
+        ImmutableMap.of(
+            Change.id(1), ObjectId.fromString("1111111111111111111111111111111111111111")));
+    ImmutableMap<Change.Id, ObjectId> metaRefs =
+        ImmutableMap.of(
+            Change.id(3), ObjectId.fromString("3333333333333333333333333333333333333333"));
+    watermarks.store(PROJECT, metaRefs);
+    assertThat(watermarks.load(PROJECT)).hasValue(metaRefs);
+  }
+
+  @Test
+  public void deleteWatermark() throws Exception {
+    watermarks.store(PROJECT, ImmutableMap.of());
+    watermarks.delete(PROJECT);
+    assertThat(watermarks.load(PROJECT)).isEmpty();
+  }
+
+  @Test
+  public void invalidWatermarkIsIgnored() throws Exception {
+    watermarks.store(PROJECT, ImmutableMap.of());
+    try (Stream<Path> files = Files.list(dir)) {
+      Path file = files.findFirst().get();
+      Files.writeString(file, "1 not-a-sha1\n", UTF_8);
+    }
+    assertThat(watermarks.load(PROJECT)).isEmpty();
+  }
+}
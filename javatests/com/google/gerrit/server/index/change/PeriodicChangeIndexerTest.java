@@ -0,0 +1,136 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.testing.InMemoryRepositoryManager;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PeriodicChangeIndexerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final Change.Id C1 = Change.id(1);
+  private static final Change.Id C2 = Change.id(2);
+
+  private final ChangeIndexer indexer = mock(ChangeIndexer.class);
+  private TestRepository<InMemoryRepository> tr;
+  private ChangeIndexWatermarks watermarks;
+  private PeriodicChangeIndexer periodicIndexer;
+
+  @Before
+  public void setUp() throws Exception {
+    InMemoryRepositoryManager repoManager = new InMemoryRepositoryManager();
+    tr = new TestRepository<>(repoManager.createRepository(PROJECT));
+    watermarks =
+        new ChangeIndexWatermarks(
+            temporaryFolder.newFolder().toPath().resolve(ChangeIndexWatermarks.DIR_NAME));
+    periodicIndexer = new PeriodicChangeIndexer(repoManager, indexer, watermarks);
+
+    when(indexer.submitReindexIfStale(any(Project.NameKey.class), any(Change.Id.class)))
+        .thenReturn(Optional.of(Futures.immediateFuture(false)));
+    when(indexer.deleteAsync(any(Project.NameKey.class), any(Change.Id.class)))
+        .thenReturn(Futures.immediateFuture(null));
+  }
+
+  @Test
+  public void firstScanChecksAllChanges() throws Exception {
+    RevCommit meta1 = updateMetaRef(C1);
+    RevCommit meta2 = updateMetaRef(C2);
+
+    assertThat(periodicIndexer.scan(PROJECT)).isEqualTo(2);
+    verify(indexer).submitReindexIfStale(PROJECT, C1);
+    verify(indexer).submitReindexIfStale(PROJECT, C2);
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of(C1, meta1, C2, meta2));
+  }
+
+  @Test
+  public void onlyUpdatedAndRemovedChangesAreChecked() throws Exception {
+    updateMetaRef(C1);
+    updateMetaRef(C2);
+    periodicIndexer.scan(PROJECT);
+
+    RevCommit meta1 = updateMetaRef(C1);
+    tr.delete(RefNames.changeMetaRef(C2));
+
+    assertThat(periodicIndexer.scan(PROJECT)).isEqualTo(2);
+    verify(indexer, times(2)).submitReindexIfStale(PROJECT, C1);
+    verify(indexer, times(1)).submitReindexIfStale(PROJECT, C2);
+    verify(indexer).deleteAsync(PROJECT, C2);
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of(C1, meta1));
+
+    assertThat(periodicIndexer.scan(PROJECT)).isEqualTo(0);
+  }
+
+  @Test
+  public void changeWithQueuedCheckKeepsOldWatermark() throws Exception {
+    RevCommit oldMeta1 = updateMetaRef(C1);
+    periodicIndexer.scan(PROJECT);
+
+    RevCommit meta1 = updateMetaRef(C1);
+    RevCommit meta2 = updateMetaRef(C2);
+    when(indexer.submitReindexIfStale(PROJECT, C1)).thenReturn(Optional.empty());
+    when(indexer.submitReindexIfStale(PROJECT, C2)).thenReturn(Optional.empty());
+
+    assertThat(periodicIndexer.scan(PROJECT)).isEqualTo(0);
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of(C1, oldMeta1));
+
+    when(indexer.submitReindexIfStale(PROJECT, C1))
+        .thenReturn(Optional.of(Futures.immediateFuture(true)));
+    when(indexer.submitReindexIfStale(PROJECT, C2))
+        .thenReturn(Optional.of(Futures.immediateFuture(true)));
+    assertThat(periodicIndexer.scan(PROJECT)).isEqualTo(2);
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of(C1, meta1, C2, meta2));
+  }
+
+  @Test
+  public void failedCheckKeepsWatermark() throws Exception {
+    RevCommit oldMeta1 = updateMetaRef(C1);
+    periodicIndexer.scan(PROJECT);
+
+    updateMetaRef(C1);
+    when(indexer.submitReindexIfStale(PROJECT, C1))
+        .thenReturn(Optional.of(Futures.immediateFailedFuture(new IllegalStateException())));
+
+    assertThrows(ExecutionException.class, () -> periodicIndexer.scan(PROJECT));
+    assertThat(watermarks.load(PROJECT)).hasValue(ImmutableMap.of(C1, oldMeta1));
+    verify(indexer, never()).deleteAsync(any(Project.NameKey.class), any(Change.Id.class));
+  }
+
+  private RevCommit updateMetaRef(Change.Id id) throws Exception {
+    return tr.update(RefNames.changeMetaRef(id), tr.commit().message("update " + id).create());
+  }
+}
@@ -0,0 +1,197 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.HumanComment;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.util.time.TimeUtil;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.Test;
+
+public class AllUsersWritePipelineTest extends AbstractChangeNotesTest {
+  private final GitReferenceUpdated pipelineRefUpdated = mock(GitReferenceUpdated.class);
+
+  @Test
+  public void coalescesQueuedWrites() throws Exception {
+    Change c = newChange();
+    HumanComment ownerDraft = putDraft(c, changeOwner);
+    HumanComment otherDraft = putDraft(c, otherUser);
+
+    runBlocked(
+        /* maxBatchSize= */ 10,
+        pipeline -> {
+          enqueuePublish(pipeline, c, changeOwner, ownerDraft);
+          enqueuePublish(pipeline, c, otherUser, otherDraft);
+        });
+
+    assertThat(newNotes(c).getDraftComments(changeOwnerId)).isEmpty();
+    assertThat(newNotes(c).getDraftComments(otherUserId)).isEmpty();
+    verify(pipelineRefUpdated, times(2))
+        .fire(eq(allUsers), any(ReceiveCommand.class), any(AccountState.class));
+    verify(pipelineRefUpdated, never())
+        .fire(any(Project.NameKey.class), any(BatchRefUpdate.class), any(AccountState.class));
+  }
+
+  @Test
+  public void writesAtMostMaxBatchSizeWritesInOneBatch() throws Exception {
+    Change c = newChange();
+    HumanComment ownerDraft = putDraft(c, changeOwner);
+    HumanComment otherDraft = putDraft(c, otherUser);
+
+    runBlocked(
+        /* maxBatchSize= */ 1,
+        pipeline -> {
+          enqueuePublish(pipeline, c, changeOwner, ownerDraft);
+          enqueuePublish(pipeline, c, otherUser, otherDraft);
+        });
+
+    assertThat(newNotes(c).getDraftComments(changeOwnerId)).isEmpty();
+    assertThat(newNotes(c).getDraftComments(otherUserId)).isEmpty();
+    verify(pipelineRefUpdated, times(2))
+        .fire(eq(allUsers), any(BatchRefUpdate.class), any(AccountState.class));
+  }
+
+  @Test
+  public void drainingContinuesAfterUnexpectedError() throws Exception {
+    Change c = newChange();
+    HumanComment ownerDraft = putDraft(c, changeOwner);
+    HumanComment otherDraft = putDraft(c, otherUser);
+    doThrow(new AssertionError("unexpected"))
+        .doNothing()
+        .when(pipelineRefUpdated)
+        .fire(eq(allUsers), any(BatchRefUpdate.class), any(AccountState.class));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      AllUsersWritePipeline pipeline = newPipeline(executor, /* maxBatchSize= */ 1);
+      enqueuePublish(pipeline, c, changeOwner, ownerDraft);
+      // The error aborts the drain of the first write, the next write is drained by a new task.
+      verify(pipelineRefUpdated, timeout(10_000))
+          .fire(eq(allUsers), any(BatchRefUpdate.class), any(AccountState.class));
+      enqueuePublish(pipeline, c, otherUser, otherDraft);
+      verify(pipelineRefUpdated, timeout(10_000).times(2))
+          .fire(eq(allUsers), any(BatchRefUpdate.class), any(AccountState.class));
+    } finally {
+      MoreExecutors.shutdownAndAwaitTermination(executor, 10, TimeUnit.SECONDS);
+    }
+    assertThat(newNotes(c).getDraftComments(otherUserId)).isEmpty();
+  }
+
+  private interface PipelineConsumer {
+    void accept(AllUsersWritePipeline pipeline) throws Exception;
+  }
+
+  /** Queues writes while the executor is busy, then lets the pipeline write them. */
+  private void runBlocked(int maxBatchSize, PipelineConsumer enqueue) throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      AllUsersWritePipeline pipeline = newPipeline(executor, maxBatchSize);
+      CountDownLatch blocked = new CountDownLatch(1);
+      executor.execute(
+          () -> {
+            try {
+              blocked.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+      enqueue.accept(pipeline);
+      blocked.countDown();
+    } finally {
+      MoreExecutors.shutdownAndAwaitTermination(executor, 10, TimeUnit.SECONDS);
+    }
+  }
+
+  private AllUsersWritePipeline newPipeline(ExecutorService executor, int maxBatchSize) {
+    return new AllUsersWritePipeline(
+        executor,
+        allUsers,
+        repoManager,
+        pipelineRefUpdated,
+        injector.getInstance(DraftCommentIndex.class),
+        new NoteDbMetrics(new DisabledMetricMaker()),
+        maxBatchSize,
+        /* coalesceWindowMillis= */ 0);
+  }
+
+  private void enqueuePublish(
+      AllUsersWritePipeline pipeline, Change c, IdentifiedUser user, HumanComment draft)
+      throws Exception {
+    ChangeDraftNotesUpdate update =
+        injector
+            .getInstance(ChangeDraftNotesUpdate.Factory.class)
+            .create(
+                newNotes(c),
+                user.getAccountId(),
+                user.getAccountId(),
+                serverIdent,
+                TimeUtil.now());
+    update.markDraftCommentAsPublished(draft);
+    String ref = RefNames.refsDraftComments(c.getId(), user.getAccountId());
+    pipeline.enqueue(
+        ImmutableListMultimap.of(ref, update),
+        serverIdent,
+        /* refLogIdent= */ null,
+        /* refLogMessage= */ null,
+        /* pushCert= */ null,
+        user);
+  }
+
+  private HumanComment putDraft(Change c, IdentifiedUser user) throws Exception {
+    HumanComment draft =
+        newComment(
+            c.currentPatchSetId(),
+            "filename",
+            "uuid-" + user.getAccountId(),
+            null,
+            0,
+            user,
+            null,
+            TimeUtil.now(),
+            "comment",
+            (short) 0,
+            ObjectId.fromString("abcd1234abcd1234abcd1234abcd1234abcd1234"),
+            false);
+    ChangeUpdate update = newUpdate(c, user);
+    update.putComment(HumanComment.Status.DRAFT, draft);
+    update.commit();
+    assertThat(newNotes(c).getDraftComments(user.getAccountId())).hasSize(1);
+    return draft;
+  }
+}
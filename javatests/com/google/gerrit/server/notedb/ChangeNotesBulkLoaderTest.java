@@ -0,0 +1,112 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.git.validators.TopicValidator;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ChangeNotesResult;
+import com.google.gerrit.server.notedb.ChangeNotes.Factory.ProjectChange;
+import com.google.gerrit.server.project.NoSuchChangeException;
+import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ChangeNotesBulkLoaderTest extends AbstractChangeNotesTest {
+  private final TopicValidator topicValidator = mock(TopicValidator.class);
+
+  @Inject private NoteDbRefs noteDbRefs;
+
+  @Test
+  public void returnsResultsInInputOrder() throws Exception {
+    Change c1 = newChangeWithTopic("topic1");
+    Change c2 = newChangeWithTopic("topic2");
+    Change.Id missing = Change.id(c2.getChangeId() + 100);
+
+    ImmutableList<ChangeNotesResult> results =
+        changeNotesFactory.createBulk(
+            ImmutableList.of(
+                ProjectChange.create(project, c2.getId()),
+                ProjectChange.create(project, missing),
+                ProjectChange.create(project, c1.getId())));
+
+    assertThat(results.stream().map(ChangeNotesResult::id).collect(toImmutableList()))
+        .containsExactly(c2.getId(), missing, c1.getId())
+        .inOrder();
+    assertThat(results.get(0).notes().getChange().getTopic()).isEqualTo("topic2");
+    assertThat(results.get(1).error().get()).isInstanceOf(NoSuchChangeException.class);
+    assertThat(results.get(2).notes().getChange().getTopic()).isEqualTo("topic1");
+  }
+
+  @Test
+  public void changesOfMissingProjectDontExist() throws Exception {
+    Change c = newChangeWithTopic("topic");
+
+    ImmutableList<ChangeNotesResult> results =
+        changeNotesFactory.createBulk(
+            ImmutableList.of(
+                ProjectChange.create(Project.nameKey("missing"), c.getId()),
+                ProjectChange.create(project, c.getId())));
+
+    assertThat(results.get(0).error().get()).isInstanceOf(NoSuchChangeException.class);
+    assertThat(results.get(1).notes().getMetaId()).isEqualTo(newNotes(c).getMetaId());
+  }
+
+  @Test
+  public void loadsChangesConcurrently() throws Exception {
+    List<Change> changes = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      changes.add(newChangeWithTopic("topic" + i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      ChangeNotesBulkLoader loader = new ChangeNotesBulkLoader(args, noteDbRefs, executor, 4);
+      ImmutableList<ChangeNotesResult> results =
+          loader.load(
+              changes.stream()
+                  .map(c -> ProjectChange.create(project, c.getId()))
+                  .collect(toImmutableList()));
+
+      assertThat(results).hasSize(changes.size());
+      for (int i = 0; i < changes.size(); i++) {
+        ChangeNotes notes = results.get(i).notes();
+        assertThat(notes.getChangeId()).isEqualTo(changes.get(i).getId());
+        assertThat(notes.getMetaId()).isEqualTo(newNotes(changes.get(i)).getMetaId());
+        assertThat(notes.getChange().getTopic()).isEqualTo("topic" + i);
+      }
+    } finally {
+      MoreExecutors.shutdownAndAwaitTermination(executor, 10, TimeUnit.SECONDS);
+    }
+  }
+
+  private Change newChangeWithTopic(String topic) throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.setTopic(topic, topicValidator);
+    update.commit();
+    return c;
+  }
+}
@@ -112,6 +112,27 @@ public class ChangeNotesCommitTest extends AbstractChangeNotesTest {
     assertThat(((ChangeNotesCommit) commit).isAttentionSetCommitOnly(true)).isEqualTo(false);
   }
 
+  @Test
+  public void footerLineValuesAreMatchedCaseInsensitively() throws Exception {
+    ChangeNotesCommit commit =
+        (ChangeNotesCommit)
+            writeCommit(
+                "Update patch set 1\n"
+                    + "\n"
+                    + "Patch-set: 1\n"
+                    + "hashtags: foo\n"
+                    + "Label: Code-Review+1\n"
+                    + "LABEL: Verified+1\n");
+
+    assertThat(commit.getFooterLineValues(ChangeNoteFooters.FOOTER_PATCH_SET)).containsExactly("1");
+    assertThat(commit.getFooterLineValues(ChangeNoteFooters.FOOTER_HASHTAGS))
+        .containsExactly("foo");
+    assertThat(commit.getFooterLineValues(ChangeNoteFooters.FOOTER_LABEL))
+        .containsExactly("Code-Review+1", "Verified+1")
+        .inOrder();
+    assertThat(commit.getFooterLineValues(ChangeNoteFooters.FOOTER_STATUS)).isEmpty();
+  }
+
   private ChangeNotesParser newParser(ObjectId tip) throws Exception {
     walk.reset();
     ChangeNoteJson changeNoteJson = injector.getInstance(ChangeNoteJson.class);
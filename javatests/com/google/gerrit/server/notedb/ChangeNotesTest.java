@@ -2151,6 +2151,232 @@ public class ChangeNotesTest extends AbstractChangeNotesTest {
     }
   }
 
+  @Test
+  public void parseIncrementallyOnTopOfPriorState() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.putReviewer(otherUser.getAccount().id(), REVIEWER);
+    update.putApproval(LabelId.CODE_REVIEW, (short) 1);
+    update.setChangeMessage("first");
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    update = newUpdate(c, otherUser);
+    update.putApproval(LabelId.CODE_REVIEW, (short) -1);
+    update.setHashtags(ImmutableSet.of("foo"));
+    update.setChangeMessage("second");
+    update.commit();
+    incrementPatchSet(c);
+    update = newUpdate(c, changeOwner);
+    update.putApproval(LabelId.VERIFIED, (short) 1);
+    update.putComment(
+        HumanComment.Status.PUBLISHED,
+        newComment(
+            c.currentPatchSetId(),
+            "a.txt",
+            "uuid1",
+            new CommentRange(1, 2, 3, 4),
+            1,
+            changeOwner,
+            null,
+            TimeUtil.now(),
+            "comment",
+            (short) 1,
+            ObjectId.fromString("abcd1234abcd1234abcd1234abcd1234abcd1234"),
+            false));
+    update.commit();
+    ObjectId tip = newNotes(c).getRevision();
+
+    ChangeNotesState prior = parseAll(c, priorMetaId);
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      assertThat(newParser(c, tip, rw).parseIncrementally(prior)).hasValue(parseAll(c, tip));
+    }
+  }
+
+  @Test
+  public void parseIncrementallyFailsOnStatusChange() throws Exception {
+    Change c = newChange();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.setStatus(Change.Status.ABANDONED);
+    update.commit();
+    ObjectId tip = newNotes(c).getRevision();
+
+    ChangeNotesState prior = parseAll(c, priorMetaId);
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      assertThat(newParser(c, tip, rw).parseIncrementally(prior)).isEmpty();
+    }
+  }
+
+  @Test
+  public void parseIncrementallyWithReviewerRemoval() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.putReviewer(otherUser.getAccount().id(), REVIEWER);
+    update.putReviewer(changeOwner.getAccount().id(), REVIEWER);
+    update.commit();
+    update = newUpdate(c, otherUser);
+    update.putApproval(LabelId.CODE_REVIEW, (short) 1);
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    update = newUpdate(c, changeOwner);
+    update.removeReviewer(otherUser.getAccount().id());
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+  }
+
+  @Test
+  public void parseIncrementallyWithAttentionSetUpdates() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.addToPlannedAttentionSetUpdates(
+        AttentionSetUpdate.createForWrite(otherUser.getAccountId(), Operation.ADD, "reviewer"));
+    update.addToPlannedAttentionSetUpdates(
+        AttentionSetUpdate.createForWrite(changeOwner.getAccountId(), Operation.ADD, "owner"));
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    update = newUpdate(c, otherUser);
+    update.addToPlannedAttentionSetUpdates(
+        AttentionSetUpdate.createForWrite(otherUser.getAccountId(), Operation.REMOVE, "replied"));
+    update.commit();
+    update = newUpdate(c, changeOwner);
+    update.addToPlannedAttentionSetUpdates(
+        AttentionSetUpdate.createForWrite(changeOwner.getAccountId(), Operation.REMOVE, "done"));
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+  }
+
+  @Test
+  public void parseIncrementallyWithWorkInProgressToggles() throws Exception {
+    Change c = newWorkInProgressChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.putReviewer(otherUser.getAccount().id(), REVIEWER);
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    update = newUpdate(c, changeOwner);
+    update.putReviewer(Account.id(3), CC);
+    update.commit();
+    update = newUpdate(c, changeOwner);
+    update.setWorkInProgress(false);
+    update.commit();
+    update = newUpdate(c, changeOwner);
+    update.setWorkInProgress(true);
+    update.putReviewer(Account.id(4), REVIEWER);
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+
+    // Pending reviewers of the prior state that is still work in progress.
+    priorMetaId = newNotes(c).getRevision();
+    update = newUpdate(c, changeOwner);
+    update.putReviewer(Account.id(5), REVIEWER);
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+  }
+
+  @Test
+  public void parseIncrementallyWithNewPatchSetAndComments() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.putComment(
+        HumanComment.Status.PUBLISHED,
+        newComment(
+            c.currentPatchSetId(),
+            "a.txt",
+            "uuid1",
+            new CommentRange(1, 2, 3, 4),
+            1,
+            changeOwner,
+            null,
+            TimeUtil.now(),
+            "prior comment",
+            (short) 1,
+            ObjectId.fromString("abcd1234abcd1234abcd1234abcd1234abcd1234"),
+            false));
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    incrementPatchSet(c);
+    update = newUpdate(c, otherUser);
+    update.putComment(
+        HumanComment.Status.PUBLISHED,
+        newComment(
+            c.currentPatchSetId(),
+            "a.txt",
+            "uuid2",
+            new CommentRange(1, 2, 3, 4),
+            1,
+            otherUser,
+            "uuid1",
+            TimeUtil.now(),
+            "new comment",
+            (short) 1,
+            ObjectId.fromString("1234abcd1234abcd1234abcd1234abcd1234abcd"),
+            true));
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+  }
+
+  @Test
+  public void parseIncrementallyWithCustomKeyedValues() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.addCustomKeyedValue("first", "1");
+    update.addCustomKeyedValue("second", "2");
+    update.addCustomKeyedValue("third", "3");
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    update = newUpdate(c, changeOwner);
+    update.addCustomKeyedValue("first", "one");
+    update.deleteCustomKeyedValue("second");
+    update.addCustomKeyedValue("fourth", "4");
+    update.commit();
+
+    assertParseIncrementallyMatchesParseAll(c, priorMetaId);
+  }
+
+  @Test
+  public void parseIncrementallyFallsBackOnSubmit() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.putApproval(LabelId.CODE_REVIEW, (short) 1);
+    update.commit();
+    ObjectId priorMetaId = newNotes(c).getRevision();
+
+    // Submit records are only written together with the merged status.
+    update = newUpdate(c, changeOwner);
+    update.merge(
+        new SubmissionId(c),
+        ImmutableList.of(
+            submitRecord(
+                "OK", null, submitLabel(LabelId.CODE_REVIEW, "OK", changeOwner.getAccountId()))));
+    update.commit();
+    ObjectId tip = newNotes(c).getRevision();
+
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      assertThat(newParser(c, tip, rw).parseIncrementally(parseAll(c, priorMetaId))).isEmpty();
+    }
+    assertThat(parseAll(c, tip).submitRecords()).hasSize(1);
+
+    // Neither can post-submit updates be parsed on top of the merged state.
+    update = newUpdate(c, changeOwner);
+    update.putApproval(LabelId.CODE_REVIEW, (short) 2);
+    update.commit();
+    ObjectId postSubmitTip = newNotes(c).getRevision();
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      assertThat(newParser(c, postSubmitTip, rw).parseIncrementally(parseAll(c, tip))).isEmpty();
+    }
+  }
+
   @Test
   public void multipleUpdatesAcrossRefs() throws Exception {
     Change c1 = newChange();
@@ -3999,6 +4225,31 @@ public class ChangeNotesTest extends AbstractChangeNotesTest {
     assertThat(cause.getMessage()).isEqualTo(expectedMsg);
   }
 
+  private void assertParseIncrementallyMatchesParseAll(Change c, ObjectId priorMetaId)
+      throws Exception {
+    ObjectId tip = newNotes(c).getRevision();
+    ChangeNotesState prior = parseAll(c, priorMetaId);
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      assertThat(newParser(c, tip, rw).parseIncrementally(prior)).hasValue(parseAll(c, tip));
+    }
+  }
+
+  private ChangeNotesState parseAll(Change c, ObjectId tip) throws Exception {
+    try (ChangeNotesRevWalk rw = ChangeNotesCommit.newRevWalk(repo)) {
+      return newParser(c, tip, rw).parseAll();
+    }
+  }
+
+  private ChangeNotesParser newParser(Change c, ObjectId tip, ChangeNotesRevWalk rw) {
+    return new ChangeNotesParser(
+        c.getId(),
+        tip,
+        rw,
+        changeNoteJson,
+        args.metrics,
+        new NoteDbUtil(serverId, externalIdCache));
+  }
+
   private void incrementCurrentPatchSetFieldOnly(Change c) {
     TestChanges.incrementPatchSet(c);
   }
@@ -0,0 +1,109 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.ChangeMessage;
+import com.google.gerrit.entities.LabelId;
+import com.google.gerrit.server.git.validators.TopicValidator;
+import com.google.gerrit.testing.TestTimeUtil;
+import com.google.gerrit.testing.TestTimeUtil.TempClockStep;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class CompactMetaHistoryRewriterTest extends AbstractChangeNotesTest {
+  private final TopicValidator topicValidator = mock(TopicValidator.class);
+
+  @Test
+  public void foldsSupersededTopicAndHashtagUpdates() throws Exception {
+    Change c = newChange();
+    for (int i = 0; i < 5; i++) {
+      ChangeUpdate update = newUpdate(c, changeOwner);
+      update.setTopic("topic" + i, topicValidator);
+      update.commit();
+      update = newUpdate(c, changeOwner);
+      update.setHashtags(ImmutableSet.of("tag" + i));
+      update.commit();
+    }
+    ChangeNotes before = newNotes(c);
+
+    CompactMetaHistoryRewriter rewriter = compact(c);
+    assertThat(rewriter.getCommitsBefore()).isEqualTo(11);
+    assertThat(rewriter.getCommitsAfter()).isEqualTo(2);
+
+    ChangeNotes after = newNotes(c);
+    assertThat(after.getMetaId()).isNotEqualTo(before.getMetaId());
+    assertThat(after.getChange().getTopic()).isEqualTo("topic4");
+    assertThat(after.getHashtags()).containsExactly("tag4");
+    assertThat(after.getChange().getLastUpdatedOn())
+        .isEqualTo(before.getChange().getLastUpdatedOn());
+  }
+
+  @Test
+  public void foldsUpdatesOfTheSameSecond() throws Exception {
+    Change c = newChange();
+    try (TempClockStep step = TestTimeUtil.freezeClock()) {
+      ChangeUpdate update = newUpdate(c, changeOwner);
+      update.setChangeMessage("Looks good");
+      update.commit();
+      update = newUpdate(c, changeOwner);
+      update.putApproval(LabelId.CODE_REVIEW, (short) 1);
+      update.commit();
+    }
+    ChangeNotes before = newNotes(c);
+
+    CompactMetaHistoryRewriter rewriter = compact(c);
+    assertThat(rewriter.getCommitsAfter()).isEqualTo(2);
+
+    ChangeNotes after = newNotes(c);
+    assertThat(after.getApprovals()).isEqualTo(before.getApprovals());
+    assertThat(Lists.transform(after.getChangeMessages(), ChangeMessage::getMessage))
+        .isEqualTo(Lists.transform(before.getChangeMessages(), ChangeMessage::getMessage));
+    assertThat(Lists.transform(after.getChangeMessages(), ChangeMessage::getWrittenOn))
+        .isEqualTo(Lists.transform(before.getChangeMessages(), ChangeMessage::getWrittenOn));
+  }
+
+  @Test
+  public void keepsUpdatesThatRecordTheirTime() throws Exception {
+    Change c = newChange();
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    update.setChangeMessage("First");
+    update.commit();
+    update = newUpdate(c, changeOwner);
+    update.putApproval(LabelId.CODE_REVIEW, (short) 1);
+    update.commit();
+    update = newUpdate(c, otherUser);
+    update.setTopic("topic", topicValidator);
+    update.commit();
+    ObjectId metaId = newNotes(c).getMetaId();
+
+    CompactMetaHistoryRewriter rewriter = compact(c);
+    assertThat(rewriter.getCommitsBefore()).isEqualTo(4);
+    assertThat(rewriter.getCommitsAfter()).isEqualTo(4);
+    assertThat(newNotes(c).getMetaId()).isEqualTo(metaId);
+  }
+
+  private CompactMetaHistoryRewriter compact(Change c) throws Exception {
+    ChangeUpdate update = newUpdate(c, changeOwner);
+    CompactMetaHistoryRewriter rewriter = update.compactMetaHistoryByRewritingHistory();
+    update.commit();
+    return rewriter;
+  }
+}
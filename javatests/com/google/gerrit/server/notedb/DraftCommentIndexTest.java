@@ -0,0 +1,118 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.TestActionRefUpdateContext.testRefAction;
+
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.HumanComment;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.server.util.time.TimeUtil;
+import com.google.gerrit.testing.ConfigSuite;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Test;
+
+public class DraftCommentIndexTest extends AbstractChangeNotesTest {
+  @ConfigSuite.Default
+  public static Config defaultConfig() {
+    Config cfg = new Config();
+    cfg.setBoolean("draftCommentIndex", null, "enabled", true);
+    return cfg;
+  }
+
+  @Inject private DraftCommentIndex index;
+
+  @Inject
+  @Named(DraftCommentIndex.CACHE_NAME)
+  private Cache<Account.Id, ImmutableMap<Change.Id, DraftCommentIndex.Drafts>> cache;
+
+  @Test
+  public void draftsAreUpdatedIncrementally() throws Exception {
+    Change c = newChange();
+    putDraft(c, "uuid1");
+    assertThat(index.getDrafts(otherUserId).get(c.getId()).count()).isEqualTo(1);
+    assertThat(index.getDrafts(changeOwner.getAccountId())).isEmpty();
+
+    putDraft(c, "uuid2");
+    assertThat(index.getDrafts(otherUserId).get(c.getId()).count()).isEqualTo(2);
+
+    ChangeUpdate update = newUpdate(c, otherUser);
+    update.setPatchSetId(c.currentPatchSetId());
+    update.putComment(HumanComment.Status.PUBLISHED, comment(c, "uuid1"));
+    update.putComment(HumanComment.Status.PUBLISHED, comment(c, "uuid2"));
+    update.commit();
+    assertThat(index.getDrafts(otherUserId)).isEmpty();
+  }
+
+  @Test
+  public void reconcileCorrectsDraftRefsUpdatedByOtherMeans() throws Exception {
+    Change c = newChange();
+    putDraft(c, "uuid1");
+    assertThat(index.getDrafts(otherUserId)).containsKey(c.getId());
+    assertThat(index.reconcile()).isEqualTo(0);
+
+    try (Repository allUsersRepo = repoManager.openRepository(allUsers)) {
+      RefUpdate ru = allUsersRepo.updateRef(RefNames.refsDraftComments(c.getId(), otherUserId));
+      ru.setForceUpdate(true);
+      assertThat(testRefAction(() -> ru.delete())).isEqualTo(RefUpdate.Result.FORCED);
+    }
+    assertThat(index.getDrafts(otherUserId)).containsKey(c.getId());
+
+    assertThat(index.reconcile()).isEqualTo(1);
+    assertThat(index.getDrafts(otherUserId)).isEmpty();
+  }
+
+  @Test
+  public void reconcileSkipsAccountsThatAreNotLoaded() throws Exception {
+    Change c = newChange();
+    putDraft(c, "uuid1");
+
+    assertThat(index.reconcile()).isEqualTo(0);
+    assertThat(cache.getIfPresent(otherUserId)).isNull();
+    assertThat(index.getDrafts(otherUserId).get(c.getId()).count()).isEqualTo(1);
+  }
+
+  private void putDraft(Change c, String uuid) throws Exception {
+    ChangeUpdate update = newUpdate(c, otherUser);
+    update.setPatchSetId(c.currentPatchSetId());
+    update.putComment(HumanComment.Status.DRAFT, comment(c, uuid));
+    update.commit();
+  }
+
+  private HumanComment comment(Change c, String uuid) {
+    return newComment(
+        c.currentPatchSetId(),
+        "filename",
+        uuid,
+        null,
+        0,
+        otherUser,
+        null,
+        TimeUtil.now(),
+        "comment",
+        (short) 0,
+        ObjectId.fromString("abcd1234abcd1234abcd1234abcd1234abcd1234"),
+        false);
+  }
+}
@@ -0,0 +1,169 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Ticker;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NoteDbReaderPoolTest {
+  private final Project.NameKey project = Project.nameKey("project");
+  private final AtomicLong nanos = new AtomicLong();
+  private final Ticker ticker =
+      new Ticker() {
+        @Override
+        public long read() {
+          return nanos.get();
+        }
+      };
+
+  private NoteDbMetrics metrics;
+  private Repository repo;
+
+  @Before
+  public void setUp() {
+    metrics = new NoteDbMetrics(new DisabledMetricMaker());
+    repo = newRepository(project);
+  }
+
+  @Test
+  public void reusesIdleReader() throws Exception {
+    NoteDbReaderPool pool = newPool(2, 10);
+    ObjectId blob = insertBlob(repo, "content");
+    try (NoteDbReaderPool.Lease lease = pool.lease(project, repo)) {
+      assertThat(lease.reader().open(blob).getBytes()).isEqualTo("content".getBytes(UTF_8));
+    }
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+
+    try (NoteDbReaderPool.Lease lease = pool.lease(project, repo)) {
+      assertThat(pool.idleCount(project)).isEqualTo(0);
+      assertThat(lease.reader().has(blob)).isTrue();
+    }
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsBoundedNumberOfIdleReaders() {
+    NoteDbReaderPool pool = newPool(2, 10);
+    NoteDbReaderPool.Lease l1 = pool.lease(project, repo);
+    NoteDbReaderPool.Lease l2 = pool.lease(project, repo);
+    NoteDbReaderPool.Lease l3 = pool.lease(project, repo);
+    l1.close();
+    l2.close();
+    l3.close();
+    assertThat(pool.idleCount(project)).isEqualTo(2);
+  }
+
+  @Test
+  public void discardsIdleReadersWhenPacksChange() throws Exception {
+    NoteDbReaderPool pool = newPool(2, 10);
+    pool.lease(project, repo).close();
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+
+    ObjectId blob = insertBlob(repo, "new pack");
+    try (NoteDbReaderPool.Lease lease = pool.lease(project, repo)) {
+      assertThat(pool.idleCount(project)).isEqualTo(0);
+      assertThat(lease.reader().has(blob)).isTrue();
+    }
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotReturnReaderLeasedBeforePacksChanged() throws Exception {
+    NoteDbReaderPool pool = newPool(2, 10);
+    NoteDbReaderPool.Lease lease = pool.lease(project, repo);
+    insertBlob(repo, "new pack");
+    lease.close();
+    assertThat(pool.idleCount(project)).isEqualTo(0);
+  }
+
+  @Test
+  public void evictsIdleReadersOfLeastRecentlyUsedRepository() {
+    Project.NameKey otherProject = Project.nameKey("other");
+    Repository otherRepo = newRepository(otherProject);
+    NoteDbReaderPool pool = newPool(2, 1);
+    pool.lease(project, repo).close();
+    pool.lease(otherProject, otherRepo).close();
+    assertThat(pool.idleCount(project)).isEqualTo(0);
+    assertThat(pool.idleCount(otherProject)).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsNoIdleReadersIfDisabled() {
+    NoteDbReaderPool pool = newPool(0, 10);
+    pool.lease(project, repo).close();
+    assertThat(pool.idleCount(project)).isEqualTo(0);
+  }
+
+  @Test
+  public void keepsBoundedNumberOfIdleReadersInTotal() {
+    Project.NameKey otherProject = Project.nameKey("other");
+    Repository otherRepo = newRepository(otherProject);
+    NoteDbReaderPool pool = new NoteDbReaderPool(metrics, 2, 10, 2, 0, ticker);
+    NoteDbReaderPool.Lease l1 = pool.lease(project, repo);
+    NoteDbReaderPool.Lease l2 = pool.lease(project, repo);
+    l1.close();
+    l2.close();
+    pool.lease(otherProject, otherRepo).close();
+
+    assertThat(pool.idleCount()).isEqualTo(2);
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+    assertThat(pool.idleCount(otherProject)).isEqualTo(1);
+  }
+
+  @Test
+  public void closesReadersIdleForLongerThanMaxIdleTime() {
+    Project.NameKey otherProject = Project.nameKey("other");
+    Repository otherRepo = newRepository(otherProject);
+    NoteDbReaderPool pool = new NoteDbReaderPool(metrics, 2, 10, 10, SECONDS.toNanos(60), ticker);
+    pool.lease(project, repo).close();
+    assertThat(pool.idleCount(project)).isEqualTo(1);
+
+    nanos.addAndGet(SECONDS.toNanos(61));
+    pool.lease(otherProject, otherRepo).close();
+    assertThat(pool.idleCount(project)).isEqualTo(0);
+    assertThat(pool.idleCount()).isEqualTo(1);
+  }
+
+  private NoteDbReaderPool newPool(int maxIdlePerRepository, int maxRepositories) {
+    return new NoteDbReaderPool(
+        metrics, maxIdlePerRepository, maxRepositories, Integer.MAX_VALUE, 0, ticker);
+  }
+
+  private static Repository newRepository(Project.NameKey project) {
+    return new InMemoryRepository(new DfsRepositoryDescription(project.get()));
+  }
+
+  private static ObjectId insertBlob(Repository repo, String content) throws Exception {
+    try (ObjectInserter ins = repo.newObjectInserter()) {
+      ObjectId id = ins.insert(Constants.OBJ_BLOB, content.getBytes(UTF_8));
+      ins.flush();
+      return id;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated.GitBatchRefUpdateEvent;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NoteDbRefsTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Project.NameKey project = Project.nameKey("project");
+  private final AtomicLong nanos = new AtomicLong();
+  private final Ticker ticker =
+      new Ticker() {
+        @Override
+        public long read() {
+          return nanos.get();
+        }
+      };
+
+  private NoteDbMetrics metrics;
+
+  @Before
+  public void setUp() {
+    metrics = new NoteDbMetrics(new DisabledMetricMaker());
+  }
+
+  @Test
+  public void snapshotIsSharedUntilGenerationChanges() throws Exception {
+    try (Repository repo = newFileRepository();
+        TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, SECONDS.toNanos(60), 16, ticker);
+      RevCommit c = tr.commit().create();
+      tr.update(RefNames.changeMetaRef(Change.id(1)), c);
+      tr.update("refs/heads/master", c);
+      assertThat(names(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)))
+          .containsExactly(RefNames.changeMetaRef(Change.id(1)));
+
+      tr.update(RefNames.changeMetaRef(Change.id(2)), c);
+      assertThat(names(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)))
+          .containsExactly(RefNames.changeMetaRef(Change.id(1)));
+
+      refs.onGitBatchRefUpdate(new GitBatchRefUpdateEvent(project, ImmutableSet.of(), null));
+      assertThat(refs.scanChangeIds(project, repo))
+          .containsExactly(Change.id(1), c.copy(), Change.id(2), c.copy());
+    }
+  }
+
+  @Test
+  public void snapshotExpires() throws Exception {
+    try (Repository repo = newFileRepository();
+        TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, SECONDS.toNanos(60), 16, ticker);
+      RevCommit c = tr.commit().create();
+      assertThat(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)).isEmpty();
+
+      tr.update(RefNames.changeMetaRef(Change.id(1)), c);
+      nanos.addAndGet(SECONDS.toNanos(61));
+      assertThat(names(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)))
+          .containsExactly(RefNames.changeMetaRef(Change.id(1)));
+    }
+  }
+
+  @Test
+  public void expiredSnapshotIsEvicted() throws Exception {
+    try (Repository repo = newFileRepository()) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, SECONDS.toNanos(60), 16, ticker);
+      assertThat(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)).isEmpty();
+      assertThat(refs.snapshotCount()).isEqualTo(1);
+
+      nanos.addAndGet(SECONDS.toNanos(61));
+      assertThat(refs.snapshotCount()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void numberOfSnapshotsIsBounded() throws Exception {
+    try (Repository repo1 = newFileRepository();
+        Repository repo2 = newFileRepository();
+        Repository repo3 = newFileRepository()) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, SECONDS.toNanos(60), 2, ticker);
+      refs.getRefsByPrefix(Project.nameKey("p1"), repo1, RefNames.REFS_CHANGES);
+      refs.getRefsByPrefix(Project.nameKey("p2"), repo2, RefNames.REFS_CHANGES);
+      refs.getRefsByPrefix(Project.nameKey("p3"), repo3, RefNames.REFS_CHANGES);
+      assertThat(refs.snapshotCount()).isAtMost(2L);
+    }
+  }
+
+  @Test
+  public void reftableIsReadDirectly() throws Exception {
+    try (Repository repo = new InMemoryRepository(new DfsRepositoryDescription("repo"));
+        TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, SECONDS.toNanos(60), 16, ticker);
+      RevCommit c = tr.commit().create();
+      tr.update(RefNames.changeMetaRef(Change.id(1)), c);
+      assertThat(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)).hasSize(1);
+
+      tr.update(RefNames.changeMetaRef(Change.id(2)), c);
+      assertThat(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)).hasSize(2);
+      assertThat(
+              refs.exactRefs(
+                      repo,
+                      ImmutableList.of(
+                          RefNames.changeMetaRef(Change.id(2)),
+                          RefNames.changeMetaRef(Change.id(3))))
+                  .keySet())
+          .containsExactly(RefNames.changeMetaRef(Change.id(2)));
+    }
+  }
+
+  @Test
+  public void refDirectoryIsReadDirectlyIfSnapshotsAreDisabled() throws Exception {
+    try (Repository repo = newFileRepository();
+        TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      NoteDbRefs refs = new NoteDbRefs(metrics, 0, 16, ticker);
+      RevCommit c = tr.commit().create();
+      assertThat(refs.getRefsByPrefix(project, repo, RefNames.REFS_CHANGES)).isEmpty();
+
+      tr.update(RefNames.changeMetaRef(Change.id(1)), c);
+      ObjectId id = refs.scanChangeIds(project, repo).get(Change.id(1));
+      assertThat(id).isEqualTo(c);
+    }
+  }
+
+  private Repository newFileRepository() throws Exception {
+    Repository repo = new FileRepository(temporaryFolder.newFolder());
+    repo.create(true);
+    return repo;
+  }
+
+  private static ImmutableList<String> names(List<Ref> refs) {
+    return refs.stream().map(Ref::getName).collect(toImmutableList());
+  }
+}
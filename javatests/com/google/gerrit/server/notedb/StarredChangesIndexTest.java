@@ -0,0 +1,160 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.AllUsersNameProvider;
+import com.google.gerrit.testing.InMemoryRepositoryManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StarredChangesIndexTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AllUsersName allUsers = new AllUsersName(AllUsersNameProvider.DEFAULT);
+  private final Account.Id alice = Account.id(1000001);
+  private final Account.Id bob = Account.id(1000002);
+  private final Change.Id change1 = Change.id(1);
+  private final Change.Id change2 = Change.id(2);
+
+  private InMemoryRepositoryManager repoManager;
+  private TestRepository<Repository> tr;
+  private RevBlob star;
+
+  @Before
+  public void setUp() throws Exception {
+    repoManager = new InMemoryRepositoryManager();
+    tr = new TestRepository<>(repoManager.createRepository(allUsers));
+    star = tr.blob("star");
+  }
+
+  @Test
+  public void notLoadedBeforeReload() throws Exception {
+    star(alice, change1);
+    StarredChangesIndex index = newIndex(true);
+    assertThat(index.isStarred(alice, change1).isPresent()).isFalse();
+    assertThat(index.byAccount(alice).isPresent()).isFalse();
+    assertThat(index.byChange(change1).isPresent()).isFalse();
+  }
+
+  @Test
+  public void indexesStarsInBothDirections() throws Exception {
+    star(alice, change1);
+    star(alice, change2);
+    star(bob, change2);
+    StarredChangesIndex index = newIndex(true);
+    index.reload();
+
+    assertThat(index.isStarred(alice, change1).get()).isTrue();
+    assertThat(index.isStarred(bob, change1).get()).isFalse();
+    assertThat(index.byAccount(alice).get()).containsExactly(change1, change2);
+    assertThat(index.byAccount(bob).get()).containsExactly(change2);
+    assertThat(index.byChange(change1).get()).containsExactly(alice);
+    assertThat(index.byChange(change2).get()).containsExactly(alice, bob).inOrder();
+    assertThat(index.areStarred(bob, ImmutableList.of(change1, change2)).get())
+        .containsExactly(change2);
+  }
+
+  @Test
+  public void appliesStarUpdates() throws Exception {
+    star(alice, change1);
+    StarredChangesIndex index = newIndex(true);
+    index.reload();
+
+    index.onStarUpdated(bob, change1, true);
+    index.onStarUpdated(alice, change1, false);
+    index.onStarUpdated(alice, change2, true);
+
+    assertThat(index.byChange(change1).get()).containsExactly(bob);
+    assertThat(index.byChange(change2).get()).containsExactly(alice);
+    assertThat(index.byAccount(alice).get()).containsExactly(change2);
+  }
+
+  @Test
+  public void loadsSnapshot() throws Exception {
+    star(alice, change1);
+    star(bob, change2);
+    StarredChangesIndex index = newIndex(true);
+    index.reload();
+    Path snapshot = temporaryFolder.getRoot().toPath().resolve("stars.snapshot");
+    index.saveSnapshot(snapshot);
+
+    StarredChangesIndex restarted = newIndex(true);
+    restarted.loadSnapshot(snapshot);
+    assertThat(restarted.byAccount(alice).get()).containsExactly(change1);
+    assertThat(restarted.byChange(change2).get()).containsExactly(bob);
+  }
+
+  @Test
+  public void snapshotIsOnlyLoadedOnce() throws Exception {
+    star(alice, change1);
+    StarredChangesIndex index = newIndex(true);
+    index.reload();
+    Path snapshot = temporaryFolder.getRoot().toPath().resolve("stars.snapshot");
+    index.saveSnapshot(snapshot);
+
+    newIndex(true).loadSnapshot(snapshot);
+    assertThat(Files.exists(snapshot)).isFalse();
+
+    // Without a clean stop, the next start has no snapshot to load.
+    StarredChangesIndex restartedAgain = newIndex(true);
+    restartedAgain.loadSnapshot(snapshot);
+    assertThat(restartedAgain.byAccount(alice).isPresent()).isFalse();
+  }
+
+  @Test
+  public void ignoresMissingSnapshot() {
+    StarredChangesIndex index = newIndex(true);
+    index.loadSnapshot(temporaryFolder.getRoot().toPath().resolve("missing"));
+    assertThat(index.byAccount(alice).isPresent()).isFalse();
+  }
+
+  @Test
+  public void disabledIndexIsNotLoaded() throws Exception {
+    star(alice, change1);
+    StarredChangesIndex index = newIndex(false);
+    index.reload();
+    index.onStarUpdated(alice, change2, true);
+    assertThat(index.byAccount(alice).isPresent()).isFalse();
+  }
+
+  private void star(Account.Id accountId, Change.Id changeId) throws Exception {
+    tr.update(RefNames.refsStarredChanges(changeId, accountId), star);
+  }
+
+  private StarredChangesIndex newIndex(boolean enabled) {
+    Config cfg = new Config();
+    cfg.setBoolean("starredChangesIndex", null, "enabled", enabled);
+    NoteDbRefs noteDbRefs =
+        new NoteDbRefs(new NoteDbMetrics(new DisabledMetricMaker()), 0, 16, Ticker.systemTicker());
+    return new StarredChangesIndex(repoManager, allUsers, noteDbRefs, cfg);
+  }
+}
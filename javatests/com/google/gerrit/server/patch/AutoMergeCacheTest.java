@@ -0,0 +1,82 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gerrit.server.git.InMemoryInserter;
+import java.io.ByteArrayInputStream;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.junit.Test;
+
+public class AutoMergeCacheTest {
+  @Test
+  public void keySerializerRoundTrip() {
+    AutoMergeCache.Key key =
+        AutoMergeCache.Key.create(
+            ObjectId.fromString("1234567812345678123456781234567812345678"), "recursive", true);
+    assertThat(
+            AutoMergeCache.Key.Serializer.INSTANCE.deserialize(
+                AutoMergeCache.Key.Serializer.INSTANCE.serialize(key)))
+        .isEqualTo(key);
+  }
+
+  @Test
+  public void recordedObjectsCanBeInsertedIntoOtherRepository() throws Exception {
+    InMemoryRepository source = new InMemoryRepository(new DfsRepositoryDescription("source"));
+    AutoMergeCache.Value value;
+    try (InMemoryInserter ins = new InMemoryInserter(source)) {
+      AutoMergeCache.RecordingInserter recorder = new AutoMergeCache.RecordingInserter(ins);
+      byte[] content = "<<<<<<< HEAD\na\n=======\nb\n>>>>>>> BRANCH\n".getBytes(UTF_8);
+      ObjectId blob =
+          recorder.insert(Constants.OBJ_BLOB, content.length, new ByteArrayInputStream(content));
+      TreeFormatter tree = new TreeFormatter();
+      tree.append("file", FileMode.REGULAR_FILE, blob);
+      ObjectId treeId = recorder.insert(tree);
+      CommitBuilder cb = new CommitBuilder();
+      PersonIdent ident = new PersonIdent("Gerrit Code Review", "gerrit@example.com");
+      cb.setAuthor(ident);
+      cb.setCommitter(ident);
+      cb.setTreeId(treeId);
+      cb.setMessage("Auto-merge\n");
+      ObjectId commitId = recorder.insert(cb);
+      value = AutoMergeCache.Value.create(commitId, treeId, recorder.finish());
+    }
+
+    value =
+        AutoMergeCache.Value.Serializer.INSTANCE.deserialize(
+            AutoMergeCache.Value.Serializer.INSTANCE.serialize(value));
+
+    InMemoryRepository target = new InMemoryRepository(new DfsRepositoryDescription("target"));
+    try (ObjectInserter ins = target.newObjectInserter()) {
+      value.insertInto(ins);
+      ins.flush();
+    }
+    try (ObjectReader reader = target.newObjectReader()) {
+      assertThat(reader.has(value.commit(), Constants.OBJ_COMMIT)).isTrue();
+      assertThat(reader.has(value.tree(), Constants.OBJ_TREE)).isTrue();
+    }
+  }
+}
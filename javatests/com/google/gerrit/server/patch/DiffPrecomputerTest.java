@@ -0,0 +1,210 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.InternalUser;
+import com.google.gerrit.server.notedb.ChangeNotes;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import com.google.gerrit.server.util.time.TimeUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiffPrecomputerTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final Change.Id CHANGE = Change.id(1);
+  private static final ObjectId COMMIT_1 =
+      ObjectId.fromString("1111111111111111111111111111111111111111");
+  private static final ObjectId COMMIT_2 =
+      ObjectId.fromString("2222222222222222222222222222222222222222");
+
+  private QueuedExecutor executor;
+  private ChangeNotes.Factory notesFactory;
+  private ChangeNotes notes;
+  private DiffOperations diffOperations;
+  private PatchScriptFactory.Factory patchScriptFactoryFactory;
+  private DiffPrecomputer precomputer;
+
+  @Before
+  public void setUp() {
+    executor = new QueuedExecutor();
+    notesFactory = mock(ChangeNotes.Factory.class);
+    diffOperations = mock(DiffOperations.class);
+    patchScriptFactoryFactory = mock(PatchScriptFactory.Factory.class);
+    notes = mock(ChangeNotes.class);
+    // Without patch sets the precomputation ends right after loading the change.
+    when(notes.getPatchSets()).thenReturn(ImmutableSortedMap.of());
+    when(notesFactory.createChecked(PROJECT, CHANGE)).thenReturn(notes);
+    precomputer =
+        new DiffPrecomputer(
+            executor,
+            notesFactory,
+            diffOperations,
+            patchScriptFactoryFactory,
+            mock(InternalUser.Factory.class),
+            new DiffPrecomputer.Metrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void precomputesNewPatchSet() throws Exception {
+    PatchSet ps1 = newPatchSet(1, COMMIT_1);
+    PatchSet ps2 = newPatchSet(2, COMMIT_2);
+    when(notes.getPatchSets()).thenReturn(ImmutableSortedMap.of(ps1.id(), ps1, ps2.id(), ps2));
+    when(diffOperations.listModifiedFilesAgainstParent(PROJECT, COMMIT_2, 0, DiffOptions.DEFAULTS))
+        .thenReturn(
+            ImmutableMap.of(
+                "a.txt", mock(FileDiffOutput.class), "b.txt", mock(FileDiffOutput.class)));
+    when(diffOperations.listModifiedFiles(PROJECT, COMMIT_1, COMMIT_2, DiffOptions.DEFAULTS))
+        .thenReturn(ImmutableMap.of("b.txt", mock(FileDiffOutput.class)));
+    PatchScriptFactory patchScript = mock(PatchScriptFactory.class);
+    when(patchScriptFactoryFactory.create(
+            any(ChangeNotes.class),
+            anyString(),
+            nullable(PatchSet.Id.class),
+            any(PatchSet.Id.class),
+            any(DiffPreferencesInfo.class),
+            any()))
+        .thenReturn(patchScript);
+
+    precomputer.schedule(PROJECT, ps2.id());
+    executor.runAll();
+
+    verify(diffOperations)
+        .listModifiedFilesAgainstParent(PROJECT, COMMIT_2, 0, DiffOptions.DEFAULTS);
+    verify(diffOperations).listModifiedFiles(PROJECT, COMMIT_1, COMMIT_2, DiffOptions.DEFAULTS);
+    verifyPatchScriptCreated("a.txt", null, ps2.id());
+    verifyPatchScriptCreated("b.txt", null, ps2.id());
+    verifyPatchScriptCreated("b.txt", ps1.id(), ps2.id());
+    verify(patchScript, times(3)).call();
+  }
+
+  @Test
+  public void missingPatchSetIsNotPrecomputed() {
+    precomputer.schedule(PROJECT, PatchSet.id(CHANGE, 1));
+    executor.runAll();
+    verify(notesFactory, times(1)).createChecked(PROJECT, CHANGE);
+    verifyNoInteractions(diffOperations);
+  }
+
+  @Test
+  public void supersededPatchSetIsNotPrecomputed() {
+    precomputer.schedule(PROJECT, PatchSet.id(CHANGE, 1));
+    precomputer.schedule(PROJECT, PatchSet.id(CHANGE, 2));
+    executor.runAll();
+    verify(notesFactory, times(1)).createChecked(PROJECT, CHANGE);
+  }
+
+  @Test
+  public void otherChangesAreNotSuperseded() {
+    Change.Id other = Change.id(2);
+    precomputer.schedule(PROJECT, PatchSet.id(CHANGE, 1));
+    precomputer.schedule(PROJECT, PatchSet.id(other, 1));
+    executor.runAll();
+    verify(notesFactory, times(1)).createChecked(PROJECT, CHANGE);
+    verify(notesFactory, times(1)).createChecked(PROJECT, other);
+  }
+
+  @Test
+  public void nothingRunsBeforeExecution() {
+    precomputer.schedule(PROJECT, PatchSet.id(CHANGE, 1));
+    verify(notesFactory, never()).createChecked(PROJECT, CHANGE);
+  }
+
+  private void verifyPatchScriptCreated(
+      String file, @Nullable PatchSet.Id oldPatchSet, PatchSet.Id newPatchSet) {
+    verify(patchScriptFactoryFactory)
+        .create(
+            eq(notes),
+            eq(file),
+            oldPatchSet != null ? eq(oldPatchSet) : isNull(PatchSet.Id.class),
+            eq(newPatchSet),
+            any(DiffPreferencesInfo.class),
+            any());
+  }
+
+  private static PatchSet newPatchSet(int num, ObjectId commitId) {
+    return PatchSet.builder()
+        .id(PatchSet.id(CHANGE, num))
+        .commitId(commitId)
+        .uploader(Account.id(1000))
+        .realUploader(Account.id(1000))
+        .createdOn(TimeUtil.now())
+        .build();
+  }
+
+  /** Executor that runs the submitted tasks only when asked to. */
+  private static class QueuedExecutor extends AbstractExecutorService {
+    private final List<Runnable> queue = new ArrayList<>();
+
+    void runAll() {
+      List<Runnable> tasks = new ArrayList<>(queue);
+      queue.clear();
+      tasks.forEach(Runnable::run);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      queue.add(command);
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return new ArrayList<>(queue);
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
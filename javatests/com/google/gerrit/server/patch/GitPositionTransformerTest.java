@@ -0,0 +1,193 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.server.patch.GitPositionTransformer.BestPositionOnConflict;
+import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Position;
+import com.google.gerrit.server.patch.GitPositionTransformer.PositionedEntity;
+import com.google.gerrit.server.patch.GitPositionTransformer.Range;
+import com.google.gerrit.server.patch.GitPositionTransformer.RangeMapping;
+import java.util.Set;
+import org.junit.Test;
+
+public class GitPositionTransformerTest {
+  private final GitPositionTransformer transformer =
+      new GitPositionTransformer(BestPositionOnConflict.INSTANCE);
+
+  @Test
+  public void chainedRangesShiftLikeConsecutiveTransformations() {
+    // Insert two lines before line 2, then delete line 11.
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"), ImmutableSet.of(rangeMapping(1, 1, 1, 3))));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"),
+                ImmutableSet.of(rangeMapping(10, 11, 10, 10))));
+
+    ImmutableSet<Mapping> chained = GitPositionTransformer.chain(first, second);
+
+    assertThat(chained)
+        .containsExactly(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"),
+                ImmutableSet.of(rangeMapping(1, 1, 1, 3), rangeMapping(8, 9, 10, 10))));
+    ImmutableList<Position> positions =
+        ImmutableList.of(position("file", 0, 1), position("file", 5, 7), position("file", 20, 21));
+    assertThat(transform(positions, chained))
+        .containsExactlyElementsIn(transform(transform(positions, first), second));
+  }
+
+  @Test
+  public void overlappingRangesAreMerged() {
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"), ImmutableSet.of(rangeMapping(4, 6, 4, 5))));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"), ImmutableSet.of(rangeMapping(4, 7, 4, 9))));
+
+    ImmutableSet<Mapping> chained = GitPositionTransformer.chain(first, second);
+
+    assertThat(chained)
+        .containsExactly(
+            Mapping.create(
+                FileMapping.forModifiedFile("file"), ImmutableSet.of(rangeMapping(4, 8, 4, 9))));
+    assertThat(transform(ImmutableList.of(position("file", 6, 7)), chained))
+        .containsExactly(Position.builder().filePath("file").build());
+  }
+
+  @Test
+  public void renameIsChainedWithModification() {
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(Mapping.create(FileMapping.forRenamedFile("a", "b"), ImmutableSet.of()));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("b"), ImmutableSet.of(rangeMapping(0, 0, 0, 2))));
+
+    assertThat(GitPositionTransformer.chain(first, second))
+        .containsExactly(
+            Mapping.create(
+                FileMapping.forRenamedFile("a", "b"), ImmutableSet.of(rangeMapping(0, 0, 0, 2))));
+  }
+
+  @Test
+  public void fileDeletedInSecondIsDeleted() {
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("a"), ImmutableSet.of(rangeMapping(0, 1, 0, 1))));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(Mapping.create(FileMapping.forDeletedFile("a"), ImmutableSet.of()));
+
+    assertThat(GitPositionTransformer.chain(first, second))
+        .containsExactly(Mapping.create(FileMapping.forDeletedFile("a"), ImmutableSet.of()));
+  }
+
+  @Test
+  public void filesUnchangedInFirstKeepMappingsOfSecond() {
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(Mapping.create(FileMapping.forAddedFile("new"), ImmutableSet.of()));
+    Mapping secondMapping =
+        Mapping.create(FileMapping.forRenamedFile("a", "b"), ImmutableSet.of());
+    ImmutableSet<Mapping> second = ImmutableSet.of(secondMapping);
+
+    assertThat(GitPositionTransformer.chain(first, second)).containsExactly(secondMapping);
+  }
+
+  @Test
+  public void copySourceKeepsMappingsOfSecond() {
+    // "a" is copied to "b" and stays unchanged, then "a" is modified.
+    Mapping copy = Mapping.create(FileMapping.forRenamedFile("a", "b"), ImmutableSet.of());
+    ImmutableSet<Mapping> first = ImmutableSet.of(copy);
+    Mapping secondMapping =
+        Mapping.create(FileMapping.forModifiedFile("a"), ImmutableSet.of(rangeMapping(0, 0, 0, 2)));
+    ImmutableSet<Mapping> second = ImmutableSet.of(secondMapping);
+
+    assertThat(GitPositionTransformer.chain(first, second)).containsExactly(copy, secondMapping);
+  }
+
+  @Test
+  public void copyOfModifiedFileIsChainedForBothPaths() {
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("a"), ImmutableSet.of(rangeMapping(0, 0, 0, 1))),
+            Mapping.create(
+                FileMapping.forRenamedFile("a", "b"), ImmutableSet.of(rangeMapping(0, 0, 0, 1))));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("a"), ImmutableSet.of(rangeMapping(5, 6, 5, 5))),
+            Mapping.create(FileMapping.forDeletedFile("b"), ImmutableSet.of()));
+
+    assertThat(GitPositionTransformer.chain(first, second))
+        .containsExactly(
+            Mapping.create(
+                FileMapping.forModifiedFile("a"),
+                ImmutableSet.of(rangeMapping(0, 0, 0, 1), rangeMapping(4, 5, 5, 5))),
+            Mapping.create(FileMapping.forDeletedFile("a"), ImmutableSet.of()));
+  }
+
+  @Test
+  public void renamedPathWrittenAgainDoesNotKeepMappingsOfSecond() {
+    // "a" is renamed to "b" and a new "a" is added, which is modified afterwards.
+    Mapping rename = Mapping.create(FileMapping.forRenamedFile("a", "b"), ImmutableSet.of());
+    ImmutableSet<Mapping> first =
+        ImmutableSet.of(rename, Mapping.create(FileMapping.forAddedFile("a"), ImmutableSet.of()));
+    ImmutableSet<Mapping> second =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("a"), ImmutableSet.of(rangeMapping(0, 0, 0, 2))));
+
+    assertThat(GitPositionTransformer.chain(first, second)).containsExactly(rename);
+  }
+
+  private ImmutableList<Position> transform(
+      ImmutableList<Position> positions, Set<Mapping> mappings) {
+    return transformer
+        .transform(
+            positions.stream()
+                .map(
+                    position ->
+                        PositionedEntity.create(
+                            position, p -> p, (unused, newPosition) -> newPosition))
+                .collect(toImmutableList()),
+            mappings)
+        .stream()
+        .map(PositionedEntity::getEntityAtUpdatedPosition)
+        .collect(toImmutableList());
+  }
+
+  private static Position position(String filePath, int start, int end) {
+    return Position.builder().filePath(filePath).lineRange(Range.create(start, end)).build();
+  }
+
+  private static RangeMapping rangeMapping(int oldStart, int oldEnd, int newStart, int newEnd) {
+    return RangeMapping.create(Range.create(oldStart, oldEnd), Range.create(newStart, newEnd));
+  }
+}
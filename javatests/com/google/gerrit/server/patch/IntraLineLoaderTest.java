@@ -17,13 +17,21 @@ package com.google.gerrit.server.patch;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.gerrit.testing.GerritJUnit.assertThrows;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
 import com.google.gerrit.jgit.diff.ReplaceEdit;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Test;
 
 public class IntraLineLoaderTest {
@@ -139,6 +147,76 @@ public class IntraLineLoaderTest {
                 .edits);
   }
 
+  @Test
+  public void replaceEditsAreRefinedConcurrently() throws Exception {
+    String a = "abc1\nkeep\nkeep\nkeep\nkeep\ndef1\nkeep\nkeep\nkeep\nkeep\nghi1\n";
+    String b = "abc2\nkeep\nkeep\nkeep\nkeep\ndef2\nkeep\nkeep\nkeep\nkeep\nghi2\n";
+    Text aText = new Text(a.getBytes(UTF_8));
+    Text bText = new Text(b.getBytes(UTF_8));
+    ImmutableList<Edit> lines =
+        ImmutableList.of(new Edit(0, 1, 0, 1), new Edit(5, 6, 5, 6), new Edit(10, 11, 10, 11));
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      ImmutableList<Edit> concurrent =
+          IntraLineLoader.compute(aText, bText, lines, ImmutableSet.of(), executor).getEdits();
+      ImmutableList<Edit> sequential =
+          IntraLineLoader.compute(aText, bText, lines, ImmutableSet.of()).getEdits();
+
+      assertThat(concurrent).hasSize(3);
+      assertThat(concurrent).isEqualTo(sequential);
+      for (int i = 0; i < concurrent.size(); i++) {
+        assertThat(((ReplaceEdit) concurrent.get(i)).getInternalEdits())
+            .isEqualTo(((ReplaceEdit) sequential.get(i)).getInternalEdits());
+      }
+      assertThat(((ReplaceEdit) concurrent.get(2)).getInternalEdits())
+          .isEqualTo(ref().common("ghi").replace("1", "2").common("\n").edits);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void timeoutReleasesThreads() throws Exception {
+    // The lines have no character in common, which takes MyersDiff far longer than the timeout.
+    String a = "a".repeat(100_000) + "\nkeep\n" + "a".repeat(100_000) + "\n";
+    String b = "b".repeat(100_000) + "\nkeep\n" + "b".repeat(100_000) + "\n";
+    IntraLineDiffArgs args =
+        IntraLineDiffArgs.create(
+            new Text(a.getBytes(UTF_8)),
+            new Text(b.getBytes(UTF_8)),
+            ImmutableList.of(new Edit(0, 1, 0, 1), new Edit(2, 3, 2, 3)),
+            ImmutableSet.of(),
+            Project.nameKey("project"),
+            ObjectId.zeroId(),
+            "file.txt");
+    IntraLineDiffKey key =
+        IntraLineDiffKey.create(ObjectId.zeroId(), ObjectId.zeroId(), Whitespace.IGNORE_NONE);
+    Config cfg = new Config();
+    cfg.setString("cache", PatchListCacheImpl.INTRA_NAME, "timeout", "100ms");
+
+    ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+    ExecutorService intraLineExecutor = Executors.newSingleThreadExecutor();
+    try {
+      IntraLineLoader loader =
+          new IntraLineLoader(
+              diffExecutor,
+              intraLineExecutor,
+              new IntraLineLoader.Metrics(new DisabledMetricMaker()),
+              cfg,
+              key,
+              args);
+      assertThat(loader.call().getStatus()).isEqualTo(IntraLineDiff.Status.TIMEOUT);
+
+      // Both pools have a single thread, which must be given back by the cancelled diff.
+      assertThat(diffExecutor.submit(() -> true).get(10, SECONDS)).isTrue();
+      assertThat(intraLineExecutor.submit(() -> true).get(10, SECONDS)).isTrue();
+    } finally {
+      diffExecutor.shutdownNow();
+      intraLineExecutor.shutdownNow();
+    }
+  }
+
   // helper functions to call IntraLineLoader.compute
 
   private static int countLines(String s) {
@@ -0,0 +1,103 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gerrit.entities.Patch;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import com.google.gerrit.server.patch.gitdiff.ModifiedFile;
+import java.util.Optional;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class LineHashDiffEstimatorTest {
+  @Test
+  public void commonLinesAreCountedWithMultiplicity() {
+    assertThat(LineHashDiffEstimator.countCommonLines(text("a\nb\nb\nc\n"), text("b\nc\nb\nd\n")))
+        .isEqualTo(3);
+    assertThat(LineHashDiffEstimator.countCommonLines(text("a\na\na\n"), text("a\n"))).isEqualTo(1);
+    assertThat(LineHashDiffEstimator.countCommonLines(text(""), text("a\n"))).isEqualTo(0);
+  }
+
+  @Test
+  public void estimateOfModifiedFile() throws Exception {
+    TestRepository<InMemoryRepository> tr =
+        new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("repo")));
+    RevCommit oldCommit = tr.commit().add("file.txt", "a\nb\nc\nd\n").create();
+    RevCommit newCommit = tr.commit().parent(oldCommit).add("file.txt", "a\nB\nc\nd\ne\n").create();
+    tr.getRevWalk().parseBody(oldCommit);
+    tr.getRevWalk().parseBody(newCommit);
+
+    FileDiffOutput estimate =
+        LineHashDiffEstimator.estimate(
+            tr.getRevWalk().getObjectReader(),
+            oldCommit.getTree(),
+            newCommit.getTree(),
+            ModifiedFile.builder()
+                .changeType(Patch.ChangeType.MODIFIED)
+                .oldPath(Optional.of("file.txt"))
+                .newPath(Optional.of("file.txt"))
+                .build(),
+            oldCommit,
+            newCommit,
+            ComparisonType.againstParent(1));
+
+    assertThat(estimate.insertions()).isEqualTo(2);
+    assertThat(estimate.deletions()).isEqualTo(1);
+    assertThat(estimate.size()).isEqualTo(10);
+    assertThat(estimate.sizeDelta()).isEqualTo(2);
+    assertThat(estimate.patchType()).hasValue(Patch.PatchType.UNIFIED);
+  }
+
+  @Test
+  public void estimateOfAddedBinaryFile() throws Exception {
+    TestRepository<InMemoryRepository> tr =
+        new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("repo")));
+    RevCommit commit =
+        tr.commit().add("file.bin", tr.blob(new byte[] {'a', 0, 'b', '\n'})).create();
+    tr.getRevWalk().parseBody(commit);
+
+    FileDiffOutput estimate =
+        LineHashDiffEstimator.estimate(
+            tr.getRevWalk().getObjectReader(),
+            /* oldTree= */ null,
+            commit.getTree(),
+            ModifiedFile.builder()
+                .changeType(Patch.ChangeType.ADDED)
+                .oldPath(Optional.empty())
+                .newPath(Optional.of("file.bin"))
+                .build(),
+            ObjectId.zeroId(),
+            commit,
+            ComparisonType.againstRoot());
+
+    assertThat(estimate.patchType()).hasValue(Patch.PatchType.BINARY);
+    assertThat(estimate.edits()).isEmpty();
+    assertThat(estimate.oldMode()).isEmpty();
+    assertThat(estimate.newMode()).hasValue(Patch.FileMode.REGULAR_FILE);
+    assertThat(estimate.sizeDelta()).isEqualTo(4);
+  }
+
+  private static RawText text(String content) {
+    return new RawText(content.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PositionMappingCacheTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final ObjectId A = commit(1);
+  private static final ObjectId B = commit(2);
+  private static final ObjectId C = commit(3);
+  private static final ObjectId D = commit(4);
+
+  private final DiffOperations diffOperations = mock(DiffOperations.class);
+  private PositionMappingCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    when(diffOperations.listModifiedFiles(
+            any(Project.NameKey.class),
+            any(ObjectId.class),
+            any(ObjectId.class),
+            any(DiffOptions.class)))
+        .thenReturn(ImmutableMap.<String, FileDiffOutput>of());
+    cache = new PositionMappingCache(CacheBuilder.newBuilder().build(), diffOperations);
+  }
+
+  @Test
+  public void extendedChainOnlyDiffsNewPair() throws Exception {
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, B, C))).isEmpty();
+    verifyDiffed(A, B, 1);
+    verifyDiffed(B, C, 1);
+
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, B, C, D))).isEmpty();
+    verifyDiffed(A, B, 1);
+    verifyDiffed(B, C, 1);
+    verifyDiffed(C, D, 1);
+  }
+
+  @Test
+  public void cachedChainIsNotDiffedAgain() throws Exception {
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, B, C))).isEmpty();
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, B, C))).isEmpty();
+
+    verifyDiffed(A, B, 1);
+    verifyDiffed(B, C, 1);
+  }
+
+  @Test
+  public void consecutiveDuplicatesAreSkipped() throws Exception {
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, A))).isEmpty();
+    verifyDiffed(A, A, 0);
+
+    assertThat(cache.get(PROJECT, ImmutableList.of(A, B, B))).isEmpty();
+    verifyDiffed(A, B, 1);
+    verifyDiffed(B, B, 0);
+  }
+
+  @Test
+  public void diffFailureIsPropagated() throws Exception {
+    when(diffOperations.listModifiedFiles(
+            any(Project.NameKey.class), eq(B), eq(C), any(DiffOptions.class)))
+        .thenThrow(new DiffNotAvailableException("failed"));
+
+    assertThrows(
+        DiffNotAvailableException.class, () -> cache.get(PROJECT, ImmutableList.of(A, B, C)));
+    verify(diffOperations, never())
+        .listModifiedFiles(any(Project.NameKey.class), eq(A), eq(B), any(DiffOptions.class));
+  }
+
+  private void verifyDiffed(ObjectId oldCommit, ObjectId newCommit, int times) throws Exception {
+    verify(diffOperations, times(times))
+        .listModifiedFiles(eq(PROJECT), eq(oldCommit), eq(newCommit), any(DiffOptions.class));
+  }
+
+  private static ObjectId commit(int n) {
+    return ObjectId.fromString(String.format("%040d", n));
+  }
+}
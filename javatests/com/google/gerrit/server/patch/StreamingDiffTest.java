@@ -0,0 +1,172 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Patch.ChangeType;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.server.patch.StreamingDiff.Chunk;
+import com.google.gerrit.server.patch.StreamingDiff.Position;
+import com.google.gerrit.server.patch.StreamingDiff.Result;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.junit.Test;
+
+public class StreamingDiffTest {
+  @Test
+  public void singleHunkWithContext() throws Exception {
+    Result r = diff(100, "1\n2\n3\n4\n5\n", "1\n2\nX\n4\n5\n", 1, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.skip(1),
+            Chunk.common(ImmutableList.of("2")),
+            Chunk.hunk(ImmutableList.of("3"), ImmutableList.of("X")),
+            Chunk.common(ImmutableList.of("4")),
+            Chunk.skip(1))
+        .inOrder();
+    assertThat(r.next()).isEmpty();
+    assertThat(r.linesA().getAsInt()).isEqualTo(5);
+    assertThat(r.linesB().getAsInt()).isEqualTo(5);
+  }
+
+  @Test
+  public void continuesAfterMaxHunks() throws Exception {
+    String a = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+    String b = "1\n2\nX\n4\n5\n6\n7\nY\n9\n10\n";
+
+    Result first = diff(100, a, b, 1, 1, Position.START);
+    assertThat(first.chunks())
+        .containsExactly(
+            Chunk.skip(1),
+            Chunk.common(ImmutableList.of("2")),
+            Chunk.hunk(ImmutableList.of("3"), ImmutableList.of("X")),
+            Chunk.common(ImmutableList.of("4")))
+        .inOrder();
+    assertThat(first.next().get().toToken()).isEqualTo("4-4");
+    assertThat(first.linesA().isPresent()).isFalse();
+
+    Result second = diff(100, a, b, 1, 1, Position.parse(first.next().get().toToken()));
+    assertThat(second.chunks())
+        .containsExactly(
+            Chunk.skip(2),
+            Chunk.common(ImmutableList.of("7")),
+            Chunk.hunk(ImmutableList.of("8"), ImmutableList.of("Y")),
+            Chunk.common(ImmutableList.of("9")))
+        .inOrder();
+
+    Result last = diff(100, a, b, 1, 1, second.next().get());
+    assertThat(last.chunks()).containsExactly(Chunk.skip(1));
+    assertThat(last.next()).isEmpty();
+    assertThat(last.linesA().getAsInt()).isEqualTo(10);
+  }
+
+  @Test
+  public void hunksAreLimitedByWindow() throws Exception {
+    Result r = diff(2, "a1\na2\na3\n", "b1\nb2\nb3\n", 1, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.hunk(ImmutableList.of("a1", "a2"), ImmutableList.of("b1", "b2")),
+            Chunk.hunk(ImmutableList.of("a3"), ImmutableList.of("b3")))
+        .inOrder();
+  }
+
+  @Test
+  public void uniqueLineIsPreferredAsAnchor() throws Exception {
+    Result r = diff(100, "x\n}\nfoo\n}\n", "y\nfoo\n}\n", 0, 10, Position.START);
+    assertThat(r.chunks().get(0))
+        .isEqualTo(Chunk.hunk(ImmutableList.of("x", "}"), ImmutableList.of("y")));
+  }
+
+  @Test
+  public void addedFile() throws Exception {
+    Result r = diff(100, "", "1\n2\n", 3, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(Chunk.hunk(ImmutableList.of(), ImmutableList.of("1", "2")));
+  }
+
+  @Test
+  public void ignoresWhitespace() throws Exception {
+    Result r =
+        new StreamingDiff(100)
+            .diff(
+                in("a b\nx\n"),
+                in("ab \ny\n"),
+                ChangeType.MODIFIED,
+                Whitespace.IGNORE_ALL,
+                3,
+                10,
+                Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.common(ImmutableList.of("a b")),
+            Chunk.hunk(ImmutableList.of("x"), ImmutableList.of("y")))
+        .inOrder();
+  }
+
+  @Test
+  public void bareCarriageReturnDoesNotEndLine() throws Exception {
+    Result r = diff(100, "1\r2\n3\n", "1\r2\n4\n", 1, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.common(ImmutableList.of("1\r2")),
+            Chunk.hunk(ImmutableList.of("3"), ImmutableList.of("4")))
+        .inOrder();
+    assertThat(r.linesA()).hasValue(2);
+    assertThat(r.linesB()).hasValue(2);
+  }
+
+  @Test
+  public void changedLineEndingIsDifference() throws Exception {
+    Result r = diff(100, "1\n2\n", "1\r\n2\n", 1, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.hunk(ImmutableList.of("1"), ImmutableList.of("1\r")),
+            Chunk.common(ImmutableList.of("2")))
+        .inOrder();
+  }
+
+  @Test
+  public void missingNewlineAtEndOfFileIsDifference() throws Exception {
+    Result r = diff(100, "1\n2\n", "1\n2", 1, 10, Position.START);
+    assertThat(r.chunks())
+        .containsExactly(
+            Chunk.common(ImmutableList.of("1")),
+            Chunk.hunk(ImmutableList.of("2"), ImmutableList.of("2")))
+        .inOrder();
+    assertThat(r.linesB()).hasValue(2);
+  }
+
+  @Test
+  public void invalidToken() {
+    assertThrows(IllegalArgumentException.class, () -> Position.parse("foo"));
+    assertThrows(IllegalArgumentException.class, () -> Position.parse("1-x"));
+    assertThrows(IllegalArgumentException.class, () -> Position.parse("-1-2"));
+  }
+
+  private static Result diff(
+      int window, String a, String b, int context, int maxHunks, Position start)
+      throws Exception {
+    return new StreamingDiff(window)
+        .diff(in(a), in(b), ChangeType.MODIFIED, Whitespace.IGNORE_NONE, context, maxHunks, start);
+  }
+
+  private static InputStream in(String content) {
+    return new ByteArrayInputStream(content.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.filediff;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+public class PackedEditsTest {
+  @Test
+  public void emptyEdits() {
+    assertThat(PackedEdits.pack(ImmutableList.of())).isEqualTo(ByteString.EMPTY);
+    assertThat(PackedEdits.unpack(ByteString.EMPTY)).isEmpty();
+    assertThat(PackedEdits.unpackTagged(ByteString.EMPTY)).isEmpty();
+  }
+
+  @Test
+  public void roundTrip() {
+    ImmutableList<Edit> edits =
+        ImmutableList.of(
+            Edit.create(0, 0, 0, 3),
+            Edit.create(1, 5, 4, 4),
+            Edit.create(21, 30, 150, 158),
+            Edit.create(100000, 100001, 100200, 100201));
+    assertThat(PackedEdits.unpack(PackedEdits.pack(edits))).isEqualTo(edits);
+  }
+
+  @Test
+  public void roundTripUnsortedEdits() {
+    ImmutableList<Edit> edits =
+        ImmutableList.of(Edit.create(21, 30, 150, 158), Edit.create(1, 5, 3, 4));
+    assertThat(PackedEdits.unpack(PackedEdits.pack(edits))).isEqualTo(edits);
+  }
+
+  @Test
+  public void roundTripTagged() {
+    ImmutableList<TaggedEdit> edits =
+        ImmutableList.of(
+            TaggedEdit.create(Edit.create(1, 5, 3, 4), true),
+            TaggedEdit.create(Edit.create(21, 30, 150, 158), false),
+            TaggedEdit.create(Edit.create(40, 41, 160, 160), false),
+            TaggedEdit.create(Edit.create(50, 52, 170, 171), true));
+    assertThat(PackedEdits.unpackTagged(PackedEdits.packTagged(edits))).isEqualTo(edits);
+  }
+
+  @Test
+  public void smallerThanFourIntegersPerEdit() {
+    ImmutableList.Builder<Edit> edits = ImmutableList.builder();
+    for (int i = 0; i < 1000; i++) {
+      edits.add(Edit.create(i * 100, i * 100 + 3, i * 100 + 10, i * 100 + 12));
+    }
+    assertThat(PackedEdits.pack(edits.build()).size()).isLessThan(1000 * 4 * 2);
+  }
+
+  @Test
+  public void invalidInput() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> PackedEdits.unpack(ByteString.copyFrom(new byte[] {(byte) 0x7f})));
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitdiff;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Patch;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AcceleratedRenameDetectorTest {
+  private TestRepository<InMemoryRepository> tr;
+
+  @Before
+  public void setUp() throws Exception {
+    tr = new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("repo")));
+  }
+
+  @Test
+  public void exactRenamesArePairedByBlob() throws Exception {
+    RevTree a = tr.tree(tr.file("old/a.txt", tr.blob("a\n")), tr.file("old/b.txt", tr.blob("b\n")));
+    RevTree b = tr.tree(tr.file("new/a.txt", tr.blob("a\n")), tr.file("new/b.txt", tr.blob("b\n")));
+
+    assertThat(load(a, b))
+        .containsExactly(renamed("old/a.txt", "new/a.txt"), renamed("old/b.txt", "new/b.txt"));
+  }
+
+  @Test
+  public void secondAddedFileWithSameBlobIsCopy() throws Exception {
+    RevTree a = tr.tree(tr.file("a.txt", tr.blob("content\n")));
+    RevTree b =
+        tr.tree(tr.file("b.txt", tr.blob("content\n")), tr.file("c.txt", tr.blob("content\n")));
+
+    assertThat(load(a, b))
+        .containsExactly(
+            renamed("a.txt", "b.txt"),
+            ModifiedFile.builder()
+                .changeType(Patch.ChangeType.COPIED)
+                .oldPath(Optional.of("a.txt"))
+                .newPath(Optional.of("c.txt"))
+                .build());
+  }
+
+  @Test
+  public void similarFilesAreRenamed() throws Exception {
+    String content = lines(100);
+    RevTree a =
+        tr.tree(
+            tr.file("src/Foo.java", tr.blob(content)),
+            tr.file("src/Unrelated.java", tr.blob(lines(200).substring(content.length()))));
+    RevTree b =
+        tr.tree(
+            tr.file("lib/Foo.java", tr.blob(content + "one more line\n")),
+            tr.file("lib/Other.java", tr.blob("something completely different\n")));
+
+    assertThat(load(a, b))
+        .containsExactly(
+            renamed("src/Foo.java", "lib/Foo.java"),
+            added("lib/Other.java"),
+            deleted("src/Unrelated.java"));
+  }
+
+  @Test
+  public void dissimilarFilesAreNotRenamed() throws Exception {
+    RevTree a = tr.tree(tr.file("a.txt", tr.blob(lines(50))));
+    RevTree b = tr.tree(tr.file("b.txt", tr.blob(lines(100).substring(lines(50).length()))));
+
+    assertThat(load(a, b)).containsExactly(added("b.txt"), deleted("a.txt"));
+  }
+
+  @Test
+  public void oversizedBucketTruncatesDetection() throws Exception {
+    // All files share the same lines apart from one, so they fall into the same buckets.
+    String common = lines(100);
+    List<DirCacheEntry> oldFiles = new ArrayList<>();
+    List<DirCacheEntry> newFiles = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      oldFiles.add(tr.file("old/" + i + ".txt", tr.blob(common + "old " + i + "\n")));
+      newFiles.add(tr.file("new/" + i + ".txt", tr.blob(common + "new " + i + "\n")));
+    }
+
+    try (ObjectReader reader = tr.getRepository().newObjectReader();
+        TreeWalk tw = new TreeWalk(reader)) {
+      tw.setRecursive(true);
+      tw.addTree(tr.tree(oldFiles.toArray(new DirCacheEntry[0])));
+      tw.addTree(tr.tree(newFiles.toArray(new DirCacheEntry[0])));
+      AcceleratedRenameDetector detector = new AcceleratedRenameDetector(reader, 60);
+      detector.compute(DiffEntry.scan(tw));
+      assertThat(detector.isTruncated()).isTrue();
+    }
+  }
+
+  @Test
+  public void signatureIsIndependentOfLineEndings() {
+    assertThat(AcceleratedRenameDetector.signature("a\r\nb\r\n".getBytes(UTF_8)))
+        .isEqualTo(AcceleratedRenameDetector.signature("a\nb\n".getBytes(UTF_8)));
+  }
+
+  private ImmutableList<ModifiedFile> load(RevTree a, RevTree b) throws Exception {
+    try (ObjectReader reader = tr.getRepository().newObjectReader()) {
+      return new GitModifiedFilesLoader()
+          .withRenameDetection(60)
+          .withAcceleratedRenameDetection()
+          .load(tr.getRepository().getConfig(), reader, a, b);
+    }
+  }
+
+  private static String lines(int count) {
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      b.append("line ").append(i).append('\n');
+    }
+    return b.toString();
+  }
+
+  private static ModifiedFile renamed(String oldPath, String newPath) {
+    return ModifiedFile.builder()
+        .changeType(Patch.ChangeType.RENAMED)
+        .oldPath(Optional.of(oldPath))
+        .newPath(Optional.of(newPath))
+        .build();
+  }
+
+  private static ModifiedFile added(String path) {
+    return ModifiedFile.builder()
+        .changeType(Patch.ChangeType.ADDED)
+        .oldPath(Optional.empty())
+        .newPath(Optional.of(path))
+        .build();
+  }
+
+  private static ModifiedFile deleted(String path) {
+    return ModifiedFile.builder()
+        .changeType(Patch.ChangeType.DELETED)
+        .oldPath(Optional.of(path))
+        .newPath(Optional.empty())
+        .build();
+  }
+}
@@ -0,0 +1,150 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitfilediff;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithmFactory;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Test;
+
+public class GitBlobDiffCacheTest {
+  private static final ObjectId BLOB_ID_1 =
+      ObjectId.fromString("123e9fa8a286255ac7d5ba11b598892735758391");
+  private static final ObjectId BLOB_ID_2 =
+      ObjectId.fromString("d07a03a9818c120301cb5b4a969b035479400b5f");
+
+  @Test
+  public void keyRoundTrip() {
+    GitBlobDiffCache.Key key =
+        GitBlobDiffCache.Key.create(
+            BLOB_ID_1, BLOB_ID_2, Whitespace.IGNORE_ALL, DiffAlgorithm.HISTOGRAM_NO_FALLBACK);
+
+    byte[] serialized = GitBlobDiffCache.Key.Serializer.INSTANCE.serialize(key);
+
+    assertThat(GitBlobDiffCache.Key.Serializer.INSTANCE.deserialize(serialized)).isEqualTo(key);
+  }
+
+  @Test
+  public void editsOfSameBlobPairAreComputedOnce() throws Exception {
+    TestRepository<InMemoryRepository> tr =
+        new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("repo")));
+    String oldContent = "a\nb\nc\n";
+    String newContent = "a\nB\nc\nd\n";
+    DiffEntry file = modification(tr, "file.txt", oldContent, newContent);
+    DiffEntry otherFile = modification(tr, "other.txt", oldContent, newContent);
+    GitBlobDiffCache cache =
+        new GitBlobDiffCache(
+            CacheBuilder.newBuilder().build(),
+            new GitBlobDiffCache.Metrics(new DisabledMetricMaker()));
+    CountingDiffAlgorithm counting =
+        new CountingDiffAlgorithm(
+            DiffAlgorithmFactory.create(DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS));
+    GitBlobDiffCache.BlobPairDiffAlgorithm algorithm =
+        cache.wrap(counting, Whitespace.IGNORE_NONE, DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS);
+    RawText a = new RawText(oldContent.getBytes(UTF_8));
+    RawText b = new RawText(newContent.getBytes(UTF_8));
+
+    algorithm.setDiffEntry(file);
+    EditList computed = algorithm.diff(RawTextComparator.DEFAULT, a, b);
+    algorithm.setDiffEntry(otherFile);
+    EditList reused = algorithm.diff(RawTextComparator.DEFAULT, a, b);
+
+    assertThat(counting.calls).isEqualTo(1);
+    assertThat(reused).isEqualTo(computed);
+  }
+
+  @Test
+  public void editsOfCancelledComputationAreNotStored() throws Exception {
+    TestRepository<InMemoryRepository> tr =
+        new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("repo")));
+    String oldContent = "a\nb\nc\n";
+    String newContent = "a\nB\nc\nd\n";
+    DiffEntry file = modification(tr, "file.txt", oldContent, newContent);
+    GitBlobDiffCache cache =
+        new GitBlobDiffCache(
+            CacheBuilder.newBuilder().build(),
+            new GitBlobDiffCache.Metrics(new DisabledMetricMaker()));
+    CountingDiffAlgorithm counting =
+        new CountingDiffAlgorithm(
+            DiffAlgorithmFactory.create(DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS));
+    GitBlobDiffCache.BlobPairDiffAlgorithm algorithm =
+        cache.wrap(counting, Whitespace.IGNORE_NONE, DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS);
+    RawText a = new RawText(oldContent.getBytes(UTF_8));
+    RawText b = new RawText(newContent.getBytes(UTF_8));
+
+    algorithm.setDiffEntry(file);
+    // Cancelling the computation of a file diff interrupts its thread.
+    Thread.currentThread().interrupt();
+    try {
+      algorithm.diff(RawTextComparator.DEFAULT, a, b);
+    } finally {
+      assertThat(Thread.interrupted()).isTrue();
+    }
+    algorithm.diff(RawTextComparator.DEFAULT, a, b);
+
+    assertThat(counting.calls).isEqualTo(2);
+  }
+
+  private static DiffEntry modification(
+      TestRepository<InMemoryRepository> tr, String path, String oldContent, String newContent)
+      throws Exception {
+    RevTree oldTree = tr.tree(tr.file(path, tr.blob(oldContent)));
+    RevTree newTree = tr.tree(tr.file(path, tr.blob(newContent)));
+    try (TreeWalk tw = new TreeWalk(tr.getRepository())) {
+      tw.addTree(oldTree);
+      tw.addTree(newTree);
+      return getOnlyElement(DiffEntry.scan(tw));
+    }
+  }
+
+  private static class CountingDiffAlgorithm extends org.eclipse.jgit.diff.DiffAlgorithm {
+    private final org.eclipse.jgit.diff.DiffAlgorithm delegate;
+    private int calls;
+
+    CountingDiffAlgorithm(org.eclipse.jgit.diff.DiffAlgorithm delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public <S extends Sequence> EditList diff(SequenceComparator<? super S> cmp, S a, S b) {
+      calls++;
+      return delegate.diff(cmp, a, b);
+    }
+
+    @Override
+    public <S extends Sequence> EditList diffNonCommon(
+        SequenceComparator<? super S> cmp, S a, S b) {
+      return delegate.diffNonCommon(cmp, a, b);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch.gitfilediff;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.gerrit.entities.Patch;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.patch.filediff.Edit;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
+import com.google.gerrit.testing.InMemoryRepositoryManager;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GitFileDiffCacheImplTest {
+  private final Project.NameKey project = Project.nameKey("project");
+
+  private InMemoryRepositoryManager repoManager;
+  private TestRepository<InMemoryRepository> tr;
+  private DelayingExecutor executor;
+
+  @Before
+  public void setUp() throws Exception {
+    repoManager = new InMemoryRepositoryManager();
+    tr = new TestRepository<>(repoManager.createRepository(project));
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void eachFileGetsItsOwnTimeout() throws Exception {
+    // The diffs are computed one after another, each takes more than half of the timeout.
+    executor = new DelayingExecutor(600, 600);
+    Config cfg = new Config();
+    cfg.setString("cache", "git_file_diff", "timeout", "1000ms");
+    cfg.setInt("cache", "git_file_diff", "parallelism", 2);
+    RevTree oldTree = tr.tree(tr.file("a.txt", tr.blob("a\n")), tr.file("b.txt", tr.blob("b\n")));
+    RevTree newTree =
+        tr.tree(tr.file("a.txt", tr.blob("a\nA\n")), tr.file("b.txt", tr.blob("b\nB\n")));
+    ImmutableList<GitFileDiffCacheKey> keys =
+        ImmutableList.of(key(oldTree, newTree, "a.txt"), key(oldTree, newTree, "b.txt"));
+
+    Map<GitFileDiffCacheKey, GitFileDiff> diffs = newLoader(cfg).loadAll(keys);
+
+    assertThat(diffs.keySet()).containsExactlyElementsIn(keys);
+    for (GitFileDiff diff : diffs.values()) {
+      assertThat(diff.isNegative()).isFalse();
+      assertThat(diff.edits()).hasSize(1);
+    }
+  }
+
+  @Test
+  public void diffsOfSeveralWindows() throws Exception {
+    executor = new DelayingExecutor(0, 0);
+    Config cfg = new Config();
+    cfg.setInt("cache", "git_file_diff", "parallelism", 1);
+    RevTree oldTree =
+        tr.tree(
+            tr.file("a.txt", tr.blob("a\n")),
+            tr.file("b.txt", tr.blob("b\n")),
+            tr.file("c.txt", tr.blob("c\n")));
+    RevTree newTree =
+        tr.tree(
+            tr.file("a.txt", tr.blob("a\nA\n")),
+            tr.file("b.txt", tr.blob("B\n")),
+            tr.file("c.txt", tr.blob("c\n")));
+    GitFileDiffCacheKey a = key(oldTree, newTree, "a.txt");
+    GitFileDiffCacheKey b = key(oldTree, newTree, "b.txt");
+    GitFileDiffCacheKey c = key(oldTree, newTree, "c.txt");
+
+    Map<GitFileDiffCacheKey, GitFileDiff> diffs = newLoader(cfg).loadAll(ImmutableList.of(a, b, c));
+
+    assertThat(diffs.get(a).edits()).containsExactly(Edit.create(1, 1, 1, 2));
+    assertThat(diffs.get(b).edits()).containsExactly(Edit.create(0, 1, 0, 1));
+    assertThat(diffs.get(c).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void failedDiffCancelsOutstandingDiffsOfWindow() throws Exception {
+    // The first diff fails right away, the second one would only start much later.
+    executor = new DelayingExecutor(0, TimeUnit.MINUTES.toMillis(1));
+    Config cfg = new Config();
+    cfg.setInt("cache", "git_file_diff", "parallelism", 2);
+    ObjectId missingBlob = ObjectId.fromString("0123456789012345678901234567890123456789");
+    RevTree oldTree = tr.tree(tr.file("a.txt", tr.blob("a\n")), tr.file("b.txt", tr.blob("b\n")));
+    RevTree newTree =
+        tr.tree(
+            tr.file("a.txt", tr.getRevWalk().lookupBlob(missingBlob)),
+            tr.file("b.txt", tr.blob("b\nB\n")));
+    ImmutableList<GitFileDiffCacheKey> keys =
+        ImmutableList.of(key(oldTree, newTree, "a.txt"), key(oldTree, newTree, "b.txt"));
+
+    assertThrows(IOException.class, () -> newLoader(cfg).loadAll(keys));
+
+    assertThat(executor.futures).hasSize(2);
+    assertThat(Iterables.getLast(executor.futures).isCancelled()).isTrue();
+  }
+
+  @Test
+  public void acceleratedRenameDetection() throws Exception {
+    executor = new DelayingExecutor(0, 0);
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      content.append("line ").append(i).append('\n');
+    }
+    RevTree oldTree = tr.tree(tr.file("a.txt", tr.blob(content.toString())));
+    RevTree newTree = tr.tree(tr.file("b.txt", tr.blob(content.append("line 20\n").toString())));
+    GitFileDiffCacheKey key =
+        GitFileDiffCacheKey.builder()
+            .project(project)
+            .oldTree(oldTree)
+            .newTree(newTree)
+            .newFilePath("b.txt")
+            .renameScore(60)
+            .acceleratedRenameDetection(true)
+            .diffAlgorithm(DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS)
+            .whitespace(Whitespace.IGNORE_NONE)
+            .useTimeout(true)
+            .build();
+
+    GitFileDiff diff = newLoader(new Config()).load(key);
+
+    assertThat(diff.changeType()).isEqualTo(Patch.ChangeType.RENAMED);
+    assertThat(diff.oldPath()).hasValue("a.txt");
+    assertThat(diff.edits()).hasSize(1);
+  }
+
+  private GitFileDiffCacheImpl.Loader newLoader(Config cfg) {
+    return new GitFileDiffCacheImpl.Loader(
+        cfg,
+        repoManager,
+        executor,
+        new GitFileDiffCacheImpl.Metrics(new DisabledMetricMaker()),
+        new GitBlobDiffCache(
+            CacheBuilder.newBuilder().build(),
+            new GitBlobDiffCache.Metrics(new DisabledMetricMaker())));
+  }
+
+  private GitFileDiffCacheKey key(RevTree oldTree, RevTree newTree, String path) {
+    return GitFileDiffCacheKey.builder()
+        .project(project)
+        .oldTree(oldTree)
+        .newTree(newTree)
+        .newFilePath(path)
+        .disableRenameDetection()
+        .diffAlgorithm(DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS)
+        .whitespace(Whitespace.IGNORE_NONE)
+        .useTimeout(true)
+        .build();
+  }
+
+  /**
+   * Single threaded executor which delays the start of each task and records the futures of the
+   * submitted tasks.
+   */
+  private static class DelayingExecutor extends ThreadPoolExecutor {
+    final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private final long firstDelayMillis;
+    private final long laterDelayMillis;
+    private final AtomicInteger started = new AtomicInteger();
+
+    DelayingExecutor(long firstDelayMillis, long laterDelayMillis) {
+      super(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+      this.firstDelayMillis = firstDelayMillis;
+      this.laterDelayMillis = laterDelayMillis;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+      RunnableFuture<T> future = super.newTaskFor(callable);
+      futures.add(future);
+      return future;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+      try {
+        Thread.sleep(started.getAndIncrement() == 0 ? firstDelayMillis : laterDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.permissions;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.acceptance.testsuite.project.TestProjectUpdate.allow;
+import static com.google.gerrit.acceptance.testsuite.project.TestProjectUpdate.block;
+import static com.google.gerrit.entities.Permission.PUSH;
+import static com.google.gerrit.entities.Permission.READ;
+import static com.google.gerrit.server.group.SystemGroupBackend.ANONYMOUS_USERS;
+import static com.google.gerrit.server.group.SystemGroupBackend.REGISTERED_USERS;
+import static com.google.gerrit.server.project.ProjectCache.illegalState;
+
+import com.google.common.cache.Cache;
+import com.google.common.collect.Lists;
+import com.google.gerrit.acceptance.testsuite.project.ProjectOperations;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.account.GroupMembership;
+import com.google.gerrit.server.account.ListGroupMembership;
+import com.google.gerrit.server.index.SingleVersionModule.SingleVersionListener;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.schema.SchemaCreator;
+import com.google.gerrit.server.util.ThreadLocalRequestContext;
+import com.google.gerrit.testing.InMemoryModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import java.util.ArrayList;
+import org.eclipse.jgit.lib.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PermissionDecisionCacheTest {
+  private static final AccountGroup.UUID DEVS = AccountGroup.uuid("1".repeat(40));
+  private static final AccountGroup.UUID OTHERS = AccountGroup.uuid("2".repeat(40));
+  private static final AccountGroup.UUID EXTERNAL = AccountGroup.uuid("ldap:cn=devs");
+  private static final String MASTER = "refs/heads/master";
+
+  @Inject private ProjectCache projectCache;
+  @Inject private ProjectControl.Factory projectControlFactory;
+  @Inject private ProjectOperations projectOperations;
+  @Inject private SchemaCreator schemaCreator;
+  @Inject private SingleVersionListener singleVersionListener;
+  @Inject private ThreadLocalRequestContext requestContext;
+
+  @Inject
+  @Named(PermissionDecisionCache.CACHE_NAME)
+  private Cache<PermissionDecisionCache.Key, Boolean> cache;
+
+  private Project.NameKey project;
+
+  @Before
+  public void setUp() throws Exception {
+    Config cfg = InMemoryModule.newDefaultConfig();
+    cfg.setBoolean("permissionDecisionCache", null, "enabled", true);
+    Guice.createInjector(new InMemoryModule(cfg)).injectMembers(this);
+
+    singleVersionListener.start();
+    try {
+      schemaCreator.create();
+    } finally {
+      singleVersionListener.stop();
+    }
+    project = projectOperations.newProject().create();
+
+    @SuppressWarnings("unused")
+    var unused = requestContext.setContext(() -> null);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    @SuppressWarnings("unused")
+    var unused = requestContext.setContext(null);
+  }
+
+  @Test
+  public void sharesDecisionsOfUsersInSameReferencedGroups() throws Exception {
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(allow(PUSH).ref("refs/heads/*").group(DEVS))
+        .update();
+
+    ProjectControl dev = user(DEVS);
+    ProjectControl otherDev = user(DEVS, OTHERS);
+    assertThat(dev.decisionScope()).isEqualTo(otherDev.decisionScope());
+
+    assertThat(canUpdate(dev)).isTrue();
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(canUpdate(otherDev)).isTrue();
+    assertThat(cache.size()).isEqualTo(1);
+
+    assertThat(canUpdate(user(OTHERS))).isFalse();
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void configChangeChangesDecisionScope() throws Exception {
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(allow(PUSH).ref("refs/heads/*").group(DEVS))
+        .update();
+    assertThat(canUpdate(user(DEVS))).isTrue();
+
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(block(PUSH).ref("refs/heads/*").group(DEVS))
+        .update();
+    assertThat(canUpdate(user(DEVS))).isFalse();
+  }
+
+  @Test
+  public void readDecisionsAreNotCached() throws Exception {
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(allow(READ).ref("refs/heads/*").group(DEVS))
+        .update();
+
+    assertThat(user(DEVS).asForProject().ref(MASTER).testOrFalse(RefPermission.READ)).isTrue();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void parameterizedRefPatternsPreventSharingDecisions() throws Exception {
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(allow(PUSH).ref("refs/heads/${username}/*").group(DEVS))
+        .update();
+
+    assertThat(user(DEVS).decisionScope().isPresent()).isFalse();
+  }
+
+  @Test
+  public void externalGroupsPreventSharingDecisions() throws Exception {
+    projectOperations
+        .project(project)
+        .forUpdate()
+        .add(allow(PUSH).ref("refs/heads/*").group(DEVS))
+        .add(allow(PUSH).ref("refs/heads/*").group(EXTERNAL))
+        .update();
+
+    ProjectControl dev = user(DEVS);
+    assertThat(dev.decisionScope().isPresent()).isFalse();
+    assertThat(canUpdate(dev)).isTrue();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  private boolean canUpdate(ProjectControl user) {
+    return user.asForProject().ref(MASTER).testOrFalse(RefPermission.UPDATE);
+  }
+
+  private ProjectControl user(AccountGroup.UUID... memberOf) {
+    return projectControlFactory.create(
+        new MockUser(memberOf), projectCache.get(project).orElseThrow(illegalState(project)));
+  }
+
+  private static class MockUser extends CurrentUser {
+    private final GroupMembership groups;
+
+    MockUser(AccountGroup.UUID[] groupId) {
+      ArrayList<AccountGroup.UUID> groupIds = Lists.newArrayList(groupId);
+      groupIds.add(REGISTERED_USERS);
+      groupIds.add(ANONYMOUS_USERS);
+      groups = new ListGroupMembership(groupIds);
+    }
+
+    @Override
+    public GroupMembership getEffectiveGroups() {
+      return groups;
+    }
+
+    @Override
+    public Object getCacheKey() {
+      return new Object();
+    }
+  }
+}
@@ -1845,6 +1845,62 @@ public abstract class AbstractQueryChangesTest extends GerritServerTests {
     assertQuery(newQuery("status:new limit:2").withStart(3));
   }
 
+  @Test
+  public void cursor() throws Exception {
+    Project.NameKey project = Project.nameKey("repo");
+    repo = createAndOpenProject(project);
+    List<Change> changes = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      changes.add(insert(project, newChange(repo)));
+    }
+
+    List<ChangeInfo> page = assertQuery("status:new limit:2", changes.get(4), changes.get(3));
+    String cursor = Iterables.getLast(page)._cursor;
+    assertThat(cursor).isNotNull();
+
+    page =
+        assertQuery(
+            newQuery("status:new limit:2").withCursor(cursor), changes.get(2), changes.get(1));
+    cursor = Iterables.getLast(page)._cursor;
+    assertThat(cursor).isNotNull();
+
+    page = assertQuery(newQuery("status:new limit:2").withCursor(cursor), changes.get(0));
+    assertThat(Iterables.getLast(page)._cursor).isNull();
+  }
+
+  @Test
+  public void cursorAcrossOpenAndClosedChanges() throws Exception {
+    Project.NameKey project = Project.nameKey("repo");
+    repo = createAndOpenProject(project);
+    List<Change> changes = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      changes.add(insert(project, newChange(repo)));
+    }
+    gApi.changes().id(changes.get(0).getId().get()).abandon();
+    gApi.changes().id(changes.get(2).getId().get()).abandon();
+
+    List<ChangeInfo> page = assertQuery("project:repo limit:2", changes.get(2), changes.get(0));
+    String cursor = Iterables.getLast(page)._cursor;
+    assertThat(cursor).isNotNull();
+
+    page =
+        assertQuery(
+            newQuery("project:repo limit:2").withCursor(cursor), changes.get(3), changes.get(1));
+    assertThat(Iterables.getLast(page)._cursor).isNull();
+  }
+
+  @Test
+  public void cursorCannotBeCombinedWithStart() throws Exception {
+    assertFailingQuery(
+        newQuery("status:new").withStart(1).withCursor("invalid"),
+        "'cursor' and 'start' parameters cannot be combined");
+  }
+
+  @Test
+  public void invalidCursor() throws Exception {
+    assertFailingQuery(newQuery("status:new").withCursor("invalid"), "invalid cursor: invalid");
+  }
+
   @Test
   public void maxPages() throws Exception {
     Project.NameKey project = Project.nameKey("repo");
@@ -0,0 +1,47 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class ChangeQueryCursorTest {
+  @Test
+  public void roundTrip() {
+    ChangeQueryCursor cursor = ChangeQueryCursor.create(1700000000123L, 1700000000456L, 12345);
+    assertThat(ChangeQueryCursor.decode(cursor.encode())).isEqualTo(cursor);
+  }
+
+  @Test
+  public void roundTripWithoutMergedOn() {
+    ChangeQueryCursor cursor = ChangeQueryCursor.create(1700000000123L, 0, 1);
+    assertThat(ChangeQueryCursor.decode(cursor.encode())).isEqualTo(cursor);
+  }
+
+  @Test
+  public void encodedCursorIsUrlSafe() {
+    String encoded = ChangeQueryCursor.create(-1L, -1L, -1).encode();
+    assertThat(encoded).matches("[A-Za-z0-9_-]+");
+  }
+
+  @Test
+  public void rejectInvalidCursor() {
+    assertThrows(IllegalArgumentException.class, () -> ChangeQueryCursor.decode("not a cursor"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeQueryCursor.decode("AAAA"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeQueryCursor.decode(""));
+  }
+}
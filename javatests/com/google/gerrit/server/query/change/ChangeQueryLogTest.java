@@ -0,0 +1,116 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeQueryLogTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = temporaryFolder.newFolder().toPath().resolve(ChangeQueryLog.FILE_NAME);
+  }
+
+  @Test
+  public void disabledByDefault() {
+    ChangeQueryLog log = new ChangeQueryLog(file, 0);
+    assertThat(log.isEnabled()).isFalse();
+    log.record("status:open");
+    log.stop();
+    assertThat(log.snapshot()).isEmpty();
+    assertThat(file.toFile().exists()).isFalse();
+  }
+
+  @Test
+  public void persistingQueriesIsOptIn() {
+    Config cfg = new Config();
+    cfg.setInt("index", "warmup", "queries", 10);
+    assertThat(ChangeQueryLog.maxQueries(cfg)).isEqualTo(0);
+
+    cfg.setBoolean("index", "warmup", "persistQueries", true);
+    assertThat(ChangeQueryLog.maxQueries(cfg)).isEqualTo(10);
+  }
+
+  @Test
+  public void disabledLogDeletesPersistedQueries() throws Exception {
+    ChangeQueryLog log = new ChangeQueryLog(file, 2);
+    log.record("status:open");
+    log.stop();
+    assertThat(Files.exists(file)).isTrue();
+
+    ChangeQueryLog disabled = new ChangeQueryLog(file, 0);
+    disabled.start();
+    assertThat(Files.exists(file)).isFalse();
+    assertThat(disabled.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void keepsMostRecentlyUsedQueries() {
+    ChangeQueryLog log = new ChangeQueryLog(file, 2);
+    log.record("status:open");
+    log.record("owner:1000000");
+    log.record("status:open");
+    log.record("project:foo");
+    assertThat(log.snapshot()).containsExactly("status:open", "project:foo").inOrder();
+  }
+
+  @Test
+  public void ignoresMultiLineQueries() {
+    ChangeQueryLog log = new ChangeQueryLog(file, 2);
+    log.record("message:\"foo\nbar\"");
+    log.record("");
+    assertThat(log.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void persistedOnStop() {
+    ChangeQueryLog log = new ChangeQueryLog(file, 3);
+    log.record("status:open");
+    log.record("project:foo");
+    log.stop();
+
+    ChangeQueryLog restarted = new ChangeQueryLog(file, 3);
+    assertThat(restarted.load()).containsExactly("status:open", "project:foo").inOrder();
+    restarted.start();
+    restarted.record("status:merged");
+    assertThat(restarted.snapshot())
+        .containsExactly("status:open", "project:foo", "status:merged")
+        .inOrder();
+  }
+
+  @Test
+  public void loadRespectsLimit() {
+    ChangeQueryLog log = new ChangeQueryLog(file, 3);
+    log.record("status:open");
+    log.record("project:foo");
+    log.record("status:merged");
+    log.stop();
+
+    assertThat(new ChangeQueryLog(file, 2).load())
+        .containsExactly("project:foo", "status:merged")
+        .inOrder();
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.query.change;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PostFilterEvaluatorTest {
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void serialEvaluationPreservesOrder() {
+    PostFilterEvaluator evaluator = newEvaluator(MoreExecutors.newDirectExecutorService(), 1);
+    assertThat(ids(evaluator.filter(changes(10), cd -> cd.getId().get() % 2 == 0)))
+        .containsExactly(2, 4, 6, 8, 10)
+        .inOrder();
+  }
+
+  @Test
+  public void concurrentEvaluationPreservesOrder() {
+    PostFilterEvaluator evaluator = newEvaluator(executor, 4);
+    assertThat(ids(evaluator.filter(changes(50), cd -> cd.getId().get() % 3 == 0)))
+        .containsExactlyElementsIn(
+            IntStream.rangeClosed(1, 50).filter(i -> i % 3 == 0).boxed().collect(toImmutableList()))
+        .inOrder();
+  }
+
+  @Test
+  public void concurrentEvaluationCompletesWithoutFreeExecutorThreads() {
+    ExecutorService shutDown = Executors.newSingleThreadExecutor();
+    shutDown.shutdown();
+    PostFilterEvaluator evaluator = newEvaluator(shutDown, 4);
+    assertThat(ids(evaluator.filter(changes(5), cd -> true))).containsExactly(1, 2, 3, 4, 5);
+  }
+
+  @Test
+  public void failurePropagates() {
+    PostFilterEvaluator evaluator = newEvaluator(executor, 4);
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                evaluator.filter(
+                    changes(20),
+                    cd -> {
+                      if (cd.getId().get() == 7) {
+                        throw new IllegalStateException("boom");
+                      }
+                      return true;
+                    }));
+    assertThat(e).hasMessageThat().isEqualTo("boom");
+  }
+
+  private static PostFilterEvaluator newEvaluator(ExecutorService executor, int parallelism) {
+    return new PostFilterEvaluator(
+        executor, new PostFilterEvaluator.Metrics(new DisabledMetricMaker()), parallelism);
+  }
+
+  private static ImmutableList<ChangeData> changes(int n) {
+    return IntStream.rangeClosed(1, n)
+        .mapToObj(
+            i ->
+                ChangeData.createForTest(
+                    Project.nameKey("project"), Change.id(i), 1, ObjectId.zeroId()))
+        .collect(toImmutableList());
+  }
+
+  private static ImmutableList<Integer> ids(List<ChangeData> changes) {
+    return changes.stream().map(cd -> cd.getId().get()).collect(toImmutableList());
+  }
+}
@@ -19,10 +19,12 @@ import static java.util.Comparator.comparing;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyShort;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.truth.Correspondence;
 import com.google.gerrit.entities.Account;
@@ -39,11 +41,15 @@ import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
 import com.google.gerrit.server.patch.DiffOperations;
 import com.google.gerrit.server.patch.DiffOptions;
+import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
+import com.google.gerrit.server.patch.PositionMappingCache;
 import com.google.gerrit.server.restapi.change.CommentPorter.Metrics;
 import com.google.gerrit.truth.NullAwareCorrespondence;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Optional;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Rule;
 import org.junit.Test;
@@ -59,6 +65,7 @@ public class CommentPorterTest {
   @Rule public final MockitoRule mockito = MockitoJUnit.rule();
 
   @Mock private DiffOperations diffOperations;
+  @Mock private PositionMappingCache positionMappingCache;
   @Mock private CommentsUtil commentsUtil;
 
   private static final CommentPorter.Metrics metrics = new Metrics(new DisabledMetricMaker());
@@ -74,7 +81,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -100,7 +107,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -126,7 +133,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenThrow(IllegalStateException.class);
@@ -146,7 +153,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -175,7 +182,7 @@ public class CommentPorterTest {
     PatchSet patchset3 = createPatchset(PatchSet.id(changeId, 3));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2, patchset3);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     // Place the comments on different patchsets to have two different diff requests.
     HumanComment comment1 = createComment(patchset1.id(), "myFile");
     HumanComment comment2 = createComment(patchset2.id(), "myFile");
@@ -208,7 +215,7 @@ public class CommentPorterTest {
     // Leave out patchset 1 (e.g. reserved for draft patchsets in the past).
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -225,6 +232,48 @@ public class CommentPorterTest {
     assertThat(portedComments).isEmpty();
   }
 
+  @Test
+  public void commentsArePortedAlongChainOfPatchsetsWhenPortingIncrementally() throws Exception {
+    Project.NameKey project = Project.nameKey("myProject");
+    Change.Id changeId = Change.id(1);
+    Change change = createChange(project, changeId);
+    PatchSet patchset1 = createPatchset(PatchSet.id(changeId, 1));
+    PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
+    PatchSet patchset3 = createPatchset(PatchSet.id(changeId, 3));
+    ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2, patchset3);
+
+    Config cfg = new Config();
+    cfg.setBoolean("change", null, "portCommentsIncrementally", true);
+    CommentPorter commentPorter =
+        new CommentPorter(diffOperations, positionMappingCache, commentsUtil, metrics, cfg);
+    HumanComment comment = createComment(patchset1.id(), "myFile");
+    ImmutableList<ObjectId> commits =
+        ImmutableList.of(
+            ObjectId.fromString("1111111111111111111111111111111111111111"),
+            ObjectId.fromString("2222222222222222222222222222222222222222"),
+            ObjectId.fromString("3333333333333333333333333333333333333333"));
+    when(commentsUtil.determineCommitId(any(), any(), anyShort()))
+        .thenAnswer(
+            invocation ->
+                Optional.of(commits.get(invocation.<PatchSet>getArgument(1).id().get() - 1)));
+    when(positionMappingCache.get(project, commits))
+        .thenReturn(
+            ImmutableSet.of(
+                Mapping.create(
+                    FileMapping.forRenamedFile("myFile", "yourFile"), ImmutableSet.of())));
+    ImmutableList<HumanComment> portedComments =
+        commentPorter.portComments(
+            changeNotes, patchset3, ImmutableList.of(comment), ImmutableList.of());
+
+    assertThat(portedComments).comparingElementsUsing(hasFilePath()).containsExactly("yourFile");
+    verifyNoInteractions(diffOperations);
+  }
+
+  private CommentPorter newCommentPorter() {
+    return new CommentPorter(
+        diffOperations, positionMappingCache, commentsUtil, metrics, new Config());
+  }
+
   private Change createChange(Project.NameKey project, Change.Id changeId) {
     return new Change(
         Change.key("changeKey"),